@@ -0,0 +1,104 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consistent hashing with bounded loads (Mirrokni, Thorup &amp; Zadimoghaddam, 2018). Every
+ * node may hold at most {@code ceil((1+ε) · (in-flight + 1) / nodes)} leases; a key whose
+ * first choice is full goes to the next node in the engine's replica order with spare
+ * capacity. Loads are {@link LongAdder}s, so acquire and release never take a lock; under
+ * concurrency the bound can be overshot by at most the number of racing acquirers.
+ */
+final class BoundedLoads {
+    private final double epsilon;
+    private final LongAdder total=new LongAdder();
+    private volatile Table table;
+
+    /** An engine with one load counter per node index. */
+    private static final class Table {
+        final RoutingEngine engine;
+        final LongAdder[] load;
+
+        Table(RoutingEngine engine,LongAdder[] load){
+            this.engine=engine;
+            this.load=load;
+        }
+    }
+
+    BoundedLoads(double epsilon,RoutingEngine engine){
+        if (!(epsilon > 0) || Double.isInfinite(epsilon)) {
+            throw new IllegalArgumentException("epsilon must be positive and finite: " + epsilon);
+        }
+        this.epsilon=epsilon;
+        rebind(engine);
+    }
+
+    /**
+     * Switches to a newly published engine. Surviving nodes keep their counters (matched by
+     * id), so leases taken before the switch still release the right one.
+     */
+    synchronized void rebind(RoutingEngine engine){
+        Map<String,LongAdder> previous=new HashMap<>();
+        Table old=table;
+        if (old != null) {
+            List<Node> nodes=old.engine.getNodes();
+            for (int i = 0; i < nodes.size(); i++) previous.put(nodes.get(i).getId(),old.load[i]);
+        }
+        List<Node> nodes=engine.getNodes();
+        LongAdder[] load=new LongAdder[nodes.size()];
+        for (int i = 0; i < load.length; i++) {
+            LongAdder counter=previous.get(nodes.get(i).getId());
+            load[i]=counter != null ? counter : new LongAdder();
+        }
+        table=new Table(engine,load);
+    }
+
+    /**
+     * Leases the key's first node with spare capacity; nodes down in {@code live} are
+     * skipped when it belongs to the same engine (it lags by at most one publish).
+     */
+    Lease acquire(long keyHash,Liveness.Table live){
+        Table t=table;
+        int n=t.load.length;
+        EngineSupport.checkNotEmpty(n);
+        if (live.engine != t.engine || !live.anyDown()) live=null;
+        long capacity=(long) Math.ceil((1 + epsilon) * (total.sum() + 1) / n);
+        int primary=live == null ? t.engine.routeIndex(keyHash) : live.routeIndex(keyHash);
+        if (t.load[primary].sum() < capacity) return take(t,primary);
+        // slow path: widen the candidate list geometrically instead of walking all nodes up front
+        int leastLoaded=primary;
+        for (int want = Math.min(n,4); ; want=Math.min(n,want * 4)) {
+            int[] candidates=new int[want];
+            int got=live == null ? t.engine.routeN(keyHash,candidates) : live.routeN(keyHash,candidates);
+            for (int k = 1; k < got; k++) {
+                int c=candidates[k];
+                long load=t.load[c].sum();
+                if (load < capacity) return take(t,c);
+                if (load < t.load[leastLoaded].sum()) leastLoaded=c;
+            }
+            // every node full can only happen while other threads race past the bound
+            if (got < want || want == n) return take(t,leastLoaded);
+        }
+    }
+
+    private Lease take(Table t,int index){
+        LongAdder counter=t.load[index];
+        counter.increment();
+        total.increment();
+        return new Lease(t.engine.getNodes().get(index),counter,total);
+    }
+
+    /** Current in-flight leases per node id, in engine order. */
+    Map<String,Long> loads(){
+        Table t=table;
+        Map<String,Long> out=new LinkedHashMap<>();
+        List<Node> nodes=t.engine.getNodes();
+        for (int i = 0; i < t.load.length; i++) out.put(nodes.get(i).getId(),t.load[i].sum());
+        return out;
+    }
+
+    double epsilon(){
+        return epsilon;
+    }
+}
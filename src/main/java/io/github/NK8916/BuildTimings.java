@@ -0,0 +1,46 @@
+package io.github.NK8916;
+
+/**
+ * Wall-clock nanoseconds spent in the phases of the initial build, recorded by
+ * {@link ConsistentHashingBuilder#build()} when metrics are enabled. Engines other than
+ * the ring only report a total.
+ */
+public final class BuildTimings {
+    long hashNanos;
+    long sortNanos;
+    long gatherNanos;
+    long indexNanos;
+    long totalNanos;
+
+    BuildTimings(){}
+
+    /** Hashing every vnode label. */
+    public long getHashNanos(){
+        return hashNanos;
+    }
+
+    /** Sorting points with their owners. */
+    public long getSortNanos(){
+        return sortNanos;
+    }
+
+    /** Copying sorted owners into the owner table. */
+    public long getGatherNanos(){
+        return gatherNanos;
+    }
+
+    /** Building the snapshot: layout, search index and replica tables. */
+    public long getIndexNanos(){
+        return indexNanos;
+    }
+
+    public long getTotalNanos(){
+        return totalNanos;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("BuildTimings[hash=%.3fms, sort=%.3fms, gather=%.3fms, index=%.3fms, total=%.3fms]",
+                hashNanos / 1e6,sortNanos / 1e6,gatherNanos / 1e6,indexNanos / 1e6,totalNanos / 1e6);
+    }
+}
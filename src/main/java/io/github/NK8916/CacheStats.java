@@ -0,0 +1,42 @@
+package io.github.NK8916;
+
+/**
+ * Point-in-time counters of the key cache enabled by
+ * {@link ConsistentHashingBuilder#withKeyCache(int)}.
+ */
+public final class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final int capacity;
+
+    CacheStats(long hits,long misses,int capacity){
+        this.hits=hits;
+        this.misses=misses;
+        this.capacity=capacity;
+    }
+
+    public long getHits(){
+        return hits;
+    }
+
+    /** Lookups that hashed and searched the engine, including those after a snapshot swap. */
+    public long getMisses(){
+        return misses;
+    }
+
+    /** Entries the cache can hold. */
+    public int getCapacity(){
+        return capacity;
+    }
+
+    /** Hits over all lookups, or 0 before the first lookup. */
+    public double getHitRate(){
+        long total=hits + misses;
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("CacheStats[hits=%d, misses=%d, hitRate=%.4f, capacity=%d]",hits,misses,getHitRate(),capacity);
+    }
+}
@@ -1,41 +1,393 @@
 package io.github.NK8916;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 public final class ConsistentHashing {
    private final HashFunction hashFunction;
-   private final AtomicReference<RingSnapshot> ringRef;
+   private final AtomicReference<RoutingEngine> engineRef;
+   /** Per-node in-flight load for {@link #acquire}; null unless bounded loads are enabled. */
+   private final BoundedLoads loads;
+   /** Hot-key cache in front of {@link #getNodeForKey}; null unless enabled. */
+   private final KeyCache cache;
+   /** Lookup counters and histograms; null unless enabled, so the plain path pays one check. */
+   private final RouterMetrics metrics;
+   /** Nodes marked down; while none is, lookups pay one volatile read for it. */
+   private final Liveness liveness;
 
-   public ConsistentHashing(HashFunction hashFunction,RingSnapshot snapshot){
-       this.hashFunction=hashFunction;
-       this.ringRef=new AtomicReference<>(snapshot);
+   private static final long NOT_TIMED = Long.MIN_VALUE;
+
+   public ConsistentHashing(HashFunction hashFunction,RoutingEngine engine){
+       this(hashFunction,engine,null,null,null);
    }
 
+    /**
+     * Enables bounded-load routing through {@link #acquire}: no node holds more than
+     * {@code ceil((1+epsilon) · average)} in-flight leases.
+     */
+    public ConsistentHashing(HashFunction hashFunction,RoutingEngine engine,double epsilon){
+        this(hashFunction,engine,new BoundedLoads(epsilon,engine),null,null);
+    }
+
+    ConsistentHashing(HashFunction hashFunction,RoutingEngine engine,BoundedLoads loads,KeyCache cache,RouterMetrics metrics){
+        this.hashFunction=hashFunction;
+        this.engineRef=new AtomicReference<>(engine);
+        this.loads=loads;
+        this.cache=cache;
+        this.metrics=metrics;
+        this.liveness=new Liveness(hashFunction,engine);
+    }
+
+    /** Deep copy of the current ring; only available with {@link RoutingAlgorithm#RING}. */
     public RingSnapshot debugSnapshot() {
-        return new RingSnapshot(
-                ringRef.get().getVersion(),
-                Arrays.copyOf(ringRef.get().points, ringRef.get().points.length),
-                Arrays.copyOf(ringRef.get().nodes,  ringRef.get().nodes.length),
-                Arrays.copyOf(ringRef.get().allNodes, ringRef.get().allNodes.length)
-        );
+        return ring().copy();
+    }
+
+    /** The engine currently published. Engines are immutable; treat their arrays as read-only. */
+    public RoutingEngine getEngine(){
+        return engineRef.get();
+    }
+
+    /**
+     * Adds nodes, publishing the resulting engine with the next version. Nodes whose id is
+     * already present are ignored. A ring hashes only the new nodes' vnodes and merges them
+     * into the current snapshot.
+     */
+    public synchronized void addNodes(Node... nodes){
+        long start=System.nanoTime();
+        RoutingEngine current=engineRef.get();
+        publish(current.add(hashFunction,nodes,current.getVersion()+1),start);
+    }
+
+    /**
+     * Removes nodes (matched by id), publishing the resulting engine with the next version.
+     * Unknown ids are ignored. A ring cuts the nodes' vnodes out of the current snapshot.
+     */
+    public synchronized void removeNodes(Node... nodes){
+        long start=System.nanoTime();
+        RoutingEngine current=engineRef.get();
+        publish(current.remove(hashFunction,nodes,current.getVersion()+1),start);
+    }
+
+    /**
+     * Replaces nodes (matched by id) with the given objects, publishing the result with the
+     * next version. On a ring a changed {@link Node#getWeight() weight} hashes and merges (or
+     * cuts) only that node's extra (or surplus) vnodes; other nodes' points never move.
+     */
+    public synchronized void updateNodes(Node... nodes){
+        long start=System.nanoTime();
+        RoutingEngine current=engineRef.get();
+        publish(current.update(hashFunction,nodes,current.getVersion()+1),start);
+    }
+
+    /**
+     * Applies a {@link RingDelta} encoding received from a publisher and publishes the
+     * resulting snapshot atomically. Deltas must arrive in order: one whose base is not the
+     * current version, or that is not newer, is rejected and the current ring stays published.
+     * A full encoding replaces any older version. Only available with {@link RoutingAlgorithm#RING}.
+     *
+     * @return the version now published
+     */
+    public synchronized long applyDelta(byte[] data){
+        long start=System.nanoTime();
+        RingSnapshot next=RingDelta.apply(ring(),data,hashFunction);
+        publish(next,start);
+        return next.getVersion();
+    }
+
+    /**
+     * Marks nodes (matched by id) down without rebuilding the engine: lookups whose owner is
+     * down go to the next live owner clockwise, exactly where they would go if the node were
+     * removed, and replica lookups skip it. Marks survive membership changes for nodes that
+     * stay; unknown ids are ignored. While any node is down the key cache is bypassed.
+     */
+    public void markDown(Node... nodes){
+        liveness.markDown(nodes);
+    }
+
+    /** Marks nodes (matched by id) up again; their keys return to them immediately. */
+    public void markUp(Node... nodes){
+        liveness.markUp(nodes);
+    }
+
+    /** Ids of the nodes currently marked down. */
+    public Set<String> getDownNodes(){
+        return liveness.downIds();
+    }
+
+    /**
+     * Bounded-load routing: places one unit of in-flight load for {@code key} on its owner,
+     * or on the next node in replica order when the owner is at capacity. Release the lease
+     * when the work finishes. Requires the {@code epsilon} constructor or
+     * {@link ConsistentHashingBuilder#withBoundedLoads}.
+     */
+    public Lease acquire(String key){
+        return boundedLoads().acquire(hashFunction.hash(key),liveness.table());
+    }
+
+    /** In-flight leases per node id; requires bounded loads. */
+    public Map<String,Long> getLoads(){
+        return boundedLoads().loads();
     }
 
    public Node getNodeForKey(String key){
-       long h=hashFunction.hash(key);
-       return ringRef.get().route(h);
+       if (liveness.table().anyDown()) {
+           long start=lookupStart();
+           return routeHash(hashFunction.hash(key),start);
+       }
+       RoutingEngine engine=engineRef.get();
+       if (metrics != null) return instrumentedLookup(key,engine);
+       if (cache != null) return cache.route(key,engine,hashFunction);
+       return engine.route(hashFunction.hash(key));
    }
 
+    private Node instrumentedLookup(String key,RoutingEngine engine){
+        boolean timed=metrics.sampled();
+        long start=timed ? System.nanoTime() : 0;
+        int index=cache != null ? cache.routeIndex(key,engine,hashFunction) : engine.routeIndex(hashFunction.hash(key));
+        Node node=metrics.lookup(engine,index);
+        if (timed) metrics.lookupLatency(System.nanoTime() - start);
+        return node;
+    }
+
+    /**
+     * Routes a key given as UTF-8 bytes, hashed in place: the same node as
+     * {@link #getNodeForKey(String)} for the string they encode. The key cache, which is
+     * keyed by string, is not consulted.
+     */
+    public Node getNodeForKey(byte[] key,int offset,int length){
+        long start=lookupStart();
+        return routeHash(hashFunction.hash(key,offset,length),start);
+    }
+
+    /**
+     * Routes the remaining bytes of a heap or direct buffer without moving its position;
+     * with the built-in allocation-free hash functions nothing is allocated.
+     */
+    public Node getNodeForKey(ByteBuffer key){
+        long start=lookupStart();
+        return routeHash(hashFunction.hash(key),start);
+    }
+
+    /** Routes a numeric key, hashed as its 8 little-endian bytes; see {@link HashFunction#hash(long)}. */
+    public Node getNodeForKey(long key){
+        long start=lookupStart();
+        return routeHash(hashFunction.hash(key),start);
+    }
+
+    /** Start of a sampled lookup, or {@link #NOT_TIMED}. */
+    private long lookupStart(){
+        return metrics != null && metrics.sampled() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Routes a hashed key past the key cache (its entries may name down nodes), skipping
+     * down nodes and counting the lookup when metrics are on.
+     */
+    private Node routeHash(long keyHash,long start){
+        Liveness.Table live=liveness.table();
+        boolean failover=live.anyDown();
+        if (metrics == null) return failover ? live.route(keyHash) : engineRef.get().route(keyHash);
+        RoutingEngine engine=failover ? live.engine : engineRef.get();
+        Node node=metrics.lookup(engine,failover ? live.routeIndex(keyHash) : engine.routeIndex(keyHash));
+        if (start != NOT_TIMED) metrics.lookupLatency(System.nanoTime() - start);
+        return node;
+    }
+
+    /**
+     * Polls lookup counts, sampled latencies, replica walk lengths, swap durations, build
+     * timings and gauges of the current engine; requires {@link ConsistentHashingBuilder#withMetrics}.
+     */
+    public MetricsSnapshot getMetrics(){
+        if (metrics == null) throw new IllegalStateException("Metrics are not enabled");
+        return metrics.snapshot();
+    }
+
+    /** Hit and miss counts of the key cache; requires {@link ConsistentHashingBuilder#withKeyCache}. */
+    public CacheStats getCacheStats(){
+        if (cache == null) throw new IllegalStateException("Key cache is not enabled");
+        return cache.stats();
+    }
+
+    /**
+     * Routes a batch of keys against one snapshot, writing each key's node to {@code out}
+     * at the same position. Faster per key than calling {@link #getNodeForKey} in a loop.
+     */
+    public void routeBatch(String[] keys,Node[] out){
+        routeBatch(hashAll(keys),out);
+    }
+
+    /** Like {@link #routeBatch(String[], Node[])} for keys that are already hashed. */
+    public void routeBatch(long[] hashes,Node[] out){
+        Liveness.Table live=liveness.table();
+        if (!live.anyDown()) {
+            engineRef.get().routeBatch(hashes,out);
+            return;
+        }
+        if (out.length < hashes.length) {
+            throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + hashes.length);
+        }
+        for (int i = 0; i < hashes.length; i++) out[i]=live.route(hashes[i]);
+    }
+
+    /**
+     * Routes a batch of keys against one snapshot, writing each key's node as an index into
+     * the returned list, which is that snapshot's node list.
+     */
+    public List<Node> routeBatch(String[] keys,int[] out){
+        return routeBatch(hashAll(keys),out);
+    }
+
+    /** Like {@link #routeBatch(String[], int[])} for keys that are already hashed. */
+    public List<Node> routeBatch(long[] hashes,int[] out){
+        Liveness.Table live=liveness.table();
+        if (live.anyDown()) {
+            if (out.length < hashes.length) {
+                throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + hashes.length);
+            }
+            for (int i = 0; i < hashes.length; i++) out[i]=live.routeIndex(hashes[i]);
+            return live.engine.getNodes();
+        }
+        RoutingEngine engine=engineRef.get();
+        engine.routeBatch(hashes,out);
+        return engine.getNodes();
+    }
+
+    private long[] hashAll(String[] keys){
+        long[] hashes=new long[keys.length];
+        for (int i = 0; i < keys.length; i++) hashes[i]=hashFunction.hash(keys[i]);
+        return hashes;
+    }
+
     public Node[] getReplicasForKey(String key,int count){
        long h=hashFunction.hash(key);
-       return ringRef.get().routeN(h,count);
+       Liveness.Table live=liveness.table();
+       if (live.anyDown()) return live.routeN(h,count);
+       RoutingEngine engine=engineRef.get();
+       if (metrics == null || !metrics.sampled()) return engine.routeN(h,count);
+       long start=System.nanoTime();
+       Node[] replicas=engine.routeN(h,count);
+       metrics.replicas(engine,h,count,System.nanoTime() - start);
+       return replicas;
+    }
+
+    /**
+     * Allocation-free replica lookup: fills {@code out} with distinct nodes clockwise from
+     * the key and returns how many were written.
+     */
+    public int getReplicasForKey(String key,Node[] out){
+       return replicas(hashFunction.hash(key),out);
+    }
+
+    /** Like {@link #getReplicasForKey(String, Node[])} for a key given as UTF-8 bytes. */
+    public int getReplicasForKey(byte[] key,int offset,int length,Node[] out){
+       return replicas(hashFunction.hash(key,offset,length),out);
+    }
+
+    /** Like {@link #getReplicasForKey(String, Node[])} for the remaining bytes of a buffer, whose position is kept. */
+    public int getReplicasForKey(ByteBuffer key,Node[] out){
+       return replicas(hashFunction.hash(key),out);
     }
 
+    /** Like {@link #getReplicasForKey(String, Node[])} for a numeric key. */
+    public int getReplicasForKey(long key,Node[] out){
+       return replicas(hashFunction.hash(key),out);
+    }
+
+    private int replicas(long h,Node[] out){
+       Liveness.Table live=liveness.table();
+       if (live.anyDown()) return live.routeN(h,out);
+       RoutingEngine engine=engineRef.get();
+       if (metrics == null || !metrics.sampled()) return engine.routeN(h,out);
+       long start=System.nanoTime();
+       int n=engine.routeN(h,out);
+       metrics.replicas(engine,h,out.length,System.nanoTime() - start);
+       return n;
+    }
+
+    /**
+     * Region-local routing: the node owning {@code key} among the nodes of {@code group}
+     * only, so the lookup never crosses into another group. For a key whose own group is
+     * {@code group} this is the node {@link #getNodeForKey(String)} returns. Only available
+     * with {@link RoutingAlgorithm#HIERARCHICAL}; unknown groups are rejected.
+     */
+    public Node getNodeForKeyInGroup(String key,String group){
+        long h=hashFunction.hash(key);
+        Liveness.Table live=liveness.table();
+        boolean failover=live.anyDown();
+        RoutingEngine engine=failover ? live.engine : engineRef.get();
+        HierarchicalEngine hierarchy=hierarchy(engine);
+        int index=failover ? live.routeIndexInGroup(group,h) : hierarchy.routeIndexInGroup(group,h);
+        return metrics != null ? metrics.lookup(engine,index) : hierarchy.node(index);
+    }
+
+    /** Up to {@code count} distinct nodes of {@code group} for {@code key}, primary first; see {@link #getNodeForKeyInGroup}. */
+    public Node[] getReplicasForKeyInGroup(String key,String group,int count){
+        long h=hashFunction.hash(key);
+        Liveness.Table live=liveness.table();
+        boolean failover=live.anyDown();
+        RoutingEngine engine=failover ? live.engine : engineRef.get();
+        HierarchicalEngine hierarchy=hierarchy(engine);
+        int[] indices=new int[Math.max(0,Math.min(count,hierarchy.groupSize(group)))];
+        int n=failover ? live.routeNInGroup(group,h,indices) : hierarchy.routeNInGroup(group,h,indices);
+        Node[] out=new Node[n];
+        for (int k = 0; k < n; k++) out[k]=hierarchy.node(indices[k]);
+        return out;
+    }
+
+    /** Points on the ring; only available with {@link RoutingAlgorithm#RING}. */
     public int ringSize(){
-       return ringRef.get().ringSize();
+       return ring().ringSize();
     }
 
     public int nodeCount(){
-        return this.ringRef.get().getNodeCount();
+        return this.engineRef.get().getNodeCount();
+    }
+
+    private RingSnapshot ring(){
+        RoutingEngine engine=engineRef.get();
+        if (!(engine instanceof RingSnapshot)) {
+            throw new IllegalStateException("Not a ring engine: " + engine.getClass().getSimpleName());
+        }
+        return (RingSnapshot) engine;
     }
 
+    private static HierarchicalEngine hierarchy(RoutingEngine engine){
+        if (!(engine instanceof HierarchicalEngine)) {
+            throw new IllegalStateException("Not a hierarchical engine: " + engine.getClass().getSimpleName());
+        }
+        return (HierarchicalEngine) engine;
+    }
+
+    /**
+     * Publishes {@code next} only if {@code expected} is still the current engine; lets
+     * {@link RingUpdater} build outside this lock. Returns false if another writer won.
+     */
+    synchronized boolean publishIfCurrent(RoutingEngine expected,RoutingEngine next,long start){
+        if (engineRef.get() != expected) return false;
+        publish(next,start);
+        return true;
+    }
+
+    HashFunction hashFunction(){
+        return hashFunction;
+    }
+
+    /**
+     * The liveness table goes first: a lookup that sees the new engine must also see which
+     * of its nodes are down, and one that still reads the old table routes on the old engine.
+     */
+    private void publish(RoutingEngine engine,long start){
+        liveness.rebind(engine);
+        engineRef.set(engine);
+        if (loads != null) loads.rebind(engine);
+        if (metrics != null) metrics.swapped(engine,System.nanoTime() - start);
+    }
+
+    private BoundedLoads boundedLoads(){
+        if (loads == null) throw new IllegalStateException("Bounded loads are not enabled");
+        return loads;
+    }
 }
@@ -1,17 +1,27 @@
 package io.github.NK8916;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import it.unimi.dsi.fastutil.longs.LongArrays;
-
 public final class ConsistentHashingBuilder {
+    /** Upper bound of the vnode search in {@link #withTargetImbalance} without {@link #withVNodes}. */
+    public static final int DEFAULT_MAX_VNODES = 4096;
+
     private Node[] nodes;
-    private long[] points;
-    private int[] order;
-    private Node[] owners;
     private HashFunction hashFunction;
     private int vNodes;
     private long version;
+    private SearchIndex searchIndex=SearchIndex.NONE;
+    private RingLayout layout=RingLayout.REFERENCES;
+    private int parallelism=1;
+    private int replicaTable;
+    private RoutingAlgorithm algorithm=RoutingAlgorithm.RING;
+    private double loadEpsilon;
+    private PlacementPolicy placement;
+    private int keyCache;
+    private int metricsSampling;
+    private double targetImbalance;
+    private Function<Node,String> groupOf=Node::getRegion;
 
 
     public ConsistentHashingBuilder withVersion(long version){
@@ -34,53 +44,262 @@ public final class ConsistentHashingBuilder {
         return this;
     }
 
+    public ConsistentHashingBuilder withSearchIndex(SearchIndex searchIndex){
+        this.searchIndex=searchIndex;
+        return this;
+    }
+
+    public ConsistentHashingBuilder withLayout(RingLayout layout){
+        this.layout=layout;
+        return this;
+    }
+
+    /**
+     * Number of threads used to hash and sort vnodes in {@link #build()}; 1 (the default)
+     * builds on the calling thread. The ring is identical for every setting.
+     */
+    public ConsistentHashingBuilder withParallelism(int parallelism){
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1: " + parallelism);
+        this.parallelism=parallelism;
+        return this;
+    }
+
+    /**
+     * Precomputes, for every vnode position, the next {@code replicas} distinct owners so
+     * replica lookups up to that count are one search plus a copy. Costs
+     * {@code replicas} owner indices (1/2/4 bytes each) per vnode; 0 (the default) disables it.
+     */
+    public ConsistentHashingBuilder withReplicaTable(int replicas){
+        if (replicas < 0) throw new IllegalArgumentException("replicas must be >= 0: " + replicas);
+        this.replicaTable=replicas;
+        return this;
+    }
+
+    /**
+     * Routing engine to build; {@link RoutingAlgorithm#RING} by default. Vnode count, layout,
+     * search index, replica table and parallelism only apply to the ring and to the group
+     * rings of {@link RoutingAlgorithm#HIERARCHICAL}.
+     */
+    public ConsistentHashingBuilder withAlgorithm(RoutingAlgorithm algorithm){
+        this.algorithm=algorithm;
+        return this;
+    }
+
+    /**
+     * Enables {@link ConsistentHashing#acquire bounded-load routing}: each node holds at most
+     * {@code (1+epsilon)} times the average in-flight load, and overflow walks to the next
+     * node with spare capacity. Smaller epsilon balances tighter but moves more keys.
+     */
+    public ConsistentHashingBuilder withBoundedLoads(double epsilon){
+        if (!(epsilon > 0)) throw new IllegalArgumentException("epsilon must be > 0: " + epsilon);
+        this.loadEpsilon=epsilon;
+        return this;
+    }
+
+    /**
+     * Spreads ring replica lookups across failure domains (regions, racks, metadata keys),
+     * falling back level by level when there are too few domains. Combined with
+     * {@link #withReplicaTable}, the domain-distinct successors are precomputed too.
+     */
+    public ConsistentHashingBuilder withPlacementPolicy(PlacementPolicy placement){
+        this.placement=placement;
+        return this;
+    }
+
+    /**
+     * Caches up to about {@code capacity} key → node lookups in front of
+     * {@link ConsistentHashing#getNodeForKey}; worth it when a few keys dominate traffic.
+     * Entries are tagged with the engine version, so membership changes invalidate them
+     * without a clear.
+     */
+    public ConsistentHashingBuilder withKeyCache(int capacity){
+        this.keyCache=capacity;
+        return this;
+    }
+
+    /**
+     * Picks the vnode count instead of taking it on faith: {@link #build()} searches for the
+     * smallest count (to within 1/16) whose ring has {@link RingBalance#getMaxOverMean()} at
+     * most {@code maxOverMean}, e.g. 1.1 for the busiest node at 10% above its fair share.
+     * {@link #withVNodes} becomes the upper bound of the search ({@value #DEFAULT_MAX_VNODES}
+     * when unset) and is used as is if even that misses the target. Ring only.
+     */
+    public ConsistentHashingBuilder withTargetImbalance(double maxOverMean){
+        if (!(maxOverMean > 1)) throw new IllegalArgumentException("maxOverMean must be > 1: " + maxOverMean);
+        this.targetImbalance=maxOverMean;
+        return this;
+    }
+
+    /**
+     * Groups of {@link RoutingAlgorithm#HIERARCHICAL}: nodes with the same key share a group
+     * ring; {@link Node#getRegion()} by default. Nodes mapped to null share one group.
+     */
+    public ConsistentHashingBuilder withGroupBy(Function<Node,String> groupOf){
+        this.groupOf=Objects.requireNonNull(groupOf,"groupOf");
+        return this;
+    }
+
+    /** Groups {@link RoutingAlgorithm#HIERARCHICAL} nodes by a metadata entry, e.g. {@link PlacementPolicy#RACK_KEY}. */
+    public ConsistentHashingBuilder withGroupByMetadata(String key){
+        return withGroupBy(n -> n.getMetaData() == null ? null : n.getMetaData().get(key));
+    }
+
+    /** Enables {@link ConsistentHashing#getMetrics()}, timing one in 64 lookups. */
+    public ConsistentHashingBuilder withMetrics(){
+        return withMetrics(64);
+    }
+
+    /**
+     * Enables {@link ConsistentHashing#getMetrics()}: per-node lookup counters, build-phase
+     * timings, swap durations, and latency histograms for one in {@code sampling} lookups
+     * (rounded up to a power of two; 1 times every lookup).
+     */
+    public ConsistentHashingBuilder withMetrics(int sampling){
+        if (sampling < 1) throw new IllegalArgumentException("sampling must be positive: " + sampling);
+        this.metricsSampling=sampling;
+        return this;
+    }
+
     public ConsistentHashing build(){
-        buildVNodeHash();
-        sortHash();
-        long[] outPoints=new long[this.points.length];
-        Node[] outNodes=new Node[this.points.length];
-        for(int i=0;i<this.points.length;i++){
-            int j=this.order[i];
-            outPoints[i]=this.points[j];
-            outNodes[i]=this.owners[j];
+        BuildTimings timings=this.metricsSampling > 0 ? new BuildTimings() : null;
+        long start=System.nanoTime();
+        RoutingEngine engine=buildEngine(timings);
+        if (timings != null) timings.totalNanos=System.nanoTime() - start;
+        return router(engine,timings);
+    }
+
+    /**
+     * A router over an engine built elsewhere, with this builder's per-router features (bounded
+     * loads, key cache, metrics); lets {@link RingRegistry} hand one ring to many keyspaces.
+     */
+    ConsistentHashing share(RoutingEngine engine){
+        return router(engine,this.metricsSampling > 0 ? new BuildTimings() : null);
+    }
+
+    /**
+     * Everything besides the nodes and version that decides a ring's points and storage:
+     * builders with equal keys build identical rings over the same nodes. Placement policies
+     * compare by identity, hash functions by {@link HashFunction#id()}.
+     */
+    List<Object> ringKey(){
+        if (this.algorithm != RoutingAlgorithm.RING) {
+            throw new IllegalArgumentException("Only ring engines can be shared, not " + this.algorithm);
         }
-        RingSnapshot snapshot=new RingSnapshot(this.version,outPoints,outNodes,this.nodes);
-        return new ConsistentHashing(this.hashFunction,snapshot);
+        return Arrays.asList(Objects.requireNonNull(this.hashFunction,"hashFunction").id(),this.vNodes,
+                this.targetImbalance,this.searchIndex,this.layout,this.replicaTable,this.placement);
     }
 
-    private void buildVNodeHash(){
-        Map<String, Node> uniq = Arrays.stream(this.nodes)
-                .collect(Collectors.toMap(Node::getId, n -> n, (a,b)->a, LinkedHashMap::new));
-        Node[] ownersUnique = uniq.values().toArray(new Node[0]);
-        final int n=ownersUnique.length;
-        final long totalLong=(long) n * (long) this.vNodes;
+    /** A builder with this one's settings, for callers that fill in nodes and version themselves. */
+    ConsistentHashingBuilder copy(){
+        ConsistentHashingBuilder copy=new ConsistentHashingBuilder();
+        copy.nodes=this.nodes;
+        copy.hashFunction=this.hashFunction;
+        copy.vNodes=this.vNodes;
+        copy.version=this.version;
+        copy.searchIndex=this.searchIndex;
+        copy.layout=this.layout;
+        copy.parallelism=this.parallelism;
+        copy.replicaTable=this.replicaTable;
+        copy.algorithm=this.algorithm;
+        copy.loadEpsilon=this.loadEpsilon;
+        copy.placement=this.placement;
+        copy.keyCache=this.keyCache;
+        copy.metricsSampling=this.metricsSampling;
+        copy.targetImbalance=this.targetImbalance;
+        copy.groupOf=this.groupOf;
+        return copy;
+    }
+
+    HashFunction hashFunction(){
+        return hashFunction;
+    }
+
+    private ConsistentHashing router(RoutingEngine engine,BuildTimings timings){
+        return new ConsistentHashing(this.hashFunction,engine,
+                this.loadEpsilon > 0 ? new BoundedLoads(this.loadEpsilon,engine) : null,
+                this.keyCache > 0 ? new KeyCache(this.keyCache) : null,
+                timings != null ? new RouterMetrics(this.metricsSampling,engine,timings) : null);
+    }
 
-        if(totalLong>Integer.MAX_VALUE){
-            throw new IllegalArgumentException("Too many vnodes: " + totalLong);
+    private RoutingEngine buildEngine(BuildTimings timings){
+        Node[] ownersUnique=uniqueNodes();
+        switch (this.algorithm) {
+            case JUMP:
+                return new JumpEngine(this.version,ownersUnique);
+            case MAGLEV:
+                return new MaglevEngine(this.hashFunction,this.version,ownersUnique);
+            case RENDEZVOUS:
+                return new RendezvousEngine(this.hashFunction,this.version,ownersUnique);
+            case MULTI_PROBE:
+                return new MultiProbeEngine(this.hashFunction,this.version,ownersUnique);
+            case HIERARCHICAL:
+                return new HierarchicalEngine(this.hashFunction,this.version,ownersUnique,this.vNodes,this.groupOf,
+                        HierarchicalEngine.DEFAULT_GROUP_VNODES,
+                        new RingOptions(this.searchIndex,this.layout,this.replicaTable,this.placement),this.parallelism);
+            default:
+                break;
+        }
+        int vNodes=this.vNodes;
+        RingMerger.Run run;
+        if (this.targetImbalance > 0) {
+            Probe tuned=tuneVNodes(ownersUnique,timings);
+            vNodes=tuned.vNodes;
+            run=tuned.run;
+        } else {
+            run=RingMerger.sortedRun(this.hashFunction,ownersUnique,vNodes,this.parallelism,timings);
         }
+        long start=System.nanoTime();
+        RingSnapshot ring=new RingSnapshot(this.version,run.points,run.owners,ownersUnique,vNodes,
+                new RingOptions(this.searchIndex,this.layout,this.replicaTable,this.placement));
+        if (timings != null) timings.indexNanos=System.nanoTime() - start;
+        return ring;
+    }
+
+    /** A ring hashed at one vnode count during {@link #tuneVNodes}, and whether it met the target. */
+    private static final class Probe {
+        final int vNodes;
+        final RingMerger.Run run;
+        final boolean meetsTarget;
 
-        final int total=(int) totalLong;
-        this.points=new long[total];
-        this.order=new int[total];
-        this.owners=new Node[total];
-        int k=0;
-        for (Node node : ownersUnique) {
-            for (int j = 0; j < this.vNodes; j++) {
-                String label = node.getId() + "/" + j;
-                long h = this.hashFunction.hash(label);
-                this.owners[k] = node;
-                this.order[k] = k;
-                this.points[k] = h;
-                k++;
-            }
+        Probe(int vNodes,RingMerger.Run run,boolean meetsTarget){
+            this.vNodes=vNodes;
+            this.run=run;
+            this.meetsTarget=meetsTarget;
         }
     }
 
-    private void sortHash(){
-        long[] unsignedKeys = new long[this.points.length];
-        for (int i = 0; i < this.points.length; i++) {
-            unsignedKeys[i] = this.points[i] ^ Long.MIN_VALUE;  // monotone map: unsigned→signed
+    /**
+     * Doubles the vnode count until the ring meets the target, then bisects between the last
+     * miss and the first hit until they are within 1/16 of each other. Balance is not strictly
+     * monotone in the count, but only counts that were measured to meet the target are kept.
+     */
+    private Probe tuneVNodes(Node[] nodes,BuildTimings timings){
+        int cap=this.vNodes > 0 ? this.vNodes : DEFAULT_MAX_VNODES;
+        int lo=0;
+        Probe best=probe(nodes,1,timings);
+        while (!best.meetsTarget) {
+            if (best.vNodes >= cap) return best;
+            lo=best.vNodes;
+            best=probe(nodes,Math.min(cap,lo * 2),timings);
         }
-        LongArrays.radixSortIndirect(this.order,unsignedKeys,true);
+        while (best.vNodes - lo > Math.max(1,best.vNodes / 16)) {
+            Probe mid=probe(nodes,(lo + best.vNodes) >>> 1,timings);
+            if (mid.meetsTarget) best=mid;
+            else lo=mid.vNodes;
+        }
+        return best;
+    }
+
+    private Probe probe(Node[] nodes,int vNodes,BuildTimings timings){
+        RingMerger.Run run=RingMerger.sortedRun(this.hashFunction,nodes,vNodes,this.parallelism,timings);
+        RingSnapshot ring=new RingSnapshot(this.version,run.points,run.owners,nodes,vNodes,
+                new RingOptions(SearchIndex.NONE,RingLayout.COMPACT));
+        return new Probe(vNodes,run,RingBalance.of(ring).getMaxOverMean() <= this.targetImbalance);
+    }
+
+    private Node[] uniqueNodes(){
+        Map<String, Node> uniq = Arrays.stream(this.nodes)
+                .collect(Collectors.toMap(Node::getId, n -> n, (a,b)->a, LinkedHashMap::new));
+        return uniq.values().toArray(new Node[0]);
     }
 }
@@ -0,0 +1,109 @@
+package io.github.NK8916;
+
+import java.util.*;
+
+/**
+ * Helpers shared by the {@link RoutingEngine} implementations.
+ */
+final class EngineSupport {
+    /** 2^64 / golden ratio; spaces out derived hashes such as probes and replica retries. */
+    static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private EngineSupport(){}
+
+    /** MurmurHash3 fmix64 finalizer: a bijective avalanche of one 64-bit value. */
+    static long mix64(long z){
+        z^=z >>> 33;
+        z*=0xff51afd7ed558ccdL;
+        z^=z >>> 33;
+        z*=0xc4ceb9fe1a85ec53L;
+        z^=z >>> 33;
+        return z;
+    }
+
+    /** {@code nodes} followed by the nodes of {@code added} whose id is new; {@code nodes} itself if none is. */
+    static Node[] withAdded(Node[] nodes,Node[] added){
+        Set<String> present=new HashSet<>();
+        for (Node n : nodes) present.add(n.getId());
+        List<Node> out=new ArrayList<>(Arrays.asList(nodes));
+        for (Node n : added) {
+            if (present.add(n.getId())) out.add(n);
+        }
+        return out.size() == nodes.length ? nodes : out.toArray(new Node[0]);
+    }
+
+    /** {@code nodes} without those whose id is in {@code removed}, order kept; {@code nodes} itself if none is. */
+    static Node[] withRemoved(Node[] nodes,Node[] removed){
+        Set<String> ids=new HashSet<>();
+        for (Node n : removed) ids.add(n.getId());
+        List<Node> out=new ArrayList<>(nodes.length);
+        for (Node n : nodes) {
+            if (!ids.contains(n.getId())) out.add(n);
+        }
+        return out.size() == nodes.length ? nodes : out.toArray(new Node[0]);
+    }
+
+    /** {@code nodes} with entries replaced by the {@code updated} node of the same id; {@code nodes} itself if none matches. */
+    static Node[] withReplaced(Node[] nodes,Node[] updated){
+        Map<String,Node> byId=new HashMap<>();
+        for (Node n : updated) byId.put(n.getId(),n);
+        Node[] out=null;
+        for (int i = 0; i < nodes.length; i++) {
+            Node n=byId.get(nodes[i].getId());
+            if (n != null) {
+                if (out == null) out=nodes.clone();
+                out[i]=n;
+            }
+        }
+        return out == null ? nodes : out;
+    }
+
+    static Node[] uniqueById(Node[] nodes){
+        return withAdded(new Node[0],nodes);
+    }
+
+    static List<Node> view(Node[] nodes){
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    /** Weight per node, or null when all weights are equal and engines can ignore them. */
+    static double[] weights(Node[] nodes){
+        double[] weights=new double[nodes.length];
+        boolean equal=true;
+        for (int i = 0; i < nodes.length; i++) {
+            weights[i]=nodes[i].getWeight();
+            equal&=weights[i] == weights[0];
+        }
+        return equal ? null : weights;
+    }
+
+    static void checkNotEmpty(int nodeCount){
+        if (nodeCount == 0) throw new IllegalStateException("No nodes to route to");
+    }
+
+    // linear scans: replica counts are small enough that a set would cost more
+    static boolean contains(int[] a,int n,int v){
+        for (int k = 0; k < n; k++) if (a[k] == v) return true;
+        return false;
+    }
+
+    static boolean containsRef(Node[] a,int n,Node v){
+        for (int k = 0; k < n; k++) if (a[k] == v) return true;
+        return false;
+    }
+
+    /**
+     * This thread's buffer of exactly {@code length} entries from {@code pool}, for engines
+     * that fill all of it; lookups stop allocating once warm. Callers that nest use separate pools.
+     */
+    static int[] scratch(ThreadLocal<int[][]> pool,int length){
+        int[][] byLength=pool.get();
+        if (length >= byLength.length) {
+            byLength=Arrays.copyOf(byLength,length + 1);
+            pool.set(byLength);
+        }
+        int[] buffer=byLength[length];
+        if (buffer == null) byLength[length]=buffer=new int[length];
+        return buffer;
+    }
+}
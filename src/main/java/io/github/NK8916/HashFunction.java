@@ -1,7 +1,67 @@
 package io.github.NK8916;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public interface HashFunction {
     long hash(String key);
+
+    /**
+     * Hashes UTF-8 bytes. Must return the same value as {@link #hash(String)} for the string
+     * those bytes encode; the default decodes and delegates, implementations override it to
+     * hash the bytes in place.
+     */
+    default long hash(byte[] utf8,int offset,int length){
+        return hash(new String(utf8,offset,length,StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hashes the remaining UTF-8 bytes of {@code utf8}, from its position to its limit,
+     * without moving the position: the same value as {@link #hash(byte[], int, int)} over
+     * those bytes. The default reads heap buffers in place and copies direct ones;
+     * implementations override it to read direct buffers in place too.
+     */
+    default long hash(ByteBuffer utf8){
+        int pos=utf8.position(), len=utf8.remaining();
+        if (utf8.hasArray()) return hash(utf8.array(),utf8.arrayOffset() + pos,len);
+        byte[] copy=new byte[len];
+        utf8.get(pos,copy);
+        return hash(copy,0,len);
+    }
+
+    /**
+     * Hashes a numeric key as its 8 little-endian bytes; the built-in functions return the same
+     * value as {@link #hash(byte[], int, int)} over them. The default hashes those bytes as an
+     * ISO-8859-1 string, one char per byte: they are rarely valid UTF-8, and decoding them
+     * through the UTF-8 default would map distinct keys to the same replacement characters.
+     */
+    default long hash(long key){
+        byte[] bytes=new byte[8];
+        for (int i = 0; i < 8; i++) bytes[i]=(byte) (key >>> (i << 3));
+        return hash(new String(bytes,StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Hashes numeric keys into {@code out} at the same positions, each the same value as
+     * {@link #hash(long)}. Functions whose 8-byte path is plain 64-bit arithmetic override it
+     * with lane-parallel kernels; see {@link VectorSupport#isHashingEnabled()}.
+     */
+    default void hash(long[] keys,long[] out){
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + keys.length);
+        }
+        for (int i = 0; i < keys.length; i++) out[i]=hash(keys[i]);
+    }
+
+    /**
+     * Identifies the function and its parameters: two functions with the same id must hash
+     * every key alike. The default, the class name, only fits functions without parameters;
+     * functions with seeds, salts or keys must override it to include them. Persisted rings and
+     * {@link RingDelta} encodings record it and refuse to load under a different id, and
+     * {@link RingRegistry} shares one ring between keyspaces whose ids match.
+     */
+    default String id(){
+        return getClass().getName();
+    }
 }
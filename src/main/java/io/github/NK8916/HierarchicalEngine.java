@@ -0,0 +1,377 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Two-level ring for very large clusters. Nodes are grouped (by region unless configured
+ * otherwise); a small top ring picks the key's group and that group's own {@link RingSnapshot}
+ * picks the node. The top ring gives each group vnodes in proportion to its total weight, so
+ * groups take their fair share of keys, and it stays tiny: about {@link #DEFAULT_GROUP_VNODES}
+ * points per group instead of {@code nodes × vNodes} in one flat ring.
+ *
+ * <p>A membership change merges into (or cuts from) only the rings of the groups it touches
+ * and resizes those groups' top-ring arcs; other groups' rings are shared with the previous
+ * engine as they are. Keys can also be routed within a named group only
+ * ({@link #routeInGroup}), e.g. to stay in the caller's region; a key routed in its own group
+ * lands on the same node as a global lookup.
+ */
+public final class HierarchicalEngine implements RoutingEngine {
+    /** Top-ring vnodes of a group of average weight (as of the first build). */
+    public static final int DEFAULT_GROUP_VNODES = 256;
+
+    private final long version;
+    private final Function<Node,String> groupOf;
+    private final int vNodes;
+    private final RingOptions options;
+    /** Group weight that earns {@code top.getVNodes()} top points; fixed at the first build so arcs only move for groups that change. */
+    private final double unitWeight;
+    /** Ring over one pseudo-node per group (id = group name, weight = group weight / unit). */
+    private final RingSnapshot top;
+    /** Ring of group g, aligned with {@code top.allNodes}. */
+    private final RingSnapshot[] rings;
+    /** First index in {@link #nodes} of group g; one extra entry holds the node count. */
+    private final int[] offsets;
+    /** Nodes of all groups, group by group. */
+    private final Node[] nodes;
+    private final Map<String,Integer> groupIndex;
+
+    /** Per-thread buffers by length for the groups of a replica walk and for one group's replicas. */
+    private static final ThreadLocal<int[][]> GROUPS=ThreadLocal.withInitial(() -> new int[0][]);
+    private static final ThreadLocal<int[][]> PART=ThreadLocal.withInitial(() -> new int[0][]);
+
+    /** Groups nodes by {@link Node#getRegion()}. */
+    public HierarchicalEngine(HashFunction hashFunction,long version,Node[] nodes,int vNodes){
+        this(hashFunction,version,nodes,vNodes,Node::getRegion);
+    }
+
+    /** @param groupOf group of a node; nodes for which it returns null share the group {@code ""} */
+    public HierarchicalEngine(HashFunction hashFunction,long version,Node[] nodes,int vNodes,Function<Node,String> groupOf){
+        this(hashFunction,version,nodes,vNodes,groupOf,DEFAULT_GROUP_VNODES,RingOptions.DEFAULT,1);
+    }
+
+    HierarchicalEngine(HashFunction hashFunction,long version,Node[] nodes,int vNodes,Function<Node,String> groupOf,
+                       int groupVNodes,RingOptions options,int parallelism){
+        if (groupVNodes < 1) throw new IllegalArgumentException("groupVNodes must be >= 1: " + groupVNodes);
+        Map<String,List<Node>> members=new LinkedHashMap<>();
+        for (Node n : EngineSupport.uniqueById(nodes)) members.computeIfAbsent(group(groupOf,n),g -> new ArrayList<>()).add(n);
+        Map<String,RingSnapshot> rings=new LinkedHashMap<>();
+        double total=0;
+        for (Map.Entry<String,List<Node>> e : members.entrySet()) {
+            RingSnapshot ring=build(hashFunction,version,e.getValue().toArray(new Node[0]),vNodes,options,parallelism);
+            rings.put(e.getKey(),ring);
+            total+=weight(ring);
+        }
+        double unit=rings.isEmpty() ? 1.0 : total / rings.size();
+        Node[] groups=new Node[rings.size()];
+        int g=0;
+        for (Map.Entry<String,RingSnapshot> e : rings.entrySet()) groups[g++]=groupNode(e.getKey(),weight(e.getValue()),unit);
+        RingMerger.Run run=RingMerger.sortedRun(hashFunction,groups,groupVNodes);
+        // small enough that a prefix table turns picking the group into a couple of reads
+        RingSnapshot top=new RingSnapshot(version,run.points,run.owners,groups,groupVNodes,
+                new RingOptions(SearchIndex.PREFIX_TABLE,RingLayout.COMPACT));
+        this.version=version;
+        this.groupOf=groupOf;
+        this.vNodes=vNodes;
+        this.options=options;
+        this.unitWeight=unit;
+        this.top=top;
+        this.rings=aligned(top,rings);
+        this.offsets=offsets(this.rings);
+        this.nodes=concat(this.rings,this.offsets);
+        this.groupIndex=index(top);
+    }
+
+    private HierarchicalEngine(HierarchicalEngine source,long version,RingSnapshot top,Map<String,RingSnapshot> rings){
+        this.version=version;
+        this.groupOf=source.groupOf;
+        this.vNodes=source.vNodes;
+        this.options=source.options;
+        this.unitWeight=source.unitWeight;
+        this.top=top;
+        this.rings=aligned(top,rings);
+        this.offsets=offsets(this.rings);
+        this.nodes=concat(this.rings,this.offsets);
+        this.groupIndex=index(top);
+    }
+
+    private static RingSnapshot build(HashFunction hashFunction,long version,Node[] nodes,int vNodes,RingOptions options,int parallelism){
+        RingMerger.Run run=RingMerger.sortedRun(hashFunction,nodes,vNodes,parallelism);
+        return new RingSnapshot(version,run.points,run.owners,nodes,vNodes,options);
+    }
+
+    private static String group(Function<Node,String> groupOf,Node node){
+        String g=groupOf.apply(node);
+        return g == null ? "" : g;
+    }
+
+    private static double weight(RingSnapshot ring){
+        double w=0;
+        for (Node n : ring.allNodes) w+=n.getWeight();
+        return w;
+    }
+
+    private static Node groupNode(String group,double weight,double unit){
+        return new Node(group,"",0,group,Map.of(),weight / unit);
+    }
+
+    private static RingSnapshot[] aligned(RingSnapshot top,Map<String,RingSnapshot> rings){
+        RingSnapshot[] out=new RingSnapshot[top.allNodes.length];
+        for (int g = 0; g < out.length; g++) out[g]=rings.get(top.allNodes[g].getId());
+        return out;
+    }
+
+    private static int[] offsets(RingSnapshot[] rings){
+        int[] out=new int[rings.length + 1];
+        for (int g = 0; g < rings.length; g++) out[g + 1]=out[g] + rings[g].getNodeCount();
+        return out;
+    }
+
+    private static Node[] concat(RingSnapshot[] rings,int[] offsets){
+        Node[] out=new Node[offsets[rings.length]];
+        for (int g = 0; g < rings.length; g++) System.arraycopy(rings[g].allNodes,0,out,offsets[g],rings[g].allNodes.length);
+        return out;
+    }
+
+    private static Map<String,Integer> index(RingSnapshot top){
+        Map<String,Integer> out=new HashMap<>();
+        for (int g = 0; g < top.allNodes.length; g++) out.put(top.allNodes[g].getId(),g);
+        return out;
+    }
+
+    /** Hash a group ring sees: re-mixed so that the keys of one top-ring arc spread over the whole group ring. */
+    private static long inner(long keyHash){
+        return EngineSupport.mix64(keyHash ^ EngineSupport.GOLDEN);
+    }
+
+    public long getVersion(){
+        return version;
+    }
+
+    public int getNodeCount(){
+        return nodes.length;
+    }
+
+    public List<Node> getNodes(){
+        return EngineSupport.view(nodes);
+    }
+
+    /** {@code getNodes().get(index)} without building the view. */
+    Node node(int index){
+        return nodes[index];
+    }
+
+    /** Group names in group order. */
+    public List<String> getGroups(){
+        List<String> out=new ArrayList<>(top.allNodes.length);
+        for (Node g : top.allNodes) out.add(g.getId());
+        return Collections.unmodifiableList(out);
+    }
+
+    /** Ring of {@code group}, or null if no node is in it. Indices of its nodes are local to the group. */
+    public RingSnapshot getGroupRing(String group){
+        Integer g=groupIndex.get(group);
+        return g == null ? null : rings[g];
+    }
+
+    /** Top ring choosing the group; its nodes stand for the groups, weighted by total node weight. */
+    public RingSnapshot getTopRing(){
+        return top;
+    }
+
+    /** Group {@code node} belongs to under this engine's grouping. */
+    public String groupOf(Node node){
+        return group(groupOf,node);
+    }
+
+    public long getMemoryBytes(){
+        long bytes=top.getMemoryBytes() + 4L * offsets.length + 4L * nodes.length;
+        for (RingSnapshot ring : rings) bytes+=ring.getMemoryBytes();
+        return bytes;
+    }
+
+    public int routeIndex(long keyHash){
+        EngineSupport.checkNotEmpty(nodes.length);
+        int g=top.routeIndex(keyHash);
+        return offsets[g] + rings[g].routeIndex(inner(keyHash));
+    }
+
+    public Node route(long keyHash){
+        return nodes[routeIndex(keyHash)];
+    }
+
+    /**
+     * Replicas fill the key's group first, then the next groups clockwise on the top ring.
+     * Allocation-free once warm.
+     */
+    public int routeN(long keyHash,int[] out){
+        if (out.length == 0 || nodes.length == 0) return 0;
+        int[] order=EngineSupport.scratch(GROUPS,Math.min(out.length,rings.length));
+        int groups=top.routeN(keyHash,order);
+        long h=inner(keyHash);
+        int n=0;
+        for (int k = 0; k < groups && n < out.length; k++) {
+            int g=order[k];
+            int[] part=EngineSupport.scratch(PART,Math.min(out.length - n,rings[g].getNodeCount()));
+            int got=rings[g].routeN(h,part);
+            for (int i = 0; i < got; i++) out[n++]=offsets[g] + part[i];
+        }
+        return n;
+    }
+
+    public int routeN(long keyHash,Node[] out){
+        if (out.length == 0 || nodes.length == 0) return 0;
+        int[] order=EngineSupport.scratch(GROUPS,Math.min(out.length,rings.length));
+        int groups=top.routeN(keyHash,order);
+        long h=inner(keyHash);
+        int n=0;
+        for (int k = 0; k < groups && n < out.length; k++) {
+            int g=order[k];
+            int[] part=EngineSupport.scratch(PART,Math.min(out.length - n,rings[g].getNodeCount()));
+            int got=rings[g].routeN(h,part);
+            for (int i = 0; i < got; i++) out[n++]=nodes[offsets[g] + part[i]];
+        }
+        return n;
+    }
+
+    /** Index into {@link #getNodes()} of the node owning {@code keyHash} within {@code group}. */
+    public int routeIndexInGroup(String group,long keyHash){
+        int g=groupIndexOf(group);
+        return offsets[g] + rings[g].routeIndex(inner(keyHash));
+    }
+
+    /** Node owning {@code keyHash} within {@code group}; never leaves the group. */
+    public Node routeInGroup(String group,long keyHash){
+        return nodes[routeIndexInGroup(group,keyHash)];
+    }
+
+    /** Like {@link #routeN(long, int[])} restricted to {@code group}. */
+    public int routeNInGroup(String group,long keyHash,int[] out){
+        int g=groupIndexOf(group);
+        int[] part=EngineSupport.scratch(PART,Math.min(out.length,rings[g].getNodeCount()));
+        int n=rings[g].routeN(inner(keyHash),part);
+        for (int k = 0; k < n; k++) out[k]=offsets[g] + part[k];
+        return n;
+    }
+
+    int groupSize(String group){
+        return rings[groupIndexOf(group)].getNodeCount();
+    }
+
+    private int groupIndexOf(String group){
+        Integer g=groupIndex.get(group);
+        if (g == null) throw new IllegalArgumentException("Unknown group: " + group);
+        return g;
+    }
+
+    /** Merges new nodes into their groups' rings; a node of a new group starts that group. */
+    public RoutingEngine add(HashFunction hashFunction,Node[] added,long version){
+        Set<String> present=new HashSet<>();
+        for (Node n : nodes) present.add(n.getId());
+        Map<String,List<Node>> byGroup=new LinkedHashMap<>();
+        for (Node n : added) {
+            if (present.add(n.getId())) byGroup.computeIfAbsent(groupOf(n),g -> new ArrayList<>()).add(n);
+        }
+        Map<String,RingSnapshot> changed=new LinkedHashMap<>();
+        for (Map.Entry<String,List<Node>> e : byGroup.entrySet()) {
+            Node[] fresh=e.getValue().toArray(new Node[0]);
+            RingSnapshot ring=getGroupRing(e.getKey());
+            changed.put(e.getKey(),ring == null ? build(hashFunction,version,fresh,vNodes,options,1)
+                    : RingMerger.add(ring,hashFunction,fresh,version));
+        }
+        return derive(hashFunction,changed,version);
+    }
+
+    /** Cuts nodes out of their groups' rings; a group left empty leaves the top ring. */
+    public RoutingEngine remove(HashFunction hashFunction,Node[] removed,long version){
+        Map<String,List<Node>> byGroup=located(removed);
+        Map<String,RingSnapshot> changed=new LinkedHashMap<>();
+        for (Map.Entry<String,List<Node>> e : byGroup.entrySet()) {
+            RingSnapshot ring=getGroupRing(e.getKey());
+            changed.put(e.getKey(),ring.getNodeCount() == e.getValue().size() ? null
+                    : RingMerger.remove(ring,hashFunction,e.getValue().toArray(new Node[0]),version));
+        }
+        return derive(hashFunction,changed,version);
+    }
+
+    /**
+     * Replaces nodes (matched by id). A weight change adds or cuts only that node's trailing
+     * vnodes in its group ring and resizes the group's top arc; a node whose group changed
+     * moves from one group ring to the other.
+     */
+    public RoutingEngine update(HashFunction hashFunction,Node[] updated,long version){
+        Map<String,List<Node>> current=located(updated);
+        Map<String,Node> byId=new HashMap<>();
+        for (Node n : updated) byId.put(n.getId(),n);
+        Map<String,RingSnapshot> changed=new LinkedHashMap<>();
+        Map<String,List<Node>> moving=new LinkedHashMap<>();
+        for (Map.Entry<String,List<Node>> e : current.entrySet()) {
+            List<Node> stay=new ArrayList<>(), leave=new ArrayList<>();
+            for (Node old : e.getValue()) {
+                Node n=byId.get(old.getId());
+                String to=groupOf(n);
+                if (to.equals(e.getKey())) {
+                    stay.add(n);
+                } else {
+                    leave.add(old);
+                    moving.computeIfAbsent(to,g -> new ArrayList<>()).add(n);
+                }
+            }
+            RingSnapshot ring=getGroupRing(e.getKey());
+            if (!leave.isEmpty()) {
+                ring=ring.getNodeCount() == leave.size() ? null : RingMerger.remove(ring,hashFunction,leave.toArray(new Node[0]),version);
+            }
+            if (ring != null && !stay.isEmpty()) ring=RingMerger.update(ring,hashFunction,stay.toArray(new Node[0]),version);
+            changed.put(e.getKey(),ring);
+        }
+        for (Map.Entry<String,List<Node>> e : moving.entrySet()) {
+            Node[] fresh=e.getValue().toArray(new Node[0]);
+            RingSnapshot ring=changed.containsKey(e.getKey()) ? changed.get(e.getKey()) : getGroupRing(e.getKey());
+            changed.put(e.getKey(),ring == null ? build(hashFunction,version,fresh,vNodes,options,1)
+                    : RingMerger.add(ring,hashFunction,fresh,version));
+        }
+        return derive(hashFunction,changed,version);
+    }
+
+    /** Present nodes among {@code given}, as their current objects, by current group. */
+    private Map<String,List<Node>> located(Node[] given){
+        Set<String> ids=new HashSet<>();
+        for (Node n : given) ids.add(n.getId());
+        Map<String,List<Node>> out=new LinkedHashMap<>();
+        for (int g = 0; g < rings.length; g++) {
+            for (Node n : rings[g].allNodes) {
+                if (ids.contains(n.getId())) out.computeIfAbsent(top.allNodes[g].getId(),k -> new ArrayList<>()).add(n);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Engine with the given group rings replaced (null: group gone). The top ring gains,
+     * loses or resizes only the changed groups' arcs.
+     */
+    private HierarchicalEngine derive(HashFunction hashFunction,Map<String,RingSnapshot> changed,long version){
+        Map<String,RingSnapshot> rings=new HashMap<>();
+        for (int g = 0; g < this.rings.length; g++) rings.put(top.allNodes[g].getId(),this.rings[g]);
+        List<Node> joined=new ArrayList<>(), left=new ArrayList<>(), resized=new ArrayList<>();
+        for (Map.Entry<String,RingSnapshot> e : changed.entrySet()) {
+            String group=e.getKey();
+            RingSnapshot ring=e.getValue();
+            Integer g=groupIndex.get(group);
+            if (ring == null) {
+                if (g != null) left.add(top.allNodes[g]);
+                rings.remove(group);
+                continue;
+            }
+            rings.put(group,ring);
+            Node groupNode=groupNode(group,weight(ring),unitWeight);
+            if (g == null) joined.add(groupNode);
+            else if (groupNode.getWeight() != top.allNodes[g].getWeight()) resized.add(groupNode);
+        }
+        RingSnapshot nextTop=top;
+        if (!left.isEmpty()) nextTop=RingMerger.remove(nextTop,hashFunction,left.toArray(new Node[0]),version);
+        if (!resized.isEmpty()) nextTop=RingMerger.update(nextTop,hashFunction,resized.toArray(new Node[0]),version);
+        if (!joined.isEmpty()) nextTop=RingMerger.add(nextTop,hashFunction,joined.toArray(new Node[0]),version);
+        return new HierarchicalEngine(this,version,nextTop,rings);
+    }
+}
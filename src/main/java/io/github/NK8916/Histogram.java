@@ -0,0 +1,49 @@
+package io.github.NK8916;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of non-negative values: eight sub-buckets per power of two, so any
+ * recorded value is reported within 12.5%. Recording is lock-free; snapshots are not atomic
+ * across buckets, which only matters while values are being recorded.
+ */
+final class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets=new AtomicLongArray((64 - SUB_BITS + 1) * SUB);
+    private final LongAdder count=new LongAdder();
+    private final LongAdder sum=new LongAdder();
+    private final LongAccumulator max=new LongAccumulator(Math::max,0);
+
+    void record(long value){
+        if (value < 0) value=0;
+        buckets.getAndIncrement(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /** Values below {@code SUB} get a bucket each; above, the top {@code SUB_BITS} bits after the leading one pick the bucket. */
+    static int bucket(long value){
+        if (value < SUB) return (int) value;
+        int msb=63 - Long.numberOfLeadingZeros(value);
+        return ((msb - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (msb - SUB_BITS)) & (SUB - 1));
+    }
+
+    /** Largest value that falls in {@code bucket}. */
+    static long upperBound(int bucket){
+        if (bucket < SUB) return bucket;
+        int shift=(bucket >>> SUB_BITS) - 1;
+        long low=(long) (SUB + (bucket & (SUB - 1))) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    HistogramSnapshot snapshot(){
+        long[] counts=new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) counts[i]=buckets.get(i);
+        return new HistogramSnapshot(counts,count.sum(),sum.sum(),max.get());
+    }
+}
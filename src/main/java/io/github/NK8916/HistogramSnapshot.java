@@ -0,0 +1,51 @@
+package io.github.NK8916;
+
+/**
+ * Point-in-time copy of a metrics histogram (latencies in nanoseconds, or walk lengths in
+ * ring positions). Percentiles are bucket upper bounds, within 12.5% of the true value.
+ */
+public final class HistogramSnapshot {
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] buckets,long count,long sum,long max){
+        this.buckets=buckets;
+        this.count=count;
+        this.sum=sum;
+        this.max=max;
+    }
+
+    public long getCount(){
+        return count;
+    }
+
+    public double getMean(){
+        return count == 0 ? 0 : sum / (double) count;
+    }
+
+    public long getMax(){
+        return max;
+    }
+
+    /** Smallest recorded bucket bound at or above {@code p} (0..1) of values; 0 when empty. */
+    public long getPercentile(double p){
+        if (p < 0 || p > 1) throw new IllegalArgumentException("Percentile must be in [0,1]: " + p);
+        long total=0;
+        for (long c : buckets) total+=c;
+        if (total == 0) return 0;
+        long rank=Math.max(1,(long) Math.ceil(p * total));
+        long seen=0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen+=buckets[b];
+            if (seen >= rank) return Math.min(max,Histogram.upperBound(b));
+        }
+        return max;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("count=%d mean=%.1f p50=%d p99=%d max=%d",count,getMean(),getPercentile(0.5),getPercentile(0.99),max);
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.NK8916;
+
+import java.util.*;
+
+/**
+ * Jump consistent hash (Lamping &amp; Veach, 2014). Nodes are numbered buckets and a key's
+ * bucket is computed from its hash alone, so the engine holds nothing but the node array.
+ * Joining nodes become the highest buckets and take exactly their share of keys. A leaving
+ * node's bucket is taken over by the current last node, which moves the keys of both buckets.
+ */
+public final class JumpEngine implements RoutingEngine {
+    private final long version;
+    private final Node[] nodes;
+
+    public JumpEngine(long version,Node[] nodes){
+        this.version=version;
+        this.nodes=EngineSupport.uniqueById(nodes);
+    }
+
+    private JumpEngine(Node[] nodes,long version){
+        this.version=version;
+        this.nodes=nodes;
+    }
+
+    /** Bucket in [0,buckets) for {@code key}. */
+    static int bucket(long key,int buckets){
+        long b=-1, j=0;
+        while (j < buckets) {
+            b=j;
+            key=key * 2862933555777941757L + 1;
+            j=(long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    public long getVersion(){
+        return version;
+    }
+
+    public int getNodeCount(){
+        return nodes.length;
+    }
+
+    public List<Node> getNodes(){
+        return EngineSupport.view(nodes);
+    }
+
+    public long getMemoryBytes(){
+        return 4L * nodes.length;
+    }
+
+    public int routeIndex(long keyHash){
+        EngineSupport.checkNotEmpty(nodes.length);
+        return bucket(keyHash,nodes.length);
+    }
+
+    public Node route(long keyHash){
+        return nodes[routeIndex(keyHash)];
+    }
+
+    /**
+     * Replica k is the bucket of the key hash re-mixed k times, skipping buckets already
+     * chosen; after a bounded number of retries the remaining replicas are the next free
+     * buckets in order, so the lookup always terminates.
+     */
+    public int routeN(long keyHash,int[] out){
+        int want=Math.min(out.length,nodes.length);
+        if (want == 0) return 0;
+        int n=0;
+        long h=keyHash;
+        for (int attempt = 0; n < want && attempt < 4 * want; attempt++) {
+            int b=bucket(h,nodes.length);
+            if (!EngineSupport.contains(out,n,b)) out[n++]=b;
+            h=EngineSupport.mix64(h + EngineSupport.GOLDEN);
+        }
+        for (int b = n == 0 ? 0 : out[n - 1]; n < want; ) {
+            if (++b == nodes.length) b=0;
+            if (!EngineSupport.contains(out,n,b)) out[n++]=b;
+        }
+        return n;
+    }
+
+    public int routeN(long keyHash,Node[] out){
+        int want=Math.min(out.length,nodes.length);
+        if (want == 0) return 0;
+        int n=0, last=0;
+        long h=keyHash;
+        for (int attempt = 0; n < want && attempt < 4 * want; attempt++) {
+            int b=bucket(h,nodes.length);
+            if (!EngineSupport.containsRef(out,n,nodes[b])) {
+                out[n++]=nodes[b];
+                last=b;
+            }
+            h=EngineSupport.mix64(h + EngineSupport.GOLDEN);
+        }
+        for (int b = last; n < want; ) {
+            if (++b == nodes.length) b=0;
+            if (!EngineSupport.containsRef(out,n,nodes[b])) out[n++]=nodes[b];
+        }
+        return n;
+    }
+
+    public RoutingEngine add(HashFunction hashFunction,Node[] added,long version){
+        return new JumpEngine(EngineSupport.withAdded(nodes,added),version);
+    }
+
+    public RoutingEngine remove(HashFunction hashFunction,Node[] removed,long version){
+        Set<String> ids=new HashSet<>();
+        for (Node n : removed) ids.add(n.getId());
+        Node[] out=Arrays.copyOf(nodes,nodes.length);
+        int count=out.length;
+        for (int i = 0; i < count; ) {
+            if (ids.contains(out[i].getId())) {
+                out[i]=out[--count]; // last bucket takes over; re-check the moved node
+            } else {
+                i++;
+            }
+        }
+        return new JumpEngine(count == nodes.length ? nodes : Arrays.copyOf(out,count),version);
+    }
+
+    /** Weights are not supported by jump hash; nodes are only replaced. */
+    public RoutingEngine update(HashFunction hashFunction,Node[] updated,long version){
+        return new JumpEngine(EngineSupport.withReplaced(nodes,updated),version);
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.NK8916;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of key → node in front of hashing and searching the engine. Slots are
+ * grouped in buckets of {@link #WAYS}, indexed by the key's {@link String#hashCode()} (which
+ * the String caches), and replaced by CLOCK within the bucket. Every entry is tagged with
+ * the version of the engine it was routed on, so publishing a new engine invalidates the
+ * cache implicitly: stale entries simply stop matching and are the first to be replaced.
+ *
+ * <p>Reads take no lock and write nothing but the CLOCK bit on a hit. Writers race
+ * benignly: a lost insert only costs a later miss.
+ */
+final class KeyCache {
+    static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int bucketMask;
+    /** CLOCK hand per bucket; updated without synchronisation, any value is valid. */
+    private final byte[] hands;
+    private final LongAdder hits=new LongAdder();
+    private final LongAdder misses=new LongAdder();
+
+    private static final class Entry {
+        final String key;
+        final int hash;
+        final long version;
+        final int index;
+        final Node node;
+        /** CLOCK reference bit; plain field, a lost update only skews eviction order. */
+        boolean referenced;
+
+        Entry(String key,long version,int index,Node node){
+            this.key=key;
+            this.hash=key.hashCode();
+            this.version=version;
+            this.index=index;
+            this.node=node;
+        }
+    }
+
+    /** Holds at least {@code capacity} entries, rounded up to a power-of-two number of buckets. */
+    KeyCache(int capacity){
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        int needed=(capacity + WAYS - 1) / WAYS;
+        int buckets=needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1; // next power of two
+        this.slots=new AtomicReferenceArray<>(buckets * WAYS);
+        this.bucketMask=buckets - 1;
+        this.hands=new byte[buckets];
+    }
+
+    Node route(String key,RoutingEngine engine,HashFunction hashFunction){
+        return lookup(key,engine,hashFunction).node;
+    }
+
+    /** Index of the key's node in {@code engine.getNodes()}. */
+    int routeIndex(String key,RoutingEngine engine,HashFunction hashFunction){
+        return lookup(key,engine,hashFunction).index;
+    }
+
+    private Entry lookup(String key,RoutingEngine engine,HashFunction hashFunction){
+        long version=engine.getVersion();
+        int h=key.hashCode();
+        int mix=h * 0x9E3779B9; // Fibonacci hashing: similar keys differ mostly in low bits
+        int bucket=(mix ^ (mix >>> 16)) & bucketMask;
+        int base=bucket * WAYS;
+        for (int k = 0; k < WAYS; k++) {
+            Entry e=slots.getAcquire(base + k);
+            if (e != null && e.hash == h && e.version == version && (e.key == key || e.key.equals(key))) {
+                if (!e.referenced) e.referenced=true;
+                hits.increment();
+                return e;
+            }
+        }
+        misses.increment();
+        int index=engine.routeIndex(hashFunction.hash(key));
+        Entry entry=new Entry(key,version,index,engine.getNodes().get(index));
+        insert(bucket,base,entry);
+        return entry;
+    }
+
+    /** CLOCK within the bucket: take the first empty, stale or unreferenced slot, clearing bits on the way. */
+    private void insert(int bucket,int base,Entry entry){
+        int hand=hands[bucket];
+        for (int step = 0; ; step++) {
+            int way=(hand + step) & (WAYS - 1);
+            Entry e=slots.getAcquire(base + way);
+            if (e == null || e.version != entry.version || !e.referenced || step >= WAYS) {
+                slots.setRelease(base + way,entry);
+                hands[bucket]=(byte) ((way + 1) & (WAYS - 1));
+                return;
+            }
+            e.referenced=false;
+        }
+    }
+
+    int capacity(){
+        return slots.length();
+    }
+
+    CacheStats stats(){
+        return new CacheStats(hits.sum(),misses.sum(),capacity());
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.NK8916;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One unit of in-flight load placed on a node by {@link ConsistentHashing#acquire(String)}.
+ * Release it (or close it in a try-with-resources block) when the request finishes;
+ * releasing more than once has no further effect.
+ */
+public final class Lease implements AutoCloseable {
+    private static final AtomicIntegerFieldUpdater<Lease> RELEASED =
+            AtomicIntegerFieldUpdater.newUpdater(Lease.class,"released");
+
+    private final Node node;
+    private final LongAdder nodeLoad;
+    private final LongAdder totalLoad;
+    private volatile int released;
+
+    Lease(Node node,LongAdder nodeLoad,LongAdder totalLoad){
+        this.node=node;
+        this.nodeLoad=nodeLoad;
+        this.totalLoad=totalLoad;
+    }
+
+    public Node getNode(){
+        return node;
+    }
+
+    public void release(){
+        if (RELEASED.compareAndSet(this,0,1)) {
+            nodeLoad.decrement();
+            totalLoad.decrement();
+        }
+    }
+
+    @Override
+    public void close(){
+        release();
+    }
+}
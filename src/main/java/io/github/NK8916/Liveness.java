@@ -0,0 +1,344 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Nodes marked down, routed around without rebuilding the engine. Each published engine
+ * gets a {@link Table} with one bit per node index; marking a node is one bit write, and
+ * lookups whose owner is up cost one extra bit test. A key whose owner is down goes to the
+ * next live owner in the engine's order, i.e. where it would go if the node were removed.
+ *
+ * <p>On a ring the walk to the next live owner uses a skip index: one bit per ring position
+ * whose owner is up, plus one summary bit per 64-position word, so the walk takes a few word
+ * scans even when most nodes are down. Marks keep it in step by re-deriving the node's
+ * points from its vnode labels. Reads take no lock; marks and rebinds are serialised here.
+ */
+final class Liveness {
+    private final HashFunction hashFunction;
+    private volatile Table table;
+    /** Ids marked down, carried over to newly published engines; guarded by this. */
+    private final Set<String> downIds=new LinkedHashSet<>();
+
+    /** Per-thread candidate buffers by length, so failover replica lookups stop allocating once warm. */
+    private static final ThreadLocal<int[][]> ORDER=ThreadLocal.withInitial(() -> new int[0][]);
+
+    /** Down bits of one engine, and on a ring the skip index over its positions. */
+    static final class Table {
+        final RoutingEngine engine;
+        /** {@code engine.getNodes()}, held so lookups do not build a view each time. */
+        private final List<Node> nodes;
+        /** Set when the ring walk applies; replicas of placement rings filter the engine's own order. */
+        private final RingSnapshot ring;
+        private final AtomicLongArray down;
+        private volatile int downCount;
+        /** Bit i: the owner of ring position i is up. Built before the first node goes down. */
+        private volatile AtomicLongArray live;
+        /** Bit w: word w of {@link #live} may be non-zero. */
+        private volatile AtomicLongArray summary;
+
+        Table(RoutingEngine engine){
+            this.engine=engine;
+            this.nodes=engine.getNodes();
+            this.ring=engine instanceof RingSnapshot ? (RingSnapshot) engine : null;
+            this.down=new AtomicLongArray((engine.getNodeCount() + 63) >>> 6);
+        }
+
+        boolean anyDown(){
+            return downCount > 0;
+        }
+
+        boolean isUp(int index){
+            return (down.get(index >>> 6) >>> index & 1) == 0;
+        }
+
+        /** Index of the first live owner for {@code keyHash} in {@code engine.getNodes()}. */
+        int routeIndex(long keyHash){
+            int n=engine.getNodeCount();
+            EngineSupport.checkNotEmpty(n);
+            if (ring == null) {
+                int owner=engine.routeIndex(keyHash);
+                if (isUp(owner)) return owner;
+                int[] order=order(candidates(1));
+                int got=engine.routeN(keyHash,order);
+                for (int k = 0; k < got; k++) if (isUp(order[k])) return order[k];
+                throw allDown();
+            }
+            int i=ring.position(keyHash);
+            int owner=ring.ownerAt(i);
+            if (isUp(owner)) return owner;
+            for (int p = i, steps = 0; steps < ring.ringSize(); steps++) {
+                p=nextLive(p + 1);
+                if (p < 0) break;
+                owner=ring.ownerAt(p);
+                if (isUp(owner)) return owner;
+            }
+            throw allDown();
+        }
+
+        Node route(long keyHash){
+            return nodes.get(routeIndex(keyHash));
+        }
+
+        /** Like {@link RoutingEngine#routeN(long, int[])} over the nodes that are up. */
+        int routeN(long keyHash,int[] out){
+            if (out.length == 0 || engine.getNodeCount() == 0) return 0;
+            if (ring == null || ring.hasPlacement()) return filtered(keyHash,out);
+            int want=Math.min(out.length,engine.getNodeCount() - downCount);
+            int n=0;
+            int p=ring.position(keyHash);
+            if (isUp(ring.ownerAt(p))) out[n++]=ring.ownerAt(p);
+            for (int steps = 0; steps < ring.ringSize() && n < want; steps++) {
+                p=nextLive(p + 1);
+                if (p < 0) break;
+                int owner=ring.ownerAt(p);
+                if (isUp(owner) && !EngineSupport.contains(out,n,owner)) out[n++]=owner;
+            }
+            return n;
+        }
+
+        /** Like {@link #routeN(long, int[])}, writing the nodes themselves; allocation-free once warm. */
+        int routeN(long keyHash,Node[] out){
+            if (out.length == 0 || engine.getNodeCount() == 0) return 0;
+            if (ring == null || ring.hasPlacement()) {
+                int[] order=order(candidates(out.length));
+                int got=engine.routeN(keyHash,order);
+                int n=0;
+                for (int k = 0; k < got && n < out.length; k++) if (isUp(order[k])) out[n++]=nodes.get(order[k]);
+                return n;
+            }
+            int want=Math.min(out.length,engine.getNodeCount() - downCount);
+            int n=0;
+            int p=ring.position(keyHash);
+            if (isUp(ring.ownerAt(p))) out[n++]=ring.allNodes[ring.ownerAt(p)];
+            for (int steps = 0; steps < ring.ringSize() && n < want; steps++) {
+                p=nextLive(p + 1);
+                if (p < 0) break;
+                int owner=ring.ownerAt(p);
+                if (isUp(owner) && !EngineSupport.containsRef(out,n,ring.allNodes[owner])) out[n++]=ring.allNodes[owner];
+            }
+            return n;
+        }
+
+        Node[] routeN(long keyHash,int count){
+            int[] indices=new int[Math.min(count,engine.getNodeCount())];
+            int n=routeN(keyHash,indices);
+            Node[] out=new Node[n];
+            for (int k = 0; k < n; k++) out[k]=nodes.get(indices[k]);
+            return out;
+        }
+
+        /** Like {@link #routeIndex(long)} within one group of a {@link HierarchicalEngine}. */
+        int routeIndexInGroup(String group,long keyHash){
+            HierarchicalEngine hierarchy=(HierarchicalEngine) engine;
+            int owner=hierarchy.routeIndexInGroup(group,keyHash);
+            if (isUp(owner)) return owner;
+            int[] order=order(Math.min(hierarchy.groupSize(group),1 + downCount));
+            int got=hierarchy.routeNInGroup(group,keyHash,order);
+            for (int k = 0; k < got; k++) if (isUp(order[k])) return order[k];
+            throw new IllegalStateException("All nodes of group " + group + " are down");
+        }
+
+        /** Like {@link #routeN(long, int[])} within one group of a {@link HierarchicalEngine}. */
+        int routeNInGroup(String group,long keyHash,int[] out){
+            HierarchicalEngine hierarchy=(HierarchicalEngine) engine;
+            int[] order=order(Math.min(hierarchy.groupSize(group),out.length + downCount));
+            int got=hierarchy.routeNInGroup(group,keyHash,order);
+            int n=0;
+            for (int k = 0; k < got && n < out.length; k++) if (isUp(order[k])) out[n++]=order[k];
+            return n;
+        }
+
+        /**
+         * Live entries of the engine's own replica order: asking for {@code downCount} more
+         * candidates than wanted leaves at least the wanted number up.
+         */
+        private int filtered(long keyHash,int[] out){
+            int[] order=order(candidates(out.length));
+            int got=engine.routeN(keyHash,order);
+            int n=0;
+            for (int k = 0; k < got && n < out.length; k++) if (isUp(order[k])) out[n++]=order[k];
+            return n;
+        }
+
+        private int candidates(int wanted){
+            int candidates=Math.min(engine.getNodeCount(),wanted + downCount);
+            if (ring != null && ring.hasPlacement()) candidates=Math.min(candidates,RingSnapshot.MAX_PLACED_REPLICAS);
+            return candidates;
+        }
+
+        /** First position at or after {@code from} whose live bit is set, wrapping once; -1 if none. */
+        private int nextLive(int from){
+            int p=from < ring.ringSize() ? nextLiveFrom(from) : -1;
+            return p >= 0 ? p : nextLiveFrom(0);
+        }
+
+        private int nextLiveFrom(int from){
+            AtomicLongArray bits=live, sum=summary;
+            int words=bits.length();
+            int w=from >>> 6;
+            long word=bits.get(w) & (-1L << from);
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            for (int s = w + 1; s < words; ) {
+                int sw=s >>> 6;
+                long marks=sum.get(sw) & (-1L << s);
+                if (marks == 0) {
+                    s=(sw + 1) << 6;
+                    continue;
+                }
+                int next=(sw << 6) + Long.numberOfTrailingZeros(marks);
+                word=bits.get(next);
+                // a summary bit may briefly outlive its word while a node is marked down
+                if (word != 0) return (next << 6) + Long.numberOfTrailingZeros(word);
+                s=next + 1;
+            }
+            return -1;
+        }
+
+        /** Fills the skip index from the down bits; called before any node is marked down. */
+        private void buildIndex(){
+            int size=ring.ringSize();
+            int words=Math.max(1,(size + 63) >>> 6);
+            AtomicLongArray bits=new AtomicLongArray(words);
+            AtomicLongArray sum=new AtomicLongArray((words + 63) >>> 6);
+            for (int w = 0; w < words; w++) {
+                long word=0;
+                for (int i = w << 6, end = Math.min(size,(w + 1) << 6); i < end; i++) {
+                    if (isUp(ring.ownerAt(i))) word|=1L << i;
+                }
+                bits.set(w,word);
+                if (word != 0) sum.set(w >>> 6,sum.get(w >>> 6) | 1L << w);
+            }
+            summary=sum;
+            live=bits;
+        }
+
+        /** Sets or clears the live bits of the given positions; writers hold the Liveness lock. */
+        private void setLive(int[] positions,boolean up){
+            AtomicLongArray bits=live, sum=summary;
+            for (int i : positions) {
+                int w=i >>> 6;
+                long word=up ? bits.get(w) | 1L << i : bits.get(w) & ~(1L << i);
+                bits.set(w,word);
+                long marks=sum.get(w >>> 6);
+                sum.set(w >>> 6,word != 0 ? marks | 1L << w : marks & ~(1L << w));
+            }
+        }
+
+        private void setDown(int index,boolean isDown){
+            long word=down.get(index >>> 6);
+            down.set(index >>> 6,isDown ? word | 1L << index : word & ~(1L << index));
+        }
+
+        private static IllegalStateException allDown(){
+            return new IllegalStateException("All nodes are down");
+        }
+    }
+
+    private static int[] order(int length){
+        return EngineSupport.scratch(ORDER,length);
+    }
+
+    Liveness(HashFunction hashFunction,RoutingEngine engine){
+        this.hashFunction=hashFunction;
+        this.table=new Table(engine);
+    }
+
+    Table table(){
+        return table;
+    }
+
+    /**
+     * Switches to a newly published engine; nodes still present stay down (matched by id),
+     * marks of nodes that left are dropped.
+     */
+    synchronized void rebind(RoutingEngine engine){
+        Table next=new Table(engine);
+        List<Node> nodes=engine.getNodes();
+        Set<String> present=new HashSet<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            String id=nodes.get(i).getId();
+            present.add(id);
+            if (downIds.contains(id)) {
+                next.setDown(i,true);
+                next.downCount++;
+            }
+        }
+        downIds.retainAll(present);
+        if (next.downCount > 0 && next.ring != null) next.buildIndex();
+        table=next;
+    }
+
+    /** Marks nodes (matched by id) down; unknown ids are ignored. */
+    synchronized void markDown(Node[] nodes){
+        Table t=table;
+        Map<String,Integer> index=index(t);
+        for (Node node : nodes) {
+            Integer i=index.get(node.getId());
+            if (i == null || !t.isUp(i)) continue;
+            if (t.ring != null && t.live == null) t.buildIndex();
+            downIds.add(node.getId());
+            // the down bit decides; the skip index only has to catch up
+            t.setDown(i,true);
+            t.downCount++;
+            if (t.ring != null) t.setLive(positions(t.ring,i),false);
+        }
+    }
+
+    /** Marks nodes (matched by id) up again; unknown ids are ignored. */
+    synchronized void markUp(Node[] nodes){
+        Table t=table;
+        Map<String,Integer> index=index(t);
+        for (Node node : nodes) {
+            Integer i=index.get(node.getId());
+            if (i == null || t.isUp(i)) continue;
+            downIds.remove(node.getId());
+            // positions first, so a walk never skips a node that reads as up
+            if (t.ring != null) t.setLive(positions(t.ring,i),true);
+            t.setDown(i,false);
+            t.downCount--;
+        }
+    }
+
+    synchronized Set<String> downIds(){
+        return new LinkedHashSet<>(downIds);
+    }
+
+    private static Map<String,Integer> index(Table t){
+        List<Node> nodes=t.engine.getNodes();
+        Map<String,Integer> index=new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) index.put(nodes.get(i).getId(),i);
+        return index;
+    }
+
+    /**
+     * Ring positions owned by {@code allNodes[owner]}, re-derived from its vnode labels;
+     * rings whose points do not come from labels (e.g. built from raw arrays) are scanned.
+     */
+    private int[] positions(RingSnapshot ring,int owner){
+        int size=ring.ringSize();
+        RingMerger.Run run=RingMerger.sortedRun(hashFunction,new Node[]{ring.allNodes[owner]},ring.getVNodes());
+        int[] out=new int[run.points.length];
+        int from=0;
+        for (int k = 0; k < out.length; k++) {
+            long p=run.points[k];
+            int at=ring.lowerBound(from,size,p);
+            while (at < size && ring.pointAt(at) == p && ring.ownerAt(at) != owner) at++;
+            if (at == size || ring.pointAt(at) != p) return scan(ring,owner);
+            out[k]=at;
+            from=at;
+        }
+        return out;
+    }
+
+    private static int[] scan(RingSnapshot ring,int owner){
+        int[] out=new int[16];
+        int n=0;
+        for (int i = 0; i < ring.ringSize(); i++) {
+            if (ring.ownerAt(i) != owner) continue;
+            if (n == out.length) out=Arrays.copyOf(out,n * 2);
+            out[n++]=i;
+        }
+        return Arrays.copyOf(out,n);
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.NK8916;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Maglev consistent hashing (Eisenbud et al., NSDI 2016). Every node walks its own
+ * permutation of a prime-sized table, and nodes take turns claiming their next free slot
+ * until the table is full; a key is routed by a single table read. Entries are owner
+ * indices of 1, 2 or 4 bytes, and the table is rebuilt on every membership change.
+ *
+ * <p>Weighted nodes take turns in proportion to their weight: the heaviest claims a slot
+ * every round, others whenever their accumulated share of its weight reaches one, so slots
+ * (and keys) split by weight. With equal weights every node claims every round, as unweighted.
+ */
+public final class MaglevEngine implements RoutingEngine {
+    /** Smallest table, as in the paper; tables also grow to at least 100 slots per node. */
+    public static final int DEFAULT_TABLE_SIZE = 65537;
+
+    private final long version;
+    private final Node[] nodes;
+    private final OwnerTable table;
+    private final int tableSize;
+    private final int minTableSize;
+
+    public MaglevEngine(HashFunction hashFunction,long version,Node[] nodes){
+        this(hashFunction,version,nodes,DEFAULT_TABLE_SIZE);
+    }
+
+    /** @param minTableSize lower bound for the table size, rounded up to a prime */
+    public MaglevEngine(HashFunction hashFunction,long version,Node[] nodes,int minTableSize){
+        this(hashFunction,EngineSupport.uniqueById(nodes),version,minTableSize);
+    }
+
+    private MaglevEngine(HashFunction hashFunction,Node[] nodes,long version,int minTableSize){
+        if (minTableSize < 2) throw new IllegalArgumentException("minTableSize must be >= 2: " + minTableSize);
+        this.version=version;
+        this.nodes=nodes;
+        this.minTableSize=minTableSize;
+        long want=Math.max(minTableSize,100L * nodes.length);
+        if (want > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many nodes for a Maglev table: " + nodes.length);
+        this.tableSize=BigInteger.valueOf(want - 1).nextProbablePrime().intValueExact();
+        this.table=populate(hashFunction);
+    }
+
+    /** Same table as {@code source} over {@code nodes}, published under another version. */
+    private MaglevEngine(MaglevEngine source,Node[] nodes,long version){
+        this.version=version;
+        this.nodes=nodes;
+        this.table=source.table;
+        this.tableSize=source.tableSize;
+        this.minTableSize=source.minTableSize;
+    }
+
+    /**
+     * Node i's permutation is offset + j*skip (mod M), both taken from the two halves of the
+     * hash of its id. M is prime, so every skip in [1,M) visits all slots. Only the current
+     * slot of each permutation is kept and advanced by one addition.
+     */
+    private OwnerTable populate(HashFunction hashFunction){
+        int m=tableSize;
+        OwnerTable out=OwnerTable.allocate(m,Math.max(1,nodes.length));
+        if (nodes.length == 0) return out;
+        int[] position=new int[nodes.length];
+        int[] skip=new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            long h=hashFunction.hash(nodes[i].getId());
+            position[i]=(int) Long.remainderUnsigned(h & 0xFFFFFFFFL,m);
+            skip[i]=(int) Long.remainderUnsigned(h >>> 32,m - 1) + 1;
+        }
+        double[] weights=EngineSupport.weights(nodes);
+        double[] share=null, credit=null;
+        if (weights != null) {
+            double max=0;
+            for (double w : weights) max=Math.max(max,w);
+            share=new double[nodes.length];
+            credit=new double[nodes.length];
+            for (int i = 0; i < nodes.length; i++) share[i]=weights[i] / max;
+        }
+        boolean[] taken=new boolean[m];
+        int filled=0;
+        while (true) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (share != null) {
+                    credit[i]+=share[i];
+                    if (credit[i] < 1) continue;
+                    credit[i]-=1;
+                }
+                int c=position[i];
+                while (taken[c]) c=step(c,skip[i],m);
+                taken[c]=true;
+                out.set(c,i);
+                position[i]=step(c,skip[i],m);
+                if (++filled == m) return out;
+            }
+        }
+    }
+
+    /** Next slot of a permutation: (c + skip) mod m without a division. */
+    private static int step(int c,int skip,int m){
+        int next=c + skip - m;
+        return next < 0 ? next + m : next;
+    }
+
+    /** Table slot of {@code keyHash}: the top 32 bits scaled onto [0,M) with a multiply. */
+    private int slot(long keyHash){
+        return (int) (((keyHash >>> 32) * tableSize) >>> 32);
+    }
+
+    public long getVersion(){
+        return version;
+    }
+
+    public int getNodeCount(){
+        return nodes.length;
+    }
+
+    public List<Node> getNodes(){
+        return EngineSupport.view(nodes);
+    }
+
+    public int getTableSize(){
+        return tableSize;
+    }
+
+    public long getMemoryBytes(){
+        return table.memoryBytes() + 4L * nodes.length;
+    }
+
+    public int routeIndex(long keyHash){
+        EngineSupport.checkNotEmpty(nodes.length);
+        return table.get(slot(keyHash));
+    }
+
+    public Node route(long keyHash){
+        return nodes[routeIndex(keyHash)];
+    }
+
+    /** Replicas are the next distinct owners in table order after the key's slot. */
+    public int routeN(long keyHash,int[] out){
+        int want=Math.min(out.length,nodes.length);
+        int n=0;
+        for (int c = want == 0 ? 0 : slot(keyHash), steps = 0; n < want && steps < tableSize; steps++) {
+            int owner=table.get(c);
+            if (!EngineSupport.contains(out,n,owner)) out[n++]=owner;
+            if (++c == tableSize) c=0;
+        }
+        return n;
+    }
+
+    public int routeN(long keyHash,Node[] out){
+        int want=Math.min(out.length,nodes.length);
+        int n=0;
+        for (int c = want == 0 ? 0 : slot(keyHash), steps = 0; n < want && steps < tableSize; steps++) {
+            Node candidate=nodes[table.get(c)];
+            if (!EngineSupport.containsRef(out,n,candidate)) out[n++]=candidate;
+            if (++c == tableSize) c=0;
+        }
+        return n;
+    }
+
+    public RoutingEngine add(HashFunction hashFunction,Node[] added,long version){
+        return rebuild(hashFunction,EngineSupport.withAdded(nodes,added),version);
+    }
+
+    public RoutingEngine remove(HashFunction hashFunction,Node[] removed,long version){
+        return rebuild(hashFunction,EngineSupport.withRemoved(nodes,removed),version);
+    }
+
+    /** The table depends on ids and weights, so it is kept unless a weight changed. */
+    public RoutingEngine update(HashFunction hashFunction,Node[] updated,long version){
+        Node[] replaced=EngineSupport.withReplaced(nodes,updated);
+        for (int i = 0; i < nodes.length; i++) {
+            if (replaced[i].getWeight() != nodes[i].getWeight()) return new MaglevEngine(hashFunction,replaced,version,minTableSize);
+        }
+        return new MaglevEngine(this,replaced,version);
+    }
+
+    /** One table build for the whole change, or none when nodes are only replaced with the same weights. */
+    public RoutingEngine change(HashFunction hashFunction,Node[] removed,Node[] added,Node[] updated,long version){
+        Node[] members=EngineSupport.withAdded(EngineSupport.withRemoved(nodes,removed),added);
+        if (members == nodes) return update(hashFunction,updated,version);
+        return rebuild(hashFunction,EngineSupport.withReplaced(members,updated),version);
+    }
+
+    private MaglevEngine rebuild(HashFunction hashFunction,Node[] members,long version){
+        return members == nodes ? new MaglevEngine(this,nodes,version) : new MaglevEngine(hashFunction,members,version,minTableSize);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.NK8916;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Polled view of the router's metrics, from {@link ConsistentHashing#getMetrics()}. Gauges
+ * describe the engine published at the time of the poll; counters and histograms are
+ * cumulative since the router was built.
+ */
+public final class MetricsSnapshot {
+    private final long version;
+    private final int nodeCount;
+    private final int ringSize;
+    private final long memoryBytes;
+    private final Map<String,Long> lookupsPerNode;
+    private final HistogramSnapshot lookupLatency;
+    private final HistogramSnapshot replicaLatency;
+    private final HistogramSnapshot replicaWalk;
+    private final HistogramSnapshot swapLatency;
+    private final BuildTimings buildTimings;
+
+    MetricsSnapshot(long version,int nodeCount,int ringSize,long memoryBytes,Map<String,Long> lookupsPerNode,
+                    HistogramSnapshot lookupLatency,HistogramSnapshot replicaLatency,HistogramSnapshot replicaWalk,
+                    HistogramSnapshot swapLatency,BuildTimings buildTimings){
+        this.version=version;
+        this.nodeCount=nodeCount;
+        this.ringSize=ringSize;
+        this.memoryBytes=memoryBytes;
+        this.lookupsPerNode=Collections.unmodifiableMap(lookupsPerNode);
+        this.lookupLatency=lookupLatency;
+        this.replicaLatency=replicaLatency;
+        this.replicaWalk=replicaWalk;
+        this.swapLatency=swapLatency;
+        this.buildTimings=buildTimings;
+    }
+
+    public long getVersion(){
+        return version;
+    }
+
+    public int getNodeCount(){
+        return nodeCount;
+    }
+
+    /** Points on the ring; 0 for engines without one. */
+    public int getRingSize(){
+        return ringSize;
+    }
+
+    public long getMemoryBytes(){
+        return memoryBytes;
+    }
+
+    /** {@code getNodeForKey} lookups routed to each current node, by id, in engine order. */
+    public Map<String,Long> getLookupsPerNode(){
+        return lookupsPerNode;
+    }
+
+    /** Sampled {@code getNodeForKey} latency in nanoseconds. */
+    public HistogramSnapshot getLookupLatency(){
+        return lookupLatency;
+    }
+
+    /** Sampled {@code getReplicasForKey} latency in nanoseconds. */
+    public HistogramSnapshot getReplicaLatency(){
+        return replicaLatency;
+    }
+
+    /**
+     * Ring positions a clockwise walk visits to collect the requested distinct replicas, for
+     * the sampled replica lookups; 0 when a replica table served the lookup.
+     */
+    public HistogramSnapshot getReplicaWalk(){
+        return replicaWalk;
+    }
+
+    /** Nanoseconds from the start of each add/remove/update to publishing its engine. */
+    public HistogramSnapshot getSwapLatency(){
+        return swapLatency;
+    }
+
+    /** Phases of the initial build; null for routers not built by {@link ConsistentHashingBuilder}. */
+    public BuildTimings getBuildTimings(){
+        return buildTimings;
+    }
+
+    @Override
+    public String toString(){
+        return "MetricsSnapshot[version=" + version + ", nodes=" + nodeCount + ", ringSize=" + ringSize
+                + ", memoryBytes=" + memoryBytes + ", lookups{" + lookupLatency + "}, replicas{" + replicaLatency
+                + "}, walk{" + replicaWalk + "}, swaps{" + swapLatency + "}, " + buildTimings + "]";
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.NK8916;
+
+import java.util.List;
+
+/**
+ * Multi-probe consistent hashing (Appleton &amp; O'Reilly, 2015). Each node has a single
+ * point on a ring; a key is hashed into several probes and goes to the node whose point
+ * follows any probe most closely. More probes give better balance without the memory of
+ * vnodes: 21 probes keep the peak-to-mean load near 1.05. Probes after the first are
+ * derived from the key hash by mixing, so each key is hashed only once.
+ *
+ * <p>Weights keep one point per node and scale the probe distance instead: a probe's distance
+ * to a node's point is divided by the node's weight, so a heavier node wins probes from
+ * further away and its key share grows with its weight.
+ */
+public final class MultiProbeEngine implements RoutingEngine {
+    public static final int DEFAULT_PROBES = 21;
+
+    /** One point per node, compact layout; membership changes reuse the ring merge. */
+    private final RingSnapshot ring;
+    private final int probes;
+    /** 1/weight per node index, or null when every node has weight 1. */
+    private final double[] inverseWeights;
+
+    public MultiProbeEngine(HashFunction hashFunction,long version,Node[] nodes){
+        this(hashFunction,version,nodes,DEFAULT_PROBES);
+    }
+
+    public MultiProbeEngine(HashFunction hashFunction,long version,Node[] nodes,int probes){
+        this(build(hashFunction,version,EngineSupport.uniqueById(nodes)),probes);
+    }
+
+    private MultiProbeEngine(RingSnapshot ring,int probes){
+        if (probes < 1) throw new IllegalArgumentException("probes must be >= 1: " + probes);
+        this.ring=ring;
+        this.probes=probes;
+        this.inverseWeights=inverseWeights(ring.allNodes);
+    }
+
+    private static double[] inverseWeights(Node[] nodes){
+        double[] inverse=null;
+        for (int i = 0; i < nodes.length; i++) {
+            double w=nodes[i].getWeight();
+            if (w == 1 && inverse == null) continue;
+            if (inverse == null) {
+                inverse=new double[nodes.length];
+                for (int j = 0; j < i; j++) inverse[j]=1;
+            }
+            inverse[i]=1 / w;
+        }
+        return inverse;
+    }
+
+    private static RingSnapshot build(HashFunction hashFunction,long version,Node[] nodes){
+        RingMerger.Run run=RingMerger.unitRun(hashFunction,nodes);
+        return new RingSnapshot(version,run.points,run.owners,nodes,1,new RingOptions(SearchIndex.NONE,RingLayout.COMPACT));
+    }
+
+    public long getVersion(){
+        return ring.getVersion();
+    }
+
+    public int getNodeCount(){
+        return ring.getNodeCount();
+    }
+
+    public List<Node> getNodes(){
+        return ring.getNodes();
+    }
+
+    public int getProbes(){
+        return probes;
+    }
+
+    public long getMemoryBytes(){
+        return ring.getMemoryBytes();
+    }
+
+    public int routeIndex(long keyHash){
+        return ring.ownerAt(position(keyHash));
+    }
+
+    public Node route(long keyHash){
+        return ring.allNodes[routeIndex(keyHash)];
+    }
+
+    /** The primary, then the next distinct nodes clockwise from its point. */
+    public int routeN(long keyHash,int[] out){
+        if (out.length == 0) return 0;
+        return ring.routeN(ring.pointAt(position(keyHash)),out);
+    }
+
+    public int routeN(long keyHash,Node[] out){
+        if (out.length == 0) return 0;
+        return ring.routeN(ring.pointAt(position(keyHash)),out);
+    }
+
+    /** Ring position whose point is the closest successor of any probe, distances scaled by weight. */
+    private int position(long keyHash){
+        int size=ring.ringSize();
+        EngineSupport.checkNotEmpty(size);
+        if (inverseWeights != null) return weightedPosition(keyHash,size);
+        int best=0;
+        long bestDistance=-1L;
+        long probe=keyHash;
+        for (int k = 0; k < probes; k++) {
+            int i=ring.lowerBound(0,size,probe);
+            if (i == size) i=0;
+            long distance=ring.pointAt(i) - probe; // clockwise, wraps naturally
+            if (Long.compareUnsigned(distance,bestDistance) < 0) {
+                best=i;
+                bestDistance=distance;
+            }
+            probe=EngineSupport.mix64(keyHash + (k + 1) * EngineSupport.GOLDEN);
+        }
+        return best;
+    }
+
+    private int weightedPosition(long keyHash,int size){
+        int best=0;
+        double bestDistance=Double.POSITIVE_INFINITY;
+        long probe=keyHash;
+        for (int k = 0; k < probes; k++) {
+            int i=ring.lowerBound(0,size,probe);
+            if (i == size) i=0;
+            long distance=ring.pointAt(i) - probe;
+            double scaled=((distance >>> 1) * 2.0 + (distance & 1)) * inverseWeights[ring.ownerAt(i)];
+            if (scaled < bestDistance) {
+                best=i;
+                bestDistance=scaled;
+            }
+            probe=EngineSupport.mix64(keyHash + (k + 1) * EngineSupport.GOLDEN);
+        }
+        return best;
+    }
+
+    public RoutingEngine add(HashFunction hashFunction,Node[] added,long version){
+        return new MultiProbeEngine(RingMerger.add(ring,hashFunction,added,version,false),probes);
+    }
+
+    public RoutingEngine remove(HashFunction hashFunction,Node[] removed,long version){
+        return new MultiProbeEngine(RingMerger.remove(ring,hashFunction,removed,version,false),probes);
+    }
+
+    public RoutingEngine change(HashFunction hashFunction,Node[] removed,Node[] added,Node[] updated,long version){
+        return new MultiProbeEngine(RingMerger.change(ring,hashFunction,removed,added,updated,version,false),probes);
+    }
+
+    /** Points never move: weights only change how probe distances are scaled. */
+    public RoutingEngine update(HashFunction hashFunction,Node[] updated,long version){
+        Node[] allNodes=EngineSupport.withReplaced(ring.allNodes,updated);
+        return new MultiProbeEngine(new RingSnapshot(version,ring.points,ring.owners(),allNodes,1,ring.options()),probes);
+    }
+}
@@ -3,18 +3,54 @@ package io.github.NK8916;
 import java.util.Map;
 
 public class Node {
+    /** Conventional metadata key for weights, for {@link #withWeightFromMetadata(String)}. */
+    public static final String WEIGHT_KEY = "weight";
+
     private final String id;
     private final String ipAddress;
     private final int port;
     private final String region;
     private final Map<String,String> metaData;
+    private final double weight;
 
+    /** A node of weight 1; metadata is not interpreted. */
     public Node(String id, String ipAddress, int port, String region, Map<String, String> metaData) {
+        this(id, ipAddress, port, region, metaData, 1.0);
+    }
+
+    /**
+     * @param weight relative capacity; the ring gives this node {@code round(vNodes * weight)}
+     *               vnodes (at least one)
+     */
+    public Node(String id, String ipAddress, int port, String region, Map<String, String> metaData, double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight of node " + id + " must be positive and finite: " + weight);
+        }
         this.id = id;
         this.ipAddress = ipAddress;
         this.port = port;
         this.region = region;
         this.metaData = metaData;
+        this.weight = weight;
+    }
+
+    /**
+     * This node with its weight read from the metadata entry {@code key}, for clusters that keep
+     * capacities in metadata (e.g. {@link #WEIGHT_KEY}); without that entry the node is returned
+     * as is.
+     *
+     * @throws IllegalArgumentException if the entry is not a positive, finite number
+     */
+    public Node withWeightFromMetadata(String key) {
+        String value = metaData == null ? null : metaData.get(key);
+        if (value == null) return this;
+        double parsed;
+        try {
+            parsed = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Weight of node " + id + " is not a number: " + value, e);
+        }
+        return new Node(id, ipAddress, port, region, metaData, parsed);
     }
 
     public String getId() {
@@ -36,4 +72,8 @@ public class Node {
     public Map<String, String> getMetaData() {
         return metaData;
     }
+
+    public double getWeight() {
+        return weight;
+    }
 }
@@ -0,0 +1,196 @@
+package io.github.NK8916;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Owner of every ring position, stored as an index into {@code allNodes} using the narrowest
+ * primitive that fits the node count: one byte up to 256 nodes, two up to 65,536, else four.
+ * Tables are filled once while a snapshot is built and never written afterwards.
+ */
+abstract class OwnerTable {
+
+    abstract int get(int i);
+
+    abstract void set(int i, int owner);
+
+    abstract int size();
+
+    /** 1, 2 or 4. */
+    abstract int width();
+
+    long memoryBytes(){
+        return (long) size() * width();
+    }
+
+    /** Copies {@code len} owners starting at {@code from} into {@code dst} at {@code to}. */
+    void copyTo(int from, OwnerTable dst, int to, int len){
+        for (int i = 0; i < len; i++) dst.set(to + i, get(from + i));
+    }
+
+    /** Like {@link #copyTo} but translates every owner through {@code remap}. */
+    void copyTo(int from, OwnerTable dst, int to, int len, int[] remap){
+        for (int i = 0; i < len; i++) dst.set(to + i, remap[get(from + i)]);
+    }
+
+    static int widthFor(int nodeCount){
+        return nodeCount <= 1 << 8 ? 1 : nodeCount <= 1 << 16 ? 2 : 4;
+    }
+
+    static OwnerTable allocate(int size, int nodeCount){
+        switch (widthFor(nodeCount)) {
+            case 1: return new ByteOwners(new byte[size]);
+            case 2: return new CharOwners(new char[size]);
+            default: return new IntOwners(new int[size]);
+        }
+    }
+
+    /** Copies this table into a direct buffer outside the Java heap. */
+    OwnerTable toOffHeap(){
+        long bytes=memoryBytes();
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Owner table too large for off-heap layout: " + bytes + " bytes");
+        }
+        BufferOwners out=new BufferOwners(ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()), width(), size());
+        copyTo(0, out, 0, size());
+        return out;
+    }
+
+    /** Wraps {@code size} owners of the given width starting at the buffer's position. */
+    static OwnerTable wrap(ByteBuffer buffer, int width, int size){
+        return new BufferOwners(buffer.slice().order(buffer.order()), width, size);
+    }
+
+    static final class ByteOwners extends OwnerTable {
+        final byte[] owners;
+
+        ByteOwners(byte[] owners){
+            this.owners=owners;
+        }
+
+        @Override int get(int i){
+            return owners[i] & 0xFF;
+        }
+
+        @Override void set(int i, int owner){
+            owners[i]=(byte) owner;
+        }
+
+        @Override int size(){
+            return owners.length;
+        }
+
+        @Override int width(){
+            return 1;
+        }
+
+        @Override void copyTo(int from, OwnerTable dst, int to, int len){
+            if (dst instanceof ByteOwners) {
+                System.arraycopy(owners, from, ((ByteOwners) dst).owners, to, len);
+            } else {
+                super.copyTo(from, dst, to, len);
+            }
+        }
+    }
+
+    static final class CharOwners extends OwnerTable {
+        final char[] owners;
+
+        CharOwners(char[] owners){
+            this.owners=owners;
+        }
+
+        @Override int get(int i){
+            return owners[i];
+        }
+
+        @Override void set(int i, int owner){
+            owners[i]=(char) owner;
+        }
+
+        @Override int size(){
+            return owners.length;
+        }
+
+        @Override int width(){
+            return 2;
+        }
+
+        @Override void copyTo(int from, OwnerTable dst, int to, int len){
+            if (dst instanceof CharOwners) {
+                System.arraycopy(owners, from, ((CharOwners) dst).owners, to, len);
+            } else {
+                super.copyTo(from, dst, to, len);
+            }
+        }
+    }
+
+    static final class IntOwners extends OwnerTable {
+        final int[] owners;
+
+        IntOwners(int[] owners){
+            this.owners=owners;
+        }
+
+        @Override int get(int i){
+            return owners[i];
+        }
+
+        @Override void set(int i, int owner){
+            owners[i]=owner;
+        }
+
+        @Override int size(){
+            return owners.length;
+        }
+
+        @Override int width(){
+            return 4;
+        }
+
+        @Override void copyTo(int from, OwnerTable dst, int to, int len){
+            if (dst instanceof IntOwners) {
+                System.arraycopy(owners, from, ((IntOwners) dst).owners, to, len);
+            } else {
+                super.copyTo(from, dst, to, len);
+            }
+        }
+    }
+
+    /** Off-heap (direct or memory-mapped) owners; reads use absolute gets and never move the buffer. */
+    static final class BufferOwners extends OwnerTable {
+        final ByteBuffer buffer;
+        private final int width;
+        private final int size;
+
+        BufferOwners(ByteBuffer buffer, int width, int size){
+            this.buffer=buffer;
+            this.width=width;
+            this.size=size;
+        }
+
+        @Override int get(int i){
+            switch (width) {
+                case 1: return buffer.get(i) & 0xFF;
+                case 2: return buffer.getChar(i << 1);
+                default: return buffer.getInt(i << 2);
+            }
+        }
+
+        @Override void set(int i, int owner){
+            switch (width) {
+                case 1: buffer.put(i, (byte) owner); break;
+                case 2: buffer.putChar(i << 1, (char) owner); break;
+                default: buffer.putInt(i << 2, owner);
+            }
+        }
+
+        @Override int size(){
+            return size;
+        }
+
+        @Override int width(){
+            return width;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Failure domains replicas should be spread across, most important first. A ring built with
+ * a policy answers replica lookups level by level: first nodes from distinct domains of
+ * level 0 (walking clockwise), then, if there are fewer such domains than replicas, nodes
+ * from distinct domains of level 1 not chosen yet, and so on, finally any distinct nodes.
+ * Domains are resolved to integer ids once per snapshot, so lookups compare ints only.
+ */
+public final class PlacementPolicy {
+    /** Metadata key holding a node's rack, as written by {@link NodeGenerator}. */
+    public static final String RACK_KEY = "rack";
+
+    private final List<Function<Node,String>> levels;
+    private final String description;
+
+    private PlacementPolicy(List<Function<Node,String>> levels,String description){
+        if (levels.isEmpty()) throw new IllegalArgumentException("A placement policy needs at least one level");
+        this.levels=levels;
+        this.description=description;
+    }
+
+    public static PlacementPolicy distinctRegions(){
+        return new PlacementPolicy(List.of(Node::getRegion),"regions");
+    }
+
+    public static PlacementPolicy distinctRacks(){
+        return distinctMetadata(RACK_KEY);
+    }
+
+    /** Distinct regions first, then distinct racks; rack names are scoped to their region. */
+    public static PlacementPolicy distinctRegionsThenRacks(){
+        Function<Node,String> rack=metadata(RACK_KEY);
+        return new PlacementPolicy(List.of(Node::getRegion,n -> n.getRegion() + "/" + rack.apply(n)),"regions, racks");
+    }
+
+    /** One level per metadata key, in order; nodes missing a key share one domain. */
+    public static PlacementPolicy distinctMetadata(String... keys){
+        List<Function<Node,String>> levels=new ArrayList<>();
+        for (String key : keys) levels.add(metadata(key));
+        return new PlacementPolicy(levels,"metadata" + Arrays.toString(keys));
+    }
+
+    /** Arbitrary domain functions, most important first. */
+    @SafeVarargs
+    public static PlacementPolicy distinctBy(Function<Node,String>... levels){
+        return new PlacementPolicy(List.of(levels),levels.length + " custom levels");
+    }
+
+    private static Function<Node,String> metadata(String key){
+        return n -> n.getMetaData() == null ? null : n.getMetaData().get(key);
+    }
+
+    int levels(){
+        return levels.size();
+    }
+
+    /** Domain id of every node at every level: {@code ids[level][node]}, dense from 0. */
+    int[][] domainIds(Node[] nodes){
+        int[][] ids=new int[levels.size()][nodes.length];
+        for (int l = 0; l < ids.length; l++) {
+            Map<String,Integer> seen=new HashMap<>();
+            for (int n = 0; n < nodes.length; n++) {
+                String domain=levels.get(l).apply(nodes[n]);
+                Integer id=seen.get(domain);
+                if (id == null) seen.put(domain,id=seen.size());
+                ids[l][n]=id;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public String toString(){
+        return "PlacementPolicy[" + description + "]";
+    }
+}
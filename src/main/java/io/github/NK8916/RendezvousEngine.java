@@ -0,0 +1,141 @@
+package io.github.NK8916;
+
+import java.util.List;
+
+/**
+ * Rendezvous (highest random weight) hashing, Thaler &amp; Ravishankar. Each node's id is
+ * hashed once with the engine's {@link HashFunction}; a key's score for a node is the
+ * XOR of the two hashes passed through the MurmurHash3 finalizer, and the highest score wins.
+ * Lookups cost one mix per node, so this suits small clusters; remapping is minimal.
+ *
+ * <p>Weighted nodes use weighted rendezvous (Schindelhauer &amp; Schomaker): the score becomes
+ * {@code -w / ln(u)} with {@code u} the mixed hash mapped onto (0,1), so a node's key share is
+ * proportional to its weight. With equal weights the order is the unweighted one.
+ */
+public final class RendezvousEngine implements RoutingEngine {
+    private final long version;
+    private final Node[] nodes;
+    private final long[] nodeHashes;
+    /** Node weights, or null when they are all equal and the plain scores decide. */
+    private final double[] weights;
+
+    public RendezvousEngine(HashFunction hashFunction,long version,Node[] nodes){
+        this(hashFunction,EngineSupport.uniqueById(nodes),version);
+    }
+
+    private RendezvousEngine(HashFunction hashFunction,Node[] nodes,long version){
+        this.version=version;
+        this.nodes=nodes;
+        this.nodeHashes=new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) nodeHashes[i]=hashFunction.hash(nodes[i].getId());
+        this.weights=EngineSupport.weights(nodes);
+    }
+
+    public long getVersion(){
+        return version;
+    }
+
+    public int getNodeCount(){
+        return nodes.length;
+    }
+
+    public List<Node> getNodes(){
+        return EngineSupport.view(nodes);
+    }
+
+    public long getMemoryBytes(){
+        return (weights == null ? 12L : 20L) * nodes.length;
+    }
+
+    public int routeIndex(long keyHash){
+        EngineSupport.checkNotEmpty(nodes.length);
+        return next(keyHash,-1);
+    }
+
+    public Node route(long keyHash){
+        return nodes[routeIndex(keyHash)];
+    }
+
+    /** Replicas are the nodes in descending score order, found one pass per replica. */
+    public int routeN(long keyHash,int[] out){
+        int want=Math.min(out.length,nodes.length);
+        int prev=-1;
+        for (int n = 0; n < want; n++) {
+            prev=next(keyHash,prev);
+            out[n]=prev;
+        }
+        return want;
+    }
+
+    public int routeN(long keyHash,Node[] out){
+        int want=Math.min(out.length,nodes.length);
+        int prev=-1;
+        for (int n = 0; n < want; n++) {
+            prev=next(keyHash,prev);
+            out[n]=nodes[prev];
+        }
+        return want;
+    }
+
+    /**
+     * Highest-ranked node ranking strictly below node {@code prev} (or overall if -1). Ranks
+     * order by unsigned score, then by lower index, so they are total and ties are stable.
+     */
+    private int next(long keyHash,int prev){
+        if (weights != null) return nextWeighted(keyHash,prev);
+        long prevScore=prev < 0 ? 0 : score(keyHash,prev);
+        int best=-1;
+        long bestScore=0;
+        for (int i = 0; i < nodes.length; i++) {
+            long s=score(keyHash,i);
+            if (prev >= 0) {
+                int c=Long.compareUnsigned(s,prevScore);
+                if (c > 0 || (c == 0 && i <= prev)) continue;
+            }
+            if (best < 0 || Long.compareUnsigned(s,bestScore) > 0) {
+                best=i;
+                bestScore=s;
+            }
+        }
+        return best;
+    }
+
+    /** {@link #next} over weighted scores, with the same tie-break by index. */
+    private int nextWeighted(long keyHash,int prev){
+        double prevScore=prev < 0 ? 0 : weightedScore(keyHash,prev);
+        int best=-1;
+        double bestScore=0;
+        for (int i = 0; i < nodes.length; i++) {
+            double s=weightedScore(keyHash,i);
+            if (prev >= 0 && (s > prevScore || (s == prevScore && i <= prev))) continue;
+            if (best < 0 || s > bestScore) {
+                best=i;
+                bestScore=s;
+            }
+        }
+        return best;
+    }
+
+    private long score(long keyHash,int node){
+        return EngineSupport.mix64(keyHash ^ nodeHashes[node]);
+    }
+
+    /** {@code -w / ln(u)}, with u the top 53 bits of the plain score, offset to stay inside (0,1). */
+    private double weightedScore(long keyHash,int node){
+        double u=((score(keyHash,node) >>> 11) + 0.5) * 0x1.0p-53;
+        return -weights[node] / Math.log(u);
+    }
+
+    public RoutingEngine add(HashFunction hashFunction,Node[] added,long version){
+        return new RendezvousEngine(hashFunction,EngineSupport.withAdded(nodes,added),version);
+    }
+
+    public RoutingEngine remove(HashFunction hashFunction,Node[] removed,long version){
+        return new RendezvousEngine(hashFunction,EngineSupport.withRemoved(nodes,removed),version);
+    }
+
+    /** Node ids do not change, so only a changed weight moves keys, to or from that node. */
+    public RoutingEngine update(HashFunction hashFunction,Node[] updated,long version){
+        return new RendezvousEngine(hashFunction,EngineSupport.withReplaced(nodes,updated),version);
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Exact load balance of a {@link RingSnapshot}: the fraction of the 2^64 keyspace each node
+ * owns, summed over the arcs between adjacent points (a point owns the arc ending at it,
+ * the first point also the arc wrapping past the last one). Imbalance figures compare each
+ * node's share to its weight-proportional fair share, so they are the exact values of what
+ * sampling keys estimates.
+ */
+public final class RingBalance {
+    /** Positions summed per parallel task. */
+    private static final int CHUNK = 1 << 16;
+
+    private final Node[] nodes;
+    private final double[] shares;
+    private final double coefficientOfVariation;
+    private final double maxOverMean;
+    private final double maxMinRatio;
+
+    private RingBalance(Node[] nodes,double[] shares){
+        this.nodes=nodes;
+        this.shares=shares;
+        double totalWeight=0;
+        for (Node node : nodes) totalWeight+=node.getWeight();
+        // load relative to fair share: 1.0 everywhere on a perfectly balanced ring
+        double sum=0, sumSq=0, max=0, min=Double.POSITIVE_INFINITY;
+        for (int i = 0; i < nodes.length; i++) {
+            double load=shares[i] * totalWeight / nodes[i].getWeight();
+            sum+=load;
+            sumSq+=load * load;
+            max=Math.max(max,load);
+            min=Math.min(min,load);
+        }
+        int n=nodes.length;
+        double mean=n == 0 ? 0 : sum / n;
+        double variance=n == 0 ? 0 : Math.max(0,sumSq / n - mean * mean);
+        this.coefficientOfVariation=mean == 0 ? 0 : Math.sqrt(variance) / mean;
+        this.maxOverMean=mean == 0 ? 0 : max / mean;
+        this.maxMinRatio=n == 0 ? 0 : min == 0 ? Double.POSITIVE_INFINITY : max / min;
+    }
+
+    /** Analyses {@code ring}; rings above one chunk are summed in parallel on the common pool. */
+    public static RingBalance of(RingSnapshot ring){
+        int size=ring.ringSize();
+        int n=ring.allNodes.length;
+        if (size == 0) return new RingBalance(ring.allNodes,new double[n]);
+        int chunks=(size + CHUNK - 1) / CHUNK;
+        double[] shares=chunks == 1
+                ? arcs(ring,0,size,n)
+                : IntStream.range(0,chunks).parallel()
+                        .mapToObj(c -> arcs(ring,c * CHUNK,Math.min(size,(c + 1) * CHUNK),n))
+                        .reduce(RingBalance::add).get();
+        return new RingBalance(ring.allNodes,shares);
+    }
+
+    /** Keyspace fractions owned through positions [from,to), per node index. */
+    private static double[] arcs(RingSnapshot ring,int from,int to,int nodeCount){
+        double[] shares=new double[nodeCount];
+        int size=ring.ringSize();
+        if (size == 1) {
+            shares[ring.ownerAt(0)]=1;
+            return shares;
+        }
+        long prev=ring.pointAt(from == 0 ? size - 1 : from - 1);
+        for (int i = from; i < to; i++) {
+            long p=ring.pointAt(i);
+            long arc=p - prev; // unsigned; wraps for position 0
+            shares[ring.ownerAt(i)]+=((arc >>> 1) * 2.0 + (arc & 1)) / 0x1p64;
+            prev=p;
+        }
+        return shares;
+    }
+
+    private static double[] add(double[] a,double[] b){
+        for (int i = 0; i < a.length; i++) a[i]+=b[i];
+        return a;
+    }
+
+    /** Fraction of the keyspace owned by {@code allNodes[nodeIndex]}. */
+    public double getShare(int nodeIndex){
+        return shares[nodeIndex];
+    }
+
+    /** Keyspace fraction per node id, in node order. */
+    public Map<String,Double> getShares(){
+        Map<String,Double> out=new LinkedHashMap<>();
+        for (int i = 0; i < nodes.length; i++) out.put(nodes[i].getId(),shares[i]);
+        return out;
+    }
+
+    /** Standard deviation over mean of each node's share relative to its fair share. */
+    public double getCoefficientOfVariation(){
+        return coefficientOfVariation;
+    }
+
+    /** Most loaded node's share over its fair share, relative to the mean; 1.0 is perfect. */
+    public double getMaxOverMean(){
+        return maxOverMean;
+    }
+
+    /** Most over least loaded node, relative to their fair shares. */
+    public double getMaxMinRatio(){
+        return maxMinRatio;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("RingBalance[nodes=%d, cv=%.4f, max/mean=%.4f, max/min=%.4f]",
+                nodes.length,coefficientOfVariation,maxOverMean,maxMinRatio);
+    }
+}
@@ -0,0 +1,452 @@
+package io.github.NK8916;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact, versioned wire format for distributing rings to many clients: either a whole
+ * {@link RingSnapshot} or the delta between two versions of one. Clients apply a delta to the
+ * snapshot they hold instead of rebuilding, so a membership change costs each of them a
+ * message proportional to the points that moved and one linear copy of their ring, with no
+ * rehashing or sorting.
+ *
+ * <pre>
+ * header   magic "CHRD", format version, hash function id, kind (full or delta),
+ *          base version (delta only), target version, vnodes per node, search index
+ * full     node table; points as varint gaps from the previous point; owners as varints
+ * delta    removed node indices, replaced nodes (index and record), appended nodes;
+ *          removed points (gap, old owner), reassigned points (gap, new owner),
+ *          added points (gap, new owner)
+ * trailer  CRC32C of everything before it
+ * </pre>
+ * Fixed-width numbers are little-endian; node records are those of {@link RingSnapshotFile}.
+ * Sorted hashes are sent as unsigned LEB128 gaps: on a ring of n points a gap takes about
+ * {@code 64 - log2(n)} bits rather than 64.
+ */
+public final class RingDelta {
+    private static final int MAGIC = 0x44524843; // "CHRD" read little-endian
+    private static final int FORMAT_VERSION = 1;
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+
+    private RingDelta(){}
+
+    /** Encodes all of {@code snapshot}; applies to any older version, or to none. */
+    public static byte[] encode(RingSnapshot snapshot,HashFunction hashFunction){
+        Sink out=header(FULL,hashFunction,-1,snapshot);
+        int size=snapshot.ringSize();
+        putNodes(out,snapshot.allNodes);
+        out.putVarint(size);
+        long prev=0;
+        for (int i = 0; i < size; i++) {
+            long p=snapshot.pointAt(i);
+            out.putVarint(p - prev);
+            prev=p;
+        }
+        for (int i = 0; i < size; i++) out.putVarint(snapshot.ownerAt(i));
+        return out.finish();
+    }
+
+    /**
+     * Encodes the changes that turn {@code from} into {@code to}. Nodes are matched by id; the
+     * surviving nodes must keep their relative order with new ones appended, as membership
+     * changes on a ring leave them. Otherwise this falls back to a full encoding of {@code to}.
+     */
+    public static byte[] encode(RingSnapshot from,RingSnapshot to,HashFunction hashFunction){
+        if (to.getVersion() <= from.getVersion()) {
+            throw new IllegalArgumentException("Version " + to.getVersion() + " does not follow " + from.getVersion());
+        }
+        Map<String,Integer> index=new HashMap<>();
+        for (int i = 0; i < from.allNodes.length; i++) index.put(from.allNodes[i].getId(),i);
+        int[] remap=new int[from.allNodes.length];
+        Arrays.fill(remap,-1);
+        int kept=0;
+        for (int j = 0; j < to.allNodes.length; j++) {
+            Integer i=index.get(to.allNodes[j].getId());
+            if (i == null) continue;
+            if (j != kept) return encode(to,hashFunction);
+            remap[i]=kept++;
+        }
+        for (int i = 0, last = -1; i < remap.length; i++) {
+            if (remap[i] < 0) continue;
+            if (remap[i] < last) return encode(to,hashFunction);
+            last=remap[i];
+        }
+
+        Sink out=header(DELTA,hashFunction,from.getVersion(),to);
+        Sink removed=new Sink(), replaced=new Sink();
+        int removedCount=0, replacedCount=0;
+        Node[] replacedNodes=new Node[kept];
+        for (int i = 0, prev = 0; i < remap.length; i++) {
+            if (remap[i] < 0) {
+                removed.putVarint(i - prev);
+                prev=i;
+                removedCount++;
+            } else if (!sameNode(from.allNodes[i],to.allNodes[remap[i]])) {
+                replaced.putVarint(remap[i]);
+                replacedNodes[replacedCount++]=to.allNodes[remap[i]];
+            }
+        }
+        out.putVarint(removedCount).put(removed);
+        out.putVarint(replacedCount).put(replaced);
+        out.put(RingSnapshotFile.encodeNodes(Arrays.copyOf(replacedNodes,replacedCount)));
+        putNodes(out,Arrays.copyOfRange(to.allNodes,kept,to.allNodes.length));
+
+        // merge walk in (point, owner) order, owners compared in the numbering of {@code to}
+        Points cut=new Points(), moved=new Points(), added=new Points();
+        int n=from.ringSize(), m=to.ringSize();
+        int i=0, j=0;
+        while (i < n || j < m) {
+            int c;
+            if (j == m) {
+                c=-1;
+            } else if (i == n) {
+                c=1;
+            } else {
+                long p=from.pointAt(i), q=to.pointAt(j);
+                c=Long.compareUnsigned(p,q);
+                if (c == 0) {
+                    int a=remap[from.ownerAt(i)], b=to.ownerAt(j);
+                    if (a == b) {
+                        i++;
+                        j++;
+                        continue;
+                    }
+                    if (!tied(from,i) && !tied(to,j)) {
+                        moved.add(q,b);
+                        i++;
+                        j++;
+                        continue;
+                    }
+                    c=Integer.compare(a,b);
+                }
+            }
+            if (c < 0) {
+                cut.add(from.pointAt(i),from.ownerAt(i));
+                i++;
+            } else {
+                added.add(to.pointAt(j),to.ownerAt(j));
+                j++;
+            }
+        }
+        cut.writeTo(out);
+        moved.writeTo(out);
+        added.writeTo(out);
+        return out.finish();
+    }
+
+    /** Decodes a full encoding into a standalone snapshot; deltas need {@link #apply}. */
+    public static RingSnapshot decode(byte[] data,HashFunction hashFunction){
+        ByteBuffer in=open(data,hashFunction);
+        byte kind=in.get();
+        long base=in.getLong();
+        long version=in.getLong();
+        int vNodes=in.getInt();
+        SearchIndex searchIndex=searchIndex(in.getInt());
+        if (kind != FULL) {
+            throw new IllegalStateException("Delta from version " + base + " needs a base snapshot");
+        }
+        return readFull(in,version,vNodes,new RingOptions(searchIndex,RingLayout.REFERENCES));
+    }
+
+    /**
+     * Applies an encoding to {@code current}, returning the snapshot at its target version
+     * laid out like {@code current}. A delta is merged in one pass: each changed point costs
+     * a binary search, and the points between changes are copied in bulk. The result is a new
+     * snapshot, so every point and owner is copied and the search index and replica table are
+     * rebuilt: applying takes time linear in the ring, while only the encoding is proportional
+     * to the change.
+     *
+     * @throws IllegalStateException if the encoding is not newer than {@code current}, or is a
+     *                               delta from a different version
+     * @throws IllegalArgumentException if the data is malformed, fails its checksum, was built
+     *                                  with a different hash function or does not match the base
+     */
+    public static RingSnapshot apply(RingSnapshot current,byte[] data,HashFunction hashFunction){
+        ByteBuffer in=open(data,hashFunction);
+        byte kind=in.get();
+        long base=in.getLong();
+        long version=in.getLong();
+        int vNodes=in.getInt();
+        searchIndex(in.getInt());
+        if (version <= current.getVersion()) {
+            throw new IllegalStateException("Stale ring update: version " + version + " is not newer than " + current.getVersion());
+        }
+        if (kind == FULL) {
+            return readFull(in,version,vNodes,current.options());
+        }
+        if (base != current.getVersion()) {
+            throw new IllegalStateException("Delta from version " + base + " does not apply to version " + current.getVersion());
+        }
+
+        Node[] before=current.allNodes;
+        int[] removed=new int[count(in)];
+        for (int r = 0, prev = 0; r < removed.length; r++) {
+            removed[r]=prev+=getVarint(in);
+            if (removed[r] >= before.length || (r > 0 && removed[r] <= removed[r-1])) throw mismatch(current);
+        }
+        int[] replaced=new int[count(in)];
+        for (int r = 0; r < replaced.length; r++) replaced[r]=count(in);
+        Node[] replacedNodes=RingSnapshotFile.decodeNodes(in,replaced.length,RingSnapshotFile.FORMAT_VERSION);
+        Node[] appended=getNodes(in);
+
+        int keptCount=before.length - removed.length;
+        Node[] allNodes=new Node[keptCount + appended.length];
+        int[] remap=new int[before.length];
+        boolean shifted=false;
+        for (int i = 0, r = 0, k = 0; i < before.length; i++) {
+            if (r < removed.length && removed[r] == i) {
+                remap[i]=-1;
+                r++;
+            } else {
+                shifted|=k != i;
+                remap[i]=k;
+                allNodes[k++]=before[i];
+            }
+        }
+        for (int r = 0; r < replaced.length; r++) {
+            if (replaced[r] >= keptCount) throw mismatch(current);
+            allNodes[replaced[r]]=replacedNodes[r];
+        }
+        System.arraycopy(appended,0,allNodes,keptCount,appended.length);
+
+        Points cut=Points.read(in,before.length,current);
+        Points moved=Points.read(in,allNodes.length,current);
+        Points added=Points.read(in,allNodes.length,current);
+        int ringSize=current.ringSize();
+        int size=ringSize - cut.size + added.size;
+        if (size < 0) throw mismatch(current);
+        long[] outPoints=new long[size];
+        OwnerTable outOwners=OwnerTable.allocate(size,allNodes.length);
+        int[] translate=shifted ? remap : null;
+
+        int src=0, dst=0, c=0, u=0, a=0;
+        while (c < cut.size || u < moved.size || a < added.size) {
+            // at equal points, cut before reassigning before adding
+            long p=Long.MAX_VALUE;
+            int step=-1;
+            if (c < cut.size) { p=cut.points[c]; step=0; }
+            if (u < moved.size && (step < 0 || Long.compareUnsigned(moved.points[u],p) < 0)) { p=moved.points[u]; step=1; }
+            if (a < added.size && (step < 0 || Long.compareUnsigned(added.points[a],p) < 0)) { p=added.points[a]; step=2; }
+
+            int at=current.lowerBound(src,ringSize,p);
+            if (step == 0) {
+                int owner=cut.owners[c++];
+                while (at < ringSize && current.pointAt(at) == p && current.ownerAt(at) != owner) at++;
+                if (at == ringSize || current.pointAt(at) != p || dst + at - src > size) throw mismatch(current);
+                RingMerger.copy(current,src,outPoints,outOwners,dst,at-src,translate);
+                dst+=at-src;
+                src=at+1;
+                continue;
+            }
+            int owner;
+            if (step == 1) {
+                owner=moved.owners[u++];
+                if (at == ringSize || current.pointAt(at) != p) throw mismatch(current);
+            } else {
+                owner=added.owners[a++];
+                while (at < ringSize && current.pointAt(at) == p && remap[current.ownerAt(at)] < owner) at++;
+            }
+            if (dst + at - src >= size) throw mismatch(current);
+            RingMerger.copy(current,src,outPoints,outOwners,dst,at-src,translate);
+            dst+=at-src;
+            outPoints[dst]=p;
+            outOwners.set(dst,owner);
+            dst++;
+            src=step == 1 ? at+1 : at;
+        }
+        if (dst + ringSize - src != size) throw mismatch(current);
+        RingMerger.copy(current,src,outPoints,outOwners,dst,ringSize-src,translate);
+        return new RingSnapshot(version,outPoints,outOwners,allNodes,vNodes,current.options());
+    }
+
+    private static Sink header(byte kind,HashFunction hashFunction,long base,RingSnapshot target){
+        byte[] hashId=hashFunction.id().getBytes(StandardCharsets.UTF_8);
+        return new Sink().putInt(MAGIC).putInt(FORMAT_VERSION)
+                .putInt(hashId.length).put(hashId).putByte(kind)
+                .putLong(base).putLong(target.getVersion()).putInt(target.getVNodes())
+                .putInt(target.getSearchIndex().ordinal());
+    }
+
+    /** Checks magic, format, checksum and hash function; leaves the buffer at the kind byte. */
+    private static ByteBuffer open(byte[] data,HashFunction hashFunction){
+        if (data.length < 4 + 4 + 8) throw new IllegalArgumentException("Not a ring encoding");
+        ByteBuffer in=ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.getInt() != MAGIC) throw new IllegalArgumentException("Not a ring encoding");
+        int format=in.getInt();
+        if (format != FORMAT_VERSION) throw new IllegalArgumentException("Unsupported ring encoding format " + format);
+        int end=data.length - 8;
+        CRC32C crc=new CRC32C();
+        crc.update(data,0,end);
+        if (in.getLong(end) != crc.getValue()) throw new IllegalArgumentException("Ring encoding checksum mismatch");
+        in.limit(end);
+        byte[] hashId=new byte[in.getInt()];
+        in.get(hashId);
+        String expected=hashFunction.id();
+        String actual=new String(hashId,StandardCharsets.UTF_8);
+        if (!expected.equals(actual)) {
+            throw new IllegalArgumentException("Ring encoding was built with " + actual + ", not " + expected);
+        }
+        return in;
+    }
+
+    private static RingSnapshot readFull(ByteBuffer in,long version,int vNodes,RingOptions options){
+        Node[] allNodes=getNodes(in);
+        int size=count(in);
+        long[] points=new long[size];
+        long prev=0;
+        for (int i = 0; i < size; i++) points[i]=prev+=getVarint(in);
+        OwnerTable owners=OwnerTable.allocate(size,allNodes.length);
+        for (int i = 0; i < size; i++) {
+            int o=count(in);
+            if (o >= allNodes.length) throw new IllegalArgumentException("Owner " + o + " out of range in ring encoding");
+            owners.set(i,o);
+        }
+        return new RingSnapshot(version,points,owners,allNodes,vNodes,options);
+    }
+
+    private static void putNodes(Sink out,Node[] nodes){
+        out.putVarint(nodes.length).put(RingSnapshotFile.encodeNodes(nodes));
+    }
+
+    private static Node[] getNodes(ByteBuffer in){
+        return RingSnapshotFile.decodeNodes(in,count(in),RingSnapshotFile.FORMAT_VERSION);
+    }
+
+    private static boolean sameNode(Node a,Node b){
+        return a == b || (Objects.equals(a.getIpAddress(),b.getIpAddress()) && a.getPort() == b.getPort()
+                && Objects.equals(a.getRegion(),b.getRegion()) && a.getWeight() == b.getWeight()
+                && Objects.equals(a.getMetaData(),b.getMetaData()));
+    }
+
+    /** Whether another point of {@code ring} shares position i's hash. */
+    private static boolean tied(RingSnapshot ring,int i){
+        long p=ring.pointAt(i);
+        return (i > 0 && ring.pointAt(i-1) == p) || (i + 1 < ring.ringSize() && ring.pointAt(i+1) == p);
+    }
+
+    private static SearchIndex searchIndex(int ordinal){
+        if (ordinal < 0 || ordinal >= SearchIndex.values().length) {
+            throw new IllegalArgumentException("Unknown search index " + ordinal + " in ring encoding");
+        }
+        return SearchIndex.values()[ordinal];
+    }
+
+    private static IllegalArgumentException mismatch(RingSnapshot base){
+        return new IllegalArgumentException("Delta does not match ring version " + base.getVersion());
+    }
+
+    /** A varint that must fit a non-negative int: a count, index or owner. */
+    private static int count(ByteBuffer in){
+        long v=getVarint(in);
+        if (v < 0 || v > Integer.MAX_VALUE) throw new IllegalArgumentException("Malformed ring encoding");
+        return (int) v;
+    }
+
+    private static long getVarint(ByteBuffer in){
+        long v=0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) throw new IllegalArgumentException("Truncated ring encoding");
+            byte b=in.get();
+            v|=(long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("Malformed ring encoding");
+    }
+
+    /** Sorted (point, owner) pairs of one delta section. */
+    private static final class Points {
+        long[] points=new long[16];
+        int[] owners=new int[16];
+        int size;
+
+        void add(long point,int owner){
+            if (size == points.length) {
+                points=Arrays.copyOf(points,size * 2);
+                owners=Arrays.copyOf(owners,size * 2);
+            }
+            points[size]=point;
+            owners[size++]=owner;
+        }
+
+        void writeTo(Sink out){
+            out.putVarint(size);
+            long prev=0;
+            for (int i = 0; i < size; i++) {
+                out.putVarint(points[i] - prev).putVarint(owners[i]);
+                prev=points[i];
+            }
+        }
+
+        static Points read(ByteBuffer in,int nodeCount,RingSnapshot base){
+            Points out=new Points();
+            int size=count(in);
+            out.points=new long[size];
+            out.owners=new int[size];
+            long prev=0;
+            for (int i = 0; i < size; i++) {
+                out.points[i]=prev+=getVarint(in);
+                out.owners[i]=count(in);
+                if (out.owners[i] >= nodeCount) throw mismatch(base);
+            }
+            out.size=size;
+            return out;
+        }
+    }
+
+    /** Growable little-endian byte output. */
+    private static final class Sink {
+        private byte[] buf=new byte[256];
+        private int len;
+
+        Sink putByte(int b){
+            if (len == buf.length) buf=Arrays.copyOf(buf,len * 2);
+            buf[len++]=(byte) b;
+            return this;
+        }
+
+        Sink putInt(int v){
+            for (int i = 0; i < 4; i++) putByte(v >>> (8 * i));
+            return this;
+        }
+
+        Sink putLong(long v){
+            for (int i = 0; i < 8; i++) putByte((int) (v >>> (8 * i)));
+            return this;
+        }
+
+        Sink put(byte[] b){
+            if (len + b.length > buf.length) buf=Arrays.copyOf(buf,Math.max(len + b.length,buf.length * 2));
+            System.arraycopy(b,0,buf,len,b.length);
+            len+=b.length;
+            return this;
+        }
+
+        Sink put(Sink other){
+            return put(Arrays.copyOf(other.buf,other.len));
+        }
+
+        /** Unsigned LEB128: seven bits per byte, high bit set on all but the last. */
+        Sink putVarint(long v){
+            while ((v & ~0x7FL) != 0) {
+                putByte((int) (v & 0x7F) | 0x80);
+                v>>>=7;
+            }
+            return putByte((int) v);
+        }
+
+        /** Appends the CRC32C trailer and returns the encoded bytes. */
+        byte[] finish(){
+            CRC32C crc=new CRC32C();
+            crc.update(buf,0,len);
+            putLong(crc.getValue());
+            return Arrays.copyOf(buf,len);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Exact hash ranges whose owner differs between two {@link RingSnapshot}s, e.g. versions N
+ * and N+1, found by a merge walk over both sorted point arrays. Nodes are matched by id, so
+ * the same node on both sides never shows up as a transfer.
+ *
+ * <p>The keyspace is treated as the unsigned range {@code [0, 2^64)}: the wrap-around arc
+ * past the last point appears as two transfers, one ending at {@code -1L} and one starting
+ * at {@code 0}. Transfers are produced lazily, so a diff of rings with hundreds of millions
+ * of points holds nothing but the walk position in memory.
+ */
+public final class RingDiff {
+    /** Positions below which a sub-range is not split further for parallel streams. */
+    private static final int SPLIT_THRESHOLD = 1 << 12;
+
+    private final RingSnapshot from;
+    private final RingSnapshot to;
+    /** Index in {@code to.allNodes} of each node of {@code from.allNodes}, or -1 if it left. */
+    private final int[] remap;
+
+    private RingDiff(RingSnapshot from,RingSnapshot to){
+        if (from.ringSize() == 0 || to.ringSize() == 0) {
+            throw new IllegalArgumentException("Cannot diff an empty ring");
+        }
+        this.from=from;
+        this.to=to;
+        Map<String,Integer> ids=new HashMap<>();
+        for (int i = 0; i < to.allNodes.length; i++) ids.put(to.allNodes[i].getId(),i);
+        this.remap=new int[from.allNodes.length];
+        for (int i = 0; i < remap.length; i++) remap[i]=ids.getOrDefault(from.allNodes[i].getId(),-1);
+    }
+
+    /** Diff of two rings built with the same hash function. */
+    public static RingDiff between(RingSnapshot from,RingSnapshot to){
+        return new RingDiff(from,to);
+    }
+
+    public RingSnapshot getFrom(){
+        return from;
+    }
+
+    public RingSnapshot getTo(){
+        return to;
+    }
+
+    /**
+     * Lazily computed transfers in hash order. A sequential stream yields maximal ranges;
+     * a parallel stream walks sub-ranges of the keyspace concurrently, so a range spanning a
+     * split point is reported as adjacent pieces with the same nodes.
+     */
+    public Stream<Transfer> transfers(){
+        return StreamSupport.stream(new Walk(0,-1L),false);
+    }
+
+    /**
+     * Fraction of the keyspace whose owner changed, computed exactly by one walk; the
+     * quantity a remap test estimates by sampling keys.
+     */
+    public double movedFraction(){
+        return transfers().parallel().mapToDouble(Transfer::fraction).sum();
+    }
+
+    /** Keys in the unsigned range {@code [startHash, endHash]} move from one node to another. */
+    public static final class Transfer {
+        private final long startHash;
+        private final long endHash;
+        private final Node fromNode;
+        private final Node toNode;
+
+        Transfer(long startHash,long endHash,Node fromNode,Node toNode){
+            this.startHash=startHash;
+            this.endHash=endHash;
+            this.fromNode=fromNode;
+            this.toNode=toNode;
+        }
+
+        /** First hash of the range (unsigned, inclusive). */
+        public long getStartHash(){
+            return startHash;
+        }
+
+        /** Last hash of the range (unsigned, inclusive). */
+        public long getEndHash(){
+            return endHash;
+        }
+
+        public Node getFromNode(){
+            return fromNode;
+        }
+
+        public Node getToNode(){
+            return toNode;
+        }
+
+        /** Share of the 2^64 keyspace this range covers. */
+        public double fraction(){
+            long span=endHash - startHash; // unsigned; ranges never wrap
+            return ((span >>> 1) * 2.0 + (span & 1) + 1) / 0x1p64;
+        }
+
+        /** True if {@code keyHash} falls in this range. */
+        public boolean contains(long keyHash){
+            return Long.compareUnsigned(keyHash,startHash) >= 0 && Long.compareUnsigned(keyHash,endHash) <= 0;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if (!(o instanceof Transfer)) return false;
+            Transfer t=(Transfer) o;
+            return startHash == t.startHash && endHash == t.endHash
+                    && fromNode.getId().equals(t.fromNode.getId()) && toNode.getId().equals(t.toNode.getId());
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(startHash,endHash,fromNode.getId(),toNode.getId());
+        }
+
+        @Override
+        public String toString(){
+            return "Transfer[" + Long.toUnsignedString(startHash,16) + ".." + Long.toUnsignedString(endHash,16)
+                    + " " + fromNode.getId() + " -> " + toNode.getId() + "]";
+        }
+    }
+
+    /**
+     * Merge walk over the unsigned hash range {@code [cur, hi]}. A key is owned by the first
+     * point at or after it, so between consecutive boundaries of either ring both owners are
+     * fixed; adjacent pieces with the same pair of owners are coalesced.
+     */
+    private final class Walk implements Spliterator<Transfer> {
+        private long cur;
+        private final long hi;
+        private boolean done;
+        /** First positions in {@code from} / {@code to} whose point is at or after {@code cur}. */
+        private int i, j;
+        /** First positions whose point is at or after {@code hi}, bounding the split and size estimate. */
+        private final int iEnd, jEnd;
+
+        Walk(long lo,long hi){
+            this.cur=lo;
+            this.hi=hi;
+            this.i=from.lowerBound(0,from.ringSize(),lo);
+            this.j=to.lowerBound(0,to.ringSize(),lo);
+            this.iEnd=from.lowerBound(i,from.ringSize(),hi);
+            this.jEnd=to.lowerBound(j,to.ringSize(),hi);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transfer> action){
+            int m=from.ringSize(), n=to.ringSize();
+            while (!done) {
+                // one run of pieces with the same pair of owners
+                long start=cur, end;
+                int a=from.ownerAt(i == m ? 0 : i), b=to.ownerAt(j == n ? 0 : j);
+                do {
+                    long pi=i == m ? -1L : from.pointAt(i), pj=j == n ? -1L : to.pointAt(j);
+                    end=Long.compareUnsigned(pi,pj) <= 0 ? pi : pj;
+                    if (Long.compareUnsigned(end,hi) >= 0) {
+                        end=hi;
+                        done=true;
+                    } else {
+                        // points repeated within a ring own nothing past the first copy
+                        while (i < m && from.pointAt(i) == end) i++;
+                        while (j < n && to.pointAt(j) == end) j++;
+                        cur=end + 1;
+                    }
+                } while (!done && from.ownerAt(i == m ? 0 : i) == a && to.ownerAt(j == n ? 0 : j) == b);
+                if (remap[a] != b) {
+                    action.accept(new Transfer(start,end,from.allNodes[a],to.allNodes[b]));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Transfer> trySplit(){
+            if (done) return null;
+            // split at a point of whichever ring has more positions left in this range
+            int mid;
+            long at;
+            if (iEnd - i >= jEnd - j) {
+                if (iEnd - i < SPLIT_THRESHOLD) return null;
+                mid=(i + iEnd) >>> 1;
+                at=from.pointAt(mid);
+            } else {
+                if (jEnd - j < SPLIT_THRESHOLD) return null;
+                mid=(j + jEnd) >>> 1;
+                at=to.pointAt(mid);
+            }
+            Walk prefix=new Walk(cur,at);
+            cur=at + 1;
+            i=from.lowerBound(i,from.ringSize(),cur);
+            j=to.lowerBound(j,to.ringSize(),cur);
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize(){
+            return (long) (iEnd - i) + (jEnd - j);
+        }
+
+        @Override
+        public int characteristics(){
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.NK8916;
+
+/**
+ * Memory layout of a {@link RingSnapshot}. Every layout keeps vnode owners as primitive
+ * indices into {@code allNodes} (1, 2 or 4 bytes each depending on node count).
+ */
+public enum RingLayout {
+    /** Heap points plus a {@code Node} reference per vnode in {@link RingSnapshot#nodes}. */
+    REFERENCES,
+    /** Heap points and owner indices only; {@link RingSnapshot#nodes} is {@code null}. */
+    COMPACT,
+    /**
+     * Points and owner indices in direct buffers outside the Java heap, invisible to GC
+     * scanning; {@link RingSnapshot#points} and {@link RingSnapshot#nodes} are {@code null}.
+     */
+    OFF_HEAP
+}
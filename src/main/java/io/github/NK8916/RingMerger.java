@@ -0,0 +1,479 @@
+package io.github.NK8916;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+/**
+ * Applies membership and weight deltas to an existing {@link RingSnapshot} without
+ * rebuilding it. Only the changed vnodes are hashed and sorted; the resulting run is then
+ * merged into (or cut out of) the already sorted ring with bulk array copies.
+ *
+ * <p>A node with weight w owns the vnodes labelled {@code id/0 .. id/(count-1)} where
+ * count is {@link #vNodeCount}, so a weight change only adds or drops labels at the end.
+ */
+final class RingMerger {
+
+    /** Below this many vnodes a parallel build is not worth the pool start-up. */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    private static final int GATHER_CHUNK = 1 << 16;
+
+    private RingMerger(){}
+
+    static final class Run {
+        final long[] points;
+        /** Owner of each point as an index into the node array the run was built from. */
+        final OwnerTable owners;
+
+        Run(long[] points,OwnerTable owners){
+            this.points=points;
+            this.owners=owners;
+        }
+    }
+
+    /** Vnodes of a node with {@code weight}: {@code round(vNodes * weight)}, at least one. */
+    static int vNodeCount(int vNodes,double weight){
+        if (vNodes == 0) return 0;
+        long count=Math.round(vNodes * weight);
+        if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many vnodes: " + count);
+        return (int) Math.max(1,count);
+    }
+
+    /**
+     * Hashes the vnodes of {@code nodes} and returns them sorted by unsigned point value.
+     * Points and owner indices are sorted as pairs, so the key array becomes the result and
+     * peak memory is two longs per vnode plus the final owner table.
+     */
+    static Run sortedRun(HashFunction hashFunction,Node[] nodes,int vNodes){
+        return sortedRun(hashFunction,nodes,vNodes,1);
+    }
+
+    static Run sortedRun(HashFunction hashFunction,Node[] nodes,int vNodes,int parallelism){
+        return sortedRun(hashFunction,nodes,vNodes,parallelism,null);
+    }
+
+    /** Like {@link #sortedRun(HashFunction, Node[], int, int)}, adding phase durations to {@code timings} if non-null. */
+    static Run sortedRun(HashFunction hashFunction,Node[] nodes,int vNodes,int parallelism,BuildTimings timings){
+        int[] counts=new int[nodes.length];
+        for (int n = 0; n < nodes.length; n++) counts[n]=vNodeCount(vNodes,nodes[n].getWeight());
+        return sortedRun(hashFunction,nodes,new int[nodes.length],counts,parallelism,timings);
+    }
+
+    /** One vnode per node, label {@code id/0}, whatever the node's weight. */
+    static Run unitRun(HashFunction hashFunction,Node[] nodes){
+        int[] to=new int[nodes.length];
+        Arrays.fill(to,1);
+        return sortedRun(hashFunction,nodes,new int[nodes.length],to,1,null);
+    }
+
+    /**
+     * Hashes the labels {@code from[n] .. to[n]-1} of every node. With {@code parallelism > 1}
+     * hashing, sorting and the final gather run on a dedicated fork-join pool of that size.
+     * The result is identical to the sequential one: every vnode lands in the same slot of the
+     * key arrays regardless of which thread hashed it, and (point, owner) pairs sort to a
+     * unique order.
+     */
+    static Run sortedRun(HashFunction hashFunction,Node[] nodes,int[] from,int[] to,int parallelism){
+        return sortedRun(hashFunction,nodes,from,to,parallelism,null);
+    }
+
+    private static Run sortedRun(HashFunction hashFunction,Node[] nodes,int[] from,int[] to,int parallelism,BuildTimings timings){
+        final int[] offsets=new int[nodes.length + 1];
+        long totalLong=0;
+        for (int n = 0; n < nodes.length; n++) {
+            offsets[n]=(int) totalLong;
+            totalLong+=to[n] - from[n];
+            if(totalLong>Integer.MAX_VALUE){
+                throw new IllegalArgumentException("Too many vnodes: " + totalLong);
+            }
+        }
+        final int total=(int) totalLong;
+        offsets[nodes.length]=total;
+        long[] keys=new long[total];
+        long[] ownerIdx=new long[total];
+        OwnerTable owners=OwnerTable.allocate(total,nodes.length);
+        long t0=System.nanoTime(), t1, t2;
+        if (parallelism <= 1 || total < PARALLEL_THRESHOLD) {
+            for (int n = 0; n < nodes.length; n++) {
+                hashNode(hashFunction,nodes[n],n,from[n],to[n],offsets[n],keys,ownerIdx);
+            }
+            t1=System.nanoTime();
+            // ties on the point fall back to node order, as the stable indirect sort did
+            LongArrays.radixSort(keys,ownerIdx);
+            t2=System.nanoTime();
+            gather(keys,ownerIdx,owners,0,total);
+        } else {
+            ForkJoinPool pool=new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> IntStream.range(0,nodes.length).parallel()
+                        .forEach(n -> hashNode(hashFunction,nodes[n],n,from[n],to[n],offsets[n],keys,ownerIdx))).join();
+                t1=System.nanoTime();
+                // fastutil forks onto the pool of the calling task
+                pool.submit(() -> LongArrays.parallelRadixSort(keys,ownerIdx)).join();
+                t2=System.nanoTime();
+                int chunks=(total + GATHER_CHUNK - 1) / GATHER_CHUNK;
+                pool.submit(() -> IntStream.range(0,chunks).parallel().forEach(c -> {
+                    int start=c * GATHER_CHUNK;
+                    gather(keys,ownerIdx,owners,start,Math.min(total,start + GATHER_CHUNK));
+                })).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (timings != null) {
+            timings.hashNanos+=t1 - t0;
+            timings.sortNanos+=t2 - t1;
+            timings.gatherNanos+=System.nanoTime() - t2;
+        }
+        return new Run(keys,owners);
+    }
+
+    /**
+     * Writes the flipped points of labels [from,to) of {@code node} into {@code keys} at
+     * {@code offset}. Labels are {@code id + "/" + j} encoded as UTF-8 into one buffer per
+     * node, with only the digits rewritten per vnode, and hashed through
+     * {@link HashFunction#hash(byte[], int, int)}.
+     */
+    private static void hashNode(HashFunction hashFunction,Node node,int n,int from,int to,int offset,long[] keys,long[] ownerIdx){
+        byte[] id=node.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] label=Arrays.copyOf(id,id.length + 1 + 10);
+        label[id.length]='/';
+        int prefix=id.length + 1;
+        int k=offset;
+        for (int j = from; j < to; j++, k++) {
+            int len=prefix + writeDigits(label,prefix,j);
+            keys[k] = hashFunction.hash(label,0,len) ^ Long.MIN_VALUE; // monotone map: unsigned→signed
+            ownerIdx[k] = n;
+        }
+    }
+
+    /** Writes the decimal digits of non-negative {@code v} at {@code off}; returns their count. */
+    private static int writeDigits(byte[] dst,int off,int v){
+        int digits=1;
+        for (int t = v; t >= 10; t /= 10) digits++;
+        for (int i = off + digits - 1; i >= off; i--) {
+            dst[i]=(byte) ('0' + v % 10);
+            v/=10;
+        }
+        return digits;
+    }
+
+    /** Unflips sorted points in [from,to) in place and copies their owners into the table. */
+    private static void gather(long[] keys,long[] ownerIdx,OwnerTable owners,int from,int to){
+        for(int i=from;i<to;i++){
+            keys[i]^=Long.MIN_VALUE;
+            owners.set(i,(int) ownerIdx[i]);
+        }
+    }
+
+    static RingSnapshot add(RingSnapshot ring,HashFunction hashFunction,Node[] added,long version){
+        return add(ring,hashFunction,added,version,true);
+    }
+
+    /** With {@code weighted} false every node has exactly one vnode, whatever its weight. */
+    static RingSnapshot add(RingSnapshot ring,HashFunction hashFunction,Node[] added,long version,boolean weighted){
+        Set<String> present=new HashSet<>();
+        for (Node n : ring.allNodes) present.add(n.getId());
+        List<Node> fresh=new ArrayList<>();
+        for (Node n : added) {
+            if (present.add(n.getId())) fresh.add(n);
+        }
+        if (fresh.isEmpty()) {
+            return ring.withVersion(version);
+        }
+        Node[] freshNodes=fresh.toArray(new Node[0]);
+        Run run=weighted ? sortedRun(hashFunction,freshNodes,ring.getVNodes()) : unitRun(hashFunction,freshNodes);
+
+        int base=ring.allNodes.length;
+        Node[] allNodes=Arrays.copyOf(ring.allNodes,base+freshNodes.length);
+        System.arraycopy(freshNodes,0,allNodes,base,freshNodes.length);
+        int[] target=new int[freshNodes.length];
+        for (int i = 0; i < target.length; i++) target[i]=base+i;
+        return merge(ring,run,target,allNodes,version);
+    }
+
+    static RingSnapshot remove(RingSnapshot ring,HashFunction hashFunction,Node[] removed,long version){
+        return remove(ring,hashFunction,removed,version,true);
+    }
+
+    /** With {@code weighted} false every node has exactly one vnode, whatever its weight. */
+    static RingSnapshot remove(RingSnapshot ring,HashFunction hashFunction,Node[] removed,long version,boolean weighted){
+        Set<String> ids=new HashSet<>();
+        for (Node n : removed) ids.add(n.getId());
+        List<Node> kept=new ArrayList<>();
+        List<Node> gone=new ArrayList<>();
+        int[] remap=new int[ring.allNodes.length];
+        int[] goneIndex=new int[ring.allNodes.length];
+        boolean shifted=false;
+        for (int i = 0; i < ring.allNodes.length; i++) {
+            Node n=ring.allNodes[i];
+            if (ids.remove(n.getId())) {
+                goneIndex[gone.size()]=i;
+                gone.add(n);
+                remap[i]=-1;
+            } else {
+                shifted|=kept.size() != i;
+                remap[i]=kept.size();
+                kept.add(n);
+            }
+        }
+        if (gone.isEmpty()) {
+            return ring.withVersion(version);
+        }
+        // re-derive the points owned by the leaving nodes instead of scanning the whole ring
+        Node[] goneNodes=gone.toArray(new Node[0]);
+        Run run=weighted ? sortedRun(hashFunction,goneNodes,ring.getVNodes()) : unitRun(hashFunction,goneNodes);
+        return cut(ring,run,goneIndex,shifted ? remap : null,kept.toArray(new Node[0]),version);
+    }
+
+    /**
+     * Replaces nodes (matched by id) with the given objects. When a node's weight changes,
+     * only the labels between its old and new vnode count are hashed and cut out or merged
+     * in; every other point stays where it is. Unknown ids are ignored.
+     */
+    static RingSnapshot update(RingSnapshot ring,HashFunction hashFunction,Node[] updated,long version){
+        Map<String,Integer> index=new HashMap<>();
+        for (int i = 0; i < ring.allNodes.length; i++) index.put(ring.allNodes[i].getId(),i);
+        Node[] allNodes=ring.allNodes.clone();
+        boolean replaced=false;
+        for (Node n : updated) {
+            Integer i=index.get(n.getId());
+            if (i != null) {
+                allNodes[i]=n;
+                replaced=true;
+            }
+        }
+        if (!replaced) {
+            return ring.withVersion(version);
+        }
+        // node index order keeps runs sorted by (point, owner) once mapped onto the ring
+        List<Integer> shrink=new ArrayList<>(), grow=new ArrayList<>();
+        for (int i = 0; i < allNodes.length; i++) {
+            int before=vNodeCount(ring.getVNodes(),ring.allNodes[i].getWeight());
+            int after=vNodeCount(ring.getVNodes(),allNodes[i].getWeight());
+            if (after < before) shrink.add(i); else if (after > before) grow.add(i);
+        }
+        RingSnapshot out=cut(ring,labelRun(hashFunction,ring.allNodes,allNodes,shrink,ring.getVNodes()),
+                toArray(shrink),null,allNodes,version);
+        if (grow.isEmpty()) return out;
+        return merge(out,labelRun(hashFunction,ring.allNodes,allNodes,grow,ring.getVNodes()),toArray(grow),allNodes,version);
+    }
+
+    /**
+     * Removes, adds and replaces nodes in one pass over {@code ring}, with the same result as
+     * {@link #remove}, {@link #add} and {@link #update} applied in turn but without their
+     * intermediate rings. The labels of leaving nodes and of shrinking weights form one cut run,
+     * those of joining nodes and growing weights one merge run, and a single copy interleaves
+     * both with the surviving points. With {@code weighted} false every node has one vnode.
+     */
+    static RingSnapshot change(RingSnapshot ring,HashFunction hashFunction,Node[] removed,Node[] added,Node[] updated,
+                               long version,boolean weighted){
+        Set<String> leaving=new HashSet<>();
+        for (Node n : removed) leaving.add(n.getId());
+        Map<String,Node> replacing=new HashMap<>();
+        for (Node n : updated) replacing.put(n.getId(),n);
+
+        // survivors keep their order, joins are appended; updates apply to both
+        int[] remap=new int[ring.allNodes.length];
+        List<Node> next=new ArrayList<>(ring.allNodes.length + added.length);
+        Set<String> present=new HashSet<>();
+        boolean shifted=false, changed=false;
+        for (int i = 0; i < ring.allNodes.length; i++) {
+            Node n=ring.allNodes[i];
+            if (leaving.contains(n.getId())) {
+                remap[i]=-1;
+                changed=true;
+                continue;
+            }
+            shifted|=next.size() != i;
+            remap[i]=next.size();
+            present.add(n.getId());
+            Node now=replacing.getOrDefault(n.getId(),n);
+            changed|=now != n;
+            next.add(now);
+        }
+        int survivors=next.size();
+        for (Node n : added) {
+            if (present.add(n.getId())) next.add(replacing.getOrDefault(n.getId(),n));
+        }
+        if (!changed && next.size() == survivors) {
+            return ring.withVersion(version);
+        }
+        Node[] allNodes=next.toArray(new Node[0]);
+        int vNodes=ring.getVNodes();
+
+        // old and new node index order keeps both runs sorted by (point, owner) on the ring
+        List<Node> cutNodes=new ArrayList<>(), growNodes=new ArrayList<>();
+        List<Integer> cutSource=new ArrayList<>(), growTarget=new ArrayList<>();
+        List<Integer> cutFrom=new ArrayList<>(), cutTo=new ArrayList<>(), growFrom=new ArrayList<>(), growTo=new ArrayList<>();
+        for (int i = 0; i < ring.allNodes.length; i++) {
+            int before=count(vNodes,ring.allNodes[i],weighted);
+            int after=remap[i] < 0 ? 0 : count(vNodes,allNodes[remap[i]],weighted);
+            if (after < before) {
+                cutNodes.add(ring.allNodes[i]);
+                cutSource.add(i);
+                cutFrom.add(after);
+                cutTo.add(before);
+            } else if (after > before) {
+                growNodes.add(allNodes[remap[i]]);
+                growTarget.add(remap[i]);
+                growFrom.add(before);
+                growTo.add(after);
+            }
+        }
+        for (int i = survivors; i < allNodes.length; i++) {
+            growNodes.add(allNodes[i]);
+            growTarget.add(i);
+            growFrom.add(0);
+            growTo.add(count(vNodes,allNodes[i],weighted));
+        }
+        Run cut=sortedRun(hashFunction,cutNodes.toArray(new Node[0]),toArray(cutFrom),toArray(cutTo),1);
+        Run grow=sortedRun(hashFunction,growNodes.toArray(new Node[0]),toArray(growFrom),toArray(growTo),1);
+        int[] source=toArray(cutSource), target=toArray(growTarget);
+
+        int ringSize=ring.ringSize();
+        int size=ringSize - cut.points.length + grow.points.length;
+        long[] outPoints=new long[size];
+        OwnerTable outOwners=OwnerTable.allocate(size,allNodes.length);
+        int[] translate=shifted ? remap : null;
+        int src=0, dst=0, c=0, g=0;
+        int cutAt=cutPosition(ring,cut,source,0,0);
+        while (g < grow.points.length || c < cut.points.length) {
+            int growAt=Integer.MAX_VALUE;
+            long p=0;
+            int owner=0;
+            if (g < grow.points.length) {
+                p=grow.points[g];
+                owner=target[grow.owners.get(g)];
+                growAt=ring.lowerBound(src,ringSize,p);
+                while (growAt < ringSize && ring.pointAt(growAt) == p && remap[ring.ownerAt(growAt)] < owner) growAt++;
+            }
+            if (c < cut.points.length && cutAt < growAt) {
+                copy(ring,src,outPoints,outOwners,dst,cutAt - src,translate);
+                dst+=cutAt - src;
+                src=cutAt + 1;
+                if (++c < cut.points.length) cutAt=cutPosition(ring,cut,source,c,src);
+            } else {
+                copy(ring,src,outPoints,outOwners,dst,growAt - src,translate);
+                dst+=growAt - src;
+                src=growAt;
+                outPoints[dst]=p;
+                outOwners.set(dst,owner);
+                dst++;
+                g++;
+            }
+        }
+        copy(ring,src,outPoints,outOwners,dst,ringSize - src,translate);
+        return new RingSnapshot(version,outPoints,outOwners,allNodes,vNodes,ring.options());
+    }
+
+    /** Ring position of cut run entry {@code c}, at or after {@code from}. */
+    private static int cutPosition(RingSnapshot ring,Run cut,int[] source,int c,int from){
+        if (c >= cut.points.length) return Integer.MAX_VALUE;
+        long p=cut.points[c];
+        int owner=source[cut.owners.get(c)];
+        int ringSize=ring.ringSize();
+        int at=ring.lowerBound(from,ringSize,p);
+        while (at < ringSize && ring.pointAt(at) == p && ring.ownerAt(at) != owner) at++;
+        if (at == ringSize || ring.pointAt(at) != p) {
+            throw new IllegalStateException("Ring does not contain vnode of " + ring.allNodes[owner].getId());
+        }
+        return at;
+    }
+
+    private static int count(int vNodes,Node node,boolean weighted){
+        return weighted ? vNodeCount(vNodes,node.getWeight()) : 1;
+    }
+
+    /** Labels between the old and new vnode count of each listed node, owned by run index. */
+    private static Run labelRun(HashFunction hashFunction,Node[] before,Node[] after,List<Integer> nodes,int vNodes){
+        Node[] runNodes=new Node[nodes.size()];
+        int[] from=new int[runNodes.length], to=new int[runNodes.length];
+        for (int r = 0; r < runNodes.length; r++) {
+            int i=nodes.get(r);
+            int a=vNodeCount(vNodes,before[i].getWeight()), b=vNodeCount(vNodes,after[i].getWeight());
+            runNodes[r]=after[i];
+            from[r]=Math.min(a,b);
+            to[r]=Math.max(a,b);
+        }
+        return sortedRun(hashFunction,runNodes,from,to,1);
+    }
+
+    private static int[] toArray(List<Integer> list){
+        int[] out=new int[list.size()];
+        for (int i = 0; i < out.length; i++) out[i]=list.get(i);
+        return out;
+    }
+
+    /**
+     * Merges {@code run} into {@code ring}; run owner r becomes ring owner {@code target[r]},
+     * which must increase with r. Points tie-break on owner index as in a full build.
+     */
+    private static RingSnapshot merge(RingSnapshot ring,Run run,int[] target,Node[] allNodes,long version){
+        int ringSize=ring.ringSize();
+        int size=ringSize+run.points.length;
+        long[] outPoints=new long[size];
+        OwnerTable outOwners=OwnerTable.allocate(size,allNodes.length);
+        int src=0, dst=0;
+        for (int r = 0; r < run.points.length; r++) {
+            long p=run.points[r];
+            int owner=target[run.owners.get(r)];
+            int at=ring.lowerBound(src,ringSize,p);
+            while (at < ringSize && ring.pointAt(at) == p && ring.ownerAt(at) < owner) at++;
+            int len=at-src;
+            ring.copyPoints(src,outPoints,dst,len);
+            ring.owners().copyTo(src,outOwners,dst,len);
+            dst+=len;
+            src=at;
+            outPoints[dst]=p;
+            outOwners.set(dst,owner);
+            dst++;
+        }
+        int tail=ringSize-src;
+        ring.copyPoints(src,outPoints,dst,tail);
+        ring.owners().copyTo(src,outOwners,dst,tail);
+
+        return new RingSnapshot(version,outPoints,outOwners,allNodes,ring.getVNodes(),ring.options());
+    }
+
+    /**
+     * Cuts the points of {@code run} out of {@code ring}; run owner r is ring owner
+     * {@code source[r]}. Surviving owners are translated through {@code remap} when given.
+     */
+    private static RingSnapshot cut(RingSnapshot ring,Run run,int[] source,int[] remap,Node[] allNodes,long version){
+        int ringSize=ring.ringSize();
+        int size=Math.max(0,ringSize-run.points.length);
+        long[] outPoints=new long[size];
+        OwnerTable outOwners=OwnerTable.allocate(size,allNodes.length);
+        int src=0, dst=0;
+        for (int r = 0; r < run.points.length; r++) {
+            long p=run.points[r];
+            int owner=source[run.owners.get(r)];
+            int at=ring.lowerBound(src,ringSize,p);
+            while (at < ringSize && ring.pointAt(at) == p && ring.ownerAt(at) != owner) at++;
+            if (at == ringSize || ring.pointAt(at) != p) {
+                throw new IllegalStateException("Ring does not contain vnode of " + ring.allNodes[owner].getId());
+            }
+            int len=at-src;
+            copy(ring,src,outPoints,outOwners,dst,len,remap);
+            dst+=len;
+            src=at+1;
+        }
+        copy(ring,src,outPoints,outOwners,dst,ringSize-src,remap);
+
+        return new RingSnapshot(version,outPoints,outOwners,allNodes,ring.getVNodes(),ring.options());
+    }
+
+    /** Copies a run of surviving positions, translating owner indices when earlier nodes left. */
+    static void copy(RingSnapshot ring,int src,long[] outPoints,OwnerTable outOwners,int dst,int len,int[] remap){
+        ring.copyPoints(src,outPoints,dst,len);
+        if (remap == null) {
+            ring.owners().copyTo(src,outOwners,dst,len);
+        } else {
+            ring.owners().copyTo(src,outOwners,dst,len,remap);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.NK8916;
+
+/**
+ * Build-time settings a snapshot carries so that snapshots derived from it
+ * (membership changes, copies) are built the same way.
+ */
+final class RingOptions {
+    static final RingOptions DEFAULT = new RingOptions(SearchIndex.NONE, RingLayout.REFERENCES);
+
+    final SearchIndex searchIndex;
+    final RingLayout layout;
+    /** Distinct successors precomputed per ring position; 0 for none. */
+    final int replicaTable;
+    /** Failure domains replica lookups spread across; null for distinct nodes only. */
+    final PlacementPolicy placement;
+
+    RingOptions(SearchIndex searchIndex,RingLayout layout){
+        this(searchIndex,layout,0,null);
+    }
+
+    RingOptions(SearchIndex searchIndex,RingLayout layout,int replicaTable,PlacementPolicy placement){
+        this.searchIndex=searchIndex;
+        this.layout=layout;
+        this.replicaTable=replicaTable;
+        this.placement=placement;
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Many logical keyspaces (tenants, tables) routed over one physical node set. Keyspaces whose
+ * builders would produce the same ring (same hash function id, vnode count, layout, index,
+ * replica table and placement policy) share one immutable {@link RingSnapshot}; each still gets
+ * its own {@link ConsistentHashing} with its own key cache, metrics, bounded loads and node
+ * liveness. Keyspaces that need isolation use a seeded or
+ * {@link io.github.NK8916.hashImplementations.SaltedHashFunction salted} hash function, which
+ * gives them a ring of their own. Hash functions count as the same when their
+ * {@link HashFunction#id() ids} match, so a function with parameters must include them in it.
+ *
+ * <p>Membership changes go through the registry: each distinct ring is updated once, the
+ * distinct rings in parallel, and every keyspace publishes the result under one registry-wide
+ * version. Keyspace routers must not be changed directly.
+ */
+public final class RingRegistry {
+    private final int parallelism;
+    /** Current members in ring order: survivors keep their order, joins are appended. */
+    private final LinkedHashMap<String,Node> nodes=new LinkedHashMap<>();
+    private final Map<List<Object>,Shared> rings=new LinkedHashMap<>();
+    private final Map<String,Keyspace> keyspaces=new LinkedHashMap<>();
+    private long version;
+
+    /** A ring and the keyspaces routing over it. */
+    private static final class Shared {
+        final HashFunction hashFunction;
+        final List<Keyspace> users=new ArrayList<>();
+        RoutingEngine engine;
+
+        Shared(HashFunction hashFunction,RoutingEngine engine){
+            this.hashFunction=hashFunction;
+            this.engine=engine;
+        }
+    }
+
+    private static final class Keyspace {
+        final String name;
+        final ConsistentHashing router;
+        final Shared ring;
+
+        Keyspace(String name,ConsistentHashing router,Shared ring){
+            this.name=name;
+            this.router=router;
+            this.ring=ring;
+        }
+    }
+
+    public RingRegistry(Node... nodes){
+        this(1,nodes);
+    }
+
+    /**
+     * @param parallelism threads that update distinct rings at the same time on a membership
+     *                    change; 1 updates them one after another on the calling thread
+     */
+    public RingRegistry(int parallelism,Node... nodes){
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1: " + parallelism);
+        this.parallelism=parallelism;
+        for (Node n : nodes) this.nodes.putIfAbsent(n.getId(),n);
+    }
+
+    /**
+     * Registers a keyspace routed as {@code builder} describes, over the registry's nodes and at
+     * its current version (the builder's own nodes and version are ignored; the builder itself
+     * is left as it was). If another keyspace
+     * already uses an identical ring configuration, the new keyspace shares its snapshot
+     * instead of building one.
+     *
+     * @throws IllegalArgumentException if the name is taken or the builder is not for a ring
+     */
+    public synchronized ConsistentHashing register(String keyspace,ConsistentHashingBuilder builder){
+        if (keyspaces.containsKey(keyspace)) throw new IllegalArgumentException("Keyspace already registered: " + keyspace);
+        List<Object> key=builder.ringKey();
+        Shared ring=rings.get(key);
+        ConsistentHashing router;
+        if (ring != null) {
+            router=builder.share(ring.engine);
+        } else {
+            router=builder.copy().withNodes(nodes.values().toArray(new Node[0])).withVersion(version).build();
+            ring=new Shared(builder.hashFunction(),router.getEngine());
+            rings.put(key,ring);
+        }
+        Keyspace k=new Keyspace(keyspace,router,ring);
+        ring.users.add(k);
+        keyspaces.put(keyspace,k);
+        return router;
+    }
+
+    /** Drops a keyspace; its ring is released once no keyspace uses it. Returns false if unknown. */
+    public synchronized boolean unregister(String keyspace){
+        Keyspace k=keyspaces.remove(keyspace);
+        if (k == null) return false;
+        k.ring.users.remove(k);
+        if (k.ring.users.isEmpty()) rings.values().remove(k.ring);
+        return true;
+    }
+
+    /** @throws IllegalArgumentException if no such keyspace is registered */
+    public synchronized ConsistentHashing get(String keyspace){
+        Keyspace k=keyspaces.get(keyspace);
+        if (k == null) throw new IllegalArgumentException("Unknown keyspace: " + keyspace);
+        return k.router;
+    }
+
+    public synchronized Set<String> getKeyspaces(){
+        return Collections.unmodifiableSet(new LinkedHashSet<>(keyspaces.keySet()));
+    }
+
+    public synchronized List<Node> getNodes(){
+        return List.copyOf(nodes.values());
+    }
+
+    /** Version every keyspace is at; each membership change adds one. */
+    public synchronized long getVersion(){
+        return version;
+    }
+
+    /** Distinct rings held, at most one per keyspace. */
+    public synchronized int getRingCount(){
+        return rings.size();
+    }
+
+    /** Bytes held by the distinct rings (see {@link RingSnapshot#getMemoryBytes()}), shared rings counted once. */
+    public synchronized long getMemoryBytes(){
+        long bytes=0;
+        for (Shared ring : rings.values()) bytes+=((RingSnapshot) ring.engine).getMemoryBytes();
+        return bytes;
+    }
+
+    /** Bytes the keyspaces would hold with a ring each: every ring counted once per keyspace using it. */
+    public synchronized long getUnsharedMemoryBytes(){
+        long bytes=0;
+        for (Shared ring : rings.values()) bytes+=ring.users.size() * ((RingSnapshot) ring.engine).getMemoryBytes();
+        return bytes;
+    }
+
+    /** Adds nodes to every keyspace; ids already present are ignored. See {@link ConsistentHashing#addNodes}. */
+    public synchronized void addNodes(Node... added){
+        apply(ring -> ring.engine.add(ring.hashFunction,added,version + 1));
+        for (Node n : added) nodes.putIfAbsent(n.getId(),n);
+    }
+
+    /** Removes nodes (matched by id) from every keyspace. See {@link ConsistentHashing#removeNodes}. */
+    public synchronized void removeNodes(Node... removed){
+        apply(ring -> ring.engine.remove(ring.hashFunction,removed,version + 1));
+        for (Node n : removed) nodes.remove(n.getId());
+    }
+
+    /** Replaces nodes (matched by id) in every keyspace. See {@link ConsistentHashing#updateNodes}. */
+    public synchronized void updateNodes(Node... updated){
+        apply(ring -> ring.engine.update(ring.hashFunction,updated,version + 1));
+        for (Node n : updated) nodes.replace(n.getId(),n);
+    }
+
+    /**
+     * Updates every distinct ring, in parallel when there are several, then publishes each to
+     * its keyspaces. Nothing is published unless every keyspace is still at the registry's
+     * engine, so a router changed behind the registry's back fails the whole change: the check
+     * runs again with every keyspace router locked, and the publishes happen under those locks.
+     */
+    private void apply(Function<Shared,RoutingEngine> change){
+        long start=System.nanoTime();
+        checkUnchanged();
+        Shared[] shared=rings.values().toArray(new Shared[0]);
+        RoutingEngine[] next=new RoutingEngine[shared.length];
+        if (parallelism <= 1 || shared.length < 2) {
+            for (int i = 0; i < shared.length; i++) next[i]=change.apply(shared[i]);
+        } else {
+            ForkJoinPool pool=new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> IntStream.range(0,shared.length).parallel()
+                        .forEach(i -> next[i]=change.apply(shared[i]))).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        Keyspace[] all=keyspaces.values().toArray(new Keyspace[0]);
+        locked(all,0,() -> {
+            checkUnchanged();
+            for (int i = 0; i < shared.length; i++) {
+                for (Keyspace k : shared[i].users) k.router.publishIfCurrent(shared[i].engine,next[i],start);
+                shared[i].engine=next[i];
+            }
+        });
+        version++;
+    }
+
+    private void checkUnchanged(){
+        for (Keyspace k : keyspaces.values()) {
+            if (k.router.getEngine() != k.ring.engine) {
+                throw new IllegalStateException("Keyspace " + k.name + " was changed outside the registry");
+            }
+        }
+    }
+
+    /**
+     * Runs {@code action} holding the router locks of {@code all[from..]}, taken in registration
+     * order; direct membership changes on those routers wait until it returns.
+     */
+    private static void locked(Keyspace[] all,int from,Runnable action){
+        if (from == all.length) {
+            action.run();
+            return;
+        }
+        synchronized (all[from].router) {
+            locked(all,from + 1,action);
+        }
+    }
+}
@@ -1,18 +1,154 @@
 package io.github.NK8916;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
 import java.util.*;
 
-public final class RingSnapshot {
+public final class RingSnapshot implements RoutingEngine {
     private final long version;
+    /** Sorted vnode points; {@code null} in the {@link RingLayout#OFF_HEAP} layout. */
     public final long[] points;
+    /** Owner of each point; only populated in the {@link RingLayout#REFERENCES} layout. */
     public final Node[] nodes;
     public final Node[] allNodes;
+    private final LongBuffer pointBuffer;
+    private final OwnerTable owners;
+    private final int size;
+    private final int vNodes;
+    private final RingOptions options;
+    private final int[] prefixTable;
+    private final int prefixShift;
+    /** Row i holds the first {@code successorDepth} distinct owners from position i on. */
+    private final OwnerTable successors;
+    private final int successorDepth;
+    /** Domain id per placement level and node, or null without a placement policy. */
+    private final int[][] domains;
+    /** Per placement level, row i holds the first distinct-domain owners from position i on. */
+    private final OwnerTable[] domainRows;
+    private final int[] domainDepth;
 
+    /** Placement-aware lookups track chosen replicas in a 64-bit mask. */
+    static final int MAX_PLACED_REPLICAS = 64;
+    private static final ThreadLocal<int[]> PLACED = ThreadLocal.withInitial(() -> new int[MAX_PLACED_REPLICAS]);
+
+    private static final int MAX_PREFIX_BITS = 24;
+    /** Searches advanced in lockstep by {@link #routeBatch}; enough to overlap cache misses. */
+    private static final int BATCH_LANES = 8;
+
+    /**
+     * Infers the vnode count from the ring: {@code points.length / allNodes.length} for nodes of
+     * weight 1, otherwise the count whose weighted vnodes add up to exactly {@code points.length}.
+     *
+     * @throws IllegalArgumentException if the nodes are weighted and no vnode count matches
+     */
     public RingSnapshot(long version,long[] points,Node[] nodes,Node[] allNodes){
+        this(version,points,nodes,allNodes,inferVNodes(points.length,allNodes));
+    }
+
+    public RingSnapshot(long version,long[] points,Node[] nodes,Node[] allNodes,int vNodes){
+        this(version,points,nodes,allNodes,vNodes,SearchIndex.NONE);
+    }
+
+    public RingSnapshot(long version,long[] points,Node[] nodes,Node[] allNodes,int vNodes,SearchIndex searchIndex){
+        this(version,points,null,nodes,ownerIndices(nodes,allNodes),allNodes,vNodes,
+                new RingOptions(searchIndex,RingLayout.REFERENCES));
+    }
+
+    private static int inferVNodes(int points,Node[] allNodes){
+        if (allNodes.length == 0) return 0;
+        boolean weighted=false;
+        for (Node n : allNodes) weighted|=n.getWeight() != 1.0;
+        if (!weighted) return points / allNodes.length;
+        // the total is non-decreasing in the count, so bisect for the smallest one reaching it
+        int lo=0, hi=points;
+        while (lo < hi) {
+            int mid=(lo + hi) >>> 1;
+            if (totalVNodes(mid,allNodes) < points) lo=mid + 1;
+            else hi=mid;
+        }
+        if (totalVNodes(lo,allNodes) != points) {
+            throw new IllegalArgumentException("No vnode count gives " + points + " points for these node weights");
+        }
+        return lo;
+    }
+
+    private static long totalVNodes(int vNodes,Node[] allNodes){
+        long total=0;
+        for (Node n : allNodes) total+=RingMerger.vNodeCount(vNodes,n.getWeight());
+        return total;
+    }
+
+    /** Builds a snapshot from sorted points and owner indices, laid out as {@code options} says. */
+    RingSnapshot(long version,long[] points,OwnerTable owners,Node[] allNodes,int vNodes,RingOptions options){
+        this(version,
+                options.layout == RingLayout.OFF_HEAP ? null : points,
+                options.layout == RingLayout.OFF_HEAP ? offHeap(points) : null,
+                options.layout == RingLayout.REFERENCES ? materialize(owners,allNodes) : null,
+                options.layout == RingLayout.OFF_HEAP ? owners.toOffHeap() : owners,
+                allNodes,vNodes,options);
+    }
+
+    /** Wraps points and owners that already live outside the heap (e.g. a mapped file). */
+    RingSnapshot(long version,LongBuffer pointBuffer,OwnerTable owners,Node[] allNodes,int vNodes,SearchIndex searchIndex){
+        this(version,null,pointBuffer,null,owners,allNodes,vNodes,new RingOptions(searchIndex,RingLayout.OFF_HEAP));
+    }
+
+    private RingSnapshot(long version,long[] points,LongBuffer pointBuffer,Node[] nodes,OwnerTable owners,
+                         Node[] allNodes,int vNodes,RingOptions options){
         this.version=version;
         this.points=points;
+        this.pointBuffer=pointBuffer;
         this.nodes=nodes;
+        this.owners=owners;
         this.allNodes=allNodes;
+        this.size=points != null ? points.length : pointBuffer.limit();
+        this.vNodes=vNodes;
+        this.options=options;
+        if (options.searchIndex == SearchIndex.PREFIX_TABLE && size > 0) {
+            int bits=Math.max(1, Math.min(MAX_PREFIX_BITS, 31 - Integer.numberOfLeadingZeros(size)));
+            this.prefixShift=64 - bits;
+            this.prefixTable=buildPrefixTable(bits);
+        } else {
+            this.prefixShift=0;
+            this.prefixTable=null;
+        }
+        int depth=options.replicaTable > 0 && size > 0 ? distinctFrom(0,null,new int[options.replicaTable]) : 0;
+        this.successorDepth=depth;
+        this.successors=depth > 0 ? buildSuccessors(depth,null) : null;
+        if (options.placement != null) {
+            this.domains=options.placement.domainIds(allNodes);
+            this.domainRows=new OwnerTable[domains.length];
+            this.domainDepth=new int[domains.length];
+            for (int l = 0; l < domains.length && depth > 0; l++) {
+                domainDepth[l]=distinctFrom(0,domains[l],new int[depth]);
+                domainRows[l]=buildSuccessors(domainDepth[l],domains[l]);
+            }
+        } else {
+            this.domains=null;
+            this.domainRows=null;
+            this.domainDepth=null;
+        }
+    }
+
+    /** Same storage and index as {@code source}, published under another version. */
+    private RingSnapshot(RingSnapshot source,long version){
+        this.version=version;
+        this.points=source.points;
+        this.pointBuffer=source.pointBuffer;
+        this.nodes=source.nodes;
+        this.owners=source.owners;
+        this.allNodes=source.allNodes;
+        this.size=source.size;
+        this.vNodes=source.vNodes;
+        this.options=source.options;
+        this.prefixTable=source.prefixTable;
+        this.prefixShift=source.prefixShift;
+        this.successors=source.successors;
+        this.successorDepth=source.successorDepth;
+        this.domains=source.domains;
+        this.domainRows=source.domainRows;
+        this.domainDepth=source.domainDepth;
     }
 
     public long getVersion(){
@@ -20,47 +156,494 @@ public final class RingSnapshot {
     }
 
     public long getSize(){
-        return points.length;
+        return size;
     }
 
     public int getNodeCount(){
         return this.allNodes.length;
     }
 
+    public List<Node> getNodes(){
+        return EngineSupport.view(allNodes);
+    }
+
+    public int getVNodes(){
+        return vNodes;
+    }
+
+    public SearchIndex getSearchIndex(){
+        return options.searchIndex;
+    }
+
+    public RingLayout getLayout(){
+        return options.layout;
+    }
+
+    /** Heap bytes used by the search index and replica table on top of {@code points}/{@code nodes}. */
+    public long getIndexMemoryBytes(){
+        long bytes=prefixTable == null ? 0 : 4L * prefixTable.length;
+        if (successors != null) bytes+=successors.memoryBytes();
+        if (domainRows != null) {
+            for (OwnerTable rows : domainRows) if (rows != null) bytes+=rows.memoryBytes();
+        }
+        return bytes;
+    }
+
+    /** Replicas answered from the precomputed successor table, or 0 if there is none. */
+    public int getReplicaTableDepth(){
+        return successorDepth;
+    }
+
+    /**
+     * Approximate bytes held by points, owner indices, per-vnode references (assuming
+     * compressed oops) and the search index, whether on or off heap. {@code Node} objects
+     * themselves are not counted.
+     */
+    public long getMemoryBytes(){
+        long bytes=8L * size + owners.memoryBytes() + getIndexMemoryBytes();
+        if (nodes != null) bytes+=4L * nodes.length;
+        return bytes;
+    }
+
+    /** Point at ring position {@code i}. */
+    public long pointAt(int i){
+        return points != null ? points[i] : pointBuffer.get(i);
+    }
+
+    /** Index into {@link #allNodes} of the owner of ring position {@code i}. */
+    public int ownerAt(int i){
+        return owners.get(i);
+    }
+
+    public Node nodeAt(int i){
+        return nodes != null ? nodes[i] : allNodes[owners.get(i)];
+    }
+
+    public int routeIndex(long keyHash){
+        int i=search(keyHash);
+        if (i == size) i = 0;
+        return owners.get(i);
+    }
+
     public Node route(long keyHash){
-        int i=lowerBound(points,keyHash);
-        if (i == points.length) i = 0;
-        return nodes[i];
-    }
-
-    public Node[] routeN(long keyHash,int replicas){
-        int idx = lowerBound(points,keyHash);
-        if (idx == points.length) idx = 0;
-        List<Node> out = new ArrayList<>(replicas);
-        Set<String> seen = new HashSet<>(replicas);
-        for (int i = 0; i < nodes.length && out.size() < replicas; i++) {
-            Node candidate = nodes[(idx + i) % nodes.length];
-            if (seen.add(candidate.getId())) {
-                out.add(candidate);
+        int i=search(keyHash);
+        if (i == size) i = 0;
+        return nodes != null ? nodes[i] : allNodes[owners.get(i)];
+    }
+
+    /**
+     * Fills {@code out} with the first {@code out.length} distinct nodes clockwise from
+     * {@code keyHash} and returns how many were written (fewer only if the ring has fewer
+     * nodes). Nothing is allocated; with a replica table deep enough this is one search and
+     * a row copy.
+     */
+    public int routeN(long keyHash,Node[] out){
+        if (out.length == 0 || size == 0) return 0;
+        int i=search(keyHash);
+        if (i == size) i = 0;
+        if (domains != null) {
+            int[] placed=out.length <= MAX_PLACED_REPLICAS ? PLACED.get() : new int[out.length];
+            int n=place(i,placed,Math.min(out.length,allNodes.length));
+            for (int k = 0; k < n; k++) out[k]=allNodes[placed[k]];
+            return n;
+        }
+        if (out.length <= successorDepth) {
+            int row=i * successorDepth;
+            for (int k = 0; k < out.length; k++) out[k]=allNodes[successors.get(row + k)];
+            return out.length;
+        }
+        int n=0;
+        for (int steps = 0; steps < size && n < out.length; steps++) {
+            Node candidate=allNodes[owners.get(i)];
+            if (!EngineSupport.containsRef(out,n,candidate)) out[n++]=candidate;
+            if (++i == size) i = 0;
+        }
+        return n;
+    }
+
+    /** Like {@link #routeN(long, Node[])} but writes indices into {@link #allNodes}. */
+    public int routeN(long keyHash,int[] out){
+        if (out.length == 0 || size == 0) return 0;
+        int i=search(keyHash);
+        if (i == size) i = 0;
+        if (domains != null) return place(i,out,Math.min(out.length,allNodes.length));
+        if (out.length <= successorDepth) {
+            int row=i * successorDepth;
+            for (int k = 0; k < out.length; k++) out[k]=successors.get(row + k);
+            return out.length;
+        }
+        return distinctFrom(i,null,out);
+    }
+
+    /**
+     * Placement-aware replicas from position {@code i}: for each policy level, then for plain
+     * nodes, the level's distinct-domain successors are appended unless already chosen. Only
+     * the first {@code want} successors of a level can contribute, so rows from the table
+     * and from a walk give the same answer.
+     */
+    private int place(int i,int[] out,int want){
+        if (want > MAX_PLACED_REPLICAS) {
+            throw new IllegalArgumentException("Placement-aware lookups support at most " + MAX_PLACED_REPLICAS + " replicas");
+        }
+        int n=0;
+        for (int l = 0; l <= domains.length && n < want; l++) {
+            int[] domain=l < domains.length ? domains[l] : null;
+            OwnerTable rows=l < domains.length ? domainRows[l] : successors;
+            int depth=l < domains.length ? domainDepth[l] : successorDepth;
+            if (want <= successorDepth) {
+                for (int k = 0, row = i * depth, m = Math.min(depth,want); k < m && n < want; k++) {
+                    int c=rows.get(row + k);
+                    if (!EngineSupport.contains(out,n,c)) out[n++]=c;
+                }
+                continue;
+            }
+            // walk: bit k of seen marks out[k] as a member of this level's row
+            long seen=0;
+            int members=0;
+            for (int p = i, steps = 0; steps < size && members < want && n < want; steps++) {
+                int c=owners.get(p);
+                int d=domain == null ? c : domain[c];
+                boolean fresh=true;
+                for (int k = 0; k < n && fresh; k++) {
+                    if ((seen >>> k & 1) != 0 && (domain == null ? out[k] : domain[out[k]]) == d) fresh=false;
+                }
+                if (fresh) {
+                    members++;
+                    int k=0;
+                    while (k < n && out[k] != c) k++;
+                    if (k == n) out[n++]=c;
+                    seen|=1L << k;
+                }
+                if (++p == size) p = 0;
             }
         }
-        return out.toArray(new Node[0]);
+        return n;
+    }
+
+    /**
+     * Routes every hash in {@code hashes}, writing the owner's index into {@link #allNodes}
+     * to {@code out} at the same position.
+     */
+    public void routeBatch(long[] hashes,int[] out){
+        checkBatch(hashes.length,out.length);
+        int[] pos=new int[BATCH_LANES];
+        for (int start = 0; start < hashes.length; start += BATCH_LANES) {
+            int lanes=Math.min(BATCH_LANES,hashes.length - start);
+            searchBlock(hashes,start,lanes,pos);
+            for (int l = 0; l < lanes; l++) out[start + l]=owners.get(pos[l]);
+        }
+    }
+
+    /** Like {@link #routeBatch(long[], int[])} but writes the owning nodes. */
+    public void routeBatch(long[] hashes,Node[] out){
+        checkBatch(hashes.length,out.length);
+        int[] pos=new int[BATCH_LANES];
+        for (int start = 0; start < hashes.length; start += BATCH_LANES) {
+            int lanes=Math.min(BATCH_LANES,hashes.length - start);
+            searchBlock(hashes,start,lanes,pos);
+            for (int l = 0; l < lanes; l++) out[start + l]=nodeAt(pos[l]);
+        }
     }
 
     public int ringSize(){
-        return this.points.length;
+        return this.size;
+    }
+
+    /** Merges the new nodes' vnodes into this ring; see {@link ConsistentHashing#addNodes}. */
+    public RoutingEngine add(HashFunction hashFunction,Node[] added,long version){
+        return RingMerger.add(this,hashFunction,added,version);
+    }
+
+    /** Cuts the nodes' vnodes out of this ring; see {@link ConsistentHashing#removeNodes}. */
+    public RoutingEngine remove(HashFunction hashFunction,Node[] removed,long version){
+        return RingMerger.remove(this,hashFunction,removed,version);
+    }
+
+    /**
+     * Replaces nodes (matched by id); a changed weight adds or cuts only that node's
+     * trailing vnodes. See {@link ConsistentHashing#updateNodes}.
+     */
+    public RoutingEngine update(HashFunction hashFunction,Node[] updated,long version){
+        return RingMerger.update(this,hashFunction,updated,version);
+    }
+
+    /** Cuts, merges and reweights vnodes in one pass; see {@link RoutingEngine#change}. */
+    public RoutingEngine change(HashFunction hashFunction,Node[] removed,Node[] added,Node[] updated,long version){
+        return RingMerger.change(this,hashFunction,removed,added,updated,version,true);
+    }
+
+    /** Vnodes owned by {@code allNodes[nodeIndex]}, scaled by its weight. */
+    public int getVNodeCount(int nodeIndex){
+        return RingMerger.vNodeCount(vNodes,allNodes[nodeIndex].getWeight());
+    }
+
+    /**
+     * Ring positions a clockwise walk from {@code keyHash} visits to find {@code replicas}
+     * distinct owners, or 0 when the replica table answers without walking.
+     */
+    int walkLength(long keyHash,int replicas){
+        if (replicas <= successorDepth || size == 0) return 0;
+        int want=Math.min(replicas,allNodes.length);
+        int i=search(keyHash);
+        if (i == size) i = 0;
+        boolean[] seen=new boolean[allNodes.length];
+        int found=0, steps=0;
+        while (found < want && steps < size) {
+            int owner=owners.get(i);
+            if (!seen[owner]) {
+                seen[owner]=true;
+                found++;
+            }
+            steps++;
+            if (++i == size) i = 0;
+        }
+        return steps;
+    }
+
+    /** Ring position that owns {@code keyHash}: the first point at or after it, wrapping to 0. */
+    int position(long keyHash){
+        int i=search(keyHash);
+        return i == size ? 0 : i;
+    }
+
+    boolean hasPlacement(){
+        return domains != null;
+    }
+
+    RingSnapshot withVersion(long version){
+        return new RingSnapshot(this,version);
+    }
+
+    /** Deep copy with the same version, layout and index. */
+    RingSnapshot copy(){
+        long[] p=new long[size];
+        copyPoints(0,p,0,size);
+        OwnerTable o=OwnerTable.allocate(size,allNodes.length);
+        owners.copyTo(0,o,0,size);
+        return new RingSnapshot(version,p,o,Arrays.copyOf(allNodes,allNodes.length),vNodes,options);
+    }
+
+    RingOptions options(){
+        return options;
+    }
+
+    OwnerTable owners(){
+        return owners;
+    }
+
+    /** Copies {@code len} points starting at ring position {@code from} into {@code dst}. */
+    void copyPoints(int from,long[] dst,int to,int len){
+        if (points != null) {
+            System.arraycopy(points,from,dst,to,len);
+        } else {
+            pointBuffer.get(from,dst,to,len);
+        }
+    }
+
+    /** Index of the first point at or after {@code keyHash}, or {@code size}. */
+    private int search(long keyHash){
+        int lo=0, hi=size;
+        if (prefixTable != null) {
+            int bucket=(int) (keyHash >>> prefixShift);
+            lo=prefixTable[bucket];
+            hi=prefixTable[bucket + 1];
+        }
+        return points != null ? lowerBound(points,lo,hi,keyHash) : lowerBound(lo,hi,keyHash);
+    }
+
+    /**
+     * First {@code out.length} owners of distinct domains walking clockwise from position
+     * {@code i} ({@code domain == null}: distinct owners); returns the count.
+     */
+    private int distinctFrom(int i,int[] domain,int[] out){
+        int n=0;
+        for (int steps = 0; steps < size && n < out.length; steps++) {
+            int owner=owners.get(i);
+            if (domain == null ? !EngineSupport.contains(out,n,owner) : !sameDomain(domain,out,n,owner)) out[n++]=owner;
+            if (++i == size) i = 0;
+        }
+        return n;
+    }
+
+    private static boolean sameDomain(int[] domain,int[] a,int n,int owner){
+        for (int k = 0; k < n; k++) if (domain[a[k]] == domain[owner]) return true;
+        return false;
+    }
+
+    /**
+     * Row i is owner(i) followed by row i+1 without the entry sharing owner(i)'s domain
+     * ({@code domain == null}: owner(i) itself), so the table is filled in one backwards
+     * pass seeded with a direct walk from position 0.
+     */
+    private OwnerTable buildSuccessors(int depth,int[] domain){
+        OwnerTable table=OwnerTable.allocate(Math.multiplyExact(size,depth),allNodes.length);
+        int[] next=new int[depth];
+        int[] row=new int[depth];
+        distinctFrom(0,domain,next);
+        for (int i = size - 1; i >= 0; i--) {
+            int owner=owners.get(i);
+            int d=domain == null ? owner : domain[owner];
+            row[0]=owner;
+            for (int k = 0, n = 1; n < depth; k++) {
+                if ((domain == null ? next[k] : domain[next[k]]) != d) row[n++]=next[k];
+            }
+            for (int k = 0; k < depth; k++) table.set(i * depth + k,row[k]);
+            int[] t=next; next=row; row=t;
+        }
+        return table;
+    }
+
+    private void checkBatch(int hashes,int out){
+        if (out < hashes) {
+            throw new IllegalArgumentException("Output holds " + out + " entries, batch has " + hashes);
+        }
+        if (size == 0 && hashes > 0) throw new IllegalStateException("Ring is empty");
+    }
+
+    /**
+     * Ring positions (already wrapped) for {@code lanes} hashes starting at {@code start}.
+     * Without a prefix table every search spans the whole ring, so all lanes take the same
+     * number of halving steps and are advanced together: the loads of one step are
+     * independent and their cache misses overlap instead of being paid one key at a time.
+     * With {@link VectorSupport} the last steps are one vector compare over the remaining window.
+     */
+    private void searchBlock(long[] hashes,int start,int lanes,int[] pos){
+        boolean vector=VectorSupport.ENABLED && points != null && size >= VectorSupport.longLanes();
+        if (points == null || prefixTable != null) {
+            for (int l = 0; l < lanes; l++) {
+                int i=vector ? vectorSearch(hashes[start + l]) : search(hashes[start + l]);
+                pos[l]=i == size ? 0 : i;
+            }
+            return;
+        }
+        for (int l = 0; l < lanes; l++) pos[l]=0;
+        int n=size;
+        int window=vector ? VectorSupport.longLanes() : 1;
+        while (n > window) {
+            int half=n >>> 1;
+            for (int l = 0; l < lanes; l++) {
+                int base=pos[l];
+                // unsigned points[base+half-1] < key, via the sign-flip trick
+                if ((points[base + half - 1] ^ Long.MIN_VALUE) < (hashes[start + l] ^ Long.MIN_VALUE)) {
+                    pos[l]=base + half;
+                }
+            }
+            n-=half;
+        }
+        if (vector) {
+            for (int l = 0; l < lanes; l++) {
+                // points before pos are below the key, so a window pulled back from the end still counts right
+                int from=Math.min(pos[l],size - window);
+                int i=from + VectorSupport.SEARCH.countBelow(points,from,hashes[start + l]);
+                pos[l]=i == size ? 0 : i;
+            }
+            return;
+        }
+        for (int l = 0; l < lanes; l++) {
+            int i=pos[l];
+            if (Long.compareUnsigned(points[i],hashes[start + l]) < 0) i++;
+            pos[l]=i == size ? 0 : i;
+        }
     }
 
-    private int lowerBound(long[] points,long keyHash){
-        int lo = 0, hi = points.length - 1, ans = -1;
-        while (lo <= hi) {
+    /**
+     * {@link #search} over heap points that narrows the range by halving only until it fits
+     * one vector, then counts the points below the key in a single compare. Needs
+     * {@code size >= VectorSupport.longLanes()}.
+     */
+    private int vectorSearch(long keyHash){
+        int window=VectorSupport.longLanes();
+        int lo=0, hi=size;
+        if (prefixTable != null) {
+            int bucket=(int) (keyHash >>> prefixShift);
+            lo=prefixTable[bucket];
+            hi=prefixTable[bucket + 1];
+        }
+        while (hi - lo > window) {
+            int mid=(lo + hi) >>> 1;
+            if (Long.compareUnsigned(points[mid],keyHash) < 0) {
+                lo=mid + 1;
+            } else {
+                hi=mid;
+            }
+        }
+        int from=Math.min(lo,size - window);
+        return from + VectorSupport.SEARCH.countBelow(points,from,keyHash);
+    }
+
+    /** First position in [from,to) whose point is unsigned-greater-or-equal to {@code key}, or {@code to}. */
+    int lowerBound(int from,int to,long key){
+        if (points != null) return lowerBound(points,from,to,key);
+        int lo = from, hi = to;
+        while (lo < hi) {
             int mid = (lo + hi) >>> 1;
-            if (Long.compareUnsigned(points[mid], keyHash) >= 0) {
-                ans = mid; hi = mid - 1;
+            if (Long.compareUnsigned(pointBuffer.get(mid), key) < 0) {
+                lo = mid + 1;
             } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** First index in [from,to) whose point is unsigned-greater-or-equal to {@code key}, or {@code to}. */
+    static int lowerBound(long[] points,int from,int to,long key){
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(points[mid], key) < 0) {
                 lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** table[b] is the first index whose top bits are >= b; table[buckets] is the ring size. */
+    private int[] buildPrefixTable(int bits){
+        int buckets=1 << bits;
+        int shift=64 - bits;
+        int[] table=new int[buckets + 1];
+        int i=0;
+        for (int b = 0; b <= buckets; b++) {
+            while (i < size && (pointAt(i) >>> shift) < b) i++;
+            table[b]=i;
+        }
+        return table;
+    }
+
+    private static OwnerTable ownerIndices(Node[] nodes,Node[] allNodes){
+        Map<Node,Integer> byRef=new IdentityHashMap<>();
+        Map<String,Integer> byId=new HashMap<>();
+        for (int i = allNodes.length - 1; i >= 0; i--) {
+            byRef.put(allNodes[i],i);
+            byId.put(allNodes[i].getId(),i);
+        }
+        OwnerTable owners=OwnerTable.allocate(nodes.length,allNodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            Integer idx=byRef.get(nodes[i]);
+            if (idx == null) idx=byId.get(nodes[i].getId());
+            if (idx == null) {
+                throw new IllegalArgumentException("Vnode owner " + nodes[i].getId() + " is not in allNodes");
             }
+            owners.set(i,idx);
+        }
+        return owners;
+    }
+
+    private static Node[] materialize(OwnerTable owners,Node[] allNodes){
+        Node[] nodes=new Node[owners.size()];
+        for (int i = 0; i < nodes.length; i++) nodes[i]=allNodes[owners.get(i)];
+        return nodes;
+    }
+
+    private static LongBuffer offHeap(long[] points){
+        if (points.length > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Too many points for off-heap layout: " + points.length);
         }
-        return (ans != -1) ? ans : points.length;
+        LongBuffer buffer=ByteBuffer.allocateDirect(points.length * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        buffer.put(0,points);
+        return buffer;
     }
 }
@@ -0,0 +1,285 @@
+package io.github.NK8916;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary file format for {@link RingSnapshot}s, loaded by memory-mapping so a
+ * process can route keys straight off the mapped pages instead of rebuilding the ring.
+ *
+ * <pre>
+ * header   magic "CHRS", format version, snapshot version, vnodes per node, search index,
+ *          hash function id, node count, point count, owner width, section offsets
+ * nodes    id, ip, port, region, weight (format 2+) and metadata of every node, in allNodes order
+ * points   sorted points, 8 bytes each, 8-byte aligned
+ * owners   owner index per point, 1/2/4 bytes each
+ * trailer  CRC32C of everything before it
+ * </pre>
+ * All numbers are little-endian.
+ */
+public final class RingSnapshotFile {
+    private static final int MAGIC = 0x53524843; // "CHRS" read little-endian
+    /** 2 added node weights; format 1 files are still read, with weights taken from metadata. */
+    static final int FORMAT_VERSION = 2;
+    private static final int CHUNK = 1 << 16;
+    /** Header bytes before the hash id: magic, format, version, vnodes, search index, id length. */
+    private static final int PREFIX = 4 + 4 + 8 + 4 + 4 + 4;
+    /** Header bytes after the hash id: node count, point count, owner width, section offsets. */
+    private static final int SUFFIX = 4 + 4 + 4 + 8 + 8 + 8;
+    /** Smallest node record: four null strings, port and metadata size (format 1 has no weight). */
+    private static final int MIN_NODE_BYTES = 4 + 4 + 4 + 4 + 4;
+    /** Points are mapped as one buffer, which holds at most 2 GiB. */
+    private static final int MAX_POINTS = Integer.MAX_VALUE / 8;
+
+    private RingSnapshotFile(){}
+
+    /**
+     * Writes {@code snapshot} to {@code path}, going through a temporary file and an atomic
+     * rename so readers never map a half-written ring.
+     *
+     * @throws IllegalArgumentException if the ring has more points than {@link #map} can map
+     *                                  (2 GiB of points, about 268M)
+     */
+    public static void write(RingSnapshot snapshot,HashFunction hashFunction,Path path) throws IOException {
+        int size=snapshot.ringSize();
+        if (size > MAX_POINTS) throw new IllegalArgumentException("Too many points for a ring snapshot file: " + size);
+        int width=snapshot.owners().width();
+        byte[] nodeTable=encodeNodes(snapshot.allNodes);
+        byte[] hashId=hashFunction.id().getBytes(StandardCharsets.UTF_8);
+
+        int headerSize=PREFIX + hashId.length + SUFFIX;
+        long nodesOffset=headerSize;
+        long pointsOffset=align8(nodesOffset + nodeTable.length);
+        long ownersOffset=pointsOffset + 8L * size;
+
+        ByteBuffer header=ByteBuffer.allocate((int) (pointsOffset - nodesOffset) + headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(snapshot.getVersion()).putInt(snapshot.getVNodes())
+                .putInt(snapshot.getSearchIndex().ordinal())
+                .putInt(hashId.length).put(hashId)
+                .putInt(snapshot.getNodeCount()).putInt(size).putInt(width)
+                .putLong(nodesOffset).putLong(pointsOffset).putLong(ownersOffset)
+                .put(nodeTable);
+        header.position((int) pointsOffset).flip();
+
+        Path tmp=path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32C crc=new CRC32C();
+        try (FileChannel ch=FileChannel.open(tmp,StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ch,header,crc);
+
+            ByteBuffer buf=ByteBuffer.allocate(CHUNK * 8).order(ByteOrder.LITTLE_ENDIAN);
+            long[] chunk=new long[CHUNK];
+            for (int from = 0; from < size; from += CHUNK) {
+                int len=Math.min(CHUNK,size - from);
+                snapshot.copyPoints(from,chunk,0,len);
+                buf.clear();
+                buf.asLongBuffer().put(chunk,0,len);
+                buf.limit(len * 8);
+                writeFully(ch,buf,crc);
+            }
+
+            OwnerTable owners=snapshot.owners();
+            for (int from = 0; from < size; from += CHUNK) {
+                int len=Math.min(CHUNK,size - from);
+                buf.clear();
+                for (int i = from; i < from + len; i++) {
+                    int o=owners.get(i);
+                    if (width == 1) buf.put((byte) o); else if (width == 2) buf.putChar((char) o); else buf.putInt(o);
+                }
+                buf.flip();
+                writeFully(ch,buf,crc);
+            }
+
+            ByteBuffer trailer=ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(crc.getValue());
+            trailer.flip();
+            writeFully(ch,trailer,null);
+            ch.force(true);
+        }
+        Files.move(tmp,path,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Maps {@code path} after verifying its checksum; see {@link #map(Path, HashFunction, boolean)}. */
+    public static RingSnapshot map(Path path,HashFunction hashFunction) throws IOException {
+        return map(path,hashFunction,true);
+    }
+
+    /**
+     * Memory-maps a snapshot written by {@link #write}. Points and owners stay in the mapped
+     * pages (the snapshot uses the {@link RingLayout#OFF_HEAP} layout); only the node table is
+     * decoded onto the heap. Skipping checksum verification avoids touching every page up front.
+     *
+     * @throws IllegalArgumentException if the file was written with a different hash function
+     * @throws IOException if the file is not a ring snapshot, has an unsupported format version,
+     *                     a malformed or truncated header or node table, or fails checksum verification
+     */
+    public static RingSnapshot map(Path path,HashFunction hashFunction,boolean verifyChecksum) throws IOException {
+        try (FileChannel ch=FileChannel.open(path,StandardOpenOption.READ)) {
+            long fileSize=ch.size();
+            if (fileSize < PREFIX + 8) throw new IOException("Not a ring snapshot: " + path);
+            ByteBuffer head=ByteBuffer.allocate(PREFIX).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch,head,0);
+            head.flip();
+            if (head.getInt() != MAGIC) throw new IOException("Not a ring snapshot: " + path);
+            int format=head.getInt();
+            if (format < 1 || format > FORMAT_VERSION) throw new IOException("Unsupported ring snapshot format " + format + ": " + path);
+            long version=head.getLong();
+            int vNodes=head.getInt();
+            int index=head.getInt();
+            int hashIdLength=head.getInt();
+            int headerSize=PREFIX + hashIdLength + SUFFIX;
+            if (vNodes < 0 || index < 0 || index >= SearchIndex.values().length
+                    || hashIdLength < 0 || hashIdLength > fileSize - PREFIX - SUFFIX - 8) {
+                throw new IOException("Malformed ring snapshot header: " + path);
+            }
+            SearchIndex searchIndex=SearchIndex.values()[index];
+
+            head=ByteBuffer.allocate(hashIdLength + SUFFIX).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch,head,PREFIX);
+            head.flip();
+            byte[] hashId=new byte[hashIdLength];
+            head.get(hashId);
+            int nodeCount=head.getInt();
+            int size=head.getInt();
+            int width=head.getInt();
+            long nodesOffset=head.getLong();
+            long pointsOffset=head.getLong();
+            long ownersOffset=head.getLong();
+            long end=ownersOffset + (long) width * size;
+            if (nodeCount < 0 || size < 0 || size > MAX_POINTS || (width != 1 && width != 2 && width != 4)
+                    || nodesOffset != headerSize || pointsOffset != align8(pointsOffset) || pointsOffset < nodesOffset
+                    || (pointsOffset - nodesOffset) / MIN_NODE_BYTES < nodeCount
+                    || ownersOffset != pointsOffset + 8L * size || end + 8 != fileSize) {
+                throw new IOException("Truncated or malformed ring snapshot: " + path);
+            }
+            String expected=hashFunction.id();
+            String actual=new String(hashId,StandardCharsets.UTF_8);
+            if (!expected.equals(actual)) {
+                throw new IllegalArgumentException("Ring snapshot was built with " + actual + ", not " + expected);
+            }
+
+            if (verifyChecksum) {
+                CRC32C crc=new CRC32C();
+                for (long pos = 0; pos < end; pos += Integer.MAX_VALUE) {
+                    crc.update(ch.map(FileChannel.MapMode.READ_ONLY,pos,Math.min(Integer.MAX_VALUE,end - pos)));
+                }
+                ByteBuffer trailer=ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(ch,trailer,end);
+                if (trailer.getLong(0) != crc.getValue()) {
+                    throw new IOException("Ring snapshot checksum mismatch: " + path);
+                }
+            }
+
+            ByteBuffer nodeTable=ch.map(FileChannel.MapMode.READ_ONLY,nodesOffset,pointsOffset - nodesOffset).order(ByteOrder.LITTLE_ENDIAN);
+            Node[] allNodes;
+            try {
+                allNodes=decodeNodes(nodeTable,nodeCount,format);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated or malformed ring snapshot: " + path,e);
+            }
+
+            MappedByteBuffer points=ch.map(FileChannel.MapMode.READ_ONLY,pointsOffset,8L * size);
+            MappedByteBuffer owners=ch.map(FileChannel.MapMode.READ_ONLY,ownersOffset,(long) width * size);
+            return new RingSnapshot(version,
+                    points.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer(),
+                    OwnerTable.wrap(owners.order(ByteOrder.LITTLE_ENDIAN),width,size),
+                    allNodes,vNodes,searchIndex);
+        }
+    }
+
+    /** Node records in the layout of the nodes section; shared with {@link RingDelta}. */
+    static byte[] encodeNodes(Node[] nodes){
+        int bytes=0;
+        for (Node n : nodes) {
+            bytes+=4 + 8 + 4 + utf8Size(n.getId()) + utf8Size(n.getIpAddress()) + utf8Size(n.getRegion());
+            Map<String,String> meta=n.getMetaData();
+            if (meta != null) {
+                for (Map.Entry<String,String> e : meta.entrySet()) bytes+=utf8Size(e.getKey()) + utf8Size(e.getValue());
+            }
+        }
+        ByteBuffer out=ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (Node n : nodes) {
+            putString(out,n.getId());
+            putString(out,n.getIpAddress());
+            out.putInt(n.getPort());
+            putString(out,n.getRegion());
+            out.putDouble(n.getWeight());
+            Map<String,String> meta=n.getMetaData();
+            out.putInt(meta == null ? -1 : meta.size());
+            if (meta != null) {
+                for (Map.Entry<String,String> e : meta.entrySet()) {
+                    putString(out,e.getKey());
+                    putString(out,e.getValue());
+                }
+            }
+        }
+        return out.array();
+    }
+
+    static Node[] decodeNodes(ByteBuffer in,int count,int format){
+        Node[] nodes=new Node[count];
+        for (int i = 0; i < count; i++) {
+            String id=getString(in);
+            String ip=getString(in);
+            int port=in.getInt();
+            String region=getString(in);
+            double weight=format >= 2 ? in.getDouble() : Double.NaN;
+            int metaSize=in.getInt();
+            Map<String,String> meta=null;
+            if (metaSize >= 0) {
+                meta=new LinkedHashMap<>();
+                for (int m = 0; m < metaSize; m++) meta.put(getString(in),getString(in));
+            }
+            nodes[i]=Double.isNaN(weight) ? new Node(id,ip,port,region,meta) : new Node(id,ip,port,region,meta,weight);
+        }
+        return nodes;
+    }
+
+    /** Strings are a length (-1 for null) followed by UTF-8 bytes. */
+    private static int utf8Size(String s){
+        return 4 + (s == null ? 0 : s.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer out,String s){
+        if (s == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] b=s.getBytes(StandardCharsets.UTF_8);
+        out.putInt(b.length).put(b);
+    }
+
+    private static String getString(ByteBuffer in){
+        int len=in.getInt();
+        if (len < 0) return null;
+        if (len > in.remaining()) throw new BufferUnderflowException();
+        byte[] b=new byte[len];
+        in.get(b);
+        return new String(b,StandardCharsets.UTF_8);
+    }
+
+    private static long align8(long offset){
+        return (offset + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel ch,ByteBuffer buf,CRC32C crc) throws IOException {
+        if (crc != null) crc.update(buf.duplicate());
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    private static void readFully(FileChannel ch,ByteBuffer buf,long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf,position + buf.position()) < 0) break;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package io.github.NK8916;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies membership events to a {@link ConsistentHashing} in the background, coalescing
+ * bursts into one new engine. Events are collected for a debounce window after the first
+ * one arrives; per node id only the last event counts (a join followed by a leave cancels
+ * out), and the batch becomes a single remove/add/update delta published with the next
+ * version.
+ *
+ * <p>One build is in flight at a time, and the delta is applied with
+ * {@link RoutingEngine#change}: rings, multi-probe and Maglev engines build the next engine
+ * in one pass, so at most the current engine and the one being built are alive. Hierarchical
+ * engines still apply the three steps in turn. The build runs outside the router's lock; if
+ * another writer published meanwhile, the batch is re-applied on top of that engine, so
+ * versions stay strictly increasing and no event is lost.
+ */
+public final class RingUpdater implements AutoCloseable {
+
+    /** Called on the updater thread after each publish. */
+    @FunctionalInterface
+    public interface Listener {
+        void published(RoutingEngine previous,RoutingEngine current);
+    }
+
+    private enum Kind { JOIN, LEAVE, UPDATE }
+
+    private static final class Event {
+        final Kind kind;
+        final Node node;
+
+        Event(Kind kind,Node node){
+            this.kind=kind;
+            this.node=node;
+        }
+    }
+
+    private final ConsistentHashing router;
+    private final HashFunction hashFunction;
+    private final long debounceNanos;
+    private final Thread worker;
+    private final List<Listener> listeners=new CopyOnWriteArrayList<>();
+
+    // guarded by this
+    private Map<String,Event> pending=new LinkedHashMap<>();
+    private List<CompletableFuture<Long>> waiting=new ArrayList<>();
+    private boolean closed;
+    /** Highest version this updater has seen published, for {@link #awaitVersion}. */
+    private long publishedVersion;
+
+    public RingUpdater(ConsistentHashing router,Duration debounce){
+        this(router,debounce,r -> {
+            Thread t=new Thread(r,"ring-updater");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Runs the updater loop on a thread from {@code threadFactory}, e.g. a virtual-thread factory. */
+    public RingUpdater(ConsistentHashing router,Duration debounce,ThreadFactory threadFactory){
+        if (debounce.isNegative()) throw new IllegalArgumentException("debounce must not be negative: " + debounce);
+        this.router=router;
+        this.hashFunction=router.hashFunction();
+        this.debounceNanos=debounce.toNanos();
+        this.publishedVersion=router.getEngine().getVersion();
+        this.worker=threadFactory.newThread(this::run);
+        this.worker.start();
+    }
+
+    /**
+     * Queues nodes to join (a node already present is replaced, as by an update). The future
+     * completes with the version that contains the change.
+     */
+    public CompletableFuture<Long> join(Node... nodes){
+        return submit(Kind.JOIN,nodes);
+    }
+
+    /** Queues nodes (matched by id) to leave; unknown ids are ignored. */
+    public CompletableFuture<Long> leave(Node... nodes){
+        return submit(Kind.LEAVE,nodes);
+    }
+
+    /** Queues replacements for present nodes (matched by id), e.g. a weight change; unknown ids are ignored. */
+    public CompletableFuture<Long> update(Node... nodes){
+        return submit(Kind.UPDATE,nodes);
+    }
+
+    public void addListener(Listener listener){
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * Blocks until the router has published {@code version} or later; returns false on
+     * timeout. Versions published by other writers count once this updater publishes again.
+     */
+    public boolean awaitVersion(long version,long timeout,TimeUnit unit) throws InterruptedException {
+        long deadline=System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            while (Math.max(publishedVersion,router.getEngine().getVersion()) < version) {
+                long left=deadline - System.nanoTime();
+                if (left <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(this,left);
+            }
+            return true;
+        }
+    }
+
+    /** Applies queued events, stops the updater thread and rejects further events. */
+    @Override
+    public void close(){
+        synchronized (this) {
+            closed=true;
+            notifyAll();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized CompletableFuture<Long> submit(Kind kind,Node[] nodes){
+        if (closed) throw new IllegalStateException("Updater is closed");
+        for (Node node : nodes) {
+            Event previous=pending.get(node.getId());
+            // an update to a node still waiting to join changes what joins
+            Kind merged=kind == Kind.UPDATE && previous != null && previous.kind == Kind.JOIN ? Kind.JOIN : kind;
+            pending.remove(node.getId());
+            pending.put(node.getId(),new Event(merged,node));
+        }
+        CompletableFuture<Long> future=new CompletableFuture<>();
+        waiting.add(future);
+        notifyAll();
+        return future;
+    }
+
+    private void run(){
+        while (true) {
+            Map<String,Event> batch;
+            List<CompletableFuture<Long>> futures;
+            synchronized (this) {
+                try {
+                    while (waiting.isEmpty() && !closed) wait();
+                    // debounce: let the burst finish before building
+                    long deadline=System.nanoTime() + debounceNanos;
+                    for (long left = debounceNanos; left > 0 && !closed; left=deadline - System.nanoTime()) {
+                        TimeUnit.NANOSECONDS.timedWait(this,left);
+                    }
+                } catch (InterruptedException e) {
+                    closed=true;
+                }
+                if (waiting.isEmpty()) return;
+                batch=pending;
+                futures=waiting;
+                pending=new LinkedHashMap<>();
+                waiting=new ArrayList<>();
+            }
+            try {
+                long version=apply(batch);
+                for (CompletableFuture<Long> f : futures) f.complete(version);
+            } catch (RuntimeException e) {
+                for (CompletableFuture<Long> f : futures) f.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** Builds and publishes one engine for the batch; returns the version containing it. */
+    private long apply(Map<String,Event> batch){
+        while (true) {
+            long start=System.nanoTime();
+            RoutingEngine current=router.getEngine();
+            Map<String,Node> present=new HashMap<>();
+            for (Node node : current.getNodes()) present.put(node.getId(),node);
+            List<Node> added=new ArrayList<>(), removed=new ArrayList<>(), updated=new ArrayList<>();
+            for (Event e : batch.values()) {
+                Node now=present.get(e.node.getId());
+                if (e.kind == Kind.LEAVE) {
+                    if (now != null) removed.add(now);
+                } else if (now == null) {
+                    if (e.kind == Kind.JOIN) added.add(e.node);
+                } else if (now != e.node) {
+                    updated.add(e.node);
+                }
+            }
+            if (added.isEmpty() && removed.isEmpty() && updated.isEmpty()) return published(current,current);
+
+            RoutingEngine next=current.change(hashFunction,removed.toArray(new Node[0]),added.toArray(new Node[0]),
+                    updated.toArray(new Node[0]),current.getVersion() + 1);
+            if (router.publishIfCurrent(current,next,start)) return published(current,next);
+            // another writer got in first: rebuild on top of its engine
+        }
+    }
+
+    private long published(RoutingEngine previous,RoutingEngine current){
+        synchronized (this) {
+            publishedVersion=Math.max(publishedVersion,current.getVersion());
+            notifyAll();
+        }
+        if (previous != current) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.published(previous,current);
+                } catch (RuntimeException e) {
+                    // a failing listener must not stop the updater or starve the others
+                    worker.getUncaughtExceptionHandler().uncaughtException(worker,e);
+                }
+            }
+        }
+        return current.getVersion();
+    }
+}
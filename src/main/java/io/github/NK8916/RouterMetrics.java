@@ -0,0 +1,95 @@
+package io.github.NK8916;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in instrumentation behind {@link ConsistentHashing}: lookups per node in striped
+ * {@link LongAdder}s, latency histograms for one in {@code sampling} lookups, replica walk
+ * lengths and membership-change durations. {@link ConsistentHashing} holds null instead of
+ * an instance when metrics are off, so the uninstrumented path pays one null check.
+ */
+final class RouterMetrics {
+    private final int sampleMask;
+    private final BuildTimings build;
+    private final Histogram lookupLatency=new Histogram();
+    private final Histogram replicaLatency=new Histogram();
+    private final Histogram replicaWalk=new Histogram();
+    private final Histogram swapLatency=new Histogram();
+    private volatile Table table;
+
+    /** Lookup counters indexed like the engine's nodes. */
+    private static final class Table {
+        final RoutingEngine engine;
+        final Node[] nodes;
+        final LongAdder[] lookups;
+        final Map<String,LongAdder> byId=new HashMap<>();
+
+        Table(RoutingEngine engine,Table previous){
+            this.engine=engine;
+            this.nodes=engine.getNodes().toArray(new Node[0]);
+            this.lookups=new LongAdder[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                LongAdder counter=previous == null ? null : previous.byId.get(nodes[i].getId());
+                lookups[i]=counter != null ? counter : new LongAdder();
+                byId.put(nodes[i].getId(),lookups[i]);
+            }
+        }
+    }
+
+    /** Times one in {@code sampling} lookups, rounded up to a power of two. */
+    RouterMetrics(int sampling,RoutingEngine engine,BuildTimings build){
+        if (sampling < 1) throw new IllegalArgumentException("sampling must be positive: " + sampling);
+        this.sampleMask=sampling == 1 ? 0 : Integer.highestOneBit(sampling - 1) * 2 - 1;
+        this.build=build;
+        this.table=new Table(engine,null);
+    }
+
+    boolean sampled(){
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    /**
+     * Counts a lookup of node {@code index} on {@code engine} and returns that node. A lookup
+     * that raced a swap is counted by node id; lookups of a node that joined in the swap's
+     * window are dropped.
+     */
+    Node lookup(RoutingEngine engine,int index){
+        Table t=table;
+        if (t.engine == engine) {
+            t.lookups[index].increment();
+            return t.nodes[index];
+        }
+        Node node=engine.getNodes().get(index);
+        LongAdder counter=t.byId.get(node.getId());
+        if (counter != null) counter.increment();
+        return node;
+    }
+
+    void lookupLatency(long nanos){
+        lookupLatency.record(nanos);
+    }
+
+    /** Records a timed replica lookup and, on a ring, how many positions its walk visited. */
+    void replicas(RoutingEngine engine,long keyHash,int replicas,long nanos){
+        replicaLatency.record(nanos);
+        if (engine instanceof RingSnapshot) replicaWalk.record(((RingSnapshot) engine).walkLength(keyHash,replicas));
+    }
+
+    /** A published membership change: counters follow nodes by id. */
+    synchronized void swapped(RoutingEngine engine,long nanos){
+        table=new Table(engine,table);
+        swapLatency.record(nanos);
+    }
+
+    MetricsSnapshot snapshot(){
+        Table t=table;
+        RoutingEngine engine=t.engine;
+        Map<String,Long> lookups=new LinkedHashMap<>();
+        for (int i = 0; i < t.nodes.length; i++) lookups.put(t.nodes[i].getId(),t.lookups[i].sum());
+        int ringSize=engine instanceof RingSnapshot ? ((RingSnapshot) engine).ringSize() : 0;
+        return new MetricsSnapshot(engine.getVersion(),engine.getNodeCount(),ringSize,engine.getMemoryBytes(),lookups,
+                lookupLatency.snapshot(),replicaLatency.snapshot(),replicaWalk.snapshot(),swapLatency.snapshot(),build);
+    }
+}
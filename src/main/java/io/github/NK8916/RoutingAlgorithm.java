@@ -0,0 +1,33 @@
+package io.github.NK8916;
+
+/**
+ * {@link RoutingEngine} implementations {@link ConsistentHashingBuilder} can build.
+ */
+public enum RoutingAlgorithm {
+    /** Sorted vnode ring ({@link RingSnapshot}); memory grows with nodes × vnodes. */
+    RING,
+    /**
+     * Jump consistent hash (Lamping &amp; Veach): no table at all and optimal remapping when
+     * nodes join at the end. A removed node is replaced by the last one, so removals move
+     * about twice the ideal share of keys.
+     */
+    JUMP,
+    /**
+     * Maglev lookup table (Eisenbud et al.): O(1) lookups through a prime-sized table of
+     * owner indices, at the cost of slightly more than the ideal remapping on changes.
+     */
+    MAGLEV,
+    /** Rendezvous / highest-random-weight hashing: O(nodes) per lookup, O(nodes) memory. */
+    RENDEZVOUS,
+    /**
+     * Multi-probe consistent hashing (Appleton &amp; O'Reilly): one point per node and
+     * several probes per key, giving vnode-like balance with a ring of nodes only.
+     */
+    MULTI_PROBE,
+    /**
+     * Two-level ring ({@link HierarchicalEngine}): a small top ring picks the node's group
+     * (region by default, see {@link ConsistentHashingBuilder#withGroupBy}), then that
+     * group's ring picks the node. Changes rebuild only the touched groups' rings.
+     */
+    HIERARCHICAL
+}
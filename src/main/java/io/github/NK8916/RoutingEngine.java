@@ -0,0 +1,84 @@
+package io.github.NK8916;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable routing state that maps key hashes to nodes. {@link ConsistentHashing} publishes
+ * one engine at a time; membership changes derive a new engine with the next version.
+ * Node indices returned by the index-based methods refer to {@link #getNodes()}.
+ *
+ * @see RoutingAlgorithm
+ */
+public interface RoutingEngine {
+
+    long getVersion();
+
+    int getNodeCount();
+
+    /** Nodes of this engine in index order (unmodifiable). */
+    List<Node> getNodes();
+
+    /** Approximate bytes held by the lookup structures, not counting {@code Node} objects. */
+    long getMemoryBytes();
+
+    /** Index into {@link #getNodes()} of the node owning {@code keyHash}. */
+    int routeIndex(long keyHash);
+
+    Node route(long keyHash);
+
+    /**
+     * Fills {@code out} with the first {@code out.length} distinct nodes for {@code keyHash},
+     * primary first, and returns how many were written (fewer only if there are fewer nodes).
+     */
+    int routeN(long keyHash,Node[] out);
+
+    /** Like {@link #routeN(long, Node[])} but writes indices into {@link #getNodes()}. */
+    int routeN(long keyHash,int[] out);
+
+    default Node[] routeN(long keyHash,int replicas){
+        Node[] out=new Node[Math.max(0,Math.min(replicas,getNodeCount()))];
+        int n=routeN(keyHash,out);
+        return n == out.length ? out : Arrays.copyOf(out,n);
+    }
+
+    default void routeBatch(long[] hashes,int[] out){
+        if (out.length < hashes.length) {
+            throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + hashes.length);
+        }
+        for (int i = 0; i < hashes.length; i++) out[i]=routeIndex(hashes[i]);
+    }
+
+    default void routeBatch(long[] hashes,Node[] out){
+        if (out.length < hashes.length) {
+            throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + hashes.length);
+        }
+        for (int i = 0; i < hashes.length; i++) out[i]=route(hashes[i]);
+    }
+
+    /** Engine with {@code nodes} joined (ids already present are ignored), published as {@code version}. */
+    RoutingEngine add(HashFunction hashFunction,Node[] nodes,long version);
+
+    /** Engine with {@code nodes} (matched by id) removed, published as {@code version}. */
+    RoutingEngine remove(HashFunction hashFunction,Node[] nodes,long version);
+
+    /**
+     * Engine with nodes replaced by the given objects (matched by id; unknown ids are ignored),
+     * published as {@code version}. Engines that honour {@link Node#getWeight()} rebalance
+     * only the keys affected by a changed weight.
+     */
+    RoutingEngine update(HashFunction hashFunction,Node[] nodes,long version);
+
+    /**
+     * Engine with {@code removed} taken out, then {@code added} joined, then {@code updated}
+     * replaced, published as {@code version}: the result of {@link #remove}, {@link #add} and
+     * {@link #update} in turn. Ring-based engines and Maglev build it in one pass without the
+     * intermediate engines; the default applies the three steps.
+     */
+    default RoutingEngine change(HashFunction hashFunction,Node[] removed,Node[] added,Node[] updated,long version){
+        RoutingEngine next=this;
+        if (removed.length > 0) next=next.remove(hashFunction,removed,version);
+        if (added.length > 0) next=next.add(hashFunction,added,version);
+        return updated.length > 0 || next == this ? next.update(hashFunction,updated,version) : next;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.NK8916;
+
+/**
+ * Secondary search structure a {@link RingSnapshot} builds over its sorted points.
+ */
+public enum SearchIndex {
+    /** Plain binary search over all points. */
+    NONE,
+    /**
+     * Table of bucket start offsets keyed by the top bits of the hash. A lookup reads one
+     * table entry pair and binary-searches only the few points inside that bucket,
+     * at a cost of about 4 bytes per point (capped at 2^24 buckets).
+     */
+    PREFIX_TABLE
+}
@@ -0,0 +1,17 @@
+package io.github.NK8916;
+
+/**
+ * Ring search steps that {@link VectorSupport} can hand to the {@code jdk.incubator.vector}
+ * kernels. The implementation lives in its own source root, compiled with the module, so the
+ * rest of the library builds and runs without it.
+ */
+interface SearchKernels {
+    /** 64-bit lanes per vector. */
+    int lanes();
+
+    /**
+     * Number of points in {@code [from, from+lanes())} that are unsigned-less than {@code key}.
+     * On a sorted window that is the key's lower bound relative to {@code from}.
+     */
+    int countBelow(long[] points,int from,long key);
+}
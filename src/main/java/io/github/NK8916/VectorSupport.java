@@ -0,0 +1,53 @@
+package io.github.NK8916;
+
+/**
+ * Whether batch paths use the {@code jdk.incubator.vector} kernels. They are used when the JVM
+ * runs with {@code --add-modules jdk.incubator.vector} and the platform has vectors of at least
+ * two 64-bit lanes; otherwise every batch path runs its scalar loop, with identical results.
+ *
+ * <p>{@code -Dio.github.NK8916.vector=false} forces the scalar paths, and
+ * {@code -Dio.github.NK8916.vectorBits=128|256|512} caps the vector width (never above the
+ * platform's preferred width). Lane-parallel hashing of numeric keys is opt-in with
+ * {@code -Dio.github.NK8916.vectorHash=true}: it needs several 64-bit multiplies per lane,
+ * which are slow on JDK 17's compiler, so there it measures slower than scalar code.
+ */
+public final class VectorSupport {
+    /** The loaded kernels, or null on the scalar paths. Batch paths check {@link #ENABLED} first. */
+    static final SearchKernels SEARCH = load();
+    private static final int LANES = SEARCH == null ? 1 : SEARCH.lanes();
+    static final boolean ENABLED = SEARCH != null;
+    private static final boolean HASHING = ENABLED && Boolean.getBoolean("io.github.NK8916.vectorHash");
+
+    private VectorSupport(){}
+
+    /** True when the vector kernels are in use. */
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    /** True when numeric-key batch hashing also uses the vector kernels. */
+    public static boolean isHashingEnabled(){
+        return HASHING;
+    }
+
+    /** 64-bit lanes per vector in use, or 1 on the scalar paths. */
+    public static int longLanes(){
+        return LANES;
+    }
+
+    /**
+     * The kernels are compiled separately with the module and looked up by name, so this class
+     * and everything that calls it load without it.
+     */
+    private static SearchKernels load(){
+        if ("false".equalsIgnoreCase(System.getProperty("io.github.NK8916.vector"))) return null;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            SearchKernels kernels=Class.forName("io.github.NK8916.VectorKernels")
+                    .asSubclass(SearchKernels.class).getDeclaredConstructor().newInstance();
+            return kernels.lanes() > 1 ? kernels : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.NK8916.hashImplementations;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Little-endian reads over a hash input, so each algorithm is written once and can run
+ * directly over a {@code byte[]}, a {@link ByteBuffer} or the chars of an ASCII {@link String}.
+ */
+abstract class ByteAccess<T> {
+
+    abstract long i64(T in, int off);
+
+    abstract long u32(T in, int off);
+
+    abstract int u8(T in, int off);
+
+    static final ByteAccess<byte[]> BYTE_ARRAY = new ByteAccess<>() {
+        private final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+        private final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+        @Override long i64(byte[] in, int off) {
+            return (long) LONG.get(in, off);
+        }
+
+        @Override long u32(byte[] in, int off) {
+            return ((int) INT.get(in, off)) & 0xFFFFFFFFL;
+        }
+
+        @Override int u8(byte[] in, int off) {
+            return in[off] & 0xFF;
+        }
+    };
+
+    /**
+     * Absolute reads of a heap or direct buffer, so its position is never moved; values are
+     * byte-swapped when the buffer's order is big-endian rather than changing the order.
+     */
+    static final ByteAccess<ByteBuffer> BUFFER = new ByteAccess<>() {
+        @Override long i64(ByteBuffer in, int off) {
+            long v = in.getLong(off);
+            return in.order() == ByteOrder.LITTLE_ENDIAN ? v : Long.reverseBytes(v);
+        }
+
+        @Override long u32(ByteBuffer in, int off) {
+            int v = in.getInt(off);
+            return (in.order() == ByteOrder.LITTLE_ENDIAN ? v : Integer.reverseBytes(v)) & 0xFFFFFFFFL;
+        }
+
+        @Override int u8(ByteBuffer in, int off) {
+            return in.get(off) & 0xFF;
+        }
+    };
+
+    /** Only valid for strings where every char is below 0x80, i.e. UTF-8 bytes equal chars. */
+    static final ByteAccess<String> ASCII_STRING = new ByteAccess<>() {
+        @Override long i64(String in, int off) {
+            return (long) in.charAt(off)
+                    | (long) in.charAt(off + 1) << 8
+                    | (long) in.charAt(off + 2) << 16
+                    | (long) in.charAt(off + 3) << 24
+                    | (long) in.charAt(off + 4) << 32
+                    | (long) in.charAt(off + 5) << 40
+                    | (long) in.charAt(off + 6) << 48
+                    | (long) in.charAt(off + 7) << 56;
+        }
+
+        @Override long u32(String in, int off) {
+            return (long) in.charAt(off)
+                    | (long) in.charAt(off + 1) << 8
+                    | (long) in.charAt(off + 2) << 16
+                    | (long) in.charAt(off + 3) << 24;
+        }
+
+        @Override int u8(String in, int off) {
+            return in.charAt(off);
+        }
+    };
+}
@@ -0,0 +1,84 @@
+package io.github.NK8916.hashImplementations;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps one {@link MessageDigest} and output buffer per thread, so digest-based hash functions
+ * neither look up a provider nor allocate on each call. The result is the first 8 digest bytes
+ * read big-endian, as {@code ByteBuffer.wrap(digest).getLong()} does.
+ */
+final class DigestHasher {
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final String algorithm;
+    private final ThreadLocal<State> state;
+
+    DigestHasher(String algorithm){
+        this.algorithm=algorithm;
+        this.state=ThreadLocal.withInitial(this::newState);
+        newState(); // fail fast on an unknown algorithm
+    }
+
+    long hash(String key){
+        byte[] buf=Utf8.scratch(key);
+        return hash(buf, 0, Utf8.encode(key, buf, 0));
+    }
+
+    long hash(byte[] bytes,int offset,int length){
+        State s=state.get();
+        s.md.update(bytes, offset, length);
+        return digest(s);
+    }
+
+    /** Digests the remaining bytes; {@link MessageDigest#update(ByteBuffer)} consumes them, so the position is put back. */
+    long hash(ByteBuffer bytes){
+        State s=state.get();
+        int pos=bytes.position();
+        s.md.update(bytes);
+        bytes.position(pos);
+        return digest(s);
+    }
+
+    /** Digests the key's 8 little-endian bytes, staged in the output buffer. */
+    long hash(long key){
+        State s=state.get();
+        LONG_LE.set(s.out, 0, key);
+        s.md.update(s.out, 0, 8);
+        return digest(s);
+    }
+
+    private long digest(State s){
+        try {
+            s.md.digest(s.out, 0, s.out.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(algorithm + " digest failed", e);
+        }
+        return (long) LONG_BE.get(s.out, 0);
+    }
+
+    private State newState(){
+        try {
+            MessageDigest md=MessageDigest.getInstance(algorithm);
+            return new State(md, new byte[md.getDigestLength()]);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(algorithm + " algorithm not found", e);
+        }
+    }
+
+    private static final class State {
+        final MessageDigest md;
+        final byte[] out;
+
+        State(MessageDigest md,byte[] out){
+            this.md=md;
+            this.out=out;
+        }
+    }
+}
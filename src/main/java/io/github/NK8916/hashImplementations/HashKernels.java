@@ -0,0 +1,28 @@
+package io.github.NK8916.hashImplementations;
+
+import io.github.NK8916.VectorSupport;
+
+/**
+ * Lane-parallel {@code hash(long)} kernels; each hashes whole vectors and returns how many keys
+ * it did, leaving the tail to the scalar method. The implementation lives in its own source
+ * root, compiled with {@code jdk.incubator.vector}, and is loaded only when
+ * {@link VectorSupport#isHashingEnabled()}.
+ */
+interface HashKernels {
+    /** The vector kernels, or null when hashing stays scalar. */
+    HashKernels LOADED = load();
+
+    int xxHash64(long[] keys,long[] out,int len,long seed);
+
+    int murmur3(long[] keys,long[] out,int len);
+
+    private static HashKernels load(){
+        if (!VectorSupport.isHashingEnabled()) return null;
+        try {
+            return Class.forName("io.github.NK8916.hashImplementations.LongHashKernels")
+                    .asSubclass(HashKernels.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -10,6 +10,14 @@ import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
 public class Murmur3HashFunction implements HashFunction{
+    /** Shared with {@link Murmur3x64HashFunction}, which places every key identically. */
+    static final String ID = Murmur3HashFunction.class.getName();
+
+    @Override
+    public String id(){
+        return ID;
+    }
+
     public long hash(String key){
         byte[] b = Hashing.murmur3_128(0).hashString(key, StandardCharsets.UTF_8).asBytes(); // 16 bytes
         long lo = ByteBuffer.wrap(b, 0, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
@@ -17,4 +25,24 @@ public class Murmur3HashFunction implements HashFunction{
         // mix both lanes; keep distribution but avoid lane-bias
         return lo ^ Long.rotateLeft(hi, 1);
     }
+
+    public long hash(byte[] bytes,int offset,int length){
+        return fold(Hashing.murmur3_128(0).hashBytes(bytes, offset, length).asBytes());
+    }
+
+    /** Hashes a duplicate, since Guava consumes the buffer's remaining bytes. */
+    public long hash(ByteBuffer utf8){
+        return fold(Hashing.murmur3_128(0).hashBytes(utf8.duplicate()).asBytes());
+    }
+
+    /** Guava's {@code hashLong} feeds the 8 little-endian bytes, as the interface requires. */
+    public long hash(long key){
+        return fold(Hashing.murmur3_128(0).hashLong(key).asBytes());
+    }
+
+    private static long fold(byte[] b){
+        long lo = ByteBuffer.wrap(b, 0, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        long hi = ByteBuffer.wrap(b, 8, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        return lo ^ Long.rotateLeft(hi, 1);
+    }
 }
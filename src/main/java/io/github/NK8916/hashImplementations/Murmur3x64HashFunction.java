@@ -0,0 +1,113 @@
+package io.github.NK8916.hashImplementations;
+
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.VectorSupport;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free MurmurHash3 x64 128-bit (seed 0) over the UTF-8 bytes of the key, folded
+ * to 64 bits exactly like {@link Murmur3HashFunction}. Rings built with either class are identical.
+ */
+public class Murmur3x64HashFunction implements HashFunction {
+    static final long C1 = 0x87c37b91114253d5L;
+    static final long C2 = 0x4cf5ad432745937fL;
+
+    /** Same id as {@link Murmur3HashFunction}: rings persisted or shared by one load under the other. */
+    @Override
+    public String id(){
+        return Murmur3HashFunction.ID;
+    }
+
+    public long hash(String key){
+        if (Utf8.isAscii(key)) {
+            return murmur3(ByteAccess.ASCII_STRING, key, 0, key.length());
+        }
+        byte[] buf=Utf8.scratch(key);
+        return murmur3(ByteAccess.BYTE_ARRAY, buf, 0, Utf8.encode(key, buf, 0));
+    }
+
+    public long hash(byte[] bytes,int offset,int length){
+        return murmur3(ByteAccess.BYTE_ARRAY, bytes, offset, length);
+    }
+
+    public long hash(ByteBuffer utf8){
+        int pos=utf8.position();
+        if (utf8.hasArray()) return murmur3(ByteAccess.BYTE_ARRAY, utf8.array(), utf8.arrayOffset() + pos, utf8.remaining());
+        return murmur3(ByteAccess.BUFFER, utf8, pos, utf8.remaining());
+    }
+
+    /** An 8-byte input is one tail block: k1 is the key itself and k2 is empty. */
+    public long hash(long key){
+        return finish(mixK1(key), 0, 8);
+    }
+
+    /** Lane-parallel when {@link VectorSupport#isHashingEnabled()}; the same values as {@link #hash(long)}. */
+    public void hash(long[] keys,long[] out){
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + keys.length);
+        }
+        int i=HashKernels.LOADED != null ? HashKernels.LOADED.murmur3(keys, out, keys.length) : 0;
+        for (; i < keys.length; i++) out[i]=hash(keys[i]);
+    }
+
+    static <T> long murmur3(ByteAccess<T> access,T in,int off,int len){
+        long h1=0, h2=0;
+        int p=off;
+        for (int end = off + (len & ~15); p < end; p += 16) {
+            long k1=access.i64(in, p);
+            long k2=access.i64(in, p + 8);
+            h1^=mixK1(k1);
+            h1=Long.rotateLeft(h1, 27);
+            h1+=h2;
+            h1=h1 * 5 + 0x52dce729;
+            h2^=mixK2(k2);
+            h2=Long.rotateLeft(h2, 31);
+            h2+=h1;
+            h2=h2 * 5 + 0x38495ab5;
+        }
+        int rem=len & 15;
+        if (rem > 0) {
+            long k1=0, k2=0;
+            for (int i = rem - 1; i >= 8; i--) k2=(k2 << 8) | access.u8(in, p + i);
+            for (int i = Math.min(rem, 8) - 1; i >= 0; i--) k1=(k1 << 8) | access.u8(in, p + i);
+            h1^=mixK1(k1);
+            h2^=mixK2(k2);
+        }
+        return finish(h1, h2, len);
+    }
+
+    private static long finish(long h1,long h2,int len){
+        h1^=len;
+        h2^=len;
+        h1+=h2;
+        h2+=h1;
+        h1=fmix64(h1);
+        h2=fmix64(h2);
+        h1+=h2;
+        h2+=h1;
+        // same lane folding as Murmur3HashFunction
+        return h1 ^ Long.rotateLeft(h2, 1);
+    }
+
+    private static long mixK1(long k1){
+        k1*=C1;
+        k1=Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2){
+        k2*=C2;
+        k2=Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    static long fmix64(long k){
+        k^=k >>> 33;
+        k*=0xff51afd7ed558ccdL;
+        k^=k >>> 33;
+        k*=0xc4ceb9fe1a85ec53L;
+        k^=k >>> 33;
+        return k;
+    }
+}
@@ -2,21 +2,24 @@ package io.github.NK8916.hashImplementations;
 
 import io.github.NK8916.HashFunction;
 
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 public class SHA1HashFunction implements HashFunction {
+    private final DigestHasher digest=new DigestHasher("SHA-1");
+
     public long hash(String key){
-        try{
-            MessageDigest md=MessageDigest.getInstance("SHA-1");
-            byte[] bytes=md.digest(key.getBytes(StandardCharsets.UTF_8));
-            ByteBuffer buffer = ByteBuffer.wrap(bytes);
-            return buffer.getLong();
-        }catch (NoSuchAlgorithmException e){
-            throw new RuntimeException("MD5 algorithm not found", e);
-        }
+        return digest.hash(key);
+    }
+
+    public long hash(byte[] bytes,int offset,int length){
+        return digest.hash(bytes, offset, length);
+    }
+
+    public long hash(ByteBuffer utf8){
+        return digest.hash(utf8);
+    }
+
+    public long hash(long key){
+        return digest.hash(key);
     }
 }
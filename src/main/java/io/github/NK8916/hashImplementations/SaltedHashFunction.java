@@ -0,0 +1,56 @@
+package io.github.NK8916.hashImplementations;
+
+import io.github.NK8916.HashFunction;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Another function salted per keyspace, for functions without a seed (or to derive one from a
+ * name): every hash is the inner hash mixed with the salt's own hash through the Murmur3
+ * finalizer, a bijection, so the spread of the inner function is kept while two salts place
+ * the same key independently. The id carries the salt, so salted rings never share a snapshot
+ * or load one persisted under another salt.
+ */
+public class SaltedHashFunction implements HashFunction {
+    private final HashFunction inner;
+    private final String salt;
+    private final long saltHash;
+
+    public SaltedHashFunction(HashFunction inner,String salt){
+        this.inner=Objects.requireNonNull(inner,"inner");
+        this.salt=Objects.requireNonNull(salt,"salt");
+        this.saltHash=inner.hash(salt);
+    }
+
+    @Override
+    public String id(){
+        return inner.id() + "+salt(" + salt + ")";
+    }
+
+    public long hash(String key){
+        return mix(inner.hash(key));
+    }
+
+    public long hash(byte[] bytes,int offset,int length){
+        return mix(inner.hash(bytes, offset, length));
+    }
+
+    public long hash(ByteBuffer utf8){
+        return mix(inner.hash(utf8));
+    }
+
+    public long hash(long key){
+        return mix(inner.hash(key));
+    }
+
+    /** Keeps the inner function's batch kernels, then salts in place. */
+    public void hash(long[] keys,long[] out){
+        inner.hash(keys, out);
+        for (int i = 0; i < keys.length; i++) out[i]=mix(out[i]);
+    }
+
+    private long mix(long h){
+        return Murmur3x64HashFunction.fmix64(h ^ saltHash);
+    }
+}
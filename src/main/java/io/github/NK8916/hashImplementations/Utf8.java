@@ -0,0 +1,58 @@
+package io.github.NK8916.hashImplementations;
+
+/**
+ * UTF-8 helpers that reproduce {@code String.getBytes(StandardCharsets.UTF_8)} byte for byte
+ * (including '?' for unpaired surrogates) into a reusable per-thread buffer.
+ */
+final class Utf8 {
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private Utf8(){}
+
+    static boolean isAscii(String s){
+        for (int i = 0, n = s.length(); i < n; i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /** Encodes {@code s} into the calling thread's scratch buffer, which is returned; see {@link #encode}. */
+    static byte[] scratch(String s){
+        byte[] buf=SCRATCH.get();
+        int max=s.length() * 3;
+        if (buf.length < max) {
+            buf=new byte[Math.max(max, buf.length * 2)];
+            SCRATCH.set(buf);
+        }
+        return buf;
+    }
+
+    /** Writes the UTF-8 form of {@code s} to {@code dst} at {@code off}, returning the byte count. */
+    static int encode(String s,byte[] dst,int off){
+        int p=off;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c=s.charAt(i);
+            if (c < 0x80) {
+                dst[p++]=(byte) c;
+            } else if (c < 0x800) {
+                dst[p++]=(byte) (0xC0 | (c >> 6));
+                dst[p++]=(byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp=Character.toCodePoint(c, s.charAt(++i));
+                    dst[p++]=(byte) (0xF0 | (cp >> 18));
+                    dst[p++]=(byte) (0x80 | ((cp >> 12) & 0x3F));
+                    dst[p++]=(byte) (0x80 | ((cp >> 6) & 0x3F));
+                    dst[p++]=(byte) (0x80 | (cp & 0x3F));
+                } else {
+                    dst[p++]=(byte) '?';
+                }
+            } else {
+                dst[p++]=(byte) (0xE0 | (c >> 12));
+                dst[p++]=(byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[p++]=(byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return p-off;
+    }
+}
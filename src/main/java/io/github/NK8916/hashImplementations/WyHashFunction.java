@@ -0,0 +1,114 @@
+package io.github.NK8916.hashImplementations;
+
+import io.github.NK8916.HashFunction;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free wyhash (version 3) over the UTF-8 bytes of the key.
+ */
+public class WyHashFunction implements HashFunction {
+    private static final long P0 = 0xa0761d6478bd642fL;
+    private static final long P1 = 0xe7037ed1a0b428dbL;
+    private static final long P2 = 0x8ebc6af09c88c6e3L;
+    private static final long P3 = 0x589965cc75374cc3L;
+    private static final long P4 = 0x1d8e4e27c47d124fL;
+
+    private final long seed;
+
+    public WyHashFunction(){
+        this(0L);
+    }
+
+    public WyHashFunction(long seed){
+        this.seed=seed;
+    }
+
+    @Override
+    public String id(){
+        return getClass().getName() + "(seed=" + seed + ")";
+    }
+
+    public long hash(String key){
+        if (Utf8.isAscii(key)) {
+            return wyHash(ByteAccess.ASCII_STRING, key, 0, key.length(), seed);
+        }
+        byte[] buf=Utf8.scratch(key);
+        return wyHash(ByteAccess.BYTE_ARRAY, buf, 0, Utf8.encode(key, buf, 0), seed);
+    }
+
+    public long hash(byte[] bytes,int offset,int length){
+        return wyHash(ByteAccess.BYTE_ARRAY, bytes, offset, length, seed);
+    }
+
+    public long hash(ByteBuffer utf8){
+        int pos=utf8.position();
+        if (utf8.hasArray()) return wyHash(ByteAccess.BYTE_ARRAY, utf8.array(), utf8.arrayOffset() + pos, utf8.remaining(), seed);
+        return wyHash(ByteAccess.BUFFER, utf8, pos, utf8.remaining(), seed);
+    }
+
+    /** The 4..8-byte case over the key's low and high 32-bit halves. */
+    public long hash(long key){
+        return mum(mum((key & 0xFFFFFFFFL) ^ seed ^ P0, (key >>> 32) ^ seed ^ P1) ^ seed, 8 ^ P4);
+    }
+
+    static <T> long wyHash(ByteAccess<T> access,T in,int off,int len,long seed){
+        if (len <= 0) {
+            return 0;
+        } else if (len < 4) {
+            return mum(mum(r3(access, in, off, len) ^ seed ^ P0, seed ^ P1) ^ seed, len ^ P4);
+        } else if (len <= 8) {
+            return mum(mum(access.u32(in, off) ^ seed ^ P0, access.u32(in, off + len - 4) ^ seed ^ P1) ^ seed, len ^ P4);
+        } else if (len <= 16) {
+            return mum(mum(r64r32(access, in, off) ^ seed ^ P0, r64r32(access, in, off + len - 8) ^ seed ^ P1) ^ seed, len ^ P4);
+        } else if (len <= 24) {
+            return mum(mum(r64r32(access, in, off) ^ seed ^ P0, r64r32(access, in, off + 8) ^ seed ^ P1)
+                    ^ mum(r64r32(access, in, off + len - 8) ^ seed ^ P2, seed ^ P3), len ^ P4);
+        } else if (len <= 32) {
+            return mum(mum(r64r32(access, in, off) ^ seed ^ P0, r64r32(access, in, off + 8) ^ seed ^ P1)
+                    ^ mum(r64r32(access, in, off + 16) ^ seed ^ P2, r64r32(access, in, off + len - 8) ^ seed ^ P3), len ^ P4);
+        }
+        long see1=seed;
+        int i=len, p=off;
+        for (; i > 256; i -= 256, p += 256) {
+            for (int b = p; b < p + 256; b += 64) {
+                seed=mum(access.i64(in, b) ^ seed ^ P0, access.i64(in, b + 8) ^ seed ^ P1)
+                        ^ mum(access.i64(in, b + 16) ^ seed ^ P2, access.i64(in, b + 24) ^ seed ^ P3);
+                see1=mum(access.i64(in, b + 32) ^ see1 ^ P1, access.i64(in, b + 40) ^ see1 ^ P2)
+                        ^ mum(access.i64(in, b + 48) ^ see1 ^ P3, access.i64(in, b + 56) ^ see1 ^ P0);
+            }
+        }
+        for (; i > 32; i -= 32, p += 32) {
+            seed=mum(access.i64(in, p) ^ seed ^ P0, access.i64(in, p + 8) ^ seed ^ P1);
+            see1=mum(access.i64(in, p + 16) ^ see1 ^ P2, access.i64(in, p + 24) ^ see1 ^ P3);
+        }
+        if (i < 4) {
+            seed=mum(r3(access, in, p, i) ^ seed ^ P0, seed ^ P1);
+        } else if (i <= 8) {
+            seed=mum(access.u32(in, p) ^ seed ^ P0, access.u32(in, p + i - 4) ^ seed ^ P1);
+        } else if (i <= 16) {
+            seed=mum(r64r32(access, in, p) ^ seed ^ P0, r64r32(access, in, p + i - 8) ^ seed ^ P1);
+        } else if (i <= 24) {
+            seed=mum(r64r32(access, in, p) ^ seed ^ P0, r64r32(access, in, p + 8) ^ seed ^ P1);
+            see1=mum(r64r32(access, in, p + i - 8) ^ see1 ^ P2, see1 ^ P3);
+        } else {
+            seed=mum(r64r32(access, in, p) ^ seed ^ P0, r64r32(access, in, p + 8) ^ seed ^ P1);
+            see1=mum(r64r32(access, in, p + 16) ^ see1 ^ P2, r64r32(access, in, p + i - 8) ^ see1 ^ P3);
+        }
+        return mum(seed ^ see1, len ^ P4);
+    }
+
+    /** 64x64→128 unsigned multiply, folded by xor-ing the halves. */
+    private static long mum(long a,long b){
+        long hi=Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+        return (a * b) ^ hi;
+    }
+
+    private static <T> long r3(ByteAccess<T> access,T in,int off,int k){
+        return ((long) access.u8(in, off) << 16) | ((long) access.u8(in, off + (k >>> 1)) << 8) | access.u8(in, off + k - 1);
+    }
+
+    private static <T> long r64r32(ByteAccess<T> access,T in,int off){
+        return (access.u32(in, off) << 32) | access.u32(in, off + 4);
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.NK8916.hashImplementations;
+
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.VectorSupport;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free xxHash64 over the UTF-8 bytes of the key.
+ */
+public class XxHash64HashFunction implements HashFunction {
+    static final long P1 = 0x9E3779B185EBCA87L;
+    static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    static final long P3 = 0x165667B19E3779F9L;
+    static final long P4 = 0x85EBCA77C2B2AE63L;
+    static final long P5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+
+    public XxHash64HashFunction(){
+        this(0L);
+    }
+
+    public XxHash64HashFunction(long seed){
+        this.seed=seed;
+    }
+
+    @Override
+    public String id(){
+        return getClass().getName() + "(seed=" + seed + ")";
+    }
+
+    public long hash(String key){
+        if (Utf8.isAscii(key)) {
+            return xxHash64(ByteAccess.ASCII_STRING, key, 0, key.length(), seed);
+        }
+        byte[] buf=Utf8.scratch(key);
+        return xxHash64(ByteAccess.BYTE_ARRAY, buf, 0, Utf8.encode(key, buf, 0), seed);
+    }
+
+    public long hash(byte[] bytes,int offset,int length){
+        return xxHash64(ByteAccess.BYTE_ARRAY, bytes, offset, length, seed);
+    }
+
+    public long hash(ByteBuffer utf8){
+        int pos=utf8.position();
+        if (utf8.hasArray()) return xxHash64(ByteAccess.BYTE_ARRAY, utf8.array(), utf8.arrayOffset() + pos, utf8.remaining(), seed);
+        return xxHash64(ByteAccess.BUFFER, utf8, pos, utf8.remaining(), seed);
+    }
+
+    /** An 8-byte input skips the stripe loop and is a single 8-byte tail round. */
+    public long hash(long key){
+        long h=seed + P5 + 8;
+        h^=round(0, key);
+        return avalanche(Long.rotateLeft(h, 27) * P1 + P4);
+    }
+
+    /** Lane-parallel when {@link VectorSupport#isHashingEnabled()}; the same values as {@link #hash(long)}. */
+    public void hash(long[] keys,long[] out){
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output holds " + out.length + " entries, batch has " + keys.length);
+        }
+        int i=HashKernels.LOADED != null ? HashKernels.LOADED.xxHash64(keys, out, keys.length, seed) : 0;
+        for (; i < keys.length; i++) out[i]=hash(keys[i]);
+    }
+
+    static <T> long xxHash64(ByteAccess<T> access,T in,int off,int len,long seed){
+        long h;
+        int p=off;
+        int end=off + len;
+        if (len >= 32) {
+            long v1=seed + P1 + P2;
+            long v2=seed + P2;
+            long v3=seed;
+            long v4=seed - P1;
+            for (int limit = end - 32; p <= limit; p += 32) {
+                v1=round(v1, access.i64(in, p));
+                v2=round(v2, access.i64(in, p + 8));
+                v3=round(v3, access.i64(in, p + 16));
+                v4=round(v4, access.i64(in, p + 24));
+            }
+            h=Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h=mergeRound(h, v1);
+            h=mergeRound(h, v2);
+            h=mergeRound(h, v3);
+            h=mergeRound(h, v4);
+        } else {
+            h=seed + P5;
+        }
+        h+=len;
+        for (; p + 8 <= end; p += 8) {
+            h^=round(0, access.i64(in, p));
+            h=Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (p + 4 <= end) {
+            h^=access.u32(in, p) * P1;
+            h=Long.rotateLeft(h, 23) * P2 + P3;
+            p+=4;
+        }
+        for (; p < end; p++) {
+            h^=access.u8(in, p) * P5;
+            h=Long.rotateLeft(h, 11) * P1;
+        }
+        return avalanche(h);
+    }
+
+    private static long avalanche(long h){
+        h^=h >>> 33;
+        h*=P2;
+        h^=h >>> 29;
+        h*=P3;
+        h^=h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc,long input){
+        acc+=input * P2;
+        acc=Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc,long val){
+        acc^=round(0, val);
+        return acc * P1 + P4;
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.NK8916;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Ring search kernels on {@code jdk.incubator.vector}, compiled on their own with the module
+ * and loaded reflectively by {@link VectorSupport}: without the module this class fails to load.
+ */
+final class VectorKernels implements SearchKernels {
+    static final VectorSpecies<Long> SPECIES = species(Integer.getInteger("io.github.NK8916.vectorBits",0));
+
+    VectorKernels(){}
+
+    public int lanes(){
+        return SPECIES.length();
+    }
+
+    /** One unsigned compare over the window and a popcount, instead of a branch per halving step. */
+    public int countBelow(long[] points,int from,long key){
+        return LongVector.fromArray(SPECIES,points,from)
+                .compare(VectorOperators.UNSIGNED_LT,key)
+                .trueCount();
+    }
+
+    private static VectorSpecies<Long> species(int bits){
+        VectorSpecies<Long> preferred=LongVector.SPECIES_PREFERRED;
+        if (bits <= 0 || bits >= preferred.vectorBitSize()) return preferred;
+        return VectorSpecies.of(long.class,VectorShape.forBitSize(Math.max(bits,128)));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.NK8916.hashImplementations;
+
+import io.github.NK8916.VectorSupport;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.ROL;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * Lane-parallel {@code hash(long)} of the functions whose 8-byte path is plain 64-bit
+ * arithmetic, one key per lane. Each kernel hashes whole vectors and returns how many keys
+ * it did; the caller finishes the tail with the scalar method. Compiled on its own with the
+ * module and loaded reflectively by {@link HashKernels} when
+ * {@link VectorSupport#isHashingEnabled()}: without the module this class fails to load.
+ */
+final class LongHashKernels implements HashKernels {
+    private static final VectorSpecies<Long> SPECIES =
+            VectorSpecies.of(long.class, VectorShape.forBitSize(VectorSupport.longLanes() * 64));
+
+    LongHashKernels(){}
+
+    /** {@link XxHash64HashFunction#hash(long)}: one 8-byte tail round, then the avalanche. */
+    public int xxHash64(long[] keys,long[] out,int len,long seed){
+        int bound=SPECIES.loopBound(len);
+        long start=seed + XxHash64HashFunction.P5 + 8;
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector k=LongVector.fromArray(SPECIES, keys, i);
+            LongVector h=k.mul(XxHash64HashFunction.P2).lanewise(ROL, 31).mul(XxHash64HashFunction.P1)
+                    .lanewise(XOR, start);
+            h=h.lanewise(ROL, 27).mul(XxHash64HashFunction.P1).add(XxHash64HashFunction.P4);
+            h=h.lanewise(XOR, h.lanewise(LSHR, 33)).mul(XxHash64HashFunction.P2);
+            h=h.lanewise(XOR, h.lanewise(LSHR, 29)).mul(XxHash64HashFunction.P3);
+            h.lanewise(XOR, h.lanewise(LSHR, 32)).intoArray(out, i);
+        }
+        return bound;
+    }
+
+    /** {@link Murmur3x64HashFunction#hash(long)}: k1 is the key, k2 is empty, then the 128-bit finish. */
+    public int murmur3(long[] keys,long[] out,int len){
+        int bound=SPECIES.loopBound(len);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector k=LongVector.fromArray(SPECIES, keys, i);
+            LongVector h1=k.mul(Murmur3x64HashFunction.C1).lanewise(ROL, 31).mul(Murmur3x64HashFunction.C2)
+                    .lanewise(XOR, 8L).add(8L);
+            LongVector h2=h1.add(8L);
+            h1=fmix64(h1);
+            h2=fmix64(h2);
+            h1=h1.add(h2);
+            h2=h2.add(h1);
+            h1.lanewise(XOR, h2.lanewise(ROL, 1)).intoArray(out, i);
+        }
+        return bound;
+    }
+
+    private static LongVector fmix64(LongVector k){
+        k=k.lanewise(XOR, k.lanewise(LSHR, 33)).mul(0xff51afd7ed558ccdL);
+        k=k.lanewise(XOR, k.lanewise(LSHR, 33)).mul(0xc4ceb9fe1a85ec53L);
+        return k.lanewise(XOR, k.lanewise(LSHR, 33));
+    }
+}
@@ -0,0 +1,62 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.RingBalance;
+import io.github.NK8916.RingLayout;
+import io.github.NK8916.RingSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RingBalance#of(RingSnapshot)} on a large ring, and a build that tunes its vnode
+ * count for a target imbalance against one with a fixed folklore count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceBenchmark {
+
+    @Param({"1000"})
+    int nodeCount;
+
+    RingSnapshot ring;
+
+    @Setup
+    public void setup() {
+        ring = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withVNodes(1000)
+                .withLayout(RingLayout.COMPACT)
+                .build().debugSnapshot();
+    }
+
+    @Benchmark
+    public RingBalance analyze() {
+        return RingBalance.of(ring);
+    }
+
+    @Benchmark
+    public ConsistentHashing buildTuned() {
+        return new ConsistentHashingBuilder()
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withTargetImbalance(1.15)
+                .build();
+    }
+
+    @Benchmark
+    public ConsistentHashing buildFixed3000() {
+        return new ConsistentHashingBuilder()
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withVNodes(3000)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.Node;
+import io.github.NK8916.SearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-key cost of {@link ConsistentHashing#routeBatch} against the single-key loop it replaces;
+ * {@code batchHashes} skips hashing to show routing alone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchLookupBenchmark {
+    static final int BATCH = 4096;
+
+    @Param({"100", "10000"})
+    int nodeCount;
+
+    @Param({"100", "1000"})
+    int vNodes;
+
+    @Param({"NONE", "PREFIX_TABLE"})
+    SearchIndex searchIndex;
+
+    ConsistentHashing router;
+    String[] keys;
+    long[] hashes;
+
+    @State(Scope.Thread)
+    public static class Out {
+        final Node[] nodes = new Node[BATCH];
+        final int[] indices = new int[BATCH];
+    }
+
+    @Setup
+    public void setup() {
+        HashFunction hashFunction = HashKind.MURMUR3_X64.create();
+        router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(hashFunction)
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withVNodes(vNodes)
+                .withSearchIndex(searchIndex)
+                .build();
+        keys = Arrays.copyOf(BenchmarkData.keys(42), BATCH);
+        hashes = new long[BATCH];
+        for (int i = 0; i < BATCH; i++) hashes[i] = hashFunction.hash(keys[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Node[] singleKeyLoop(Out out) {
+        for (int i = 0; i < BATCH; i++) out.nodes[i] = router.getNodeForKey(keys[i]);
+        return out.nodes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Node[] batchNodes(Out out) {
+        router.routeBatch(keys, out.nodes);
+        return out.nodes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] batchIndices(Out out) {
+        router.routeBatch(keys, out.indices);
+        return out.indices;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] batchHashes(Out out) {
+        router.routeBatch(hashes, out.indices);
+        return out.indices;
+    }
+}
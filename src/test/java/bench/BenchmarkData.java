@@ -0,0 +1,50 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Node;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic nodes and keys shared by the JMH benchmarks, and the plain nodes and
+ * builder shared by the tests.
+ */
+final class BenchmarkData {
+    static final int KEY_POOL = 1 << 16; // power of two: index with a mask
+
+    private BenchmarkData() {}
+
+    static Node[] nodes(int count) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new Node("node-" + i, "10.0." + (i >> 8 & 0xFF) + "." + (i & 0xFF), 8080,
+                    "region-" + (i % 4), Map.of("rack", "rack-" + (i % 10)));
+        }
+        return nodes;
+    }
+
+    /** N0..N{count-1} at 10.0.0.i:8080 in one region, no metadata; tests assert on these ids. */
+    static Node[] plainNodes(int count) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of());
+        }
+        return nodes;
+    }
+
+    /** Murmur3 x64 ring over {@code nodes}; tests add the algorithm or options they need. */
+    static ConsistentHashingBuilder builder(Node[] nodes, int vNodes) {
+        return new ConsistentHashingBuilder().withHash(new Murmur3x64HashFunction()).withNodes(nodes).withVNodes(vNodes);
+    }
+
+    static String[] keys(long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        String[] keys = new String[KEY_POOL];
+        for (int i = 0; i < KEY_POOL; i++) {
+            keys[i] = "user:" + Long.toUnsignedString(rng.nextLong(), 36);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Lease;
+import io.github.NK8916.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConsistentHashing#acquire(String)} plus release from several threads, against
+ * plain {@link ConsistentHashing#getNodeForKey(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class BoundedLoadBenchmark {
+
+    @Param({"100"})
+    int nodeCount;
+
+    ConsistentHashing router;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withVNodes(160)
+                .withBoundedLoads(0.25)
+                .build();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    public Node acquireRelease(Cursor cursor) {
+        try (Lease lease = router.acquire(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)])) {
+            return lease.getNode();
+        }
+    }
+
+    @Benchmark
+    public Node getNodeForKey(Cursor cursor) {
+        return router.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+}
@@ -0,0 +1,187 @@
+package bench;
+
+import io.github.NK8916.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static bench.BenchmarkData.plainNodes;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Under Zipfian traffic the max/avg in-flight load stays within 1+ε, where plain routing does not
+ * 2) Concurrent acquire/release keeps the bound (up to racing threads) and returns every lease while nodes join and leave
+ *
+ * Notes:
+ * - Traffic keeps a fixed window of in-flight leases, releasing a random one per acquire.
+ */
+public class BoundedLoadTests {
+
+    static final double EPSILON = 0.25;
+
+    /** Zipf(s) over {@code keys} distinct keys by inverse CDF. */
+    static final class Zipf {
+        final double[] cdf;
+        final SplittableRandom rng;
+
+        Zipf(int keys, double s, long seed) {
+            cdf = new double[keys];
+            double sum = 0;
+            for (int i = 0; i < keys; i++) cdf[i] = sum += 1 / Math.pow(i + 1, s);
+            for (int i = 0; i < keys; i++) cdf[i] /= sum;
+            rng = new SplittableRandom(seed);
+        }
+
+        String next() {
+            int i = Arrays.binarySearch(cdf, rng.nextDouble());
+            return "key-" + (i < 0 ? -i - 1 : i);
+        }
+    }
+
+    static double maxOverAvg(Collection<Long> loads) {
+        long max = 0, sum = 0;
+        for (long l : loads) { max = Math.max(max, l); sum += l; }
+        return sum == 0 ? 0 : max / (sum / (double) loads.size());
+    }
+
+    /**
+     * Leases the busiest node holds above {@code (1+ε) · inFlight / nodes}; {@code inFlight}
+     * also counts leases still held on nodes that have left.
+     */
+    static double overshoot(Collection<Long> loads, long inFlight, int nodes) {
+        long max = 0;
+        for (long l : loads) max = Math.max(max, l);
+        return max - (1 + EPSILON) * inFlight / nodes;
+    }
+
+    // ---------- 1) Zipfian simulation ----------
+    @Test
+    void bounded_loads_cap_hot_spots() {
+        int nodeCount = 20, window = 2_000;
+        ConsistentHashing router = BenchmarkData.builder(plainNodes(nodeCount), 160).withBoundedLoads(EPSILON).build();
+        Zipf zipf = new Zipf(10_000, 1.1, 42);
+        SplittableRandom rng = new SplittableRandom(7);
+        List<Lease> inFlight = new ArrayList<>();
+        Map<String, Long> unbounded = new HashMap<>();
+        List<String> inFlightOwners = new ArrayList<>();
+
+        double worstBounded = 0, worstUnbounded = 0;
+        for (int step = 0; step < 200_000; step++) {
+            String key = zipf.next();
+            Lease lease = router.acquire(key);
+            inFlight.add(lease);
+            String owner = router.getNodeForKey(key).getId();
+            unbounded.merge(owner, 1L, Long::sum);
+            inFlightOwners.add(owner);
+            if (inFlight.size() > window) {
+                int victim = rng.nextInt(inFlight.size());
+                inFlight.set(victim, inFlight.get(inFlight.size() - 1)).release();
+                inFlight.remove(inFlight.size() - 1);
+                unbounded.merge(inFlightOwners.set(victim, inFlightOwners.get(inFlightOwners.size() - 1)), -1L, Long::sum);
+                inFlightOwners.remove(inFlightOwners.size() - 1);
+            }
+            if (step >= window && step % 100 == 0) {
+                Map<String, Long> loads = router.getLoads();
+                worstBounded = Math.max(worstBounded, maxOverAvg(loads.values()));
+                Map<String, Long> plain = new HashMap<>();
+                for (String id : loads.keySet()) plain.put(id, unbounded.getOrDefault(id, 0L));
+                worstUnbounded = Math.max(worstUnbounded, maxOverAvg(plain.values()));
+            }
+        }
+        System.out.printf("Zipf max/avg in-flight: bounded=%.3f  unbounded=%.3f  (1+eps=%.2f)%n",
+                worstBounded, worstUnbounded, 1 + EPSILON);
+
+        // ceil() and one release between acquires allow one lease above (1+eps)*avg
+        assertTrue(worstBounded <= 1 + EPSILON + 2.0 * nodeCount / window, "Bounded max/avg " + worstBounded);
+        assertTrue(worstUnbounded > 1.5, "Traffic is not skewed enough to test anything");
+
+        inFlight.forEach(Lease::release);
+        inFlight.get(0).release(); // releasing twice is a no-op
+        assertTrue(router.getLoads().values().stream().allMatch(l -> l == 0));
+    }
+
+    // ---------- 2) Concurrency ----------
+    @Test
+    void concurrent_acquire_release_keeps_bound() throws Exception {
+        int nodeCount = 16, threads = 8, perThreadWindow = 200;
+        ConsistentHashing router = BenchmarkData.builder(plainNodes(nodeCount), 160).withBoundedLoads(EPSILON).build();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1), finished = new CountDownLatch(threads);
+        // acquires and membership changes race each other freely; a sample waits for in-progress
+        // steps so it reads a consistent set of loads and in-flight count
+        ReadWriteLock gate = new ReentrantReadWriteLock();
+        AtomicLong inFlight = new AtomicLong();
+        List<Future<Double>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(pool.submit(() -> {
+                Zipf zipf = new Zipf(10_000, 1.1, seed);
+                ArrayDeque<Lease> mine = new ArrayDeque<>();
+                double worst = Double.NEGATIVE_INFINITY;
+                start.await();
+                for (int i = 0; i < 50_000; i++) {
+                    gate.readLock().lock();
+                    try {
+                        mine.add(router.acquire(zipf.next()));
+                        inFlight.incrementAndGet();
+                        if (mine.size() > perThreadWindow) {
+                            mine.poll().release();
+                            inFlight.decrementAndGet();
+                        }
+                    } finally {
+                        gate.readLock().unlock();
+                    }
+                    if (i > perThreadWindow && i % 500 == 0) {
+                        gate.writeLock().lock();
+                        try {
+                            // membership flips between nodeCount and nodeCount + 1: every lease was
+                            // placed under a capacity at most that of nodeCount nodes
+                            worst = Math.max(worst, overshoot(router.getLoads().values(), inFlight.get(), nodeCount));
+                        } finally {
+                            gate.writeLock().unlock();
+                        }
+                    }
+                }
+                // drain only once every thread stops sampling: the bound holds at acquire time,
+                // and a shrinking total would make earlier placements look overloaded
+                finished.countDown();
+                finished.await();
+                mine.forEach(Lease::release);
+                return worst;
+            }));
+        }
+        // membership changes while leases are outstanding must not lose counters: X and N3 take
+        // turns leaving, so the router holds nodeCount or nodeCount + 1 nodes throughout
+        Node x = new Node("X", "10.0.1.1", 8080, "ap-south-1", Map.of());
+        Node n3 = new Node("N3", "10.0.0.3", 8080, "ap-south-1", Map.of());
+        List<Runnable> churn = List.of(() -> router.addNodes(x), () -> router.removeNodes(n3),
+                () -> router.addNodes(n3), () -> router.removeNodes(x));
+        start.countDown();
+        int changes = 0;
+        while (finished.getCount() > 0) {
+            gate.readLock().lock();
+            try {
+                churn.get(changes++ % churn.size()).run();
+            } finally {
+                gate.readLock().unlock();
+            }
+            Thread.sleep(1);
+        }
+        double worst = Double.NEGATIVE_INFINITY;
+        for (Future<Double> f : results) worst = Math.max(worst, f.get(60, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        // ceil() allows one lease above the bound and each racing acquirer one more
+        System.out.printf("Concurrent overshoot above (1+eps)*avg: %.2f leases over %d membership changes%n", worst, changes);
+        assertTrue(changes >= churn.size(), "Membership changed only " + changes + " times");
+        assertTrue(worst <= threads + 1, "Concurrent overshoot " + worst);
+        assertTrue(router.getLoads().values().stream().allMatch(l -> l == 0), "Leases leaked: " + router.getLoads());
+        assertThrows(IllegalStateException.class,
+                () -> BenchmarkData.builder(plainNodes(2), 10).build().acquire("k"));
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.Node;
+import io.github.NK8916.RingLayout;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full ring construction through {@link ConsistentHashingBuilder#build()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildBenchmark {
+
+    @Param({"100", "1000"})
+    int nodeCount;
+
+    @Param({"100", "1000"})
+    int vNodes;
+
+    @Param({"MURMUR3", "MURMUR3_X64", "XXHASH64"})
+    HashKind hash;
+
+    @Param({"REFERENCES", "COMPACT"})
+    RingLayout layout;
+
+    /** 0 means one thread per available processor. */
+    @Param({"1", "0"})
+    int parallelism;
+
+    Node[] nodes;
+    HashFunction hashFunction;
+
+    @Setup
+    public void setup() {
+        nodes = BenchmarkData.nodes(nodeCount);
+        hashFunction = hash.create();
+        if (parallelism == 0) parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Benchmark
+    public ConsistentHashing build() {
+        return new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(hashFunction)
+                .withNodes(nodes)
+                .withVNodes(vNodes)
+                .withLayout(layout)
+                .withParallelism(parallelism)
+                .build();
+    }
+}
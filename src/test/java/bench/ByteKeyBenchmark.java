@@ -0,0 +1,84 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing keys that arrive as bytes in a direct {@link ByteBuffer} (as a network layer holds
+ * them): decoding each into a {@code String} first, routing the buffer in place, and routing
+ * a numeric key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ByteKeyBenchmark {
+
+    @Param({"MURMUR3_X64", "XXHASH64"})
+    HashKind hash;
+
+    ConsistentHashing router;
+    /** All keys back to back in one direct buffer; each lookup reads a slice of it. */
+    ByteBuffer keys;
+    int[] offsets;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        ByteBuffer view;
+
+        @Setup
+        public void setup(ByteKeyBenchmark b) {
+            view = b.keys.duplicate();
+        }
+
+        ByteBuffer next(int[] offsets) {
+            int i = next++ & (BenchmarkData.KEY_POOL - 1);
+            view.limit(offsets[i + 1]).position(offsets[i]);
+            return view;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        HashFunction hashFunction = hash.create();
+        router = new ConsistentHashingBuilder()
+                .withVersion(1).withHash(hashFunction).withNodes(BenchmarkData.nodes(100)).withVNodes(160)
+                .build();
+        String[] strings = BenchmarkData.keys(42);
+        offsets = new int[strings.length + 1];
+        int total = 0;
+        for (int i = 0; i < strings.length; i++) {
+            offsets[i] = total;
+            total += strings[i].getBytes(StandardCharsets.UTF_8).length;
+        }
+        offsets[strings.length] = total;
+        keys = ByteBuffer.allocateDirect(total);
+        for (String s : strings) keys.put(s.getBytes(StandardCharsets.UTF_8));
+        keys.clear();
+    }
+
+    @Benchmark
+    public Node decodeThenRoute(Cursor cursor) {
+        return router.getNodeForKey(StandardCharsets.UTF_8.decode(cursor.next(offsets)).toString());
+    }
+
+    @Benchmark
+    public Node directBuffer(Cursor cursor) {
+        return router.getNodeForKey(cursor.next(offsets));
+    }
+
+    @Benchmark
+    public Node longKey(Cursor cursor) {
+        return router.getNodeForKey((long) cursor.next++);
+    }
+}
@@ -3,10 +3,15 @@ package bench;
 import io.github.NK8916.*;
 import io.github.NK8916.hashImplementations.MD5HashFunction;
 import io.github.NK8916.hashImplementations.Murmur3HashFunction;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
 import io.github.NK8916.hashImplementations.SHA1HashFunction;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
 
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -19,6 +24,15 @@ import static org.junit.jupiter.api.Assertions.*;
  * 2) Boundary wraparound: key beyond last point wraps to index 0 owner
  * 3) Distribution fairness: CV < 1%, max/min ratio ~ 1.05 (tolerant)
  * 4) Remap fraction on add/remove ≈ ~1/N (with tolerance)
+ * 5) Incremental add/remove produces the same ring as a full rebuild
+ * 6) Prefix-table search index routes exactly like plain binary search
+ * 7) Compact and off-heap layouts route exactly like the reference layout, in less memory
+ * 8) Parallel build is bit-identical to the sequential build and to hashing "id/j" strings
+ * 9) Batch routing agrees with single-key routing in every layout and index
+ * 10) Allocation-free and table-backed replica lookups match a walk deduped by node id
+ * 11) Weighted nodes: key share tracks weight; a weight change only moves that node's points
+ * 12) Placement policy: replicas span regions, then racks, then nodes; table and walk agree
+ * 13) byte[], ByteBuffer and long keys route like the String / bytes they encode; a direct buffer routes without allocating
  *
  * Notes:
  * - Uses a tiny fallback DemoHash64 so tests run without extra deps.
@@ -161,4 +175,486 @@ public class ConsistentHashingCoreTests {
         org.junit.jupiter.api.Assertions.assertTrue(maxMinRatio < 1.08,
                 "Max/Min ratio too high: " + maxMinRatio);
     }
-}
\ No newline at end of file
+
+    // ---------- 5) Incremental membership ----------
+    @Test
+    void incremental_add_remove_matches_full_rebuild() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            nodes.add(new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of()));
+        }
+        HashFunction hf = new Murmur3HashFunction();
+        ConsistentHashing router = new ConsistentHashingBuilder()
+                .withVersion(7)
+                .withHash(hf)
+                .withNodes(nodes.subList(0, 8).toArray(new Node[0]))
+                .withVNodes(200)
+                .build();
+
+        router.addNodes(nodes.subList(8, 12).toArray(new Node[0]));
+        router.removeNodes(nodes.get(2), nodes.get(9));
+
+        List<Node> expectedNodes = new ArrayList<>(nodes);
+        expectedNodes.remove(9);
+        expectedNodes.remove(2);
+        RingSnapshot expected = new ConsistentHashingBuilder()
+                .withHash(hf)
+                .withNodes(expectedNodes.toArray(new Node[0]))
+                .withVNodes(200)
+                .build()
+                .debugSnapshot();
+        RingSnapshot actual = router.debugSnapshot();
+
+        assertEquals(9, actual.getVersion(), "Each membership change must bump the version");
+        assertEquals(10, actual.getNodeCount());
+        assertArrayEquals(expected.points, actual.points);
+        for (int i = 0; i < expected.nodes.length; i++) {
+            assertEquals(expected.nodes[i].getId(), actual.nodes[i].getId(), "Owner mismatch at " + i);
+        }
+    }
+
+    // ---------- 6) Search index ----------
+    @Test
+    void prefix_table_index_matches_binary_search() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            nodes.add(new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of()));
+        }
+        ConsistentHashingBuilder builder = new ConsistentHashingBuilder()
+                .withHash(new Murmur3HashFunction())
+                .withNodes(nodes.toArray(new Node[0]))
+                .withVNodes(500);
+        ConsistentHashing indexedRouter = builder.withSearchIndex(SearchIndex.PREFIX_TABLE).build();
+        indexedRouter.addNodes(new Node("X", "10.0.1.1", 8080, "ap-south-1", Map.of()));
+        indexedRouter.removeNodes(nodes.get(0));
+        RingSnapshot indexed = indexedRouter.debugSnapshot();
+        RingSnapshot plain = new RingSnapshot(0, indexed.points, indexed.nodes, indexed.allNodes, indexed.getVNodes());
+
+        assertEquals(SearchIndex.PREFIX_TABLE, indexed.getSearchIndex());
+        assertTrue(indexed.getIndexMemoryBytes() > 0);
+        assertEquals(0, plain.getIndexMemoryBytes());
+
+        List<Long> probes = new ArrayList<>(List.of(0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE));
+        for (long p : indexed.points) {
+            probes.add(p); probes.add(p - 1); probes.add(p + 1);
+        }
+        SplittableRandom rng = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) probes.add(rng.nextLong());
+
+        for (long h : probes) {
+            assertSame(plain.route(h), indexed.route(h), "Indexed route differs for hash " + Long.toUnsignedString(h));
+        }
+    }
+
+    // ---------- 7) Ring layouts ----------
+    @Test
+    void compact_and_off_heap_layouts_match_references() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            nodes.add(new Node("N"+i, "10.0."+(i/256)+"."+(i%256), 8080, "ap-south-1", Map.of()));
+        }
+        // 255 nodes fit one-byte owner indices; growing to 257 must widen the table
+        Node[] initial = nodes.subList(0, 255).toArray(new Node[0]);
+        Node[] joining = nodes.subList(255, 257).toArray(new Node[0]);
+
+        Map<RingLayout, ConsistentHashing> routers = new EnumMap<>(RingLayout.class);
+        for (RingLayout layout : RingLayout.values()) {
+            ConsistentHashing router = new ConsistentHashingBuilder()
+                    .withHash(new Murmur3HashFunction())
+                    .withNodes(initial)
+                    .withVNodes(50)
+                    .withLayout(layout)
+                    .withSearchIndex(SearchIndex.PREFIX_TABLE)
+                    .build();
+            router.addNodes(joining);
+            router.removeNodes(nodes.get(3));
+            routers.put(layout, router);
+        }
+
+        RingSnapshot refs = routers.get(RingLayout.REFERENCES).debugSnapshot();
+        RingSnapshot compact = routers.get(RingLayout.COMPACT).debugSnapshot();
+        RingSnapshot offHeap = routers.get(RingLayout.OFF_HEAP).debugSnapshot();
+        assertNull(compact.nodes);
+        assertNull(offHeap.points);
+        assertTrue(compact.getMemoryBytes() < refs.getMemoryBytes());
+        assertEquals(compact.getMemoryBytes(), offHeap.getMemoryBytes());
+
+        for (int i = 0; i < refs.ringSize(); i++) {
+            assertEquals(refs.pointAt(i), offHeap.pointAt(i));
+            assertSame(refs.nodes[i], compact.nodeAt(i));
+            assertSame(refs.nodes[i], offHeap.nodeAt(i));
+        }
+        SplittableRandom rng = new SplittableRandom(11);
+        for (int i = 0; i < 100_000; i++) {
+            String key = "k" + rng.nextLong();
+            Node expected = routers.get(RingLayout.REFERENCES).getNodeForKey(key);
+            assertSame(expected, routers.get(RingLayout.COMPACT).getNodeForKey(key));
+            assertSame(expected, routers.get(RingLayout.OFF_HEAP).getNodeForKey(key));
+        }
+    }
+
+    // ---------- 8) Parallel build ----------
+    @Test
+    void parallel_build_matches_sequential_build() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String id = i % 7 == 0 ? "nœud-" + i : "N" + i; // some multi-byte ids
+            nodes.add(new Node(id, "10.0."+(i/256)+"."+(i%256), 8080, "ap-south-1", Map.of()));
+        }
+        for (HashFunction hf : List.of(new Murmur3HashFunction(), new DemoHash64())) {
+            ConsistentHashingBuilder builder = new ConsistentHashingBuilder()
+                    .withHash(hf)
+                    .withNodes(nodes.toArray(new Node[0]))
+                    .withVNodes(250)
+                    .withLayout(RingLayout.COMPACT);
+            RingSnapshot sequential = builder.withParallelism(1).build().debugSnapshot();
+            RingSnapshot parallel = builder.withParallelism(4).build().debugSnapshot();
+
+            List<Long> labels = new ArrayList<>();
+            for (Node n : nodes) {
+                for (int j = 0; j < 250; j++) labels.add(hf.hash(n.getId() + "/" + j));
+            }
+            labels.sort(Long::compareUnsigned);
+
+            assertEquals(labels.size(), parallel.ringSize());
+            for (int i = 0; i < parallel.ringSize(); i++) {
+                assertEquals((long) labels.get(i), sequential.pointAt(i), "Label hash differs at " + i);
+                assertEquals(sequential.pointAt(i), parallel.pointAt(i), "Point differs at " + i);
+                assertEquals(sequential.ownerAt(i), parallel.ownerAt(i), "Owner differs at " + i);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashingBuilder().withParallelism(0));
+    }
+
+    // ---------- 9) Batch routing ----------
+    @Test
+    void batch_routing_matches_single_key_routing() {
+        Node[] nodes = new Node[30];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of());
+        }
+        SplittableRandom rng = new SplittableRandom(5);
+        String[] keys = new String[4_099]; // not a multiple of the lane count
+        for (int i = 0; i < keys.length; i++) keys[i] = "k" + rng.nextLong();
+        long[] hashes = new long[keys.length];
+        for (int i = 0; i < hashes.length; i++) hashes[i] = rng.nextLong();
+        hashes[0] = 0L; hashes[1] = -1L; hashes[2] = Long.MIN_VALUE; // ends of the ring
+
+        for (RingLayout layout : RingLayout.values()) {
+            for (SearchIndex index : SearchIndex.values()) {
+                ConsistentHashing router = new ConsistentHashingBuilder()
+                        .withHash(new Murmur3HashFunction())
+                        .withNodes(nodes)
+                        .withVNodes(97)
+                        .withLayout(layout)
+                        .withSearchIndex(index)
+                        .build();
+                RingSnapshot ring = router.debugSnapshot();
+
+                Node[] byKey = new Node[keys.length];
+                router.routeBatch(keys, byKey);
+                int[] byKeyIdx = new int[keys.length];
+                List<Node> ringNodes = router.routeBatch(keys, byKeyIdx);
+                for (int i = 0; i < keys.length; i++) {
+                    Node expected = router.getNodeForKey(keys[i]);
+                    assertSame(expected, byKey[i], layout + "/" + index + " key " + i);
+                    assertSame(expected, ringNodes.get(byKeyIdx[i]), layout + "/" + index + " key " + i);
+                }
+
+                Node[] byHash = new Node[hashes.length];
+                router.routeBatch(hashes, byHash);
+                for (int i = 0; i < hashes.length; i++) {
+                    assertEquals(ring.route(hashes[i]).getId(), byHash[i].getId(), layout + "/" + index + " hash " + i);
+                }
+                assertThrows(IllegalArgumentException.class, () -> router.routeBatch(hashes, new Node[1]));
+            }
+        }
+    }
+
+    // ---------- 10) Replica lookup ----------
+    static List<String> replicaIdsByWalk(RingSnapshot ring, long hash, int replicas) {
+        int i = 0;
+        while (i < ring.ringSize() && Long.compareUnsigned(ring.pointAt(i), hash) < 0) i++;
+        List<String> ids = new ArrayList<>();
+        for (int step = 0; step < ring.ringSize() && ids.size() < replicas; step++) {
+            String id = ring.nodeAt((i + step) % ring.ringSize()).getId();
+            if (!ids.contains(id)) ids.add(id);
+        }
+        return ids;
+    }
+
+    @Test
+    void replica_lookup_matches_walk_by_id() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            nodes.add(new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of()));
+        }
+        for (RingLayout layout : RingLayout.values()) {
+            for (int table : new int[]{0, 3, 10}) {
+                ConsistentHashing router = new ConsistentHashingBuilder()
+                        .withHash(new Murmur3HashFunction())
+                        .withNodes(nodes.subList(0, 5).toArray(new Node[0]))
+                        .withVNodes(20)
+                        .withLayout(layout)
+                        .withReplicaTable(table)
+                        .build();
+                // the table must follow membership changes
+                router.addNodes(nodes.get(5), nodes.get(6));
+                router.removeNodes(nodes.get(1));
+                RingSnapshot ring = router.debugSnapshot();
+                assertEquals(Math.min(table, 6), ring.getReplicaTableDepth());
+
+                SplittableRandom rng = new SplittableRandom(3);
+                for (int k = 0; k < 2_000; k++) {
+                    long h = k < ring.ringSize() ? ring.pointAt(k) : rng.nextLong();
+                    for (int r = 1; r <= 8; r++) {
+                        List<String> expected = replicaIdsByWalk(ring, h, r);
+                        Node[] out = new Node[r];
+                        int n = ring.routeN(h, out);
+                        int[] idx = new int[r];
+                        assertEquals(n, ring.routeN(h, idx));
+                        assertEquals(expected.size(), n, layout + " table=" + table + " r=" + r);
+                        for (int j = 0; j < n; j++) {
+                            assertEquals(expected.get(j), out[j].getId());
+                            assertEquals(expected.get(j), ring.allNodes[idx[j]].getId());
+                        }
+                        assertEquals(expected.size(), ring.routeN(h, r).length);
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------- 11) Weighted nodes ----------
+    @Test
+    void key_share_tracks_node_weight() {
+        double[] weights = {0.5, 1, 1, 2, 3, 4};
+        Node[] nodes = new Node[weights.length * 2];
+        double totalWeight = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            double w = weights[i % weights.length];
+            // half the nodes read the weight from metadata, half pass it explicitly
+            nodes[i] = i % 2 == 0
+                    ? new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of(Node.WEIGHT_KEY, Double.toString(w)))
+                            .withWeightFromMetadata(Node.WEIGHT_KEY)
+                    : new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of(), w);
+            totalWeight += w;
+        }
+        ConsistentHashing router = new ConsistentHashingBuilder()
+                .withHash(new Murmur3HashFunction())
+                .withNodes(nodes)
+                .withVNodes(3000)
+                .build();
+        RingSnapshot ring = router.debugSnapshot();
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals(Math.round(3000 * nodes[i].getWeight()), ring.getVNodeCount(i));
+        }
+        // a snapshot wrapped from the raw arrays infers the vnode count from the weights
+        assertEquals(3000, new RingSnapshot(0, ring.points, ring.nodes, ring.allNodes).getVNodes());
+        int cut = ring.ringSize() - 1;
+        assertThrows(IllegalArgumentException.class, () -> new RingSnapshot(0, Arrays.copyOf(ring.points, cut),
+                Arrays.copyOf(ring.nodes, cut), ring.allNodes));
+
+        int samples = 3_000_000;
+        Map<String,Integer> index = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) index.put(nodes[i].getId(), i);
+        long[] counts = new long[nodes.length];
+        SplittableRandom rng = new SplittableRandom(42);
+        for (int i = 0; i < samples; i++) {
+            counts[index.get(router.getNodeForKey(Long.toUnsignedString(rng.nextLong(), 16)).getId())]++;
+        }
+        double worst = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            double expected = samples * nodes[i].getWeight() / totalWeight;
+            worst = Math.max(worst, Math.abs(counts[i] / expected - 1));
+        }
+        System.out.printf("weighted share: worst relative deviation=%.4f%n", worst);
+        assertTrue(worst < 0.05, "Key share strays from weight by " + worst);
+    }
+
+    @Test
+    void weight_change_only_moves_that_nodes_points() {
+        Node[] nodes = new Node[8];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of());
+        }
+        HashFunction hf = new Murmur3HashFunction();
+        for (RingLayout layout : RingLayout.values()) {
+            ConsistentHashing router = new ConsistentHashingBuilder()
+                    .withHash(hf).withNodes(nodes).withVNodes(300).withLayout(layout)
+                    .build();
+            RingSnapshot before = router.debugSnapshot();
+            Node heavier = new Node("N2", "10.0.0.2", 8080, "ap-south-1", Map.of(), 2.5);
+            Node lighter = new Node("N5", "10.0.0.5", 8080, "ap-south-1", Map.of(), 0.4);
+            router.updateNodes(heavier, lighter, new Node("unknown", "x", 1, "r", Map.of(), 3));
+            RingSnapshot after = router.debugSnapshot();
+
+            Node[] expectedNodes = nodes.clone();
+            expectedNodes[2] = heavier;
+            expectedNodes[5] = lighter;
+            RingSnapshot rebuilt = new ConsistentHashingBuilder()
+                    .withHash(hf).withNodes(expectedNodes).withVNodes(300).withLayout(layout)
+                    .build().debugSnapshot();
+
+            assertEquals(1, after.getVersion());
+            assertEquals(before.ringSize() + 450 - 180, after.ringSize());
+            assertSame(heavier, after.allNodes[2]);
+            for (int i = 0; i < after.ringSize(); i++) {
+                assertEquals(rebuilt.pointAt(i), after.pointAt(i), layout + " point " + i);
+                assertEquals(rebuilt.ownerAt(i), after.ownerAt(i), layout + " owner " + i);
+            }
+            // points of untouched nodes are exactly the ones they had before
+            Map<Integer, List<Long>> was = new HashMap<>(), now = new HashMap<>();
+            for (int i = 0; i < before.ringSize(); i++) was.computeIfAbsent(before.ownerAt(i), k -> new ArrayList<>()).add(before.pointAt(i));
+            for (int i = 0; i < after.ringSize(); i++) now.computeIfAbsent(after.ownerAt(i), k -> new ArrayList<>()).add(after.pointAt(i));
+            for (int owner = 0; owner < nodes.length; owner++) {
+                if (owner == 2) assertTrue(now.get(owner).containsAll(was.get(owner)));
+                else if (owner == 5) assertTrue(was.get(owner).containsAll(now.get(owner)));
+                else assertEquals(was.get(owner), now.get(owner), "Points of N" + owner + " moved");
+            }
+
+            // removing a weighted node cuts all of its vnodes
+            router.removeNodes(heavier);
+            assertEquals(after.ringSize() - 750, router.ringSize());
+        }
+        // metadata stays opaque unless weights are read from it explicitly
+        for (String opaque : new String[]{"heavy", "0", "-1"}) {
+            Node plain = new Node("n", "x", 1, "r", Map.of(Node.WEIGHT_KEY, opaque));
+            assertEquals(1.0, plain.getWeight());
+            assertThrows(IllegalArgumentException.class, () -> plain.withWeightFromMetadata(Node.WEIGHT_KEY));
+        }
+        Node unweighted = new Node("n", "x", 1, "r", Map.of());
+        assertSame(unweighted, unweighted.withWeightFromMetadata(Node.WEIGHT_KEY));
+        assertThrows(IllegalArgumentException.class, () -> new Node("bad", "x", 1, "r", Map.of(), 0));
+    }
+
+    // ---------- 12) Placement policy ----------
+    /** Per level, the first node of each new domain walking clockwise, appended unless already chosen. */
+    static List<String> placedIdsByWalk(RingSnapshot ring, long hash, int replicas, List<java.util.function.Function<Node,String>> levels) {
+        int i = 0;
+        while (i < ring.ringSize() && Long.compareUnsigned(ring.pointAt(i), hash) < 0) i++;
+        List<String> ids = new ArrayList<>();
+        for (java.util.function.Function<Node,String> level : levels) {
+            Set<String> domains = new HashSet<>();
+            for (int step = 0; step < ring.ringSize() && domains.size() < replicas && ids.size() < replicas; step++) {
+                Node node = ring.nodeAt((i + step) % ring.ringSize());
+                if (domains.add(String.valueOf(level.apply(node))) && !ids.contains(node.getId())) ids.add(node.getId());
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void placement_policy_spreads_replicas_across_domains() {
+        String[] regions = {"us-east-1", "eu-west-1", "ap-south-1"};
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            nodes.add(new Node("N"+i, "10.0."+i+".1", 8080, regions[i % 3], Map.of(PlacementPolicy.RACK_KEY, "r" + (i / 3) % 2)));
+        }
+        List<java.util.function.Function<Node,String>> levels = List.of(
+                Node::getRegion, n -> n.getRegion() + "/" + n.getMetaData().get(PlacementPolicy.RACK_KEY), Node::getId);
+        for (RingLayout layout : RingLayout.values()) {
+            RingSnapshot walk = null;
+            for (int table : new int[]{0, 4, 12}) {
+                ConsistentHashing router = new ConsistentHashingBuilder()
+                        .withHash(new Murmur3HashFunction())
+                        .withNodes(nodes.subList(0, 12).toArray(new Node[0]))
+                        .withVNodes(30)
+                        .withLayout(layout)
+                        .withReplicaTable(table)
+                        .withPlacementPolicy(PlacementPolicy.distinctRegionsThenRacks())
+                        .build();
+                // the policy must survive membership changes
+                router.addNodes(nodes.get(12), nodes.get(13));
+                router.removeNodes(nodes.get(4));
+                RingSnapshot ring = router.debugSnapshot();
+                if (table == 0) walk = ring;
+
+                SplittableRandom rng = new SplittableRandom(5);
+                for (int k = 0; k < 1_000; k++) {
+                    long h = k < ring.ringSize() ? ring.pointAt(k) : rng.nextLong();
+                    for (int r = 1; r <= 14; r++) {
+                        List<String> expected = placedIdsByWalk(ring, h, r, levels);
+                        Node[] out = new Node[r];
+                        int n = ring.routeN(h, out);
+                        int[] idx = new int[r];
+                        int[] fromWalk = new int[r];
+                        assertEquals(n, ring.routeN(h, idx));
+                        assertEquals(n, walk.routeN(h, fromWalk));
+                        assertEquals(expected.size(), n, layout + " table=" + table + " r=" + r);
+                        Set<String> seenRegions = new HashSet<>();
+                        for (int j = 0; j < n; j++) {
+                            assertEquals(expected.get(j), out[j].getId(), layout + " table=" + table + " r=" + r);
+                            assertEquals(expected.get(j), ring.allNodes[idx[j]].getId());
+                            assertEquals(idx[j], fromWalk[j]);
+                            if (j < 3) assertTrue(seenRegions.add(out[j].getRegion()), "Region repeated before all are used");
+                        }
+                        // the primary never changes
+                        assertSame(ring.route(h), out[0]);
+                    }
+                }
+            }
+        }
+
+        // mask-tracked lookups are limited to 64 replicas
+        Node[] many = new Node[70];
+        for (int i = 0; i < many.length; i++) many[i] = new Node("M"+i, "10.1.0."+i, 8080, regions[i % 3], Map.of());
+        ConsistentHashing router = new ConsistentHashingBuilder()
+                .withHash(new Murmur3HashFunction())
+                .withNodes(many)
+                .withVNodes(4)
+                .withPlacementPolicy(PlacementPolicy.distinctRacks())
+                .build();
+        assertEquals(64, router.getReplicasForKey("k", new Node[64]));
+        assertThrows(IllegalArgumentException.class, () -> router.getReplicasForKey("k", new Node[65]));
+    }
+
+    // ---------- 13) Byte, buffer and long keys ----------
+    @Test
+    void byte_buffer_and_long_keys_route_like_strings() {
+        Node[] nodes = new Node[25];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of());
+        }
+        HashFunction hash = new Murmur3x64HashFunction();
+        ConsistentHashing router = new ConsistentHashingBuilder()
+                .withHash(hash).withNodes(nodes).withVNodes(100).withReplicaTable(3).build();
+        ByteBuffer direct = ByteBuffer.allocateDirect(64).order(ByteOrder.BIG_ENDIAN);
+        Node[] fromString = new Node[3], fromBuffer = new Node[3];
+        SplittableRandom rng = new SplittableRandom(13);
+        for (int i = 0; i < 5_000; i++) {
+            String key = "key-\u00e9-" + rng.nextInt(); // multi-byte UTF-8
+            byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+            byte[] framed = new byte[utf8.length + 5];
+            System.arraycopy(utf8, 0, framed, 3, utf8.length);
+            Node expected = router.getNodeForKey(key);
+            assertSame(expected, router.getNodeForKey(framed, 3, utf8.length));
+
+            direct.clear().position(7);
+            direct.put(utf8).flip().position(7);
+            assertSame(expected, router.getNodeForKey(direct));
+            assertEquals(7, direct.position(), "Routing moved the buffer");
+            router.getReplicasForKey(key, fromString);
+            assertEquals(3, router.getReplicasForKey(direct, fromBuffer));
+            assertArrayEquals(fromString, fromBuffer);
+
+            long id = rng.nextLong();
+            byte[] le = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(id).array();
+            assertSame(router.getNodeForKey(le, 0, 8), router.getNodeForKey(id));
+        }
+
+        // warm up, then count this thread's allocations over many direct-buffer lookups
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        direct.clear();
+        direct.put("user:12345".getBytes(StandardCharsets.UTF_8)).flip();
+        Node sink = null;
+        for (int i = 0; i < 200_000; i++) sink = router.getNodeForKey(direct);
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 200_000; i++) sink = router.getNodeForKey(direct);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        assertNotNull(sink);
+        // the counter query itself may allocate a little
+        assertTrue(allocated < 1024, "Direct-buffer routing allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,78 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Node;
+import io.github.NK8916.RingDiff;
+import io.github.NK8916.RingLayout;
+import io.github.NK8916.RingSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RingDiff} between a ring and the ring after one node joins: sequential and parallel
+ * walks over every transfer, against estimating the moved fraction by sampling keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffBenchmark {
+
+    @Param({"1000"})
+    int nodeCount;
+
+    @Param({"1000"})
+    int vNodes;
+
+    RingDiff diff;
+    RingSnapshot before, after;
+
+    @Setup
+    public void setup() {
+        Node[] nodes = BenchmarkData.nodes(nodeCount + 1);
+        ConsistentHashing router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(Arrays.copyOf(nodes, nodeCount))
+                .withVNodes(vNodes)
+                .withLayout(RingLayout.COMPACT)
+                .build();
+        before = router.debugSnapshot();
+        router.addNodes(nodes[nodeCount]);
+        after = router.debugSnapshot();
+        diff = RingDiff.between(before, after);
+    }
+
+    @Benchmark
+    public long transfersSequential() {
+        return diff.transfers().count();
+    }
+
+    @Benchmark
+    public double movedFractionParallel() {
+        return diff.movedFraction();
+    }
+
+    @Benchmark
+    public double movedFractionSequential() {
+        return diff.transfers().mapToDouble(RingDiff.Transfer::fraction).sum();
+    }
+
+    /** What callers did before: route a million sampled keys on both rings. */
+    @Benchmark
+    public double sampledRemap() {
+        long h = 0x9E3779B97F4A7C15L;
+        int moved = 0, samples = 1_000_000;
+        for (int i = 0; i < samples; i++) {
+            h += 0x9E3779B97F4A7C15L;
+            long k = h ^ (h >>> 31);
+            if (!before.route(k).getId().equals(after.route(k).getId())) moved++;
+        }
+        return moved / (double) samples;
+    }
+}
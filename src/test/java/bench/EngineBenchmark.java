@@ -0,0 +1,68 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.Node;
+import io.github.NK8916.RoutingAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency and build time of every {@link RoutingAlgorithm}. Memory and balance are
+ * printed by {@code RoutingEngineTests}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int nodeCount;
+
+    @Param({"RING", "JUMP", "MAGLEV", "RENDEZVOUS", "MULTI_PROBE", "HIERARCHICAL"})
+    RoutingAlgorithm algorithm;
+
+    /** Only used by the ring and the group rings. */
+    @Param({"160"})
+    int vNodes;
+
+    Node[] nodes;
+    HashFunction hashFunction;
+    ConsistentHashing router;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        nodes = BenchmarkData.nodes(nodeCount);
+        hashFunction = HashKind.MURMUR3_X64.create();
+        router = build();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    public Node lookup(Cursor cursor) {
+        return router.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ConsistentHashing build() {
+        return new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(hashFunction)
+                .withNodes(nodes)
+                .withVNodes(vNodes)
+                .withAlgorithm(algorithm)
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.Node;
+import io.github.NK8916.RoutingEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConsistentHashing#getNodeForKey(String)} with a share of the nodes marked down:
+ * routing straight through the engine, no node down (should match), and {@code downPercent}
+ * of the nodes down, where the skip index keeps the walk to the next live owner short.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FailoverBenchmark {
+
+    @Param({"1000"})
+    int nodeCount;
+
+    @Param({"10", "90"})
+    int downPercent;
+
+    HashFunction hash;
+    RoutingEngine engine;
+    ConsistentHashing allUp;
+    ConsistentHashing someDown;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        hash = HashKind.MURMUR3_X64.create();
+        Node[] nodes = BenchmarkData.nodes(nodeCount);
+        allUp = new ConsistentHashingBuilder()
+                .withVersion(1).withHash(hash).withNodes(nodes).withVNodes(160)
+                .build();
+        someDown = new ConsistentHashingBuilder()
+                .withVersion(1).withHash(hash).withNodes(nodes).withVNodes(160)
+                .build();
+        someDown.markDown(Arrays.copyOf(nodes, nodeCount * downPercent / 100));
+        engine = allUp.getEngine();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    public Node engineDirect(Cursor cursor) {
+        return engine.route(hash.hash(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]));
+    }
+
+    @Benchmark
+    public Node noneDown(Cursor cursor) {
+        return allUp.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+
+    @Benchmark
+    public Node someDown(Cursor cursor) {
+        return someDown.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+}
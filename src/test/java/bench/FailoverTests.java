@@ -0,0 +1,234 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static bench.BenchmarkData.plainNodes;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) On a ring, marking nodes down routes every key (and replica list) exactly as removing them would; marking up restores it
+ * 2) Other algorithms route to the first live node of their own replica order
+ * 3) Most nodes down: only live nodes are returned; marks survive joins, drop with removals; cache and leases skip down nodes
+ * 4) Readers running while marks flip never see a node that stays down
+ * 5) With a node down, replica lookups into a caller's array match the allocating lookups; they and single-key lookups allocate nothing once warm
+ * 6) Readers running while membership changes never see a node that is down, even right after a publish
+ *
+ * Notes:
+ * - A removal re-publishes the ring, so (1) compares against a second router built from the same nodes.
+ */
+public class FailoverTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+
+    static List<String> ids(Node[] nodes) {
+        return Arrays.stream(nodes).map(Node::getId).collect(Collectors.toList());
+    }
+
+    // ---------- 1) Same routing as removal ----------
+    @Test
+    void marked_down_routes_like_removed() {
+        Node[] nodes = plainNodes(20);
+        Node[] down = {nodes[2], nodes[7], nodes[8], nodes[15]};
+        for (RingLayout layout : RingLayout.values()) {
+            for (int table : new int[]{0, 3}) {
+                ConsistentHashing router = BenchmarkData.builder(nodes, 100).withLayout(layout).withReplicaTable(table).build();
+                ConsistentHashing removed = BenchmarkData.builder(nodes, 100).withLayout(layout).withReplicaTable(table).build();
+                Map<String, String> before = new HashMap<>();
+                for (int i = 0; i < 20_000; i++) before.put("key-" + i, router.getNodeForKey("key-" + i).getId());
+
+                router.markDown(down);
+                removed.removeNodes(down);
+                assertEquals(Set.of("N2", "N7", "N8", "N15"), router.getDownNodes());
+                Node[] out = new Node[3];
+                for (int i = 0; i < 20_000; i++) {
+                    String key = "key-" + i;
+                    assertEquals(removed.getNodeForKey(key).getId(), router.getNodeForKey(key).getId(), layout + " " + key);
+                    assertEquals(ids(removed.getReplicasForKey(key, 3)), ids(router.getReplicasForKey(key, 3)));
+                    assertEquals(3, router.getReplicasForKey(key, out));
+                    assertEquals(ids(removed.getReplicasForKey(key, 3)), ids(out));
+                }
+                String[] keys = before.keySet().toArray(new String[0]);
+                Node[] batch = new Node[keys.length];
+                router.routeBatch(keys, batch);
+                for (int i = 0; i < keys.length; i++) assertEquals(removed.getNodeForKey(keys[i]).getId(), batch[i].getId());
+
+                router.markUp(down);
+                assertTrue(router.getDownNodes().isEmpty());
+                for (Map.Entry<String, String> e : before.entrySet()) {
+                    assertEquals(e.getValue(), router.getNodeForKey(e.getKey()).getId());
+                }
+            }
+        }
+    }
+
+    // ---------- 2) Non-ring engines ----------
+    @Test
+    void other_algorithms_use_their_own_order() {
+        Node[] nodes = plainNodes(12);
+        for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+            ConsistentHashing router = BenchmarkData.builder(nodes, 100).withAlgorithm(algorithm).build();
+            router.markDown(nodes[0], nodes[5], nodes[6]);
+            Set<String> dead = router.getDownNodes();
+            RoutingEngine engine = router.getEngine();
+            for (int i = 0; i < 5_000; i++) {
+                String key = "key-" + i;
+                List<String> live = ids(engine.routeN(HASH.hash(key), nodes.length)).stream()
+                        .filter(id -> !dead.contains(id)).collect(Collectors.toList());
+                assertEquals(live.get(0), router.getNodeForKey(key).getId(), algorithm + " " + key);
+                assertEquals(live.subList(0, 3), ids(router.getReplicasForKey(key, 3)), algorithm + " " + key);
+            }
+        }
+    }
+
+    // ---------- 3) Many down, membership changes, cache and leases ----------
+    @Test
+    void most_nodes_down_and_marks_follow_membership() {
+        Node[] nodes = plainNodes(100);
+        ConsistentHashing router = BenchmarkData.builder(Arrays.copyOf(nodes, 90), 100).withKeyCache(1024).withBoundedLoads(0.25).build();
+        for (int i = 0; i < 200; i++) router.getNodeForKey("key-" + i); // warm the cache
+        Node[] down = Arrays.copyOfRange(nodes, 0, 85);
+        router.markDown(down);
+        Set<String> live = Set.of("N85", "N86", "N87", "N88", "N89");
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(live.contains(router.getNodeForKey("key-" + i).getId()));
+            Node[] replicas = router.getReplicasForKey("key-" + i, 8);
+            assertEquals(live, Set.copyOf(ids(replicas)), "Replicas are the live nodes only");
+        }
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 500; i++) leases.add(router.acquire("key-" + i));
+        assertTrue(leases.stream().allMatch(l -> live.contains(l.getNode().getId())));
+        leases.forEach(Lease::release);
+
+        // joins keep the marks, removals drop them
+        router.addNodes(Arrays.copyOfRange(nodes, 90, 100));
+        router.removeNodes(nodes[0], nodes[1]);
+        assertEquals(83, router.getDownNodes().size());
+        assertFalse(router.getDownNodes().contains("N0"));
+        Map<String, Long> hits = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) hits.merge(router.getNodeForKey("key-" + i).getId(), 1L, Long::sum);
+        assertEquals(15, hits.size(), "Keys spread over the 15 live nodes: " + hits.keySet());
+        router.addNodes(nodes[0]);
+        assertFalse(router.getDownNodes().contains("N0"), "A rejoining node starts up");
+
+        router.markDown(router.getEngine().getNodes().toArray(new Node[0]));
+        assertThrows(IllegalStateException.class, () -> router.getNodeForKey("k"));
+        assertEquals(0, router.getReplicasForKey("k", 3).length);
+    }
+
+    // ---------- 4) Concurrent marks ----------
+    @Test
+    void readers_never_see_nodes_that_stay_down() throws Exception {
+        Node[] nodes = plainNodes(40);
+        ConsistentHashing router = BenchmarkData.builder(nodes, 100).build();
+        router.markDown(Arrays.copyOfRange(nodes, 0, 10));
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> bad = new AtomicReference<>();
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            int seed = r;
+            readers[r] = new Thread(() -> {
+                SplittableRandom rng = new SplittableRandom(seed);
+                Node[] out = new Node[4];
+                while (!stop.get() && bad.get() == null) {
+                    String key = "key-" + rng.nextInt();
+                    String id = router.getNodeForKey(key).getId();
+                    int n = router.getReplicasForKey(key, out);
+                    for (int k = 0; k < n; k++) {
+                        int index = Integer.parseInt(out[k].getId().substring(1));
+                        if (index < 10) bad.set(key + " replica " + out[k].getId());
+                    }
+                    if (Integer.parseInt(id.substring(1)) < 10) bad.set(key + " -> " + id);
+                }
+            });
+            readers[r].start();
+        }
+        SplittableRandom rng = new SplittableRandom(1);
+        for (int i = 0; i < 3_000; i++) {
+            Node n = nodes[10 + rng.nextInt(30)];
+            if (rng.nextBoolean()) router.markDown(n); else router.markUp(n);
+        }
+        stop.set(true);
+        for (Thread t : readers) t.join();
+        assertNull(bad.get(), "Routed to a node that is down");
+    }
+
+    // ---------- 5) Allocation-free failover ----------
+    @Test
+    void failover_lookups_do_not_allocate() {
+        Node[] nodes = plainNodes(20);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        for (RoutingAlgorithm algorithm : new RoutingAlgorithm[]{RoutingAlgorithm.RING, RoutingAlgorithm.RENDEZVOUS}) {
+            for (int table : new int[]{0, 3}) {
+                ConsistentHashing router = BenchmarkData.builder(nodes, 100).withAlgorithm(algorithm).withReplicaTable(table).build();
+                router.markDown(nodes[4]);
+                Node[] out = new Node[3];
+                for (int i = 0; i < 5_000; i++) {
+                    String key = "key-" + i;
+                    assertEquals(3, router.getReplicasForKey(key, out), algorithm + " " + key);
+                    assertArrayEquals(router.getReplicasForKey(key, 3), out, algorithm + " " + key);
+                    assertFalse(Arrays.asList(out).contains(nodes[4]), algorithm + " " + key);
+                }
+
+                // warm up, then count this thread's allocations over many lookups
+                int sink = 0;
+                for (int i = 0; i < 200_000; i++) sink += router.getReplicasForKey((long) i, out);
+                long before = threads.getThreadAllocatedBytes(tid);
+                for (int i = 0; i < 200_000; i++) sink += router.getReplicasForKey((long) i, out);
+                long allocated = threads.getThreadAllocatedBytes(tid) - before;
+                assertEquals(1_200_000, sink);
+                // the counter query itself may allocate a little
+                assertTrue(allocated < 1024, algorithm + " failover replicas allocated " + allocated + " bytes");
+
+                int down = 0;
+                for (int i = 0; i < 200_000; i++) if (router.getNodeForKey((long) i) == nodes[4]) down++;
+                before = threads.getThreadAllocatedBytes(tid);
+                for (int i = 0; i < 200_000; i++) if (router.getNodeForKey((long) i) == nodes[4]) down++;
+                allocated = threads.getThreadAllocatedBytes(tid) - before;
+                assertEquals(0, down);
+                assertTrue(allocated < 1024, algorithm + " failover lookups allocated " + allocated + " bytes");
+            }
+        }
+    }
+
+    // ---------- 6) Marks across publishes ----------
+    @Test
+    void readers_never_see_down_nodes_across_publishes() throws Exception {
+        Node[] nodes = plainNodes(40);
+        for (RoutingAlgorithm algorithm : new RoutingAlgorithm[]{RoutingAlgorithm.RING, RoutingAlgorithm.RENDEZVOUS}) {
+            ConsistentHashing router = BenchmarkData.builder(nodes, 100).withAlgorithm(algorithm).build();
+            Set<Node> down = new HashSet<>(Arrays.asList(nodes).subList(0, 10));
+            router.markDown(down.toArray(new Node[0]));
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicReference<String> bad = new AtomicReference<>();
+            Thread[] readers = new Thread[3];
+            for (int r = 0; r < readers.length; r++) {
+                int seed = r;
+                readers[r] = new Thread(() -> {
+                    SplittableRandom rng = new SplittableRandom(seed);
+                    while (!stop.get() && bad.get() == null) {
+                        Node node = router.getNodeForKey(rng.nextLong());
+                        if (down.contains(node)) bad.set(algorithm + " -> " + node.getId());
+                    }
+                });
+                readers[r].start();
+            }
+            Node extra = new Node("X", "10.0.1.1", 8080, "ap-south-1", Map.of());
+            for (int i = 0; i < 2_000 && bad.get() == null; i++) {
+                if (i % 2 == 0) router.addNodes(extra); else router.removeNodes(extra);
+            }
+            stop.set(true);
+            for (Thread t : readers) t.join();
+            assertNull(bad.get(), "Routed to a node that is down");
+        }
+    }
+}
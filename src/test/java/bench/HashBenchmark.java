@@ -0,0 +1,50 @@
+package bench;
+
+import io.github.NK8916.HashFunction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw {@link HashFunction#hash(String)} throughput by key length.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashBenchmark {
+
+    @Param({"MURMUR3", "MURMUR3_X64", "XXHASH64", "WYHASH", "MD5", "SHA1"})
+    HashKind hash;
+
+    @Param({"8", "24", "64"})
+    int keyLength;
+
+    HashFunction hashFunction;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        hashFunction = hash.create();
+        SplittableRandom rng = new SplittableRandom(7);
+        keys = new String[BenchmarkData.KEY_POOL];
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder sb = new StringBuilder(keyLength);
+            while (sb.length() < keyLength) sb.append((char) ('a' + rng.nextInt(26)));
+            keys[i] = sb.toString();
+        }
+    }
+
+    @Benchmark
+    public long hash(Cursor cursor) {
+        return hashFunction.hash(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+}
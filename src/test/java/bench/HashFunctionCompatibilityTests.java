@@ -0,0 +1,165 @@
+package bench;
+
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.hashImplementations.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Murmur3x64HashFunction is bit-identical to the Guava-backed Murmur3HashFunction and has its id
+ * 2) Per-thread MD5/SHA-1 state is bit-identical to a fresh MessageDigest per call
+ * 3) xxHash64 / wyhash match published reference values
+ * 4) byte[] overloads agree with String input of the same UTF-8 content
+ * 5) ByteBuffer (heap, direct, read-only, either byte order) and long overloads agree with byte[] input
+ * 6) A function that only hashes Strings still hashes distinct numeric keys apart
+ *
+ * Notes:
+ * - Keys mix ASCII, 2/3/4-byte UTF-8 and unpaired surrogates, at lengths that cross
+ *   every block/tail boundary of the algorithms, so existing rings cannot move.
+ */
+public class HashFunctionCompatibilityTests {
+
+    // ---------- Reference: the pre-existing digest implementation ----------
+    static long legacyDigest(String algorithm, String key) throws Exception {
+        MessageDigest md = MessageDigest.getInstance(algorithm);
+        byte[] bytes = md.digest(key.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+
+    static List<String> sampleKeys() {
+        SplittableRandom rng = new SplittableRandom(42);
+        List<String> keys = new ArrayList<>();
+        for (int len = 0; len < 300; len++) {
+            for (int t = 0; t < 4; t++) {
+                StringBuilder sb = new StringBuilder(len);
+                for (int i = 0; i < len; i++) {
+                    int kind = t < 2 ? 0 : rng.nextInt(6);
+                    switch (kind) {
+                        case 3: sb.append((char) (0x80 + rng.nextInt(0x780))); break;
+                        case 4: sb.append((char) (0x800 + rng.nextInt(0xD000))); break;
+                        case 5: sb.appendCodePoint(0x10000 + rng.nextInt(0xFFFFF)); break;
+                        default: sb.append((char) (0x20 + rng.nextInt(0x5F)));
+                    }
+                }
+                keys.add(sb.toString());
+            }
+        }
+        keys.add("\uD800");            // lone high surrogate
+        keys.add("a\uDC00b");          // lone low surrogate
+        keys.add("user:12345");
+        return keys;
+    }
+
+    // ---------- 1) Murmur3 ----------
+    @Test
+    void murmur3x64_matches_guava_murmur3() {
+        Murmur3HashFunction legacy = new Murmur3HashFunction();
+        Murmur3x64HashFunction fast = new Murmur3x64HashFunction();
+        for (String key : sampleKeys()) {
+            assertEquals(legacy.hash(key), fast.hash(key), "Murmur3 mismatch for key of length " + key.length());
+        }
+        assertEquals(legacy.id(), fast.id());
+    }
+
+    // ---------- 2) Digests ----------
+    @Test
+    void digest_functions_match_fresh_message_digest() throws Exception {
+        MD5HashFunction md5 = new MD5HashFunction();
+        SHA1HashFunction sha1 = new SHA1HashFunction();
+        for (String key : sampleKeys()) {
+            assertEquals(legacyDigest("MD5", key), md5.hash(key), "MD5 mismatch for key of length " + key.length());
+            assertEquals(legacyDigest("SHA-1", key), sha1.hash(key), "SHA-1 mismatch for key of length " + key.length());
+        }
+    }
+
+    // ---------- 3) Reference vectors ----------
+    @Test
+    void xxhash64_and_wyhash_match_reference_values() {
+        XxHash64HashFunction xx = new XxHash64HashFunction();
+        assertEquals(0xef46db3751d8e999L, xx.hash(""));
+        assertEquals(0xd24ec4f1a98c6e5bL, xx.hash("a"));
+        assertEquals(0x0b242d361fda71bcL, xx.hash("The quick brown fox jumps over the lazy dog"));
+
+        WyHashFunction wy = new WyHashFunction();
+        assertEquals(0L, wy.hash(""));
+        assertEquals(0x773a0b0c98eb07e4L, wy.hash("a"));
+        assertEquals(0xcf850ba9ddd12bb3L, wy.hash("The quick brown fox jumps over the lazy dog"));
+    }
+
+    // ---------- 4) byte[] and String agree ----------
+    @Test
+    void byte_overloads_match_string_input() {
+        Murmur3x64HashFunction murmur = new Murmur3x64HashFunction();
+        XxHash64HashFunction xx = new XxHash64HashFunction(7);
+        WyHashFunction wy = new WyHashFunction(7);
+        MD5HashFunction md5 = new MD5HashFunction();
+        for (String key : sampleKeys()) {
+            byte[] utf8 = ("##" + key + "#").getBytes(StandardCharsets.UTF_8);
+            int len = utf8.length - 3;
+            assertEquals(murmur.hash(key), murmur.hash(utf8, 2, len));
+            assertEquals(xx.hash(key), xx.hash(utf8, 2, len));
+            assertEquals(wy.hash(key), wy.hash(utf8, 2, len));
+            assertEquals(md5.hash(key), md5.hash(utf8, 2, len));
+        }
+    }
+
+    // ---------- 5) ByteBuffer and long agree with byte[] ----------
+    @Test
+    void buffer_and_long_overloads_match_byte_input() {
+        List<HashFunction> functions = List.of(new Murmur3HashFunction(), new Murmur3x64HashFunction(),
+                new XxHash64HashFunction(7), new WyHashFunction(7), new MD5HashFunction(), new SHA1HashFunction());
+        for (HashFunction f : functions) {
+            String name = f.getClass().getSimpleName();
+            for (String key : sampleKeys()) {
+                byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+                long expected = f.hash(utf8, 0, utf8.length);
+                List<ByteBuffer> buffers = List.of(
+                        ByteBuffer.allocate(utf8.length + 9),
+                        ByteBuffer.allocateDirect(utf8.length + 9),
+                        ByteBuffer.allocateDirect(utf8.length + 9).order(ByteOrder.LITTLE_ENDIAN));
+                for (ByteBuffer b : buffers) {
+                    b.position(5);
+                    b.put(utf8).flip().position(5);
+                    assertEquals(expected, f.hash(b), name + " " + (b.isDirect() ? "direct " + b.order() : "heap"));
+                    assertEquals(expected, f.hash(b.asReadOnlyBuffer()), name + " read-only");
+                    assertEquals(5, b.position(), name + " moved the buffer");
+                    assertEquals(expected, f.hash(b.slice()), name + " slice");
+                }
+            }
+            SplittableRandom rng = new SplittableRandom(3);
+            for (int i = 0; i < 1_000; i++) {
+                long key = i < 3 ? new long[]{0L, -1L, Long.MIN_VALUE}[i] : rng.nextLong();
+                byte[] le = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(key).array();
+                assertEquals(f.hash(le, 0, 8), f.hash(key), name + " long " + key);
+            }
+        }
+    }
+
+    // ---------- 6) Numeric keys through the String-only defaults ----------
+    @Test
+    void string_only_function_keeps_numeric_keys_apart() {
+        HashFunction stringOnly = key -> new Murmur3x64HashFunction().hash(key);
+        long[] keys = {0, 1, -1, 0x80, 0xFF, 0xC3A9, 0x8080808080808080L, 0xFFFFFFFFFFFFFFFEL, Long.MIN_VALUE, Long.MAX_VALUE};
+        Set<Long> seen = new HashSet<>();
+        for (long key : keys) assertTrue(seen.add(stringOnly.hash(key)), "collision at " + Long.toHexString(key));
+        SplittableRandom rng = new SplittableRandom(7);
+        long[] random = new long[100_000];
+        for (int i = 0; i < random.length; i++) random[i] = rng.nextLong();
+        long[] out = new long[random.length];
+        stringOnly.hash(random, out);
+        Set<Long> distinct = new HashSet<>();
+        for (int i = 0; i < random.length; i++) {
+            assertEquals(stringOnly.hash(random[i]), out[i]);
+            distinct.add(out[i]);
+        }
+        assertEquals(random.length, distinct.size());
+    }
+}
@@ -0,0 +1,23 @@
+package bench;
+
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.hashImplementations.*;
+
+/**
+ * Hash functions selectable as a JMH {@code @Param}.
+ */
+public enum HashKind {
+    MURMUR3, MURMUR3_X64, XXHASH64, WYHASH, MD5, SHA1;
+
+    public HashFunction create() {
+        switch (this) {
+            case MURMUR3: return new Murmur3HashFunction();
+            case MURMUR3_X64: return new Murmur3x64HashFunction();
+            case XXHASH64: return new XxHash64HashFunction();
+            case WYHASH: return new WyHashFunction();
+            case MD5: return new MD5HashFunction();
+            case SHA1: return new SHA1HashFunction();
+            default: throw new IllegalStateException("Unknown hash: " + this);
+        }
+    }
+}
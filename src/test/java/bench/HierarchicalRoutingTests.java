@@ -0,0 +1,275 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Keys go to a node of the group the top ring picks; groups take shares in proportion to their
+ *    total weight; group-local routing never leaves the group and agrees with global routing at home
+ * 2) A change rebuilds only the touched group's ring; other group rings are shared as they are;
+ *    a node moved to another region changes group; grouping by a metadata key works the same way
+ * 3) Down nodes are skipped globally and within a group; misuse is rejected
+ * 4) Against the flat ring: memory, balance, build time, lookup latency, join time and remap fraction
+ * 5) Replica lookups into a caller's array, and group-local lookups with a node down, allocate nothing once warm
+ *
+ * Notes:
+ * - A join moves up to about twice the ideal 1/N: the group's top arc grows (keys enter from other
+ *   groups, landing anywhere in it) and its ring hands the new node its share. (4) checks that bound.
+ * - Timings in (4) are printed only; the single-core CI box is too noisy to assert on them.
+ */
+public class HierarchicalRoutingTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+    static final String[] REGIONS = {"us-east", "eu-west", "ap-south"};
+
+    /** Node i lives in REGIONS[i % 3]; regions get 1, 2 and 3 parts of the nodes when {@code skewed}. */
+    static Node[] nodes(int count, boolean skewed) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            int slot = i % 6;
+            String region = skewed ? REGIONS[slot == 0 ? 0 : slot < 3 ? 1 : 2] : REGIONS[i % 3];
+            nodes[i] = new Node("N"+i, "10.0." + (i >> 8) + "." + (i & 0xFF), 8080, region, Map.of("rack", "rack-" + (i % 4)));
+        }
+        return nodes;
+    }
+
+    static ConsistentHashingBuilder builder(Node[] nodes) {
+        return new ConsistentHashingBuilder()
+                .withHash(HASH)
+                .withNodes(nodes)
+                .withVNodes(160)
+                .withAlgorithm(RoutingAlgorithm.HIERARCHICAL);
+    }
+
+    static long[] sampleHashes(int count, long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) hashes[i] = rng.nextLong();
+        return hashes;
+    }
+
+    // ---------- 1) Routing and group shares ----------
+    @Test
+    void keys_follow_top_ring_and_group_shares_follow_weight() {
+        ConsistentHashing router = builder(nodes(60, true)).build();
+        HierarchicalEngine engine = (HierarchicalEngine) router.getEngine();
+        assertEquals(Set.of(REGIONS), Set.copyOf(engine.getGroups()));
+        assertEquals(60, engine.getNodeCount());
+
+        Map<String, Long> perGroup = new HashMap<>();
+        long[] hashes = sampleHashes(300_000, 1);
+        for (long h : hashes) {
+            Node node = engine.route(h);
+            String group = engine.getTopRing().route(h).getId();
+            assertEquals(group, node.getRegion(), "Key left the group its top arc picked");
+            assertSame(node, engine.routeInGroup(group, h), "Local routing at home must match");
+            perGroup.merge(group, 1L, Long::sum);
+        }
+        // 10, 20 and 30 nodes: shares 1/6, 1/3, 1/2
+        assertEquals(1 / 6.0, perGroup.get("us-east") / (double) hashes.length, 0.03);
+        assertEquals(1 / 3.0, perGroup.get("eu-west") / (double) hashes.length, 0.03);
+        assertEquals(1 / 2.0, perGroup.get("ap-south") / (double) hashes.length, 0.03);
+
+        for (int i = 0; i < 5_000; i++) {
+            String key = "key-" + i;
+            for (String region : REGIONS) {
+                assertEquals(region, router.getNodeForKeyInGroup(key, region).getRegion());
+                Node[] replicas = router.getReplicasForKeyInGroup(key, region, 3);
+                assertEquals(3, replicas.length);
+                assertSame(router.getNodeForKeyInGroup(key, region), replicas[0]);
+                assertTrue(Arrays.stream(replicas).allMatch(n -> n.getRegion().equals(region)));
+            }
+            // replicas fill the home group first, then spill into the next groups
+            Node[] all = router.getReplicasForKey(key, 15);
+            assertEquals(15, Arrays.stream(all).map(Node::getId).distinct().count());
+            assertEquals(all[0].getRegion(), all[1].getRegion());
+        }
+    }
+
+    // ---------- 2) Changes touch one group ----------
+    @Test
+    void changes_rebuild_only_their_group() {
+        Node[] nodes = nodes(30, false);
+        ConsistentHashing router = builder(nodes).build();
+        HierarchicalEngine before = (HierarchicalEngine) router.getEngine();
+
+        Node joining = new Node("J", "10.1.0.1", 8080, "eu-west", Map.of());
+        router.addNodes(joining);
+        HierarchicalEngine afterJoin = (HierarchicalEngine) router.getEngine();
+        assertSame(before.getGroupRing("us-east"), afterJoin.getGroupRing("us-east"));
+        assertSame(before.getGroupRing("ap-south"), afterJoin.getGroupRing("ap-south"));
+        assertEquals(11, afterJoin.getGroupRing("eu-west").getNodeCount());
+
+        // only keys that the top ring moved into eu-west, or that eu-west handed to J, move
+        for (long h : sampleHashes(50_000, 2)) {
+            Node was = before.route(h), now = afterJoin.route(h);
+            if (was == now) continue;
+            assertTrue(now == joining || now.getRegion().equals("eu-west"), "Key moved to " + now.getId());
+        }
+
+        // weight change and a move to another region
+        router.updateNodes(new Node("N0", "10.0.0.0", 8080, "eu-west", Map.of(), 2.0));
+        HierarchicalEngine moved = (HierarchicalEngine) router.getEngine();
+        assertSame(afterJoin.getGroupRing("ap-south"), moved.getGroupRing("ap-south"));
+        assertEquals("eu-west", moved.groupOf(moved.getGroupRing("eu-west").allNodes[11]));
+        assertTrue(Arrays.stream(moved.getGroupRing("eu-west").allNodes).anyMatch(n -> n.getId().equals("N0") && n.getWeight() == 2.0));
+        assertTrue(Arrays.stream(moved.getGroupRing("us-east").allNodes).noneMatch(n -> n.getId().equals("N0")));
+
+        // a group emptied by removals leaves the top ring; a new region joins it
+        router.removeNodes(Arrays.stream(nodes).filter(n -> n.getRegion().equals("ap-south")).toArray(Node[]::new));
+        router.addNodes(new Node("S", "10.2.0.1", 8080, "sa-east", Map.of()));
+        HierarchicalEngine last = (HierarchicalEngine) router.getEngine();
+        assertEquals(Set.of("us-east", "eu-west", "sa-east"), Set.copyOf(last.getGroups()));
+        assertEquals(1 + 9 + 12, last.getNodeCount());
+        Set<String> reached = new HashSet<>();
+        for (long h : sampleHashes(20_000, 3)) reached.add(last.route(h).getRegion());
+        assertEquals(Set.of("us-east", "eu-west", "sa-east"), reached);
+
+        // rebuilt from scratch with the same grouping, the engine routes the same keys the same way
+        // as long as group weights did not move the top ring: compare group-local routing instead
+        HierarchicalEngine fresh = (HierarchicalEngine) builder(last.getNodes().toArray(new Node[0])).build().getEngine();
+        for (long h : sampleHashes(20_000, 4)) {
+            for (String g : last.getGroups()) assertEquals(fresh.routeInGroup(g, h).getId(), last.routeInGroup(g, h).getId());
+        }
+
+        ConsistentHashing byRack = builder(nodes(40, false)).withGroupByMetadata(PlacementPolicy.RACK_KEY).build();
+        HierarchicalEngine racks = (HierarchicalEngine) byRack.getEngine();
+        assertEquals(Set.of("rack-0", "rack-1", "rack-2", "rack-3"), Set.copyOf(racks.getGroups()));
+        for (int i = 0; i < 2_000; i++) {
+            assertEquals("rack-2", byRack.getNodeForKeyInGroup("key-" + i, "rack-2").getMetaData().get("rack"));
+        }
+    }
+
+    // ---------- 3) Failover and misuse ----------
+    @Test
+    void down_nodes_are_skipped_within_groups() {
+        Node[] nodes = nodes(30, false);
+        ConsistentHashing router = builder(nodes).build();
+        Node[] eu = Arrays.stream(nodes).filter(n -> n.getRegion().equals("eu-west")).toArray(Node[]::new);
+        router.markDown(Arrays.copyOf(eu, 8));
+        Set<String> down = router.getDownNodes();
+        for (int i = 0; i < 5_000; i++) {
+            String key = "key-" + i;
+            assertFalse(down.contains(router.getNodeForKey(key).getId()));
+            Node local = router.getNodeForKeyInGroup(key, "eu-west");
+            assertTrue(local == eu[8] || local == eu[9], "Local lookup must use a live eu-west node");
+            assertEquals(2, router.getReplicasForKeyInGroup(key, "eu-west", 5).length);
+        }
+        router.markDown(eu[8], eu[9]);
+        assertThrows(IllegalStateException.class, () -> router.getNodeForKeyInGroup("k", "eu-west"));
+        assertEquals("us-east", router.getNodeForKeyInGroup("k", "us-east").getRegion());
+
+        assertThrows(IllegalArgumentException.class, () -> router.getNodeForKeyInGroup("k", "mars"));
+        ConsistentHashing flat = new ConsistentHashingBuilder().withHash(HASH).withNodes(nodes).withVNodes(10).build();
+        assertThrows(IllegalStateException.class, () -> flat.getNodeForKeyInGroup("k", "eu-west"));
+    }
+
+    // ---------- 4) Against the flat ring ----------
+    @Test
+    void compares_with_flat_ring() {
+        int count = 2_000, vNodes = 160;
+        Node[] all = new Node[count + 1];
+        for (int i = 0; i <= count; i++) {
+            all[i] = new Node("N"+i, "10.0." + (i >> 8) + "." + (i & 0xFF), 8080, "region-" + (i % 16), Map.of());
+        }
+        Node[] nodes = Arrays.copyOf(all, count);
+        long[] hashes = sampleHashes(200_000, 5);
+        double flatMaxOverMean = 0;
+
+        for (RoutingAlgorithm algorithm : new RoutingAlgorithm[]{RoutingAlgorithm.RING, RoutingAlgorithm.HIERARCHICAL}) {
+            ConsistentHashingBuilder b = new ConsistentHashingBuilder().withHash(HASH).withNodes(nodes).withVNodes(vNodes).withAlgorithm(algorithm);
+            b.build(); // warm up
+            long t0 = System.nanoTime();
+            ConsistentHashing router = b.build();
+            long buildNanos = System.nanoTime() - t0;
+            RoutingEngine engine = router.getEngine();
+
+            long sink = 0;
+            for (long h : hashes) sink += engine.routeIndex(h);
+            t0 = System.nanoTime();
+            for (long h : hashes) sink += engine.routeIndex(h);
+            double lookupNanos = (System.nanoTime() - t0) / (double) hashes.length;
+
+            String[] before = RoutingEngineTests.owners(engine, hashes);
+            t0 = System.nanoTime();
+            router.addNodes(all[count]);
+            long joinNanos = System.nanoTime() - t0;
+            String[] after = RoutingEngineTests.owners(router.getEngine(), hashes);
+            int moved = 0;
+            for (int i = 0; i < hashes.length; i++) if (!before[i].equals(after[i])) moved++;
+            double remap = moved / (double) hashes.length;
+
+            System.out.printf("%-12s memory=%d bytes  build=%.1fms  lookup=%.0fns  join=%.2fms  join moved=%.5f (ideal %.5f)  [%d]%n",
+                    algorithm, engine.getMemoryBytes(), buildNanos / 1e6, lookupNanos, joinNanos / 1e6, remap,
+                    1.0 / (count + 1), sink & 1);
+
+            assertTrue(remap < 2.5 / (count + 1), algorithm + " join moved " + remap);
+            long[] counts = new long[count];
+            for (long h : hashes) counts[engine.routeIndex(h)]++;
+            double maxOverMean = Arrays.stream(counts).max().getAsLong() / (hashes.length / (double) count);
+            System.out.printf("%-12s max/mean=%.3f%n", algorithm, maxOverMean);
+            if (algorithm == RoutingAlgorithm.RING) flatMaxOverMean = maxOverMean;
+            if (algorithm == RoutingAlgorithm.HIERARCHICAL) {
+                // group shares add a little variance on top of the group rings' own
+                assertTrue(maxOverMean < flatMaxOverMean * 1.15, "max/mean " + maxOverMean + " vs flat " + flatMaxOverMean);
+                long flatMemory = new ConsistentHashingBuilder().withHash(HASH).withNodes(nodes).withVNodes(vNodes).build()
+                        .getEngine().getMemoryBytes();
+                // group rings hold the same points; the top ring and offsets add little
+                assertTrue(engine.getMemoryBytes() < flatMemory * 1.05, "Memory " + engine.getMemoryBytes() + " vs flat " + flatMemory);
+            }
+        }
+    }
+
+    // ---------- 5) Allocation-free replicas ----------
+    @Test
+    void replicas_into_array_do_not_allocate() {
+        Node[] nodes = nodes(60, true);
+        ConsistentHashing router = builder(nodes).build();
+        HierarchicalEngine engine = (HierarchicalEngine) router.getEngine();
+        Node[] out = new Node[5];
+        int[] indices = new int[5];
+        for (long h : sampleHashes(5_000, 3)) {
+            assertEquals(5, engine.routeN(h, out));
+            assertEquals(5, engine.routeN(h, indices));
+            for (int k = 0; k < 5; k++) assertSame(engine.getNodes().get(indices[k]), out[k], "replica " + k);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        // warm up, then count this thread's allocations over many lookups
+        // a late recompile can allocate once, so the best of a few rounds counts
+        int sink = 0;
+        for (int i = 0; i < 200_000; i++) sink += router.getReplicasForKey((long) i, out);
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 3 && allocated >= 1024; round++) {
+            long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 200_000; i++) sink += router.getReplicasForKey((long) i, out);
+            allocated = threads.getThreadAllocatedBytes(tid) - before;
+        }
+        assertEquals(0, sink % 1_000_000);
+        // the counter query itself may allocate a little
+        assertTrue(allocated < 1024, "Replicas allocated " + allocated + " bytes");
+
+        router.markDown(nodes[1]);
+        String[] keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) keys[i] = "key-" + i;
+        String group = nodes[1].getRegion();
+        int down = 0;
+        for (int i = 0; i < 200_000; i++) if (router.getNodeForKeyInGroup(keys[i & 1023], group) == nodes[1]) down++;
+        allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 3 && allocated >= 1024; round++) {
+            long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 200_000; i++) if (router.getNodeForKeyInGroup(keys[i & 1023], group) == nodes[1]) down++;
+            allocated = threads.getThreadAllocatedBytes(tid) - before;
+        }
+        assertEquals(0, down);
+        assertTrue(allocated < 1024, "Group lookups allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,82 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Node;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConsistentHashing#getNodeForKey(String)} with and without the hot-key cache, under
+ * Zipfian (s=1.1) and uniform picks from a million distinct keys. The hit rate of the cached
+ * runs is printed at teardown.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyCacheBenchmark {
+    static final int KEYS = 1 << 20;
+    static final int TRACE = 1 << 20;
+
+    @Param({"ZIPF", "UNIFORM"})
+    String distribution;
+
+    /** Cache capacity; 0 disables the cache. */
+    @Param({"0", "8192"})
+    int cache;
+
+    ConsistentHashing router;
+    String[] trace;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        Node[] nodes = BenchmarkData.nodes(100);
+        router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(nodes)
+                .withVNodes(160)
+                .withKeyCache(cache)
+                .build();
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) keys[i] = "user:" + Integer.toString(i * 0x9E3779B9, 36);
+        SplittableRandom rng = new SplittableRandom(42);
+        trace = new String[TRACE];
+        if (distribution.equals("ZIPF")) {
+            double[] cdf = new double[KEYS];
+            double sum = 0;
+            for (int i = 0; i < KEYS; i++) cdf[i] = sum += 1 / Math.pow(i + 1, 1.1);
+            for (int i = 0; i < KEYS; i++) cdf[i] /= sum;
+            for (int i = 0; i < TRACE; i++) {
+                int k = Arrays.binarySearch(cdf, rng.nextDouble());
+                trace[i] = keys[Math.min(KEYS - 1, k < 0 ? -k - 1 : k)];
+            }
+        } else {
+            for (int i = 0; i < TRACE; i++) trace[i] = keys[rng.nextInt(KEYS)];
+        }
+        // touch every key's hash code up front, as long-lived keys would have
+        for (String key : keys) key.hashCode();
+    }
+
+    @TearDown
+    public void report(BenchmarkParams params) {
+        if (cache > 0) System.out.println("\n" + distribution + " " + router.getCacheStats());
+    }
+
+    @Benchmark
+    public Node getNodeForKey(Cursor cursor) {
+        return router.getNodeForKey(trace[cursor.next++ & (TRACE - 1)]);
+    }
+}
@@ -0,0 +1,139 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Cached lookups return exactly what the engine routes; skewed traffic mostly hits
+ * 2) A snapshot swap invalidates entries implicitly: every lookup after it follows the new engine
+ * 3) Concurrent readers during membership changes only ever see a current or recent owner
+ *
+ * Notes:
+ * - Keys are drawn from the same Zipf(1.1) distribution as the bounded-load tests.
+ */
+public class KeyCacheTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+
+    static ConsistentHashing router(Node[] nodes, int cache) {
+        return new ConsistentHashingBuilder()
+                .withHash(HASH)
+                .withNodes(nodes)
+                .withVNodes(200)
+                .withKeyCache(cache)
+                .build();
+    }
+
+    // ---------- 1) Correctness and hit rate ----------
+    @Test
+    void cached_lookups_match_engine_and_hit_under_skew() {
+        Node[] nodes = BenchmarkData.plainNodes(20);
+        ConsistentHashing router = router(nodes, 4096);
+        RoutingEngine engine = router.getEngine();
+        BoundedLoadTests.Zipf zipf = new BoundedLoadTests.Zipf(100_000, 1.1, 3);
+        for (int i = 0; i < 500_000; i++) {
+            String key = zipf.next();
+            assertSame(engine.route(HASH.hash(key)), router.getNodeForKey(key), key);
+        }
+        CacheStats stats = router.getCacheStats();
+        System.out.println("Zipf(1.1) over 100k keys: " + stats);
+        assertEquals(4096, stats.getCapacity());
+        assertEquals(500_000, stats.getHits() + stats.getMisses());
+        assertTrue(stats.getHitRate() > 0.6, "Hit rate " + stats.getHitRate());
+
+        // capacity is rounded up to whole power-of-two buckets
+        assertEquals(4, router(nodes, 1).getCacheStats().getCapacity());
+        assertEquals(64, router(nodes, 33).getCacheStats().getCapacity());
+        assertThrows(IllegalStateException.class, () -> router(nodes, 0).getCacheStats());
+    }
+
+    // ---------- 2) Version tagging ----------
+    @Test
+    void snapshot_swap_invalidates_without_clear() {
+        Node[] nodes = BenchmarkData.plainNodes(9);
+        ConsistentHashing router = router(Arrays.copyOf(nodes, 8), 1024);
+        String[] keys = new String[500];
+        for (int i = 0; i < keys.length; i++) keys[i] = "key-" + i;
+        for (String key : keys) router.getNodeForKey(key);
+        for (String key : keys) router.getNodeForKey(key);
+        long hits = router.getCacheStats().getHits();
+        assertTrue(hits > 400, "Warm cache hit only " + hits);
+
+        router.addNodes(nodes[8]);
+        RoutingEngine next = router.getEngine();
+        int moved = 0;
+        for (String key : keys) {
+            Node node = router.getNodeForKey(key);
+            assertSame(next.route(HASH.hash(key)), node, key);
+            if (node.getId().equals(nodes[8].getId())) moved++;
+        }
+        assertTrue(moved > 0, "No key moved to the new node");
+        // the first pass after the swap misses on every key, the second hits again
+        assertEquals(hits, router.getCacheStats().getHits());
+        for (String key : keys) router.getNodeForKey(key);
+        assertTrue(router.getCacheStats().getHits() > hits + 400);
+    }
+
+    // ---------- 3) Concurrency ----------
+    @Test
+    void concurrent_reads_during_swaps_stay_consistent() throws Exception {
+        Node[] nodes = BenchmarkData.plainNodes(12);
+        ConsistentHashing router = router(Arrays.copyOf(nodes, 10), 256);
+        int threads = 4;
+        Map<Long, RoutingEngine> published = new ConcurrentHashMap<>();
+        published.put(0L, router.getEngine());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Future<Integer>> results = new ArrayList<>();
+        Queue<Object[]> suspects = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(pool.submit(() -> {
+                BoundedLoadTests.Zipf zipf = new BoundedLoadTests.Zipf(2_000, 1.1, seed);
+                int lookups = 0;
+                while (!stop.get()) {
+                    String key = zipf.next();
+                    RoutingEngine before = router.getEngine();
+                    Node node = router.getNodeForKey(key);
+                    RoutingEngine after = router.getEngine();
+                    long h = HASH.hash(key);
+                    // owners from engines published in between are checked once all versions are known
+                    if (node != before.route(h) && node != after.route(h)) {
+                        suspects.add(new Object[]{key, node, before.getVersion(), after.getVersion()});
+                    }
+                    lookups++;
+                }
+                return lookups;
+            }));
+        }
+        for (int round = 0; round < 50; round++) {
+            router.addNodes(nodes[10 + round % 2]);
+            published.put(router.getEngine().getVersion(), router.getEngine());
+            Thread.sleep(2);
+            router.removeNodes(nodes[10 + round % 2]);
+            published.put(router.getEngine().getVersion(), router.getEngine());
+        }
+        stop.set(true);
+        long lookups = 0;
+        for (Future<Integer> f : results) lookups += f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        // every lookup returned the owner on some engine current during the call
+        for (Object[] s : suspects) {
+            boolean found = false;
+            for (long v = (long) s[2]; v <= (long) s[3] && !found; v++) {
+                found = published.get(v).route(HASH.hash((String) s[0])) == s[1];
+            }
+            assertTrue(found, s[0] + " routed to " + ((Node) s[1]).getId() + " outside v" + s[2] + ".." + s[3]);
+        }
+        assertTrue(lookups > 0);
+        assertEquals(lookups, router.getCacheStats().getHits() + router.getCacheStats().getMisses());
+    }
+}
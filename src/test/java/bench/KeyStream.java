@@ -0,0 +1,131 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Key streams for {@link WorkloadSimulator}. Generated streams pick from a pool of distinct
+ * keys: uniformly, by Zipf(s) rank, or with a share of picks going to a small hot set. Ranks
+ * map to keys through a seeded permutation, so popular keys are spread over the ring, and
+ * with a shift period the ranks rotate by one hot set per period: yesterday's hot keys cool
+ * down and a fresh set heats up. A replayed stream cycles through the lines of a trace file.
+ */
+final class KeyStream {
+
+    enum Distribution { UNIFORM, ZIPF, HOTSET, REPLAY }
+
+    /** The key pool, or the trace for {@link Distribution#REPLAY}. */
+    final String[] keys;
+    private final Distribution distribution;
+    /** Rank → key index. */
+    private final int[] order;
+    /** Cumulative Zipf probabilities by rank; only for {@link Distribution#ZIPF}. */
+    private final double[] cdf;
+    private final int hotSet;
+    private final double hotFraction;
+    private final long shiftNanos;
+    private final long startNanos;
+
+    private KeyStream(String[] keys, Distribution distribution, double zipf, int hotSet, double hotFraction,
+                      long shiftNanos, long seed) {
+        this.keys = keys;
+        this.distribution = distribution;
+        this.hotSet = Math.max(1, Math.min(hotSet, keys.length));
+        this.hotFraction = hotFraction;
+        this.shiftNanos = shiftNanos;
+        this.startNanos = System.nanoTime();
+        if (distribution == Distribution.REPLAY) {
+            this.order = null;
+            this.cdf = null;
+            return;
+        }
+        this.order = permutation(keys.length, new SplittableRandom(seed));
+        if (distribution == Distribution.ZIPF) {
+            cdf = new double[keys.length];
+            double sum = 0;
+            for (int i = 0; i < cdf.length; i++) cdf[i] = sum += 1 / Math.pow(i + 1, zipf);
+            for (int i = 0; i < cdf.length; i++) cdf[i] /= sum;
+        } else {
+            cdf = null;
+        }
+    }
+
+    /** A generated stream over {@code poolSize} keys named {@code key-<i>}. */
+    static KeyStream generated(Distribution distribution, int poolSize, double zipf, int hotSet, double hotFraction,
+                               long shiftNanos, long seed) {
+        if (distribution == Distribution.REPLAY) throw new IllegalArgumentException("Replay needs a trace file");
+        if (poolSize < 1) throw new IllegalArgumentException("Key pool must not be empty");
+        String[] keys = new String[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            keys[i] = "key-" + i;
+            keys[i].hashCode(); // long-lived keys have their hash code cached
+        }
+        return new KeyStream(keys, distribution, zipf, hotSet, hotFraction, shiftNanos, seed);
+    }
+
+    /** Replays the non-empty lines of {@code trace}, one key per line. */
+    static KeyStream replay(Path trace) throws IOException {
+        List<String> lines = Files.readAllLines(trace, StandardCharsets.UTF_8);
+        String[] keys = lines.stream().filter(l -> !l.isEmpty()).toArray(String[]::new);
+        if (keys.length == 0) throw new IllegalArgumentException("Trace has no keys: " + trace);
+        return new KeyStream(keys, Distribution.REPLAY, 0, 1, 0, 0, 0);
+    }
+
+    /** Independent cursor for one reader thread; replay cursors start at staggered offsets. */
+    Picker picker(int thread, int threads, long seed) {
+        return new Picker(new SplittableRandom(seed + thread), (int) ((long) keys.length * thread / threads));
+    }
+
+    final class Picker {
+        private final SplittableRandom rng;
+        private int next;
+
+        private Picker(SplittableRandom rng, int start) {
+            this.rng = rng;
+            this.next = start;
+        }
+
+        /** Next key at time {@code nowNanos}, which selects the hot-set epoch. */
+        String next(long nowNanos) {
+            switch (distribution) {
+                case REPLAY:
+                    if (next == keys.length) next = 0;
+                    return keys[next++];
+                case UNIFORM:
+                    return keys[rng.nextInt(keys.length)];
+                case ZIPF: {
+                    int rank = Arrays.binarySearch(cdf, rng.nextDouble());
+                    return keys[byRank(rank < 0 ? -rank - 1 : rank, nowNanos)];
+                }
+                default: // HOTSET
+                    int rank = rng.nextDouble() < hotFraction ? rng.nextInt(hotSet) : rng.nextInt(keys.length);
+                    return keys[byRank(rank, nowNanos)];
+            }
+        }
+
+        private int byRank(int rank, long nowNanos) {
+            long epoch = shiftNanos == 0 ? 0 : (nowNanos - startNanos) / shiftNanos;
+            return order[(int) ((Math.min(rank, order.length - 1) + epoch * hotSet) % order.length)];
+        }
+    }
+
+    /** Key index holding {@code rank} in the first epoch; for tests. */
+    int keyIndexOfRank(int rank) {
+        return order[rank];
+    }
+
+    private static int[] permutation(int n, SplittableRandom rng) {
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) p[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int t = p[i]; p[i] = p[j]; p[j] = t;
+        }
+        return p;
+    }
+}
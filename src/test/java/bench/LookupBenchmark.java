@@ -0,0 +1,64 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Node;
+import io.github.NK8916.RingLayout;
+import io.github.NK8916.SearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-key routing through {@link ConsistentHashing#getNodeForKey(String)}.
+ * Sample mode reports latency percentiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"100", "10000"})
+    int nodeCount;
+
+    @Param({"100", "1000"})
+    int vNodes;
+
+    @Param({"MURMUR3", "MURMUR3_X64", "XXHASH64", "WYHASH"})
+    HashKind hash;
+
+    @Param({"NONE", "PREFIX_TABLE"})
+    SearchIndex searchIndex;
+
+    @Param({"REFERENCES", "COMPACT", "OFF_HEAP"})
+    RingLayout layout;
+
+    ConsistentHashing router;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(hash.create())
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withVNodes(vNodes)
+                .withSearchIndex(searchIndex)
+                .withLayout(layout)
+                .build();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    public Node getNodeForKey(Cursor cursor) {
+        return router.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.Node;
+import io.github.NK8916.RoutingEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the instrumentation layer on {@link ConsistentHashing#getNodeForKey(String)}:
+ * routing straight through the engine, through a router with metrics off (should match),
+ * and with metrics on at the default sampling.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"100"})
+    int nodeCount;
+
+    HashFunction hash;
+    RoutingEngine engine;
+    ConsistentHashing plain;
+    ConsistentHashing instrumented;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        hash = HashKind.MURMUR3_X64.create();
+        Node[] nodes = BenchmarkData.nodes(nodeCount);
+        plain = new ConsistentHashingBuilder()
+                .withVersion(1).withHash(hash).withNodes(nodes).withVNodes(160)
+                .build();
+        instrumented = new ConsistentHashingBuilder()
+                .withVersion(1).withHash(hash).withNodes(nodes).withVNodes(160)
+                .withMetrics()
+                .build();
+        engine = plain.getEngine();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    public Node engineDirect(Cursor cursor) {
+        return engine.route(hash.hash(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]));
+    }
+
+    @Benchmark
+    public Node metricsOff(Cursor cursor) {
+        return plain.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+
+    @Benchmark
+    public Node metricsOn(Cursor cursor) {
+        return instrumented.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+}
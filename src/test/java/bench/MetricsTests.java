@@ -0,0 +1,125 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Per-node lookup counters are exact, with and without the key cache; latency is sampled at the set rate
+ * 2) Build timings, swap durations and gauges follow the published engine; counters follow nodes by id
+ * 3) Replica walk lengths: zero when a replica table answers, at least the replica count otherwise
+ *
+ * Notes:
+ * - Latency values depend on the machine, so only their counts and ordering are checked.
+ */
+public class MetricsTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+
+    static ConsistentHashingBuilder builder(Node[] nodes) {
+        return new ConsistentHashingBuilder()
+                .withHash(HASH)
+                .withNodes(nodes)
+                .withVNodes(200);
+    }
+
+    // ---------- 1) Lookup counters ----------
+    @Test
+    void lookup_counters_are_exact_and_latency_is_sampled() {
+        Node[] nodes = BenchmarkData.plainNodes(10);
+        for (int cache : new int[]{0, 512}) {
+            ConsistentHashing router = builder(nodes).withKeyCache(cache).withMetrics(16).build();
+            RoutingEngine engine = router.getEngine();
+            Map<String, Long> expected = new HashMap<>();
+            BoundedLoadTests.Zipf zipf = new BoundedLoadTests.Zipf(5_000, 1.1, 9);
+            int lookups = 200_000;
+            for (int i = 0; i < lookups; i++) {
+                String key = zipf.next();
+                Node node = router.getNodeForKey(key);
+                assertSame(engine.route(HASH.hash(key)), node);
+                expected.merge(node.getId(), 1L, Long::sum);
+            }
+            MetricsSnapshot metrics = router.getMetrics();
+            for (Node node : nodes) {
+                assertEquals(expected.getOrDefault(node.getId(), 0L), metrics.getLookupsPerNode().get(node.getId()), node.getId());
+            }
+            HistogramSnapshot latency = metrics.getLookupLatency();
+            System.out.println("cache=" + cache + " lookup latency ns: " + latency);
+            // one in 16 lookups is timed
+            assertEquals(lookups / 16.0, latency.getCount(), lookups / 16.0 * 0.1);
+            assertTrue(latency.getPercentile(0.5) <= latency.getPercentile(0.99));
+            assertTrue(latency.getPercentile(0.99) <= latency.getMax());
+            assertEquals(0, metrics.getReplicaLatency().getCount());
+        }
+        assertThrows(IllegalStateException.class, () -> builder(nodes).build().getMetrics());
+        assertThrows(IllegalArgumentException.class, () -> builder(nodes).withMetrics(0));
+    }
+
+    // ---------- 2) Build, swaps and gauges ----------
+    @Test
+    void build_timings_swaps_and_gauges_follow_engine() {
+        Node[] nodes = BenchmarkData.plainNodes(12);
+        ConsistentHashing router = builder(Arrays.copyOf(nodes, 10))
+                .withSearchIndex(SearchIndex.PREFIX_TABLE)
+                .withMetrics(1)
+                .build();
+        BuildTimings build = router.getMetrics().getBuildTimings();
+        System.out.println(build);
+        assertTrue(build.getHashNanos() > 0 && build.getSortNanos() > 0 && build.getGatherNanos() > 0 && build.getIndexNanos() > 0);
+        assertTrue(build.getTotalNanos() >= build.getHashNanos() + build.getSortNanos() + build.getGatherNanos() + build.getIndexNanos());
+
+        for (int i = 0; i < 1_000; i++) router.getNodeForKey("key-" + i);
+        long n3 = router.getMetrics().getLookupsPerNode().get("N3");
+        assertTrue(n3 > 0);
+        router.addNodes(nodes[10], nodes[11]);
+        router.removeNodes(nodes[0]);
+        router.updateNodes(new Node("N5", "10.0.0.5", 8080, "ap-south-1", Map.of(), 2));
+
+        MetricsSnapshot metrics = router.getMetrics();
+        assertEquals(3, metrics.getVersion());
+        assertEquals(11, metrics.getNodeCount());
+        assertEquals(router.ringSize(), metrics.getRingSize());
+        assertEquals(router.getEngine().getMemoryBytes(), metrics.getMemoryBytes());
+        assertEquals(3, metrics.getSwapLatency().getCount());
+        assertTrue(metrics.getSwapLatency().getMax() > 0);
+        // survivors keep their counts, leavers drop out, joiners start at zero
+        assertEquals(n3, metrics.getLookupsPerNode().get("N3"));
+        assertFalse(metrics.getLookupsPerNode().containsKey("N0"));
+        assertEquals(0L, metrics.getLookupsPerNode().get("N11"));
+        assertSame(build, metrics.getBuildTimings());
+
+        ConsistentHashing jump = builder(nodes).withAlgorithm(RoutingAlgorithm.JUMP).withMetrics().build();
+        assertEquals(0, jump.getMetrics().getRingSize());
+        assertEquals(0, jump.getMetrics().getBuildTimings().getHashNanos());
+        assertTrue(jump.getMetrics().getBuildTimings().getTotalNanos() > 0);
+    }
+
+    // ---------- 3) Replica walks ----------
+    @Test
+    void replica_walks_are_measured() {
+        Node[] nodes = BenchmarkData.plainNodes(10);
+        for (int table : new int[]{0, 3}) {
+            ConsistentHashing router = builder(nodes).withReplicaTable(table).withMetrics(1).build();
+            Node[] out = new Node[3];
+            for (int i = 0; i < 2_000; i++) {
+                router.getReplicasForKey("key-" + i, out);
+                router.getReplicasForKey("key-" + i, 3);
+            }
+            HistogramSnapshot walk = router.getMetrics().getReplicaWalk();
+            System.out.println("replicaTable=" + table + " walk positions: " + walk);
+            assertEquals(4_000, walk.getCount());
+            assertEquals(4_000, router.getMetrics().getReplicaLatency().getCount());
+            if (table == 3) {
+                assertEquals(0, walk.getMax());
+            } else {
+                assertTrue(walk.getPercentile(0) >= 3);
+                assertTrue(walk.getMean() >= 3);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConsistentHashing#getReplicasForKey(String, int)} and its allocation-free overload
+ * across replication factors, with and without a precomputed replica table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplicaBenchmark {
+
+    @Param({"1000"})
+    int nodeCount;
+
+    @Param({"100", "1000"})
+    int vNodes;
+
+    @Param({"1", "3", "5"})
+    int replicas;
+
+    @Param({"0", "5"})
+    int replicaTable;
+
+    ConsistentHashing router;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        Node[] out;
+
+        @Setup
+        public void setup(ReplicaBenchmark benchmark) {
+            out = new Node[benchmark.replicas];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(BenchmarkData.nodes(nodeCount))
+                .withVNodes(vNodes)
+                .withReplicaTable(replicaTable)
+                .build();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    public Node[] getReplicasForKey(Cursor cursor) {
+        return router.getReplicasForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)], replicas);
+    }
+
+    @Benchmark
+    public Node[] getReplicasForKeyInto(Cursor cursor) {
+        router.getReplicasForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)], cursor.out);
+        return cursor.out;
+    }
+}
@@ -0,0 +1,124 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static bench.BenchmarkData.plainNodes;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Shares are exact: they sum to 1, match BigInteger arc sums and the sampled key distribution
+ * 2) Imbalance is measured against weight-proportional fair shares
+ * 3) Vnode tuning picks a small count that meets the target, bounded by withVNodes
+ *
+ * Notes:
+ * - The sampled comparison reuses the 25-node setup of the core fairness test.
+ */
+public class RingBalanceTests {
+
+    static final HashFunction HASH = new Murmur3HashFunction();
+
+    static RingSnapshot ring(Node[] nodes, int vNodes, RingLayout layout) {
+        return new ConsistentHashingBuilder()
+                .withHash(HASH)
+                .withNodes(nodes)
+                .withVNodes(vNodes)
+                .withLayout(layout)
+                .build().debugSnapshot();
+    }
+
+    // ---------- 1) Exact shares ----------
+    @Test
+    void shares_are_exact_arc_sums() {
+        Node[] nodes = plainNodes(25);
+        for (RingLayout layout : RingLayout.values()) {
+            // large enough to be summed in parallel chunks
+            RingSnapshot ring = ring(nodes, 7500, layout);
+            RingBalance balance = RingBalance.of(ring);
+
+            BigInteger[] arcs = new BigInteger[nodes.length];
+            Arrays.fill(arcs, BigInteger.ZERO);
+            BigInteger space = BigInteger.ONE.shiftLeft(64);
+            for (int i = 0; i < ring.ringSize(); i++) {
+                BigInteger p = new BigInteger(Long.toUnsignedString(ring.pointAt(i)));
+                BigInteger prev = new BigInteger(Long.toUnsignedString(ring.pointAt(i == 0 ? ring.ringSize() - 1 : i - 1)));
+                arcs[ring.ownerAt(i)] = arcs[ring.ownerAt(i)].add(p.subtract(prev).mod(space));
+            }
+            double total = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                double exact = arcs[i].doubleValue() / space.doubleValue();
+                assertEquals(exact, balance.getShare(i), 1e-12, layout + " N" + i);
+                total += balance.getShare(i);
+            }
+            assertEquals(1.0, total, 1e-12);
+            assertEquals(balance.getShares().keySet(), new LinkedHashSet<>(Arrays.stream(nodes).map(Node::getId).toList()));
+        }
+
+        // the exact figures are what the core fairness test samples
+        RingSnapshot ring = ring(nodes, 7500, RingLayout.COMPACT);
+        RingBalance balance = RingBalance.of(ring);
+        long[] counts = new long[nodes.length];
+        int samples = 2_000_000;
+        SplittableRandom rng = new SplittableRandom(42);
+        for (int i = 0; i < samples; i++) counts[ring.routeIndex(rng.nextLong())]++;
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals(balance.getShare(i), counts[i] / (double) samples, 0.0015, "N" + i);
+        }
+        System.out.println("25 nodes x 7500 vnodes: " + balance);
+        assertTrue(balance.getCoefficientOfVariation() < 0.015);
+        assertTrue(balance.getMaxMinRatio() < 1.08);
+
+        RingSnapshot single = ring(plainNodes(1), 1, RingLayout.COMPACT);
+        assertEquals(1.0, RingBalance.of(single).getShare(0));
+        assertEquals(0.0, RingBalance.of(single).getCoefficientOfVariation());
+    }
+
+    // ---------- 2) Weights ----------
+    @Test
+    void imbalance_is_relative_to_weight() {
+        Node[] nodes = new Node[8];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of(), i % 2 == 0 ? 1 : 3);
+        }
+        RingBalance balance = RingBalance.of(ring(nodes, 4000, RingLayout.COMPACT));
+        System.out.println("weights 1/3: " + balance);
+        // heavy nodes own about three times as much, yet the ring counts as balanced
+        assertEquals(3.0, balance.getShare(1) / balance.getShare(0), 0.3);
+        assertTrue(balance.getMaxOverMean() < 1.05);
+        assertTrue(balance.getMaxMinRatio() < 1.1);
+    }
+
+    // ---------- 3) Vnode tuning ----------
+    @Test
+    void tuning_finds_smallest_count_meeting_target() {
+        Node[] nodes = plainNodes(40);
+        for (double target : new double[]{1.25, 1.1}) {
+            RingSnapshot tuned = new ConsistentHashingBuilder()
+                    .withHash(HASH)
+                    .withNodes(nodes)
+                    .withTargetImbalance(target)
+                    .withMetrics()
+                    .build().debugSnapshot();
+            int v = tuned.getVNodes();
+            RingBalance balance = RingBalance.of(tuned);
+            System.out.printf("target max/mean %.2f -> %d vnodes, %s%n", target, v, balance);
+            assertTrue(balance.getMaxOverMean() <= target);
+            assertEquals(40L * v, tuned.ringSize());
+            assertTrue(v < ConsistentHashingBuilder.DEFAULT_MAX_VNODES / 4, "Tuning settled on " + v);
+            // well below the chosen count the target is missed
+            assertTrue(RingBalance.of(ring(nodes, Math.max(1, v / 4), RingLayout.COMPACT)).getMaxOverMean() > target);
+        }
+
+        // withVNodes caps the search and is used when the target is out of reach
+        RingSnapshot capped = new ConsistentHashingBuilder()
+                .withHash(HASH).withNodes(nodes).withVNodes(8).withTargetImbalance(1.01)
+                .build().debugSnapshot();
+        assertEquals(8, capped.getVNodes());
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashingBuilder().withTargetImbalance(1.0));
+    }
+}
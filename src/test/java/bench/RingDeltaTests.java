@@ -0,0 +1,202 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import io.github.NK8916.hashImplementations.XxHash64HashFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) A chain of joins, leaves and weight changes shipped as deltas leaves every client, whatever
+ *    its layout, with exactly the publisher's ring; a full encoding decodes to the same ring
+ * 2) Out-of-order, stale, corrupted and foreign-hash updates are rejected and the client keeps
+ *    the version it had
+ * 3) Over a local file, a one-node join is a small fraction of the full encoding and applies
+ *    faster than a rebuild
+ *
+ * Notes:
+ * - (3) prints encoded sizes and apply vs rebuild times; only coarse bounds are asserted since
+ *   timings on shared machines are noisy.
+ */
+public class RingDeltaTests {
+
+    @TempDir
+    Path dir;
+
+    static Node[] nodes(int count) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new Node("N" + i, "10.0." + (i / 256) + "." + (i % 256), 8000 + i, "r" + (i % 3),
+                    Map.of("rack", "rack-" + (i % 7)));
+        }
+        return nodes;
+    }
+
+    static ConsistentHashing router(HashFunction hf, Node[] nodes, int vNodes, RingLayout layout) {
+        return new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(hf)
+                .withNodes(nodes)
+                .withVNodes(vNodes)
+                .withLayout(layout)
+                .build();
+    }
+
+    static RingSnapshot ring(ConsistentHashing router) {
+        return (RingSnapshot) router.getEngine();
+    }
+
+    static void assertSameRing(RingSnapshot expected, RingSnapshot actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getVNodes(), actual.getVNodes());
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        for (int i = 0; i < expected.getNodeCount(); i++) {
+            Node a = expected.getNodes().get(i), b = actual.getNodes().get(i);
+            assertEquals(a.getId(), b.getId());
+            assertEquals(a.getWeight(), b.getWeight());
+            assertEquals(a.getMetaData(), b.getMetaData());
+        }
+        assertEquals(expected.ringSize(), actual.ringSize());
+        for (int i = 0; i < expected.ringSize(); i++) {
+            assertEquals(expected.pointAt(i), actual.pointAt(i), "Point " + i);
+            assertEquals(expected.ownerAt(i), actual.ownerAt(i), "Owner " + i);
+        }
+    }
+
+    // ---------- 1) Deltas reproduce the publisher's ring ----------
+    @Test
+    void deltas_reproduce_the_publishers_ring() {
+        HashFunction hf = new Murmur3x64HashFunction();
+        Node[] initial = nodes(40);
+        ConsistentHashing publisher = router(hf, initial, 64, RingLayout.REFERENCES);
+        List<ConsistentHashing> clients = List.of(
+                router(hf, initial, 64, RingLayout.REFERENCES),
+                router(hf, initial, 64, RingLayout.COMPACT),
+                router(hf, initial, 64, RingLayout.OFF_HEAP));
+
+        List<Runnable> changes = List.of(
+                () -> publisher.addNodes(nodes(43)[40], nodes(43)[41], nodes(43)[42]),
+                () -> publisher.removeNodes(initial[5]),  // shifts every later owner index
+                () -> publisher.updateNodes(new Node("N7", "10.0.0.7", 8007, "r1", Map.of("rack", "rack-0"), 2.5)),
+                () -> publisher.updateNodes(new Node("N9", "10.0.0.9", 8009, "r0", Map.of("rack", "rack-2"), 0.5)),
+                () -> publisher.updateNodes(new Node("N11", "10.9.9.9", 9011, "r2", Map.of("rack", "moved"))),
+                () -> publisher.removeNodes(initial[0], initial[39]));
+        for (Runnable change : changes) {
+            RingSnapshot before = ring(publisher);
+            change.run();
+            RingSnapshot after = ring(publisher);
+            byte[] delta = RingDelta.encode(before, after, hf);
+            for (ConsistentHashing client : clients) {
+                assertEquals(after.getVersion(), client.applyDelta(delta));
+                assertSameRing(after, ring(client));
+            }
+        }
+        assertEquals(RingLayout.OFF_HEAP, ring(clients.get(2)).getLayout(), "Clients keep their layout");
+
+        SplittableRandom rng = new SplittableRandom(3);
+        for (int i = 0; i < 20_000; i++) {
+            String key = "k" + rng.nextLong();
+            String owner = publisher.getNodeForKey(key).getId();
+            for (ConsistentHashing client : clients) assertEquals(owner, client.getNodeForKey(key).getId());
+        }
+
+        RingSnapshot decoded = RingDelta.decode(RingDelta.encode(ring(publisher), hf), hf);
+        assertSameRing(ring(publisher), decoded);
+
+        // a ring whose nodes were reordered cannot be expressed as a delta and ships in full
+        Node[] reversed = initial.clone();
+        Collections.reverse(Arrays.asList(reversed));
+        RingSnapshot rebuilt = (RingSnapshot) new ConsistentHashingBuilder()
+                .withVersion(ring(publisher).getVersion() + 1).withHash(hf).withNodes(reversed).withVNodes(64)
+                .build().getEngine();
+        ConsistentHashing client = clients.get(0);
+        client.applyDelta(RingDelta.encode(ring(publisher), rebuilt, hf));
+        assertSameRing(rebuilt, ring(client));
+    }
+
+    // ---------- 2) Rejected updates ----------
+    @Test
+    void out_of_order_and_damaged_updates_are_rejected() {
+        HashFunction hf = new XxHash64HashFunction(1);
+        Node[] initial = nodes(20);
+        ConsistentHashing publisher = router(hf, initial, 32, RingLayout.REFERENCES);
+        ConsistentHashing client = router(hf, initial, 32, RingLayout.REFERENCES);
+
+        RingSnapshot v1 = ring(publisher);
+        publisher.addNodes(nodes(21)[20]);
+        RingSnapshot v2 = ring(publisher);
+        publisher.removeNodes(initial[3]);
+        RingSnapshot v3 = ring(publisher);
+        byte[] d12 = RingDelta.encode(v1, v2, hf);
+        byte[] d23 = RingDelta.encode(v2, v3, hf);
+
+        assertThrows(IllegalStateException.class, () -> client.applyDelta(d23), "Gap: v2 -> v3 on v1");
+        assertSameRing(v1, ring(client));
+        assertEquals(2, client.applyDelta(d12));
+        assertThrows(IllegalStateException.class, () -> client.applyDelta(d12), "Replayed delta");
+        assertThrows(IllegalStateException.class, () -> client.applyDelta(RingDelta.encode(v2, hf)), "Stale full ring");
+
+        byte[] corrupted = d23.clone();
+        corrupted[corrupted.length / 2] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> client.applyDelta(corrupted));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.applyDelta(RingDelta.encode(v2, v3, new XxHash64HashFunction(2))));
+        assertThrows(IllegalArgumentException.class, () -> RingDelta.encode(v3, v2, hf));
+        assertSameRing(v2, ring(client));
+
+        assertEquals(3, client.applyDelta(d23));
+        assertSameRing(v3, ring(client));
+    }
+
+    // ---------- 3) Size and apply time over a local file ----------
+    @Test
+    void join_delta_is_small_and_applies_faster_than_a_rebuild() throws Exception {
+        HashFunction hf = new Murmur3x64HashFunction();
+        int nodeCount = 1_000, vNodes = 100;
+        Node[] initial = nodes(nodeCount);
+        ConsistentHashing publisher = router(hf, initial, vNodes, RingLayout.COMPACT);
+        ConsistentHashing client = router(hf, initial, vNodes, RingLayout.COMPACT);
+
+        RingSnapshot before = ring(publisher);
+        Node joining = nodes(nodeCount + 1)[nodeCount];
+        publisher.addNodes(joining);
+        RingSnapshot after = ring(publisher);
+
+        Path deltaFile = dir.resolve("ring.delta"), fullFile = dir.resolve("ring.full"), rawFile = dir.resolve("ring.bin");
+        Files.write(deltaFile, RingDelta.encode(before, after, hf));
+        Files.write(fullFile, RingDelta.encode(after, hf));
+        RingSnapshotFile.write(after, hf, rawFile);
+        long deltaBytes = Files.size(deltaFile), fullBytes = Files.size(fullFile), rawBytes = Files.size(rawFile);
+
+        byte[] received = Files.readAllBytes(deltaFile);
+        long applyNanos = Long.MAX_VALUE, rebuildNanos = Long.MAX_VALUE;
+        Node[] members = after.getNodes().toArray(new Node[0]);
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            RingDelta.apply(before, received, hf);
+            long t1 = System.nanoTime();
+            new ConsistentHashingBuilder().withHash(hf).withNodes(members).withVNodes(vNodes)
+                    .withLayout(RingLayout.COMPACT).build();
+            long t2 = System.nanoTime();
+            applyNanos = Math.min(applyNanos, t1 - t0);
+            rebuildNanos = Math.min(rebuildNanos, t2 - t1);
+        }
+        client.applyDelta(received);
+        assertSameRing(after, ring(client));
+
+        System.out.printf("ring delta: %d points; join delta %d B, full encoding %d B (%.2f B/point), "
+                        + "snapshot file %d B; apply %.2f ms vs rebuild %.2f ms%n",
+                after.ringSize(), deltaBytes, fullBytes, (double) fullBytes / after.ringSize(), rawBytes,
+                applyNanos / 1e6, rebuildNanos / 1e6);
+        assertTrue(deltaBytes * 50 < fullBytes, "Delta should carry ~1/N of the ring");
+        assertTrue(fullBytes < rawBytes, "Varint gaps beat fixed-width points");
+        assertTrue(applyNanos < rebuildNanos, "Applying a delta should beat a rebuild");
+    }
+}
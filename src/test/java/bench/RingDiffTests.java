@@ -0,0 +1,179 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static bench.BenchmarkData.plainNodes;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Transfers are exact: a sampled key lies in a transfer iff its owner changed, with matching nodes
+ * 2) The moved fraction equals the sampled remap fraction and ≈ 1/N on join/leave
+ * 3) A parallel diff covers the same ranges as the sequential one; identical rings diff to nothing
+ * 4) Points repeated within a ring yield well-formed transfers: only the first copy owns keys
+ *
+ * Notes:
+ * - Ring points are sampled alongside random keys so every boundary case is hit.
+ */
+public class RingDiffTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+
+    /** Transfer containing {@code hash}, by binary search over transfers sorted by start. */
+    static RingDiff.Transfer find(List<RingDiff.Transfer> transfers, long hash) {
+        int lo = 0, hi = transfers.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            RingDiff.Transfer t = transfers.get(mid);
+            if (Long.compareUnsigned(hash, t.getStartHash()) < 0) hi = mid - 1;
+            else if (Long.compareUnsigned(hash, t.getEndHash()) > 0) lo = mid + 1;
+            else return t;
+        }
+        return null;
+    }
+
+    // ---------- 1) Exactness ----------
+    @Test
+    void transfers_match_owner_changes_exactly() {
+        Node[] nodes = plainNodes(11);
+        for (RingLayout layout : RingLayout.values()) {
+            ConsistentHashing router = BenchmarkData.builder(Arrays.copyOf(nodes, 10), 200).withLayout(layout).build();
+            RingSnapshot before = router.debugSnapshot();
+            router.addNodes(nodes[10]);
+            router.removeNodes(nodes[3]);
+            router.updateNodes(new Node("N5", "10.0.0.5", 8080, "ap-south-1", Map.of(), 1.5));
+            RingSnapshot after = router.debugSnapshot();
+
+            List<RingDiff.Transfer> transfers = RingDiff.between(before, after).transfers().collect(Collectors.toList());
+            for (int k = 1; k < transfers.size(); k++) {
+                assertTrue(Long.compareUnsigned(transfers.get(k - 1).getEndHash(), transfers.get(k).getStartHash()) < 0, "Transfers out of order");
+            }
+
+            SplittableRandom rng = new SplittableRandom(7);
+            List<Long> probes = new ArrayList<>(List.of(0L, -1L));
+            for (int i = 0; i < before.ringSize(); i++) {
+                probes.add(before.pointAt(i));
+                probes.add(before.pointAt(i) + 1);
+            }
+            for (int i = 0; i < after.ringSize(); i++) {
+                probes.add(after.pointAt(i));
+                probes.add(after.pointAt(i) + 1);
+            }
+            for (int i = 0; i < 200_000; i++) probes.add(rng.nextLong());
+            for (long h : probes) {
+                Node was = before.route(h), now = after.route(h);
+                RingDiff.Transfer t = find(transfers, h);
+                if (was.getId().equals(now.getId())) {
+                    assertNull(t, layout + " unmoved key in " + t);
+                } else {
+                    assertNotNull(t, layout + " moved key " + Long.toUnsignedString(h, 16) + " not in any transfer");
+                    assertEquals(was.getId(), t.getFromNode().getId());
+                    assertEquals(now.getId(), t.getToNode().getId());
+                }
+            }
+        }
+    }
+
+    // ---------- 2) Moved fraction ----------
+    @Test
+    void moved_fraction_matches_sampled_remap() {
+        int n = 10, samples = 500_000;
+        Node[] nodes = plainNodes(n + 1);
+        ConsistentHashing router = BenchmarkData.builder(Arrays.copyOf(nodes, n), 200).withLayout(RingLayout.COMPACT).build();
+        RingSnapshot base = router.debugSnapshot();
+        router.addNodes(nodes[n]);
+        RingSnapshot joined = router.debugSnapshot();
+        router.removeNodes(nodes[n], nodes[0]);
+        RingSnapshot left = router.debugSnapshot();
+
+        for (RingSnapshot next : new RingSnapshot[]{joined, left}) {
+            RingDiff diff = RingDiff.between(base, next);
+            SplittableRandom rng = new SplittableRandom(11);
+            int moved = 0;
+            for (int i = 0; i < samples; i++) {
+                long h = rng.nextLong();
+                if (!base.route(h).getId().equals(next.route(h).getId())) moved++;
+            }
+            double sampled = moved / (double) samples, exact = diff.movedFraction();
+            System.out.printf("diff v%d->v%d: exact moved=%.5f  sampled=%.5f%n", base.getVersion(), next.getVersion(), exact, sampled);
+            // binomial standard error is below 0.0005 here
+            assertEquals(sampled, exact, 0.003);
+            assertEquals(next == joined ? 1.0 / (n + 1) : 1.0 / n, exact, 0.35 / n);
+        }
+        // a join only moves keys to the new node
+        assertTrue(RingDiff.between(base, joined).transfers().allMatch(t -> t.getToNode().getId().equals("N" + n)));
+    }
+
+    // ---------- 3) Parallel and empty diffs ----------
+    @Test
+    void parallel_diff_covers_same_ranges() {
+        Node[] nodes = plainNodes(60);
+        ConsistentHashing router = BenchmarkData.builder(Arrays.copyOf(nodes, 50), 200).withLayout(RingLayout.REFERENCES).build();
+        RingSnapshot before = router.debugSnapshot();
+        router.addNodes(Arrays.copyOfRange(nodes, 50, 60));
+        router.removeNodes(nodes[7], nodes[21]);
+        RingSnapshot after = router.debugSnapshot();
+
+        RingDiff diff = RingDiff.between(before, after);
+        List<RingDiff.Transfer> sequential = diff.transfers().collect(Collectors.toList());
+        List<RingDiff.Transfer> parallel = diff.transfers().parallel().collect(Collectors.toList());
+        assertTrue(parallel.size() >= sequential.size());
+        // re-join the pieces a split point cut apart
+        List<String> joined = new ArrayList<>();
+        RingDiff.Transfer first = null, last = null;
+        for (RingDiff.Transfer t : parallel) {
+            if (last != null && last.getEndHash() + 1 == t.getStartHash()
+                    && last.getFromNode().getId().equals(t.getFromNode().getId())
+                    && last.getToNode().getId().equals(t.getToNode().getId())) {
+                last = t;
+                continue;
+            }
+            if (first != null) joined.add(describe(first, last));
+            first = last = t;
+        }
+        if (first != null) joined.add(describe(first, last));
+        assertEquals(sequential.stream().map(t -> describe(t, t)).collect(Collectors.toList()), joined);
+
+        double sum = 0;
+        for (RingDiff.Transfer t : sequential) sum += t.fraction();
+        assertEquals(sum, diff.movedFraction(), 1e-9);
+
+        assertEquals(0, RingDiff.between(after, router.debugSnapshot()).transfers().count());
+        assertEquals(0.0, RingDiff.between(after, after).movedFraction());
+    }
+
+    /** Range from {@code first}'s start to {@code last}'s end, with their nodes. */
+    static String describe(RingDiff.Transfer first, RingDiff.Transfer last) {
+        return Long.toUnsignedString(first.getStartHash(), 16) + ".." + Long.toUnsignedString(last.getEndHash(), 16)
+                + " " + first.getFromNode().getId() + "->" + first.getToNode().getId();
+    }
+
+    // ---------- 4) Repeated points ----------
+    @Test
+    void repeated_points_yield_well_formed_transfers() {
+        Node[] nodes = plainNodes(3);
+        Node a = nodes[0], b = nodes[1], c = nodes[2];
+        // both rings repeat 100; only (100, 200] changes owner, from C to B
+        RingSnapshot before = new RingSnapshot(0, new long[]{100, 100, 200, 300}, new Node[]{a, b, c, a}, nodes, 1);
+        RingSnapshot after = new RingSnapshot(1, new long[]{100, 100, 200, 300}, new Node[]{a, c, b, a}, nodes, 1);
+
+        List<RingDiff.Transfer> transfers = RingDiff.between(before, after).transfers().collect(Collectors.toList());
+        assertEquals(1, transfers.size(), transfers.toString());
+        RingDiff.Transfer t = transfers.get(0);
+        assertEquals(101, t.getStartHash());
+        assertEquals(200, t.getEndHash());
+        assertSame(c, t.getFromNode());
+        assertSame(b, t.getToNode());
+        assertTrue(RingDiff.between(before, after).movedFraction() < 1e-15);
+
+        for (long probe : new long[]{0, 99, 100, 101, 150, 200, 201, 300, 301, -1}) {
+            boolean moved = before.route(probe) != after.route(probe);
+            assertEquals(moved, find(transfers, probe) != null, "Probe " + probe);
+        }
+    }
+}
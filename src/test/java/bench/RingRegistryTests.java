@@ -0,0 +1,245 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import io.github.NK8916.hashImplementations.SaltedHashFunction;
+import io.github.NK8916.hashImplementations.XxHash64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Keyspaces with identical ring configurations share one snapshot; different seeds, salts,
+ *    vnode counts or layouts get rings of their own, and memory is counted once per ring
+ * 2) A membership change reaches every keyspace at one version, rings stay shared, routing
+ *    matches a fresh build, and keyspaces changed outside the registry are refused
+ * 3) Salted rings place keys independently of each other and as evenly as the unsalted ring
+ * 4) Hash functions share rings by id, so seeded functions naming the seed keep rings (and
+ *    encodings) apart; a change refused by a late keyspace publishes nowhere; builders are left as passed
+ *
+ * Notes:
+ * - (1) prints the memory held with and without sharing.
+ */
+public class RingRegistryTests {
+
+    static ConsistentHashingBuilder ring(HashFunction hf, int vNodes) {
+        return new ConsistentHashingBuilder().withHash(hf).withVNodes(vNodes);
+    }
+
+    static Map<String, Integer> counts(ConsistentHashing router, String[] keys) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String k : keys) counts.merge(router.getNodeForKey(k).getId(), 1, Integer::sum);
+        return counts;
+    }
+
+    // ---------- 1) Sharing ----------
+    @Test
+    void identical_configurations_share_one_snapshot() {
+        RingRegistry registry = new RingRegistry(BenchmarkData.nodes(200));
+        ConsistentHashing a = registry.register("orders", ring(new Murmur3x64HashFunction(), 100));
+        ConsistentHashing b = registry.register("users", ring(new Murmur3x64HashFunction(), 100).withKeyCache(1024));
+        ConsistentHashing c = registry.register("carts", ring(new Murmur3x64HashFunction(), 100).withMetrics());
+        assertNotSame(a, b);
+        assertSame(a.getEngine(), b.getEngine());
+        assertSame(a.getEngine(), c.getEngine());
+
+        HashFunction xx = new XxHash64HashFunction();
+        ConsistentHashing seeded = registry.register("seeded", ring(new XxHash64HashFunction(7), 100));
+        ConsistentHashing salted = registry.register("salted", ring(new SaltedHashFunction(xx, "salted"), 100));
+        ConsistentHashing plain = registry.register("plain", ring(xx, 100));
+        ConsistentHashing fewer = registry.register("fewer", ring(new Murmur3x64HashFunction(), 50));
+        ConsistentHashing compact = registry.register("compact", ring(new Murmur3x64HashFunction(), 100).withLayout(RingLayout.COMPACT));
+        Set<RoutingEngine> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ConsistentHashing r : List.of(a, seeded, salted, plain, fewer, compact)) distinct.add(r.getEngine());
+        assertEquals(6, distinct.size());
+        assertEquals(6, registry.getRingCount());
+
+        long ringBytes = ((RingSnapshot) a.getEngine()).getMemoryBytes();
+        long shared = registry.getMemoryBytes();
+        long unshared = registry.getUnsharedMemoryBytes();
+        System.out.println("registry: 8 keyspaces, " + registry.getRingCount() + " rings, "
+                + shared / 1024 + " KB shared vs " + unshared / 1024 + " KB unshared");
+        assertEquals(unshared - 2 * ringBytes, shared);
+
+        for (String k : BenchmarkData.keys(3)) {
+            assertSame(a.getNodeForKey(k), b.getNodeForKey(k));
+            assertSame(a.getNodeForKey(k), c.getNodeForKey(k));
+        }
+        long lookups = 0;
+        for (long n : c.getMetrics().getLookupsPerNode().values()) lookups += n;
+        assertEquals(BenchmarkData.KEY_POOL, lookups);
+        assertThrows(IllegalStateException.class, a::getMetrics);
+        assertTrue(b.getCacheStats().getHits() + b.getCacheStats().getMisses() > 0);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.register("orders", ring(xx, 100)));
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.register("jump", ring(xx, 100).withAlgorithm(RoutingAlgorithm.JUMP)));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("missing"));
+    }
+
+    // ---------- 2) Membership changes ----------
+    @Test
+    void membership_changes_reach_every_keyspace() {
+        Node[] nodes = BenchmarkData.nodes(60);
+        RingRegistry registry = new RingRegistry(4, Arrays.copyOf(nodes, 50));
+        HashFunction mm = new Murmur3x64HashFunction();
+        Map<String, HashFunction> hashes = Map.of("a", mm, "b", mm, "c", new SaltedHashFunction(mm, "c"),
+                "d", new XxHash64HashFunction());
+        registry.register("a", ring(mm, 100));
+        registry.register("b", ring(mm, 100));
+        registry.register("c", ring(hashes.get("c"), 100).withLayout(RingLayout.OFF_HEAP));
+        registry.register("d", ring(hashes.get("d"), 64).withSearchIndex(SearchIndex.PREFIX_TABLE));
+
+        registry.addNodes(Arrays.copyOfRange(nodes, 50, 60));
+        registry.removeNodes(nodes[3], nodes[17]);
+        Node heavy = new Node(nodes[5].getId(), nodes[5].getIpAddress(), nodes[5].getPort(), nodes[5].getRegion(),
+                nodes[5].getMetaData(), 2.0);
+        registry.updateNodes(heavy);
+        assertEquals(3, registry.getVersion());
+        assertEquals(58, registry.getNodes().size());
+        assertSame(registry.get("a").getEngine(), registry.get("b").getEngine());
+
+        Node[] current = registry.getNodes().toArray(new Node[0]);
+        String[] keys = BenchmarkData.keys(9);
+        for (String name : registry.getKeyspaces()) {
+            ConsistentHashing router = registry.get(name);
+            assertEquals(3, router.getEngine().getVersion(), name);
+            assertEquals(58, router.nodeCount(), name);
+            RingSnapshot actual = (RingSnapshot) router.getEngine();
+            ConsistentHashing fresh = new ConsistentHashingBuilder()
+                    .withHash(hashes.get(name))
+                    .withNodes(current)
+                    .withVNodes(actual.getVNodes())
+                    .build();
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(fresh.getNodeForKey(keys[i]).getId(), router.getNodeForKey(keys[i]).getId(), name);
+            }
+        }
+
+        registry.get("d").addNodes(nodes[3]);
+        assertThrows(IllegalStateException.class, () -> registry.addNodes(nodes[17]));
+        assertEquals(3, registry.getVersion());
+        assertEquals(58, registry.getNodes().size());
+        assertEquals(58, registry.get("a").nodeCount());
+
+        assertTrue(registry.unregister("d"));
+        registry.addNodes(nodes[17]);
+        assertEquals(4, registry.getVersion());
+        assertEquals(2, registry.getRingCount());
+        assertTrue(registry.unregister("a"));
+        assertEquals(2, registry.getRingCount());
+        assertTrue(registry.unregister("b"));
+        assertEquals(1, registry.getRingCount());
+        assertFalse(registry.unregister("b"));
+    }
+
+    // ---------- 3) Salted rings ----------
+    @Test
+    void salted_rings_are_independent_and_balanced() {
+        int nodeCount = 20;
+        RingRegistry registry = new RingRegistry(BenchmarkData.nodes(nodeCount));
+        HashFunction mm = new Murmur3x64HashFunction();
+        ConsistentHashing plain = registry.register("plain", ring(mm, 200));
+        ConsistentHashing t1 = registry.register("tenant-1", ring(new SaltedHashFunction(mm, "tenant-1"), 200));
+        ConsistentHashing t2 = registry.register("tenant-2", ring(new SaltedHashFunction(mm, "tenant-2"), 200));
+
+        String[] keys = BenchmarkData.keys(5);
+        int agree = 0;
+        for (String k : keys) if (t1.getNodeForKey(k) == t2.getNodeForKey(k)) agree++;
+        double agreement = (double) agree / keys.length;
+        assertEquals(1.0 / nodeCount, agreement, 0.02, "Salted rings should place keys independently");
+
+        double mean = (double) keys.length / nodeCount;
+        double plainMax = Collections.max(counts(plain, keys).values()) / mean;
+        for (ConsistentHashing salted : List.of(t1, t2)) {
+            double max = Collections.max(counts(salted, keys).values()) / mean;
+            assertTrue(max < plainMax + 0.15, "max/mean " + max + " vs unsalted " + plainMax);
+        }
+
+        HashFunction salt = new SaltedHashFunction(mm, "tenant-1");
+        long[] numeric = {0, 1, -1, 42, Long.MAX_VALUE};
+        long[] out = new long[numeric.length];
+        salt.hash(numeric, out);
+        for (int i = 0; i < numeric.length; i++) assertEquals(salt.hash(numeric[i]), out[i]);
+        assertEquals(salt.hash("key"), salt.hash("key".getBytes(java.nio.charset.StandardCharsets.UTF_8), 0, 3));
+        assertNotEquals(mm.id(), salt.id());
+    }
+
+    /** Seeded user function; following the {@link HashFunction#id()} contract, its id names the seed. */
+    static final class SeededHash implements HashFunction {
+        final HashFunction inner = new Murmur3x64HashFunction();
+        final long seed;
+        Runnable onHash;
+
+        SeededHash(long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public long hash(String key) {
+            Runnable r = onHash;
+            if (r != null) {
+                onHash = null;
+                r.run();
+            }
+            return inner.hash(seed + ":" + key);
+        }
+
+        @Override
+        public String id() {
+            return "SeededHash(seed=" + seed + ")";
+        }
+    }
+
+    // ---------- 4) Sharing by function, atomic changes, builders ----------
+    @Test
+    void sharing_respects_parameters_and_changes_are_atomic() {
+        Node[] nodes = BenchmarkData.nodes(30);
+        RingRegistry registry = new RingRegistry(Arrays.copyOf(nodes, 20));
+        SeededHash one = new SeededHash(1);
+        SeededHash two = new SeededHash(2);
+        assertNotEquals(one.id(), two.id());
+        ConsistentHashing a = registry.register("a", ring(one, 50));
+        ConsistentHashing b = registry.register("b", ring(two, 50));
+        ConsistentHashing a2 = registry.register("a2", ring(new SeededHash(1), 50));
+        assertNotSame(a.getEngine(), b.getEngine());
+        assertSame(a.getEngine(), a2.getEngine());
+        ConsistentHashing s1 = registry.register("s1", ring(new SaltedHashFunction(one, "t"), 50));
+        ConsistentHashing s2 = registry.register("s2", ring(new SaltedHashFunction(two, "t"), 50));
+        assertNotSame(s1.getEngine(), s2.getEngine());
+        ConsistentHashing md5 = registry.register("md5", ring(new io.github.NK8916.hashImplementations.MD5HashFunction(), 50));
+        ConsistentHashing md5b = registry.register("md5b", ring(new io.github.NK8916.hashImplementations.MD5HashFunction(), 50));
+        assertSame(md5.getEngine(), md5b.getEngine());
+        int agree = 0;
+        for (String k : BenchmarkData.keys(2)) if (a.getNodeForKey(k) == b.getNodeForKey(k)) agree++;
+        assertTrue(agree < BenchmarkData.KEY_POOL / 5, "seeds 1 and 2 agreed on " + agree + " keys");
+        // the same id guards encodings: a ring built under seed 1 does not load under seed 2
+        byte[] full = RingDelta.encode((RingSnapshot) a.getEngine(), one);
+        assertEquals(a.getEngine().getVersion(), RingDelta.decode(full, new SeededHash(1)).getVersion());
+        assertThrows(IllegalArgumentException.class, () -> RingDelta.decode(full, two));
+
+        // builders are copied, not filled in
+        ConsistentHashingBuilder mine = ring(new SeededHash(3), 50).withNodes(new Node[]{nodes[29]}).withVersion(77);
+        registry.register("mine", mine);
+        ConsistentHashing own = mine.build();
+        assertEquals(77, own.getEngine().getVersion());
+        assertEquals(1, own.nodeCount());
+
+        // the last keyspace's ring is changed behind the registry while the change is being built
+        SeededHash trap = new SeededHash(4);
+        registry.register("trap", ring(trap, 50));
+        trap.onHash = () -> registry.get("mine").removeNodes(nodes[0]);
+        Map<String, RoutingEngine> before = new HashMap<>();
+        for (String name : registry.getKeyspaces()) before.put(name, registry.get(name).getEngine());
+        assertThrows(IllegalStateException.class, () -> registry.addNodes(nodes[20]));
+        assertEquals(0, registry.getVersion());
+        assertEquals(20, registry.getNodes().size());
+        for (String name : registry.getKeyspaces()) {
+            if (!name.equals("mine")) assertSame(before.get(name), registry.get(name).getEngine(), name);
+        }
+        assertNotSame(before.get("mine"), registry.get("mine").getEngine());
+    }
+}
@@ -0,0 +1,149 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import io.github.NK8916.hashImplementations.XxHash64HashFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) A mapped snapshot routes every key exactly like the ring it was written from
+ * 2) Loading under a different hash function is rejected
+ * 3) A corrupted file fails checksum verification
+ * 4) Malformed or truncated headers fail with IOException, with or without checksum verification;
+ *    a hash id longer than any fixed header buffer still loads
+ */
+public class RingSnapshotFileTests {
+
+    @TempDir
+    Path dir;
+
+    static ConsistentHashing router(HashFunction hf) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Map<String, String> meta = new HashMap<>();
+            meta.put("rack", "rack-" + (i % 7));
+            nodes.add(new Node("N" + i, "10.0." + (i / 256) + "." + (i % 256), 8000 + i, i % 2 == 0 ? "eu" : null, meta));
+        }
+        return new ConsistentHashingBuilder()
+                .withVersion(42)
+                .withHash(hf)
+                .withNodes(nodes.toArray(new Node[0]))
+                .withVNodes(100)
+                .withSearchIndex(SearchIndex.PREFIX_TABLE)
+                .build();
+    }
+
+    @Test
+    void mapped_snapshot_routes_like_the_original() throws IOException {
+        HashFunction hf = new Murmur3x64HashFunction();
+        ConsistentHashing original = router(hf);
+        Path file = dir.resolve("ring.bin");
+        RingSnapshotFile.write(original.debugSnapshot(), hf, file);
+
+        RingSnapshot mapped = RingSnapshotFile.map(file, hf);
+        assertEquals(42, mapped.getVersion());
+        assertEquals(100, mapped.getVNodes());
+        assertEquals(RingLayout.OFF_HEAP, mapped.getLayout());
+        assertEquals(SearchIndex.PREFIX_TABLE, mapped.getSearchIndex());
+        assertEquals(original.ringSize(), mapped.ringSize());
+
+        ConsistentHashing loaded = new ConsistentHashing(hf, mapped);
+        SplittableRandom rng = new SplittableRandom(5);
+        for (int i = 0; i < 50_000; i++) {
+            String key = "k" + rng.nextLong();
+            Node a = original.getNodeForKey(key);
+            Node b = loaded.getNodeForKey(key);
+            assertEquals(a.getId(), b.getId());
+            assertEquals(a.getIpAddress(), b.getIpAddress());
+            assertEquals(a.getPort(), b.getPort());
+            assertEquals(a.getRegion(), b.getRegion());
+            assertEquals(a.getMetaData(), b.getMetaData());
+        }
+    }
+
+    @Test
+    void different_hash_function_is_rejected() throws IOException {
+        HashFunction hf = new XxHash64HashFunction(1);
+        Path file = dir.resolve("ring.bin");
+        RingSnapshotFile.write(router(hf).debugSnapshot(), hf, file);
+
+        assertThrows(IllegalArgumentException.class, () -> RingSnapshotFile.map(file, new XxHash64HashFunction(2)));
+        assertThrows(IllegalArgumentException.class, () -> RingSnapshotFile.map(file, new Murmur3x64HashFunction()));
+        assertNotNull(RingSnapshotFile.map(file, new XxHash64HashFunction(1)));
+    }
+
+    @Test
+    void corrupted_file_fails_checksum() throws IOException {
+        HashFunction hf = new Murmur3x64HashFunction();
+        Path file = dir.resolve("ring.bin");
+        RingSnapshotFile.write(router(hf).debugSnapshot(), hf, file);
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long pos = ch.size() / 2;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, pos);
+            b.put(0, (byte) (b.get(0) ^ 0x5A)).rewind();
+            ch.write(b, pos);
+        }
+        IOException e = assertThrows(IOException.class, () -> RingSnapshotFile.map(file, hf));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void malformed_header_fails_with_io_exception() throws IOException {
+        HashFunction hf = new Murmur3x64HashFunction();
+        Path file = dir.resolve("ring.bin");
+        RingSnapshotFile.write(router(hf).debugSnapshot(), hf, file);
+        byte[] good = Files.readAllBytes(file);
+        int hashIdLength = ByteBuffer.wrap(good, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        int afterId = 28 + hashIdLength;
+
+        Map<String, byte[]> broken = new LinkedHashMap<>();
+        broken.put("search index", patchInt(good, 20, 99));
+        broken.put("negative search index", patchInt(good, 20, -1));
+        broken.put("hash id length", patchInt(good, 24, 1 << 20));
+        broken.put("node count", patchInt(good, afterId, Integer.MAX_VALUE));
+        broken.put("point count", patchInt(good, afterId + 4, -5));
+        broken.put("owner width", patchInt(good, afterId + 8, 3));
+        broken.put("nodes offset", patchInt(good, afterId + 12, 7));
+        broken.put("truncated", Arrays.copyOf(good, good.length - 100));
+        broken.put("header only", Arrays.copyOf(good, 30));
+        broken.put("empty", new byte[0]);
+
+        for (Map.Entry<String, byte[]> e : broken.entrySet()) {
+            Files.write(file, e.getValue());
+            for (boolean verify : new boolean[]{true, false}) {
+                assertThrows(IOException.class, () -> RingSnapshotFile.map(file, hf, verify), e.getKey());
+            }
+        }
+
+        String longId = "x".repeat(10_000);
+        HashFunction named = new Murmur3x64HashFunction() {
+            @Override
+            public String id() {
+                return longId;
+            }
+        };
+        RingSnapshotFile.write(router(named).debugSnapshot(), named, file);
+        assertEquals(router(named).ringSize(), RingSnapshotFile.map(file, named).ringSize());
+    }
+
+    private static byte[] patchInt(byte[] file, int offset, int value) {
+        byte[] copy = file.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+}
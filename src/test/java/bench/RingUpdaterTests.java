@@ -0,0 +1,261 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) A burst of events is coalesced into few versions with the same ring as a fresh build
+ * 2) Listeners see every publish with successive versions, also when direct updates race the
+ *    updater; awaitVersion blocks until published and times out otherwise; closed updaters reject events
+ * 3) Stress: readers running during churn always see a complete, consistent snapshot
+ * 4) A batch applied in one pass equals remove, add and update in turn, for every ring layout
+ *    and for multi-probe and Maglev, and allocates about one ring instead of three
+ *
+ * Notes:
+ * - All nodes have weight 1 in (3), so a complete ring holds exactly nodes × vnodes points.
+ */
+public class RingUpdaterTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+    static final int VNODES = 100;
+
+    static Node node(int i) {
+        return new Node("N"+i, "10.0.0."+i, 8080, "ap-south-1", Map.of());
+    }
+
+    static ConsistentHashing router(int count) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) nodes[i] = node(i);
+        return new ConsistentHashingBuilder()
+                .withHash(HASH)
+                .withNodes(nodes)
+                .withVNodes(VNODES)
+                .build();
+    }
+
+    static Set<String> ids(RoutingEngine engine) {
+        return engine.getNodes().stream().map(Node::getId).collect(Collectors.toSet());
+    }
+
+    // ---------- 1) Coalescing ----------
+    @Test
+    void burst_is_coalesced_into_one_equivalent_ring() throws Exception {
+        ConsistentHashing router = router(10);
+        long base = router.getEngine().getVersion();
+        List<Long> published = new CopyOnWriteArrayList<>();
+        try (RingUpdater updater = new RingUpdater(router, Duration.ofMillis(200))) {
+            updater.addListener((prev, cur) -> published.add(cur.getVersion()));
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 10; i < 60; i++) futures.add(updater.join(node(i)));
+            for (int i = 10; i < 30; i++) futures.add(updater.leave(node(i)));
+            futures.add(updater.leave(node(0)));
+            futures.add(updater.update(new Node("N5", "10.0.0.5", 8080, "ap-south-1", Map.of(), 2.0)));
+            // an update to a node still waiting to join changes what joins
+            futures.add(updater.update(new Node("N40", "10.0.0.40", 8080, "ap-south-1", Map.of(), 0.5)));
+            for (CompletableFuture<Long> f : futures) {
+                long v = f.get(10, TimeUnit.SECONDS);
+                assertTrue(v > base && v <= router.getEngine().getVersion());
+            }
+            System.out.printf("updater: %d events -> %d versions%n", futures.size(), published.size());
+            // the debounce window covers the burst; allow a split if the machine stalls
+            assertTrue(published.size() <= 3, "Too many versions: " + published);
+
+            // join-then-leave of an absent node publishes nothing
+            long before = router.getEngine().getVersion();
+            updater.join(node(99));
+            assertEquals(before, updater.leave(node(99)).get(10, TimeUnit.SECONDS));
+            assertEquals(before, router.getEngine().getVersion());
+        }
+
+        Set<String> expected = new HashSet<>();
+        for (int i = 1; i < 10; i++) expected.add("N"+i);
+        for (int i = 30; i < 60; i++) expected.add("N"+i);
+        assertEquals(expected, ids(router.getEngine()));
+        Map<String, Double> weights = router.getEngine().getNodes().stream()
+                .collect(Collectors.toMap(Node::getId, Node::getWeight));
+        assertEquals(2.0, weights.get("N5"));
+        assertEquals(0.5, weights.get("N40"));
+
+        Node[] members = router.getEngine().getNodes().toArray(new Node[0]);
+        ConsistentHashing fresh = new ConsistentHashingBuilder()
+                .withHash(HASH).withNodes(members).withVNodes(VNODES).build();
+        assertEquals(0.0, RingDiff.between(fresh.debugSnapshot(), router.debugSnapshot()).movedFraction());
+    }
+
+    // ---------- 2) Listeners and awaitVersion ----------
+    @Test
+    void listeners_see_increasing_versions_and_await_blocks() throws Exception {
+        ConsistentHashing router = router(8);
+        List<long[]> seen = new CopyOnWriteArrayList<>();
+        List<Throwable> listenerErrors = new CopyOnWriteArrayList<>();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "test-updater");
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler((thread, e) -> listenerErrors.add(e));
+            return t;
+        };
+        RingUpdater closed;
+        try (RingUpdater updater = new RingUpdater(router, Duration.ofMillis(5), factory)) {
+            closed = updater;
+            updater.addListener((prev, cur) -> seen.add(new long[]{prev.getVersion(), cur.getVersion()}));
+            updater.addListener((prev, cur) -> { throw new IllegalStateException("listener failure is isolated"); });
+
+            long target = router.getEngine().getVersion() + 1;
+            assertFalse(updater.awaitVersion(target + 100, 50, TimeUnit.MILLISECONDS));
+            updater.join(node(8));
+            assertTrue(updater.awaitVersion(target, 10, TimeUnit.SECONDS));
+            assertTrue(ids(router.getEngine()).contains("N8"));
+
+            // direct updates race the updater: its batch is re-applied on top of theirs
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 9; i < 40; i++) {
+                futures.add(updater.join(node(i)));
+                router.addNodes(node(100 + i));
+            }
+            for (CompletableFuture<Long> f : futures) f.get(10, TimeUnit.SECONDS);
+        }
+        for (int i = 8; i < 40; i++) assertTrue(ids(router.getEngine()).contains("N"+i), "Lost N"+i);
+        assertFalse(seen.isEmpty());
+        assertEquals(seen.size(), listenerErrors.size());
+        for (int k = 0; k < seen.size(); k++) {
+            assertEquals(seen.get(k)[0] + 1, seen.get(k)[1], "Listener saw a non-successive publish");
+            if (k > 0) assertTrue(seen.get(k)[1] > seen.get(k - 1)[1]);
+        }
+        assertThrows(IllegalStateException.class, () -> closed.join(node(99)));
+    }
+
+    // ---------- 3) Stress with concurrent readers ----------
+    @Test
+    void readers_always_see_a_complete_snapshot() throws Exception {
+        int universe = 64, readers = 3;
+        ConsistentHashing router = router(32);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long[] checked = new long[readers];
+        Thread[] threads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            int id = r;
+            threads[r] = new Thread(() -> {
+                SplittableRandom rng = new SplittableRandom(id);
+                long lastVersion = -1;
+                try {
+                    while (!stop.get()) {
+                        RoutingEngine engine = router.getEngine();
+                        assertTrue(engine.getVersion() >= lastVersion, "Version went backwards");
+                        lastVersion = engine.getVersion();
+                        List<Node> nodes = engine.getNodes();
+                        assertEquals(nodes.size(), ids(engine).size(), "Duplicate node ids");
+                        assertEquals(nodes.size(), engine.getNodeCount());
+                        if (engine instanceof RingSnapshot) {
+                            assertEquals((long) nodes.size() * VNODES, ((RingSnapshot) engine).ringSize(), "Partial ring");
+                        }
+                        Node[] replicas = new Node[3];
+                        for (int k = 0; k < 64; k++) {
+                            long h = rng.nextLong();
+                            int index = engine.routeIndex(h);
+                            assertSame(nodes.get(index), engine.route(h));
+                            int n = engine.routeN(h, replicas);
+                            assertEquals(Math.min(3, nodes.size()), n);
+                            assertEquals(n, Arrays.stream(replicas, 0, n).map(Node::getId).distinct().count());
+                            assertNotNull(router.getNodeForKey("key-" + h));
+                        }
+                        checked[id]++;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            threads[r].start();
+        }
+
+        SplittableRandom rng = new SplittableRandom(42);
+        long last;
+        try (RingUpdater updater = new RingUpdater(router, Duration.ofMillis(2))) {
+            CompletableFuture<Long> f = null;
+            for (int step = 0; step < 2_000; step++) {
+                Node n = node(rng.nextInt(universe));
+                f = rng.nextBoolean() ? updater.join(n) : updater.leave(n);
+                if (step % 20 == 0) Thread.sleep(1);
+            }
+            last = f.get(30, TimeUnit.SECONDS);
+            assertTrue(updater.awaitVersion(last, 1, TimeUnit.SECONDS));
+        }
+        stop.set(true);
+        for (Thread t : threads) t.join();
+        if (failure.get() != null) throw new AssertionError("Reader saw an inconsistent snapshot", failure.get());
+        for (long c : checked) assertTrue(c > 0, "A reader never ran");
+        System.out.printf("updater stress: %d versions, reader checks %s%n", last, Arrays.toString(checked));
+    }
+
+    // ---------- 4) One-pass batches ----------
+    @Test
+    void batch_change_matches_steps_in_one_pass() {
+        Node[] nodes = new Node[60];
+        for (int i = 0; i < nodes.length; i++) nodes[i] = node(i);
+        Node[] removed = {nodes[3], nodes[17], nodes[40]};
+        Node[] added = {node(60), node(61), nodes[5]}; // N5 is already present and ignored
+        Node[] updated = {reweighted(nodes[8], 2.5), reweighted(nodes[22], 0.4), reweighted(node(61), 1.5),
+                reweighted(nodes[17], 3), node(99)}; // a removed and an unknown id are ignored
+        Node[] start = Arrays.copyOf(nodes, 50);
+
+        for (RingLayout layout : RingLayout.values()) {
+            RingSnapshot ring = (RingSnapshot) new ConsistentHashingBuilder()
+                    .withVersion(7).withHash(HASH).withNodes(start).withVNodes(VNODES)
+                    .withLayout(layout).withReplicaTable(3).build().getEngine();
+            RingSnapshot steps = (RingSnapshot) ring.remove(HASH, removed, 8).add(HASH, added, 8).update(HASH, updated, 8);
+            RingSnapshot once = (RingSnapshot) ring.change(HASH, removed, added, updated, 8);
+            assertEquals(8, once.getVersion());
+            assertEquals(steps.getNodes(), once.getNodes(), layout.name());
+            assertEquals(steps.ringSize(), once.ringSize(), layout.name());
+            for (int i = 0; i < steps.ringSize(); i++) {
+                assertEquals(steps.pointAt(i), once.pointAt(i), layout + " point " + i);
+                assertSame(steps.ownerAt(i), once.ownerAt(i), layout + " owner " + i);
+            }
+        }
+
+        long[] hashes = new long[20_000];
+        SplittableRandom rng = new SplittableRandom(4);
+        for (int i = 0; i < hashes.length; i++) hashes[i] = rng.nextLong();
+        for (RoutingEngine engine : List.of(new MultiProbeEngine(HASH, 7, start), new MaglevEngine(HASH, 7, start))) {
+            RoutingEngine steps = engine.remove(HASH, removed, 8).add(HASH, added, 8).update(HASH, updated, 8);
+            RoutingEngine once = engine.change(HASH, removed, added, updated, 8);
+            assertEquals(steps.getNodes(), once.getNodes());
+            for (long h : hashes) assertSame(steps.route(h), once.route(h));
+        }
+
+        // a large ring: the one-pass batch allocates one ring where the steps allocate three
+        Node[] many = new Node[1_000];
+        for (int i = 0; i < many.length; i++) many[i] = node(i);
+        RoutingEngine big = new ConsistentHashingBuilder().withHash(HASH).withNodes(many).withVNodes(VNODES).build().getEngine();
+        Node[] leave = {many[1]}, join = {node(1_000)}, grow = {reweighted(many[2], 2)};
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        big.change(HASH, leave, join, grow, 1); // warm up
+        long before = threads.getThreadAllocatedBytes(tid);
+        RoutingEngine once = big.change(HASH, leave, join, grow, 1);
+        long onePass = threads.getThreadAllocatedBytes(tid) - before;
+        before = threads.getThreadAllocatedBytes(tid);
+        RoutingEngine steps = big.remove(HASH, leave, 1).add(HASH, join, 1).update(HASH, grow, 1);
+        long stepwise = threads.getThreadAllocatedBytes(tid) - before;
+        System.out.printf("batch of 3 changes on %d points: one pass %d KB, steps %d KB%n",
+                ((RingSnapshot) big).ringSize(), onePass / 1024, stepwise / 1024);
+        assertEquals(steps.getNodes(), once.getNodes());
+        assertTrue(onePass < stepwise * 0.5, "One pass allocated " + onePass + " bytes, steps " + stepwise);
+    }
+
+    static Node reweighted(Node n, double weight) {
+        return new Node(n.getId(), n.getIpAddress(), n.getPort(), n.getRegion(), n.getMetaData(), weight);
+    }
+}
@@ -0,0 +1,238 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static bench.BenchmarkData.plainNodes;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Every engine honours the RoutingEngine contract (replicas, batches, versions)
+ * 2) Balance: max/mean load per engine, reported next to memory
+ * 3) Remapping on join/leave stays near the ideal 1/N, and joins only move keys to the new node
+ * 4) Multi-probe keeps one point per node under weights; key share grows with weight and a
+ *    weight change only moves keys to or from that node
+ * 5) Rendezvous and Maglev split keys by weight; equal weights route as unweighted, and a
+ *    rendezvous weight change only moves keys to that node
+ *
+ * Notes:
+ * - The ring runs with 1000 vnodes so its balance is comparable to the table-free engines.
+ */
+public class RoutingEngineTests {
+
+    static final HashFunction HASH = new Murmur3x64HashFunction();
+
+    static long[] sampleHashes(int count, long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) hashes[i] = rng.nextLong();
+        return hashes;
+    }
+
+    // ---------- 1) Contract ----------
+    @Test
+    void engines_honour_routing_contract() {
+        Node[] nodes = plainNodes(12);
+        long[] hashes = sampleHashes(5_000, 1);
+        for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+            ConsistentHashing router = BenchmarkData.builder(nodes, 1000).withAlgorithm(algorithm).build();
+            RoutingEngine engine = router.getEngine();
+            assertEquals(12, engine.getNodeCount(), algorithm.name());
+
+            Node[] batch = new Node[hashes.length];
+            int[] batchIdx = new int[hashes.length];
+            engine.routeBatch(hashes, batch);
+            engine.routeBatch(hashes, batchIdx);
+            for (int i = 0; i < hashes.length; i++) {
+                long h = hashes[i];
+                Node primary = engine.route(h);
+                assertSame(primary, engine.getNodes().get(engine.routeIndex(h)), algorithm.name());
+                assertSame(primary, batch[i], algorithm.name());
+                assertEquals(engine.routeIndex(h), batchIdx[i], algorithm.name());
+
+                for (int r : new int[]{1, 3, 12, 20}) {
+                    Node[] out = new Node[r];
+                    int[] idx = new int[r];
+                    int n = engine.routeN(h, out);
+                    assertEquals(Math.min(r, 12), n, algorithm + " r=" + r);
+                    assertEquals(n, engine.routeN(h, idx));
+                    assertSame(primary, out[0], algorithm + " primary replica");
+                    Set<String> ids = new HashSet<>();
+                    for (int k = 0; k < n; k++) {
+                        assertTrue(ids.add(out[k].getId()), algorithm + " duplicate replica");
+                        assertSame(out[k], engine.getNodes().get(idx[k]), algorithm + " index/node mismatch");
+                    }
+                }
+            }
+
+            router.addNodes(nodes[0], new Node("X", "10.0.1.1", 8080, "ap-south-1", Map.of()));
+            router.removeNodes(new Node("unknown", "10.0.1.2", 8080, "ap-south-1", Map.of()));
+            assertEquals(2, router.getEngine().getVersion(), algorithm.name());
+            assertEquals(13, router.nodeCount(), algorithm.name());
+            router.removeNodes(nodes);
+            assertEquals(1, router.nodeCount(), algorithm.name());
+            assertEquals("X", router.getNodeForKey("anything").getId(), algorithm.name());
+        }
+    }
+
+    // ---------- 2) Balance and memory ----------
+    @Test
+    void engines_balance_load() {
+        int nodeCount = 10;
+        int samples = 1_000_000;
+        long[] hashes = sampleHashes(samples, 2);
+        for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+            RoutingEngine engine = BenchmarkData.builder(plainNodes(nodeCount), 1000).withAlgorithm(algorithm).build().getEngine();
+            long[] counts = new long[nodeCount];
+            for (long h : hashes) counts[engine.routeIndex(h)]++;
+            double mean = samples / (double) nodeCount;
+            long max = Arrays.stream(counts).max().getAsLong();
+            long min = Arrays.stream(counts).min().getAsLong();
+            System.out.printf("%-12s max/mean=%.4f  min/mean=%.4f  memory=%d bytes%n",
+                    algorithm, max / mean, min / mean, engine.getMemoryBytes());
+            assertTrue(max / mean < 1.10, algorithm + " max/mean too high: " + max / mean);
+        }
+    }
+
+    // ---------- 3) Remapping ----------
+    @Test
+    void engines_remap_near_ideal_fraction() {
+        int samples = 200_000;
+        long[] hashes = sampleHashes(samples, 3);
+        Node[] nodes = plainNodes(11);
+        for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+            ConsistentHashing router = BenchmarkData.builder(Arrays.copyOf(nodes, 10), 1000).withAlgorithm(algorithm).build();
+            String[] before = owners(router.getEngine(), hashes);
+            router.addNodes(nodes[10]);
+            String[] afterJoin = owners(router.getEngine(), hashes);
+            router.removeNodes(nodes[4]);
+            String[] afterLeave = owners(router.getEngine(), hashes);
+
+            int joinMoved = 0, joinElsewhere = 0, leaveMoved = 0;
+            for (int i = 0; i < samples; i++) {
+                if (!before[i].equals(afterJoin[i])) {
+                    joinMoved++;
+                    if (!afterJoin[i].equals("N10")) joinElsewhere++;
+                }
+                if (!afterJoin[i].equals(afterLeave[i])) leaveMoved++;
+            }
+            double join = joinMoved / (double) samples, leave = leaveMoved / (double) samples;
+            System.out.printf("%-12s join moved=%.4f  leave moved=%.4f  (ideal %.4f)%n", algorithm, join, leave, 1 / 11.0);
+
+            assertTrue(Math.abs(join - 1 / 11.0) < 0.02, algorithm + " join moved " + join);
+            // Maglev trades exactness for O(1) lookups: a few keys shuffle between old nodes
+            double strayLimit = algorithm == RoutingAlgorithm.MAGLEV ? 0.02 : 0.0;
+            assertTrue(joinElsewhere / (double) samples <= strayLimit, algorithm + " moved keys between old nodes");
+            // jump hash hands the leaving bucket to the last node, moving two buckets' keys
+            double leaveLimit = algorithm == RoutingAlgorithm.JUMP ? 2.3 / 11.0 : 1.3 / 11.0;
+            assertTrue(leave < leaveLimit, algorithm + " leave moved " + leave);
+        }
+    }
+
+    static String[] owners(RoutingEngine engine, long[] hashes) {
+        String[] out = new String[hashes.length];
+        for (int i = 0; i < hashes.length; i++) out[i] = engine.route(hashes[i]).getId();
+        return out;
+    }
+
+    // ---------- 4) Weighted multi-probe ----------
+    @Test
+    void multi_probe_scales_probes_by_weight() {
+        double[] weights = {0.5, 1, 2, 3};
+        Node[] nodes = new Node[200];
+        double totalWeight = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            double w = weights[i % weights.length];
+            nodes[i] = new Node("N" + i, "10.0.0." + i, 8080, "ap-south-1", Map.of(), w);
+            totalWeight += w;
+        }
+        RoutingEngine weighted = new MultiProbeEngine(HASH, 1, nodes);
+        assertEquals(new MultiProbeEngine(HASH, 1, plainNodes(nodes.length)).getMemoryBytes(), weighted.getMemoryBytes(),
+                "Weights must not add points");
+
+        // one point per node leaves single nodes noisy, so compare each weight class as a whole
+        int samples = 2_000_000;
+        long[] hashes = sampleHashes(samples, 4);
+        double[] share = new double[weights.length];
+        for (long h : hashes) share[weighted.routeIndex(h) % weights.length]++;
+        for (int k = 0; k < weights.length; k++) {
+            double expected = samples * weights[k] * (nodes.length / weights.length) / totalWeight;
+            System.out.printf("MULTI_PROBE weight %.1f: share/expected=%.4f%n", weights[k], share[k] / expected);
+            assertEquals(1, share[k] / expected, 0.08, "Key share of weight " + weights[k]);
+        }
+
+        Node heavier = new Node("N1", "10.0.0.1", 8080, "ap-south-1", Map.of(), 4);
+        RoutingEngine updated = weighted.update(HASH, new Node[]{heavier}, 2);
+        assertEquals(weighted.getMemoryBytes(), updated.getMemoryBytes());
+        int gained = 0;
+        for (long h : hashes) {
+            String before = weighted.route(h).getId(), after = updated.route(h).getId();
+            if (!before.equals(after)) {
+                assertEquals("N1", after, "Keys moved between nodes whose weight did not change");
+                gained++;
+            }
+        }
+        assertTrue(gained > 0);
+        assertSame(heavier, updated.getNodes().get(1));
+    }
+
+    // ---------- 5) Weighted rendezvous and Maglev ----------
+    @Test
+    void rendezvous_and_maglev_split_keys_by_weight() {
+        double[] weights = {0.5, 1, 2, 3};
+        Node[] nodes = new Node[40];
+        Node[] doubled = new Node[nodes.length];
+        double totalWeight = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            double w = weights[i % weights.length];
+            nodes[i] = new Node("N" + i, "10.0.0." + i, 8080, "ap-south-1", Map.of(), w);
+            doubled[i] = new Node("N" + i, "10.0.0." + i, 8080, "ap-south-1", Map.of(), 2);
+            totalWeight += w;
+        }
+        int samples = 1_000_000;
+        long[] hashes = sampleHashes(samples, 5);
+        for (RoutingAlgorithm algorithm : new RoutingAlgorithm[]{RoutingAlgorithm.RENDEZVOUS, RoutingAlgorithm.MAGLEV}) {
+            RoutingEngine weighted = BenchmarkData.builder(nodes, 1000).withAlgorithm(algorithm).build().getEngine();
+            double[] share = new double[nodes.length];
+            for (long h : hashes) share[weighted.routeIndex(h)]++;
+            double worst = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                double expected = samples * nodes[i].getWeight() / totalWeight;
+                worst = Math.max(worst, Math.abs(share[i] / expected - 1));
+            }
+            System.out.printf("%s weighted share: worst relative deviation=%.4f%n", algorithm, worst);
+            assertTrue(worst < 0.1, algorithm + " key share strays from weight by " + worst);
+
+            RoutingEngine plain = BenchmarkData.builder(plainNodes(nodes.length), 1000).withAlgorithm(algorithm).build().getEngine();
+            RoutingEngine uniform = BenchmarkData.builder(doubled, 1000).withAlgorithm(algorithm).build().getEngine();
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(plain.routeIndex(hashes[i]), uniform.routeIndex(hashes[i]), algorithm + " equal weights");
+            }
+        }
+
+        RoutingEngine before = BenchmarkData.builder(nodes, 1000).withAlgorithm(RoutingAlgorithm.RENDEZVOUS).build().getEngine();
+        Node heavier = new Node("N1", "10.0.0.1", 8080, "ap-south-1", Map.of(), 4);
+        RoutingEngine after = before.update(HASH, new Node[]{heavier}, 2);
+        int gained = 0;
+        for (long h : hashes) {
+            int from = before.routeIndex(h), to = after.routeIndex(h);
+            if (from != to) {
+                assertEquals(1, to, "Keys moved between nodes whose weight did not change");
+                gained++;
+            }
+        }
+        assertTrue(gained > 0);
+        RoutingEngine maglev = BenchmarkData.builder(nodes, 1000).withAlgorithm(RoutingAlgorithm.MAGLEV).build().getEngine();
+        RoutingEngine reweighted = maglev.update(HASH, new Node[]{heavier}, 2);
+        int n1 = 0, was = 0;
+        for (long h : hashes) {
+            if (reweighted.routeIndex(h) == 1) n1++;
+            if (maglev.routeIndex(h) == 1) was++;
+        }
+        assertTrue(n1 > 3 * was, "Maglev weight update did not rebuild the table: " + was + " -> " + n1);
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashing;
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded lookups while a writer keeps publishing new snapshots
+ * (one node leaving and re-joining through removeNodes/addNodes).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class SnapshotSwapBenchmark {
+
+    @Param({"1000"})
+    int nodeCount;
+
+    @Param({"100"})
+    int vNodes;
+
+    ConsistentHashing router;
+    Node churn;
+    String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        boolean present = true;
+    }
+
+    @Setup
+    public void setup() {
+        Node[] nodes = BenchmarkData.nodes(nodeCount);
+        churn = nodes[0];
+        router = new ConsistentHashingBuilder()
+                .withVersion(1)
+                .withHash(HashKind.MURMUR3_X64.create())
+                .withNodes(nodes)
+                .withVNodes(vNodes)
+                .build();
+        keys = BenchmarkData.keys(42);
+    }
+
+    @Benchmark
+    @Group("swap")
+    @GroupThreads(3)
+    public Node lookup(Cursor cursor) {
+        return router.getNodeForKey(keys[cursor.next++ & (BenchmarkData.KEY_POOL - 1)]);
+    }
+
+    @Benchmark
+    @Group("swap")
+    @GroupThreads(1)
+    public int publish(Cursor cursor) {
+        if (cursor.present) router.removeNodes(churn); else router.addNodes(churn);
+        cursor.present = !cursor.present;
+        return router.ringSize();
+    }
+}
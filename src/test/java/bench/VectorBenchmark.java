@@ -0,0 +1,142 @@
+package bench;
+
+import io.github.NK8916.ConsistentHashingBuilder;
+import io.github.NK8916.HashFunction;
+import io.github.NK8916.RingSnapshot;
+import io.github.NK8916.SearchIndex;
+import io.github.NK8916.VectorSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-key cost of the batch paths on the scalar fallback and on the vector kernels at each
+ * width: hashing numeric keys with {@link HashFunction#hash(long[], long[])} and routing
+ * pre-hashed keys with {@link RingSnapshot#routeBatch(long[], int[])}. Each width runs in its
+ * own fork; widths above the platform's are capped to it, and every fork prints the lanes
+ * it actually used.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorBenchmark {
+    static final int BATCH = 4096;
+    static final String MODULE = "--add-modules=jdk.incubator.vector";
+    static final String HASHING = "-Dio.github.NK8916.vectorHash=true";
+
+    @State(Scope.Benchmark)
+    public static class Keys {
+        @Param({"MURMUR3_X64", "XXHASH64"})
+        HashKind hash;
+
+        HashFunction hashFunction;
+        final long[] keys = new long[BATCH];
+
+        @Setup
+        public void setup() {
+            System.out.println("vector lanes: " + VectorSupport.longLanes() + ", hashing: " + VectorSupport.isHashingEnabled());
+            hashFunction = hash.create();
+            SplittableRandom rng = new SplittableRandom(42);
+            for (int i = 0; i < BATCH; i++) keys[i] = rng.nextLong();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Ring {
+        @Param({"NONE", "PREFIX_TABLE"})
+        SearchIndex searchIndex;
+
+        RingSnapshot ring;
+        final long[] hashes = new long[BATCH];
+
+        @Setup
+        public void setup() {
+            System.out.println("vector lanes: " + VectorSupport.longLanes());
+            HashFunction hashFunction = HashKind.MURMUR3_X64.create();
+            ring = (RingSnapshot) new ConsistentHashingBuilder()
+                    .withHash(hashFunction)
+                    .withNodes(BenchmarkData.nodes(1000))
+                    .withVNodes(100)
+                    .withSearchIndex(searchIndex)
+                    .build()
+                    .getEngine();
+            String[] keys = BenchmarkData.keys(42);
+            for (int i = 0; i < BATCH; i++) hashes[i] = hashFunction.hash(keys[i % keys.length]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Out {
+        final long[] hashes = new long[BATCH];
+        final int[] indices = new int[BATCH];
+    }
+
+    long[] hash(Keys k, Out out) {
+        k.hashFunction.hash(k.keys, out.hashes);
+        return out.hashes;
+    }
+
+    int[] route(Ring r, Out out) {
+        r.ring.routeBatch(r.hashes, out.indices);
+        return out.indices;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = "-Dio.github.NK8916.vector=false")
+    public long[] hashScalar(Keys k, Out out) {
+        return hash(k, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = {MODULE, HASHING, "-Dio.github.NK8916.vectorBits=128"})
+    public long[] hashVector128(Keys k, Out out) {
+        return hash(k, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = {MODULE, HASHING, "-Dio.github.NK8916.vectorBits=256"})
+    public long[] hashVector256(Keys k, Out out) {
+        return hash(k, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = {MODULE, HASHING})
+    public long[] hashVectorPreferred(Keys k, Out out) {
+        return hash(k, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = "-Dio.github.NK8916.vector=false")
+    public int[] routeScalar(Ring r, Out out) {
+        return route(r, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = {MODULE, "-Dio.github.NK8916.vectorBits=128"})
+    public int[] routeVector128(Ring r, Out out) {
+        return route(r, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = {MODULE, "-Dio.github.NK8916.vectorBits=256"})
+    public int[] routeVector256(Ring r, Out out) {
+        return route(r, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(jvmArgsAppend = MODULE)
+    public int[] routeVectorPreferred(Ring r, Out out) {
+        return route(r, out);
+    }
+}
@@ -0,0 +1,125 @@
+package bench;
+
+import io.github.NK8916.*;
+import io.github.NK8916.hashImplementations.Murmur3x64HashFunction;
+import io.github.NK8916.hashImplementations.WyHashFunction;
+import io.github.NK8916.hashImplementations.XxHash64HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) The vector kernels are in use exactly when the module is present, hashing only when asked for
+ * 2) Batch hashing of numeric keys matches hash(long) key by key, including the scalar tail
+ * 3) Batch routing matches single-key routing around every point, with and without a prefix
+ *    table, off heap, and on rings smaller than one vector
+ *
+ * Notes:
+ * - Surefire runs this class twice, both with vector hashing requested: without the module like
+ *   every other test, and again with --add-modules jdk.incubator.vector in the vector-kernels
+ *   execution, so both paths are checked against the same scalar single-key reference.
+ */
+public class VectorKernelTests {
+
+    // ---------- 1) Mode ----------
+    @Test
+    void vector_kernels_follow_the_module() {
+        boolean module = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        System.out.println("vector kernels: " + (VectorSupport.isEnabled() ? VectorSupport.longLanes() + " long lanes" : "scalar")
+                + ", hashing: " + VectorSupport.isHashingEnabled());
+        if (!module) {
+            assertFalse(VectorSupport.isEnabled());
+            assertEquals(1, VectorSupport.longLanes());
+        } else {
+            assertEquals(VectorSupport.longLanes() > 1, VectorSupport.isEnabled());
+        }
+        assertEquals(VectorSupport.isEnabled() && Boolean.getBoolean("io.github.NK8916.vectorHash"),
+                VectorSupport.isHashingEnabled());
+    }
+
+    // ---------- 2) Batch hashing ----------
+    @Test
+    void batch_hashing_matches_single_keys() {
+        List<HashFunction> functions = List.of(new XxHash64HashFunction(), new XxHash64HashFunction(7),
+                new Murmur3x64HashFunction(), new WyHashFunction());
+        SplittableRandom rng = new SplittableRandom(11);
+        for (HashFunction hf : functions) {
+            for (int len = 0; len <= 3 * VectorSupport.longLanes() + 1; len++) checkBatch(hf, randomKeys(rng, len));
+            long[] edges = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 8, 0x9E3779B97F4A7C15L};
+            checkBatch(hf, edges);
+            checkBatch(hf, randomKeys(rng, 10_003));
+            assertThrows(IllegalArgumentException.class, () -> hf.hash(new long[4], new long[3]));
+        }
+    }
+
+    private static long[] randomKeys(SplittableRandom rng, int len) {
+        long[] keys = new long[len];
+        for (int i = 0; i < len; i++) keys[i] = rng.nextLong();
+        return keys;
+    }
+
+    private static void checkBatch(HashFunction hf, long[] keys) {
+        long[] out = new long[keys.length + 2];
+        out[keys.length] = 42;
+        hf.hash(keys, out);
+        for (int i = 0; i < keys.length; i++) assertEquals(hf.hash(keys[i]), out[i], hf.id() + " key " + keys[i]);
+        assertEquals(42, out[keys.length], "Wrote past the batch");
+    }
+
+    // ---------- 3) Batch routing ----------
+    @Test
+    void batch_routing_matches_single_keys() {
+        HashFunction hf = new Murmur3x64HashFunction();
+        for (int nodes : new int[]{1, 3, 50}) {
+            for (int vNodes : new int[]{1, 2, 100}) {
+                for (SearchIndex index : SearchIndex.values()) {
+                    for (RingLayout layout : List.of(RingLayout.REFERENCES, RingLayout.OFF_HEAP)) {
+                        RingSnapshot ring = (RingSnapshot) new ConsistentHashingBuilder()
+                                .withHash(hf)
+                                .withNodes(BenchmarkData.nodes(nodes))
+                                .withVNodes(vNodes)
+                                .withSearchIndex(index)
+                                .withLayout(layout)
+                                .build()
+                                .getEngine();
+                        checkRouting(ring, probes(ring, new SplittableRandom(nodes * 31L + vNodes)));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Every point, its neighbours, the ends of the hash space and random hashes. */
+    private static long[] probes(RingSnapshot ring, SplittableRandom rng) {
+        int size = ring.ringSize();
+        long[] probes = new long[3 * size + 4 + 1_000];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            long p = ring.pointAt(i);
+            probes[n++] = p;
+            probes[n++] = p - 1;
+            probes[n++] = p + 1;
+        }
+        probes[n++] = 0;
+        probes[n++] = -1;
+        probes[n++] = Long.MIN_VALUE;
+        probes[n++] = Long.MAX_VALUE;
+        while (n < probes.length) probes[n++] = rng.nextLong();
+        return probes;
+    }
+
+    private static void checkRouting(RingSnapshot ring, long[] hashes) {
+        int[] indices = new int[hashes.length];
+        Node[] nodes = new Node[hashes.length];
+        ring.routeBatch(hashes, indices);
+        ring.routeBatch(hashes, nodes);
+        for (int i = 0; i < hashes.length; i++) {
+            String where = ring.getSearchIndex() + "/" + ring.getLayout() + " size " + ring.ringSize() + " hash " + hashes[i];
+            assertEquals(ring.routeIndex(hashes[i]), indices[i], where);
+            assertSame(ring.route(hashes[i]), nodes[i], where);
+        }
+    }
+}
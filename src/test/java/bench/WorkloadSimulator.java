@@ -0,0 +1,623 @@
+package bench;
+
+import io.github.NK8916.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Workload simulator: N reader threads route a generated or replayed key stream through a
+ * {@link ConsistentHashing} built from a {@link NodeGenerator} cluster, while joins, leaves
+ * and weight changes are applied on a schedule. Each interval reports throughput, lookup
+ * latency percentiles and the per-node load imbalance seen in that interval; each change
+ * reports its publish time and the keys it remapped. Results go out as CSV or JSON, so runs
+ * with different hashes, algorithms or vnode counts can be compared side by side.
+ *
+ * <pre>
+ * mvn -Psim -DskipTests integration-test \
+ *     -Dsim.args="--threads=4 --distribution=zipf --zipf=1.1 --churn=2s:join,4s:leave,6s:weight --format=json --out=target/sim.json"
+ * </pre>
+ *
+ * Notes:
+ * - Latencies are log-linear bucket upper bounds (at most 1/8 above the true value) and include
+ *   the timer; compare them between runs rather than against JMH numbers.
+ * - Throughput includes the per-node load counting, so it is a lower bound on raw lookup speed.
+ * - Load imbalance is keys per unit weight, max over mean, over the nodes present at the end
+ *   of the interval.
+ * - Remapped keys are counted over a fixed sample of the key pool, routed through the engines
+ *   before and after the change; on rings the exact moved fraction of the hash space is added.
+ *   The coordinator does this counting while readers run, so keep the sample small on few cores.
+ * - {@link NodeGenerator} ids are random, so the ring differs between runs; {@code --seed}
+ *   fixes the key stream and the churn picks.
+ */
+public final class WorkloadSimulator {
+
+    enum ChangeKind { JOIN, LEAVE, WEIGHT }
+
+    static final String USAGE = String.join("\n",
+            "Options (--name=value; durations take ms, s or m, bare numbers are ms):",
+            "  --nodes=100 --vnodes=160 --hash=MURMUR3_X64 --algorithm=RING --layout=REFERENCES --cache=0",
+            "  --threads=4 --duration=10s --interval=1s --seed=42",
+            "  --distribution=ZIPF|UNIFORM|HOTSET|REPLAY --keys=1000000 --zipf=1.1",
+            "  --hotset=1000 --hotfraction=0.9 --shift=0 --replay=<file, one key per line>",
+            "  --churn=2s:join,4s:leave,6s:weight --repeat=0 --remapsample=100000",
+            "  --format=csv|json --out=<file; CSV also writes <name>-changes.csv>");
+
+    /** Simulation options; see {@link #USAGE}. */
+    static final class Config {
+        int nodes = 100;
+        int vNodes = 160;
+        HashKind hash = HashKind.MURMUR3_X64;
+        RoutingAlgorithm algorithm = RoutingAlgorithm.RING;
+        RingLayout layout = RingLayout.REFERENCES;
+        int cache = 0;
+        int threads = 4;
+        long durationMillis = 10_000;
+        long intervalMillis = 1_000;
+        long seed = 42;
+        KeyStream.Distribution distribution = KeyStream.Distribution.ZIPF;
+        int keys = 1_000_000;
+        double zipf = 1.1;
+        int hotSet = 1_000;
+        double hotFraction = 0.9;
+        long shiftMillis = 0;
+        String replay;
+        final List<Scheduled> churn = new ArrayList<>();
+        /** When positive, the churn schedule restarts every {@code repeatMillis}. */
+        long repeatMillis = 0;
+        int remapSample = 100_000;
+        String format = "csv";
+        String out;
+
+        static Config parse(String... args) {
+            Config c = new Config();
+            for (String arg : args) {
+                if (arg.isBlank()) continue;
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value: " + arg);
+                String name = arg.substring(2, eq).toLowerCase(Locale.ROOT);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "nodes": c.nodes = Integer.parseInt(value); break;
+                    case "vnodes": c.vNodes = Integer.parseInt(value); break;
+                    case "hash": c.hash = HashKind.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "algorithm": c.algorithm = RoutingAlgorithm.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "layout": c.layout = RingLayout.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "cache": c.cache = Integer.parseInt(value); break;
+                    case "threads": c.threads = Integer.parseInt(value); break;
+                    case "duration": c.durationMillis = millis(value); break;
+                    case "interval": c.intervalMillis = millis(value); break;
+                    case "seed": c.seed = Long.parseLong(value); break;
+                    case "distribution": c.distribution = KeyStream.Distribution.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "keys": c.keys = Integer.parseInt(value); break;
+                    case "zipf": c.zipf = Double.parseDouble(value); break;
+                    case "hotset": c.hotSet = Integer.parseInt(value); break;
+                    case "hotfraction": c.hotFraction = Double.parseDouble(value); break;
+                    case "shift": c.shiftMillis = millis(value); break;
+                    case "replay": c.replay = value; c.distribution = KeyStream.Distribution.REPLAY; break;
+                    case "churn": c.churn.clear(); c.churn.addAll(schedule(value)); break;
+                    case "repeat": c.repeatMillis = millis(value); break;
+                    case "remapsample": c.remapSample = Integer.parseInt(value); break;
+                    case "format": c.format = value.toLowerCase(Locale.ROOT); break;
+                    case "out": c.out = value; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (c.threads < 1 || c.nodes < 1 || c.intervalMillis < 1 || c.durationMillis < 1) {
+                throw new IllegalArgumentException("threads, nodes, interval and duration must be positive");
+            }
+            if (!c.format.equals("csv") && !c.format.equals("json")) {
+                throw new IllegalArgumentException("Unknown format: " + c.format);
+            }
+            if (c.distribution == KeyStream.Distribution.REPLAY && c.replay == null) {
+                throw new IllegalArgumentException("REPLAY needs --replay=<file>");
+            }
+            return c;
+        }
+
+        KeyStream stream() throws IOException {
+            if (distribution == KeyStream.Distribution.REPLAY) return KeyStream.replay(Path.of(replay));
+            return KeyStream.generated(distribution, keys, zipf, hotSet, hotFraction,
+                    TimeUnit.MILLISECONDS.toNanos(shiftMillis), seed);
+        }
+
+        /** Changes due before the end of the run, in time order. */
+        List<Scheduled> timeline() {
+            List<Scheduled> all = new ArrayList<>();
+            for (Scheduled s : churn) {
+                for (long at = s.atMillis; at < durationMillis; at += repeatMillis) {
+                    all.add(new Scheduled(at, s.kind));
+                    if (repeatMillis <= 0) break;
+                }
+            }
+            all.sort(Comparator.comparingLong(s -> s.atMillis));
+            return all;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("nodes", nodes);
+            m.put("vnodes", vNodes);
+            m.put("hash", hash.name());
+            m.put("algorithm", algorithm.name());
+            m.put("layout", layout.name());
+            m.put("cache", cache);
+            m.put("threads", threads);
+            m.put("durationMillis", durationMillis);
+            m.put("intervalMillis", intervalMillis);
+            m.put("seed", seed);
+            m.put("distribution", distribution.name());
+            if (distribution == KeyStream.Distribution.REPLAY) {
+                m.put("replay", replay);
+            } else {
+                m.put("keys", keys);
+                if (distribution == KeyStream.Distribution.ZIPF) m.put("zipf", zipf);
+                if (distribution == KeyStream.Distribution.HOTSET) m.put("hotFraction", hotFraction);
+                if (distribution != KeyStream.Distribution.UNIFORM) {
+                    m.put("hotSet", hotSet);
+                    m.put("shiftMillis", shiftMillis);
+                }
+            }
+            StringJoiner churnSpec = new StringJoiner(",");
+            for (Scheduled s : churn) churnSpec.add(s.atMillis + "ms:" + s.kind.name().toLowerCase(Locale.ROOT));
+            m.put("churn", churnSpec.toString());
+            m.put("repeatMillis", repeatMillis);
+            return m;
+        }
+    }
+
+    static final class Scheduled {
+        final long atMillis;
+        final ChangeKind kind;
+
+        Scheduled(long atMillis, ChangeKind kind) {
+            this.atMillis = atMillis;
+            this.kind = kind;
+        }
+    }
+
+    /** One reporting interval. */
+    static final class Interval {
+        long endMillis;
+        double seconds;
+        long ops;
+        long p50, p90, p99, p999, max;
+        int nodes;
+        double loadMaxOverMean, loadCv;
+
+        double opsPerSecond() {
+            return ops / seconds;
+        }
+    }
+
+    /** One applied membership change. */
+    static final class Change {
+        long atMillis;
+        ChangeKind kind;
+        String nodeId;
+        int nodes;
+        double publishMillis;
+        int sampledKeys, remappedKeys;
+        /** Exact moved share of the hash space on rings; NaN for other engines. */
+        double movedFraction = Double.NaN;
+
+        double remappedFraction() {
+            return sampledKeys == 0 ? 0 : (double) remappedKeys / sampledKeys;
+        }
+    }
+
+    static final class Report {
+        final Config config;
+        final List<Interval> intervals = new ArrayList<>();
+        final List<Change> changes = new ArrayList<>();
+        final long[] latencies = new long[Latencies.BUCKETS];
+        long totalOps;
+        double seconds;
+
+        Report(Config config) {
+            this.config = config;
+        }
+
+        double worstImbalance() {
+            return intervals.stream().mapToDouble(i -> i.loadMaxOverMean).filter(d -> !Double.isNaN(d)).max().orElse(Double.NaN);
+        }
+
+        String summary() {
+            return String.format(Locale.ROOT,
+                    "%d lookups in %.1fs = %.0f ops/s  p50=%dns p99=%dns p99.9=%dns  worst max/mean load=%.3f  changes=%d",
+                    totalOps, seconds, totalOps / seconds, Latencies.percentile(latencies, 0.50),
+                    Latencies.percentile(latencies, 0.99), Latencies.percentile(latencies, 0.999),
+                    worstImbalance(), changes.size());
+        }
+
+        void writeCsv(Appendable intervalsOut, Appendable changesOut) throws IOException {
+            intervalsOut.append("time_ms,seconds,ops,ops_per_sec,p50_ns,p90_ns,p99_ns,p999_ns,max_ns,nodes,load_max_over_mean,load_cv\n");
+            for (Interval i : intervals) {
+                intervalsOut.append(String.format(Locale.ROOT, "%d,%.3f,%d,%.0f,%d,%d,%d,%d,%d,%d,%s,%s%n",
+                        i.endMillis, i.seconds, i.ops, i.opsPerSecond(), i.p50, i.p90, i.p99, i.p999, i.max,
+                        i.nodes, csv(i.loadMaxOverMean), csv(i.loadCv)));
+            }
+            changesOut.append("time_ms,kind,node,nodes,publish_ms,sampled_keys,remapped_keys,remapped_fraction,moved_fraction\n");
+            for (Change c : changes) {
+                changesOut.append(String.format(Locale.ROOT, "%d,%s,%s,%d,%.3f,%d,%d,%s,%s%n",
+                        c.atMillis, c.kind, c.nodeId, c.nodes, c.publishMillis, c.sampledKeys, c.remappedKeys,
+                        csv(c.remappedFraction()), csv(c.movedFraction)));
+            }
+        }
+
+        void writeJson(Appendable out) throws IOException {
+            out.append("{\n  \"config\": ").append(json(config.describe())).append(",\n");
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("ops", totalOps);
+            summary.put("seconds", seconds);
+            summary.put("opsPerSecond", totalOps / seconds);
+            summary.put("p50Nanos", Latencies.percentile(latencies, 0.50));
+            summary.put("p90Nanos", Latencies.percentile(latencies, 0.90));
+            summary.put("p99Nanos", Latencies.percentile(latencies, 0.99));
+            summary.put("p999Nanos", Latencies.percentile(latencies, 0.999));
+            summary.put("maxNanos", Latencies.percentile(latencies, 1.0));
+            summary.put("worstLoadMaxOverMean", worstImbalance());
+            summary.put("changes", changes.size());
+            out.append("  \"summary\": ").append(json(summary)).append(",\n  \"intervals\": [");
+            for (int k = 0; k < intervals.size(); k++) {
+                Interval i = intervals.get(k);
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("timeMillis", i.endMillis);
+                m.put("seconds", i.seconds);
+                m.put("ops", i.ops);
+                m.put("opsPerSecond", i.opsPerSecond());
+                m.put("p50Nanos", i.p50);
+                m.put("p90Nanos", i.p90);
+                m.put("p99Nanos", i.p99);
+                m.put("p999Nanos", i.p999);
+                m.put("maxNanos", i.max);
+                m.put("nodes", i.nodes);
+                m.put("loadMaxOverMean", i.loadMaxOverMean);
+                m.put("loadCv", i.loadCv);
+                out.append(k == 0 ? "\n    " : ",\n    ").append(json(m));
+            }
+            out.append(intervals.isEmpty() ? "],\n" : "\n  ],\n").append("  \"changes\": [");
+            for (int k = 0; k < changes.size(); k++) {
+                Change c = changes.get(k);
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("timeMillis", c.atMillis);
+                m.put("kind", c.kind.name());
+                m.put("node", c.nodeId);
+                m.put("nodes", c.nodes);
+                m.put("publishMillis", c.publishMillis);
+                m.put("sampledKeys", c.sampledKeys);
+                m.put("remappedKeys", c.remappedKeys);
+                m.put("remappedFraction", c.remappedFraction());
+                m.put("movedFraction", c.movedFraction);
+                out.append(k == 0 ? "\n    " : ",\n    ").append(json(m));
+            }
+            out.append(changes.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        }
+
+        private static String csv(double d) {
+            return Double.isNaN(d) ? "" : String.format(Locale.ROOT, "%.6f", d);
+        }
+
+        private static String json(Map<String, Object> m) {
+            StringJoiner j = new StringJoiner(", ", "{", "}");
+            for (Map.Entry<String, Object> e : m.entrySet()) {
+                Object v = e.getValue();
+                String value;
+                if (v instanceof Double) {
+                    double d = (Double) v;
+                    value = Double.isNaN(d) || Double.isInfinite(d) ? "null" : String.format(Locale.ROOT, "%.6f", d);
+                } else if (v instanceof Number) {
+                    value = v.toString();
+                } else {
+                    value = v == null ? "null" : quote(v.toString());
+                }
+                j.add(quote(e.getKey()) + ": " + value);
+            }
+            return j.toString();
+        }
+
+        private static String quote(String s) {
+            StringBuilder b = new StringBuilder("\"");
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+                if (ch == '"' || ch == '\\') b.append('\\').append(ch);
+                else if (ch < 0x20) b.append(String.format("\\u%04x", (int) ch));
+                else b.append(ch);
+            }
+            return b.append('"').toString();
+        }
+    }
+
+    /**
+     * Lookup latencies of one reader: log-linear buckets, eight per power of two. Only the
+     * reader writes; the coordinator sums the buckets while it runs.
+     */
+    static final class Latencies {
+        static final int BUCKETS = 62 * 8;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            int b = bucket(nanos);
+            counts.lazySet(b, counts.get(b) + 1);
+        }
+
+        void addTo(long[] sums) {
+            for (int b = 0; b < BUCKETS; b++) sums[b] += counts.get(b);
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < 8) return (int) Math.max(0, nanos);
+            int msb = 63 - Long.numberOfLeadingZeros(nanos);
+            return (msb - 2) * 8 + (int) (nanos >>> (msb - 3) & 7);
+        }
+
+        /** Largest value falling into bucket {@code b}. */
+        static long upper(int b) {
+            if (b < 8) return b;
+            int shift = b / 8 - 1;
+            return ((8L + b % 8) << shift) + (1L << shift) - 1;
+        }
+
+        static long percentile(long[] counts, double q) {
+            long total = 0;
+            for (long c : counts) total += c;
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) return upper(b);
+            }
+            return upper(counts.length - 1);
+        }
+    }
+
+    private WorkloadSimulator() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && (args[0].equals("--help") || args[0].equals("-h"))) {
+            System.out.println(USAGE);
+            return;
+        }
+        Config config = Config.parse(args);
+        Report report = run(config);
+        if (config.out == null) {
+            Writer out = new java.io.OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            if (config.format.equals("json")) {
+                report.writeJson(out);
+            } else {
+                StringBuilder changes = new StringBuilder();
+                report.writeCsv(out, changes);
+                out.append('\n').append(changes);
+            }
+            out.flush();
+        } else {
+            Path path = Path.of(config.out);
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            if (config.format.equals("json")) {
+                try (Writer out = Files.newBufferedWriter(path)) {
+                    report.writeJson(out);
+                }
+            } else {
+                try (Writer out = Files.newBufferedWriter(path);
+                     Writer changes = Files.newBufferedWriter(changesPath(path))) {
+                    report.writeCsv(out, changes);
+                }
+            }
+        }
+        System.err.println(report.summary());
+    }
+
+    static Path changesPath(Path intervals) {
+        String name = intervals.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String changes = dot > 0 ? name.substring(0, dot) + "-changes" + name.substring(dot) : name + "-changes";
+        return intervals.resolveSibling(changes);
+    }
+
+    /** Runs one simulation; blocks for {@code config.durationMillis}. */
+    static Report run(Config config) throws Exception {
+        HashFunction hash = config.hash.create();
+        ConsistentHashingBuilder builder = new ConsistentHashingBuilder()
+                .withHash(hash)
+                .withNodes(NodeGenerator.generateNode(config.nodes).toArray(new Node[0]))
+                .withVNodes(config.vNodes)
+                .withAlgorithm(config.algorithm)
+                .withLayout(config.layout);
+        if (config.cache > 0) builder.withKeyCache(config.cache);
+        ConsistentHashing router = builder.build();
+        KeyStream stream = config.stream();
+        long[] sample = sample(stream.keys, config.remapSample, hash);
+
+        Report report = new Report(config);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Map<String, LongAdder> loads = new ConcurrentHashMap<>();
+        Latencies[] latencies = new Latencies[config.threads];
+        Thread[] readers = new Thread[config.threads];
+        for (int r = 0; r < readers.length; r++) {
+            Latencies lat = latencies[r] = new Latencies();
+            KeyStream.Picker picker = stream.picker(r, readers.length, config.seed);
+            readers[r] = new Thread(() -> {
+                try {
+                    long now = System.nanoTime();
+                    while (!stop.get()) {
+                        String key = picker.next(now);
+                        long t0 = System.nanoTime();
+                        Node node = router.getNodeForKey(key);
+                        now = System.nanoTime();
+                        lat.record(now - t0);
+                        LongAdder load = loads.get(node.getId());
+                        if (load == null) load = loads.computeIfAbsent(node.getId(), id -> new LongAdder());
+                        load.increment();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    stop.set(true);
+                }
+            }, "sim-reader-" + r);
+            readers[r].setDaemon(true);
+        }
+
+        List<Scheduled> timeline = config.timeline();
+        SplittableRandom rng = new SplittableRandom(config.seed);
+        long[] seen = new long[Latencies.BUCKETS];
+        Map<String, Long> seenLoads = new HashMap<>();
+        long start = System.nanoTime();
+        for (Thread t : readers) t.start();
+        long lastTick = start;
+        long nextTick = config.intervalMillis;
+        int next = 0;
+        while (!stop.get()) {
+            long nextChange = next < timeline.size() ? timeline.get(next).atMillis : Long.MAX_VALUE;
+            if (nextTick < config.durationMillis && nextTick <= nextChange) {
+                sleepUntil(start, nextTick);
+                long now = System.nanoTime();
+                report.intervals.add(interval(now, start, lastTick, latencies, seen, loads, seenLoads, router.getEngine()));
+                lastTick = now;
+                nextTick += config.intervalMillis;
+            } else if (nextChange < config.durationMillis) {
+                sleepUntil(start, nextChange);
+                long at = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Change change = apply(timeline.get(next++).kind, router, rng, sample);
+                if (change != null) {
+                    change.atMillis = at;
+                    report.changes.add(change);
+                }
+            } else {
+                sleepUntil(start, config.durationMillis);
+                break;
+            }
+        }
+        stop.set(true);
+        for (Thread t : readers) t.join();
+        if (failure.get() != null) throw new IllegalStateException("Reader failed", failure.get());
+        long end = System.nanoTime();
+        report.intervals.add(interval(end, start, lastTick, latencies, seen, loads, seenLoads, router.getEngine()));
+        System.arraycopy(seen, 0, report.latencies, 0, seen.length);
+        for (Interval i : report.intervals) report.totalOps += i.ops;
+        report.seconds = (end - start) / 1e9;
+        return report;
+    }
+
+    private static Interval interval(long now, long start, long lastTick, Latencies[] latencies, long[] seen,
+                                     Map<String, LongAdder> loads, Map<String, Long> seenLoads, RoutingEngine engine) {
+        Interval interval = new Interval();
+        interval.endMillis = TimeUnit.NANOSECONDS.toMillis(now - start);
+        interval.seconds = (now - lastTick) / 1e9;
+        long[] total = new long[Latencies.BUCKETS];
+        for (Latencies l : latencies) l.addTo(total);
+        long[] delta = new long[Latencies.BUCKETS];
+        for (int b = 0; b < delta.length; b++) {
+            delta[b] = total[b] - seen[b];
+            interval.ops += delta[b];
+        }
+        System.arraycopy(total, 0, seen, 0, total.length);
+        interval.p50 = Latencies.percentile(delta, 0.50);
+        interval.p90 = Latencies.percentile(delta, 0.90);
+        interval.p99 = Latencies.percentile(delta, 0.99);
+        interval.p999 = Latencies.percentile(delta, 0.999);
+        interval.max = Latencies.percentile(delta, 1.0);
+
+        Map<String, Long> current = new HashMap<>();
+        loads.forEach((id, adder) -> current.put(id, adder.sum()));
+        List<Node> nodes = engine.getNodes();
+        double sum = 0, sumSq = 0, max = 0;
+        for (Node node : nodes) {
+            long keys = current.getOrDefault(node.getId(), 0L) - seenLoads.getOrDefault(node.getId(), 0L);
+            double perWeight = keys / node.getWeight();
+            sum += perWeight;
+            sumSq += perWeight * perWeight;
+            max = Math.max(max, perWeight);
+        }
+        seenLoads.putAll(current);
+        double mean = sum / nodes.size();
+        interval.nodes = nodes.size();
+        interval.loadMaxOverMean = mean > 0 ? max / mean : Double.NaN;
+        interval.loadCv = mean > 0 ? Math.sqrt(Math.max(0, sumSq / nodes.size() - mean * mean)) / mean : Double.NaN;
+        return interval;
+    }
+
+    /** Applies one change through the router's update methods; a leave that would empty the cluster is skipped. */
+    private static Change apply(ChangeKind kind, ConsistentHashing router, SplittableRandom rng, long[] sample) {
+        RoutingEngine before = router.getEngine();
+        List<Node> nodes = before.getNodes();
+        Node target;
+        long t0 = System.nanoTime();
+        switch (kind) {
+            case JOIN:
+                target = NodeGenerator.randomNode();
+                router.addNodes(target);
+                break;
+            case LEAVE:
+                if (nodes.size() < 2) return null;
+                target = nodes.get(rng.nextInt(nodes.size()));
+                router.removeNodes(target);
+                break;
+            default: // WEIGHT
+                Node old = nodes.get(rng.nextInt(nodes.size()));
+                double weight = Math.round((0.5 + rng.nextDouble() * 1.5) * 20) / 20.0;
+                target = new Node(old.getId(), old.getIpAddress(), old.getPort(), old.getRegion(), old.getMetaData(), weight);
+                router.updateNodes(target);
+        }
+        Change change = new Change();
+        change.publishMillis = (System.nanoTime() - t0) / 1e6;
+        change.kind = kind;
+        change.nodeId = target.getId();
+        RoutingEngine after = router.getEngine();
+        change.nodes = after.getNodeCount();
+        change.sampledKeys = sample.length;
+        for (long h : sample) {
+            if (!before.route(h).getId().equals(after.route(h).getId())) change.remappedKeys++;
+        }
+        if (before instanceof RingSnapshot && after instanceof RingSnapshot) {
+            change.movedFraction = RingDiff.between((RingSnapshot) before, (RingSnapshot) after).movedFraction();
+        }
+        return change;
+    }
+
+    /** Hashes of up to {@code size} keys spread evenly over the pool. */
+    private static long[] sample(String[] keys, int size, HashFunction hash) {
+        int n = Math.min(Math.max(0, size), keys.length);
+        long[] out = new long[n];
+        for (int k = 0; k < n; k++) out[k] = hash.hash(keys[(int) ((long) k * keys.length / n)]);
+        return out;
+    }
+
+    private static void sleepUntil(long start, long millis) throws InterruptedException {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long left; (left = deadline - System.nanoTime()) > 0; ) {
+            TimeUnit.NANOSECONDS.sleep(left);
+        }
+    }
+
+    private static List<Scheduled> schedule(String spec) {
+        List<Scheduled> out = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            int colon = part.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("Expected <time>:<join|leave|weight>: " + part);
+            out.add(new Scheduled(millis(part.substring(0, colon).trim()),
+                    ChangeKind.valueOf(part.substring(colon + 1).trim().toUpperCase(Locale.ROOT))));
+        }
+        return out;
+    }
+
+    static long millis(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        if (v.endsWith("ms")) return Long.parseLong(v.substring(0, v.length() - 2));
+        if (v.endsWith("s")) return Math.round(Double.parseDouble(v.substring(0, v.length() - 1)) * 1_000);
+        if (v.endsWith("m")) return Math.round(Double.parseDouble(v.substring(0, v.length() - 1)) * 60_000);
+        return Long.parseLong(v);
+    }
+}
@@ -0,0 +1,105 @@
+package bench;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests:
+ * 1) Key streams: Zipf rank 1 takes its expected share, the hot set takes its share and moves on
+ *    every shift, a replay cycles through the trace
+ * 2) A short run with churn reports every interval and change, a join remaps about 1/N of the keys,
+ *    and the CSV and JSON output carry one row per interval and change
+ *
+ * Notes:
+ * - (2) runs for about a second and a half on a small cluster; only shapes and coarse numbers are checked.
+ */
+public class WorkloadSimulatorTests {
+
+    // ---------- 1) Key streams ----------
+    @Test
+    void key_streams_follow_their_distribution() throws Exception {
+        int pool = 1_000, picks = 200_000;
+        double s = 1.1;
+        KeyStream zipf = KeyStream.generated(KeyStream.Distribution.ZIPF, pool, s, 10, 0, 0, 7);
+        KeyStream.Picker picker = zipf.picker(0, 1, 7);
+        String top = zipf.keys[zipf.keyIndexOfRank(0)];
+        int topHits = 0;
+        for (int i = 0; i < picks; i++) if (picker.next(0).equals(top)) topHits++;
+        double harmonic = 0;
+        for (int k = 1; k <= pool; k++) harmonic += 1 / Math.pow(k, s);
+        assertEquals(1 / harmonic, (double) topHits / picks, 0.01, "Share of rank 1");
+
+        // the hot set takes its share, then a new set heats up every shift
+        KeyStream hot = KeyStream.generated(KeyStream.Distribution.HOTSET, pool, 0, 50, 0.9, 1_000_000_000L, 7);
+        KeyStream.Picker hotPicker = hot.picker(0, 1, 7);
+        Set<String> firstSet = new HashSet<>();
+        for (int r = 0; r < 50; r++) firstSet.add(hot.keys[hot.keyIndexOfRank(r)]);
+        long now = System.nanoTime();
+        int inFirst = 0, inFirstLater = 0;
+        for (int i = 0; i < 100_000; i++) if (firstSet.contains(hotPicker.next(now))) inFirst++;
+        for (int i = 0; i < 100_000; i++) if (firstSet.contains(hotPicker.next(now + 1_000_000_000L))) inFirstLater++;
+        assertTrue(inFirst > 90_000, "Hot set share: " + inFirst);
+        assertTrue(inFirstLater < 1_000, "Old hot keys cooled down: " + inFirstLater);
+
+        Path trace = Files.createTempFile("trace", ".txt");
+        try {
+            Files.write(trace, List.of("a", "b", "", "c"));
+            KeyStream replay = KeyStream.replay(trace);
+            KeyStream.Picker cursor = replay.picker(0, 1, 0);
+            StringBuilder seen = new StringBuilder();
+            for (int i = 0; i < 7; i++) seen.append(cursor.next(0));
+            assertEquals("abcabca", seen.toString());
+            assertEquals("b", replay.picker(1, 3, 0).next(0), "Readers start at staggered offsets");
+        } finally {
+            Files.delete(trace);
+        }
+    }
+
+    // ---------- 2) Short run with churn ----------
+    @Test
+    void short_run_reports_intervals_and_changes() throws Exception {
+        WorkloadSimulator.Config config = WorkloadSimulator.Config.parse(
+                "--nodes=20", "--vnodes=100", "--threads=2", "--duration=1500ms", "--interval=500ms",
+                "--distribution=uniform", "--keys=50000", "--remapsample=20000",
+                "--churn=200ms:join,600ms:leave,1s:weight");
+        WorkloadSimulator.Report report = WorkloadSimulator.run(config);
+        System.out.println("simulator: " + report.summary());
+
+        assertEquals(3, report.intervals.size());
+        assertTrue(report.totalOps > 0);
+        for (WorkloadSimulator.Interval i : report.intervals) {
+            assertTrue(i.ops > 0, "Interval without lookups");
+            assertTrue(i.p50 <= i.p99 && i.p99 <= i.max);
+            assertTrue(i.loadMaxOverMean >= 1.0);
+        }
+        assertEquals(List.of(WorkloadSimulator.ChangeKind.JOIN, WorkloadSimulator.ChangeKind.LEAVE,
+                WorkloadSimulator.ChangeKind.WEIGHT), report.changes.stream().map(c -> c.kind).toList());
+        WorkloadSimulator.Change join = report.changes.get(0);
+        assertEquals(21, join.nodes);
+        assertEquals(20, report.changes.get(1).nodes);
+        assertEquals(1.0 / 21, join.remappedFraction(), 0.03, "A join takes about 1/N of the keys");
+        assertEquals(join.movedFraction, join.remappedFraction(), 0.01, "Sample agrees with the exact diff");
+
+        StringBuilder intervals = new StringBuilder(), changes = new StringBuilder();
+        report.writeCsv(intervals, changes);
+        assertEquals(1 + report.intervals.size(), intervals.toString().lines().count());
+        assertEquals(1 + report.changes.size(), changes.toString().lines().count());
+        assertTrue(changes.toString().lines().skip(1).findFirst().orElseThrow().contains(",JOIN," + join.nodeId + ",21,"));
+
+        StringBuilder json = new StringBuilder();
+        report.writeJson(json);
+        String out = json.toString();
+        for (String field : List.of("\"config\"", "\"summary\"", "\"intervals\"", "\"changes\"", "\"p99Nanos\"", "\"remappedFraction\"")) {
+            assertTrue(out.contains(field), "Missing " + field);
+        }
+        assertEquals(report.intervals.size() + report.changes.size(), out.split("\"timeMillis\"").length - 1);
+
+        assertEquals(Path.of("target", "sim-changes.csv"), WorkloadSimulator.changesPath(Path.of("target", "sim.csv")));
+        assertThrows(IllegalArgumentException.class, () -> WorkloadSimulator.Config.parse("--bogus=1"));
+    }
+}